@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location;
+
+public class IgnitedLocationConstants {
+
+    public static final boolean USE_GPS_DEFAULT = true;
+    public static final boolean ENABLE_LOCATION_UPDATES_DEFAULT = true;
+    // The maximum distance the user should travel between location updates.
+    public static final int LOCATION_UPDATES_DISTANCE_DIFF_DEFAULT = 100; // meters
+    // The maximum time that should pass before the user gets a location update.
+    public static final long LOCATION_UPDATES_INTERVAL_DEFAULT = 5 * 60 * 1000; // 5 minutes
+    // You will generally want passive location updates to occur less frequently
+    // than active updates. You need to balance location freshness with battery
+    // life. The location update distance for passive updates.
+    public static final int PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF_DEFAULT = LOCATION_UPDATES_DISTANCE_DIFF_DEFAULT;
+    // The location update time for passive updates
+    public static final long PASSIVE_LOCATION_UPDATES_INTERVAL_DEFAULT = LOCATION_UPDATES_INTERVAL_DEFAULT * 3;
+    // When the user exits via the back button, do you want to disable
+    // passive background updates.
+    public static final boolean ENABLE_PASSIVE_LOCATION_UPDATES_DEFAULT = true;
+    // The passive receiver can be woken up for every fix received by 3rd party apps. Don't process
+    // passive updates more often than this.
+    public static final long PASSIVE_LOCATION_UPDATES_MIN_PROCESSING_INTERVAL_DEFAULT = 30 * 1000; // 30s
+    // Duty-cycle gps during long tracking sessions: once a fix accurate enough has been received
+    // gps is turned off until the next fix is due.
+    public static final boolean DUTY_CYCLE_GPS_DEFAULT = false;
+    // The accuracy a gps fix must have before gps is turned off for the rest of the cycle.
+    public static final int DUTY_CYCLE_GPS_ACCURACY_DEFAULT = 50; // meters
+    // Suspend active location updates while the device is still, relying on passive updates and
+    // on the motion sensor to notice when it moves again.
+    public static final boolean DETECT_STILLNESS_DEFAULT = false;
+    // How long the device must stay within the stillness radius to be considered still.
+    public static final long STILLNESS_TIMEOUT_DEFAULT = 5 * 60 * 1000; // 5 minutes
+    public static final int STILLNESS_RADIUS_DEFAULT = 50; // meters
+    // How long the device must stay within the stop radius for the trip segmentation to report a
+    // stop.
+    public static final long STOP_MIN_DURATION_DEFAULT = 5 * 60 * 1000; // 5 minutes
+    public static final int STOP_RADIUS_DEFAULT = 100; // meters
+    // The longest interval location updates are relaxed to while the device is stopped.
+    public static final long STOPPED_LOCATION_UPDATES_INTERVAL = 15 * 60 * 1000; // 15 minutes
+    // Percentage of the battery location may use per hour, 0 for no budget.
+    public static final float BATTERY_BUDGET_DEFAULT = 0;
+
+    public static final String SHARED_PREFERENCE_FILE = "IgnitedLocationManagerPreference";
+    public static final String SP_KEY_RUN_ONCE = "sp_key_run_once";
+    public static final String SP_KEY_ENABLE_LOCATION_UPDATES = "sp_key_enable_location_updates";
+    public static final String SP_KEY_ENABLE_PASSIVE_LOCATION_UPDATES = "sp_key_enable_passive_location_updates";
+    public static final String SP_KEY_LOCATION_UPDATES_USE_GPS = "sp_key_location_updates_use_gps";
+    public static final String SP_KEY_LOCATION_UPDATES_DISTANCE_DIFF = "sp_location_updates_distance_diff";
+    public static final String SP_KEY_LOCATION_UPDATES_INTERVAL = "sp_key_location_updates_interval";
+    public static final String SP_KEY_PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF = "sp_passive_location_updates_distance_diff";
+    public static final String SP_KEY_PASSIVE_LOCATION_UPDATES_INTERVAL = "sp_key_passive_location_updates_interval";
+    public static final String SP_KEY_MIN_BATTERY_LEVEL = "sp_key_min_battery_level";
+    public static final String SP_KEY_WAIT_FOR_GPS_FIX_INTERVAL = "sp_key_wait_for_gps_fix_interval";
+    public static final String SP_KEY_DUTY_CYCLE_GPS = "sp_key_duty_cycle_gps";
+    public static final String SP_KEY_DUTY_CYCLE_GPS_ACCURACY = "sp_key_duty_cycle_gps_accuracy";
+    public static final String SP_KEY_DETECT_STILLNESS = "sp_key_detect_stillness";
+    public static final String SP_KEY_STILLNESS_TIMEOUT = "sp_key_stillness_timeout";
+    public static final String SP_KEY_BATTERY_BUDGET = "sp_key_battery_budget";
+
+    // public static final String PASSIVE_LOCATION_UPDATE_ACTION =
+    // "com.github.ignition.location.passive_location_update_action";
+    public static final String ACTIVE_LOCATION_UPDATE_PROVIDER_DISABLED_ACTION = "com.github.ignition.location.ACTIVE_LOCATION_UPDATE_PROVIDER_DISABLED_ACTION";
+    public static final String ACTIVE_LOCATION_UPDATE_ACTION = "com.github.ignition.location.ACTIVE_LOCATION_UPDATE_ACTION";
+    public static final String UPDATE_LOCATION_UPDATES_CRITERIA_ACTION = "com.github.ignition.location.UPDATE_LOCATION_UPDATES_CRITERIA_ACTION";
+    public static final String WAKE_UP_ACTION = "com.github.ignition.location.WAKE_UP_ACTION";
+
+    public static final String IGNITED_LOCATION_EXTRA = "ignited_location_extra";
+    public static final String IGNITED_LAST_LOCATION_EXTRA = "ignited_last_location_extra";
+
+    public static final int MIN_BATTERY_LEVEL_DEFAULT = 15;
+
+    public static final long WAIT_FOR_GPS_FIX_INTERVAL_DEFAULT = 30000; // 30s
+
+    // Re-registrations triggered by providers being enabled or disabled are coalesced over this
+    // delay, so that a flapping provider doesn't cause a storm of requests.
+    public static final long LOCATION_UPDATES_REREGISTRATION_DELAY = 2000; // 2s
+
+    // Location updates are kept for this long after the last activity is paused, so that moving
+    // from an activity to the next one doesn't remove and request them again.
+    public static final long LOCATION_UPDATES_TEARDOWN_DELAY = 1000; // 1s
+
+    // How often the battery budget governor plans the provider usage again.
+    public static final long BATTERY_BUDGET_PLAN_INTERVAL = 5 * 60 * 1000; // 5 minutes
+
+    // The battery level is read again from the sticky broadcast once it's this old, unless a
+    // receiver reports it first.
+    public static final long BATTERY_LEVEL_MAX_AGE = 5 * 60 * 1000; // 5 minutes
+
+    // Deliver the best location found so far if the last known location isn't found in time.
+    public static final long LAST_KNOWN_LOCATION_DEADLINE_DEFAULT = 2000; // 2s
+    public static final int LAST_KNOWN_LOCATION_LOADER_THREADS = 2;
+
+    // Give up on a one-shot location update if it doesn't return in time.
+    public static final long SINGLE_LOCATION_UPDATE_TIMEOUT_DEFAULT = 60000; // 60s
+
+    // Number of fixes kept in the location history.
+    public static final int LOCATION_HISTORY_CAPACITY_DEFAULT = 1024;
+    // Number of events kept by the flight recorder.
+    public static final int FLIGHT_RECORDER_CAPACITY_DEFAULT = 512;
+    // Upload the fixes in the history once there are this many of them...
+    public static final int TRACK_UPLOAD_MAX_BATCH_SIZE_DEFAULT = 100;
+    // ...or once the oldest one is this old.
+    public static final long TRACK_UPLOAD_MAX_BATCH_AGE_DEFAULT = 15 * 60 * 1000; // 15 minutes
+    // Retry a failed upload after this long, doubling the delay after each failure...
+    public static final long TRACK_UPLOAD_RETRY_DELAY_DEFAULT = 60 * 1000; // 1 minute
+    // ...up to this long.
+    public static final long TRACK_UPLOAD_MAX_RETRY_DELAY = 60 * 60 * 1000; // 1 hour
+    // The tracking service delivers the fixes to its listeners once there are this many of them...
+    public static final int TRACKING_BATCH_SIZE_DEFAULT = 10;
+    // ...or once the oldest one is this old.
+    public static final long TRACKING_MAX_BATCH_LATENCY_DEFAULT = 60000; // 60s
+
+}
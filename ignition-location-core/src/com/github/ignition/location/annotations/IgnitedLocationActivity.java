@@ -43,4 +43,14 @@ public @interface IgnitedLocationActivity {
     long waitForGpsFix() default IgnitedLocationConstants.WAIT_FOR_GPS_FIX_INTERVAL_DEFAULT;
 
     int minBatteryLevel() default IgnitedLocationConstants.MIN_BATTERY_LEVEL_DEFAULT;
+
+    boolean dutyCycleGps() default IgnitedLocationConstants.DUTY_CYCLE_GPS_DEFAULT;
+
+    int dutyCycleGpsAccuracy() default IgnitedLocationConstants.DUTY_CYCLE_GPS_ACCURACY_DEFAULT;
+
+    boolean detectStillness() default IgnitedLocationConstants.DETECT_STILLNESS_DEFAULT;
+
+    long stillnessTimeout() default IgnitedLocationConstants.STILLNESS_TIMEOUT_DEFAULT;
+
+    float batteryBudget() default IgnitedLocationConstants.BATTERY_BUDGET_DEFAULT;
 }
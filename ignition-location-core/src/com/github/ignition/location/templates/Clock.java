@@ -0,0 +1,42 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for the source of time of the library, and of the schedulers its delayed
+ * work runs on.
+ * 
+ * The library uses the system clock unless another one is set with IgnitedClock.setClock(), i.e. a
+ * {@link com.github.ignition.location.utils.VirtualClock} to simulate hours of tracking in a test.
+ */
+public interface Clock {
+
+    /**
+     * Returns the current time in milliseconds since the epoch, like System.currentTimeMillis().
+     */
+    long currentTimeMillis();
+
+    /**
+     * Returns the milliseconds since boot, like SystemClock.elapsedRealtime().
+     */
+    long elapsedRealtime();
+
+    /**
+     * Returns a new scheduler, running its tasks on the main thread at this clock's time.
+     */
+    Scheduler newScheduler();
+
+}
@@ -0,0 +1,46 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import com.github.ignition.location.utils.FixFilterChain;
+import com.github.ignition.location.utils.IgnitedFix;
+
+/**
+ * Interface definition for a stage of a {@link FixFilterChain}.
+ * 
+ * Checking a fix and remembering it are split, so that a stage only remembers the fixes that went
+ * through the whole chain.
+ */
+public interface FixFilter {
+
+    /**
+     * Returns true if the fix goes through this stage. Mustn't change the state of the stage.
+     * 
+     * @param now
+     *            the time the fix is processed at, in milliseconds
+     */
+    boolean accept(IgnitedFix fix, long now);
+
+    /**
+     * Called once the fix has gone through all the stages.
+     */
+    void onAccepted(IgnitedFix fix, long now);
+
+    /**
+     * Forget the fixes accepted so far.
+     */
+    void reset();
+}
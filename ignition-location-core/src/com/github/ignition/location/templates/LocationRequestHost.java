@@ -0,0 +1,58 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for the platform side of the
+ * {@link com.github.ignition.location.utils.LocationRequestPlanner}: the battery, the providers
+ * the criteria resolve to and the motion sensor. The requests themselves are made through a
+ * {@link LocationRequestTarget}.
+ * 
+ * Called on the thread of the planner's scheduler.
+ */
+public interface LocationRequestHost {
+
+    /**
+     * Returns the battery level, in percent.
+     */
+    double getBatteryLevel();
+
+    /**
+     * Returns the name of the provider the criteria resolve to, like
+     * LocationManager.getBestProvider(), or null if there's none.
+     * 
+     * @param accuracy
+     *            the accuracy of the criteria, i.e. Criteria.ACCURACY_FINE
+     * @param powerRequirement
+     *            the power requirement of the criteria, i.e. Criteria.POWER_LOW
+     * @param enabledOnly
+     *            only return a provider that's currently enabled
+     */
+    String getBestProvider(int accuracy, int powerRequirement, boolean enabledOnly);
+
+    /**
+     * Returns the sensor that notices when a still device moves again. Only called when stillness
+     * detection is used.
+     */
+    MotionSensor getMotionSensor();
+
+    /**
+     * Log a debug message about a decision taken.
+     */
+    void log(String message);
+
+}
@@ -0,0 +1,53 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for the side of the location requests that talks to the system: the
+ * location manager and the receivers registered while location updates are active.
+ * 
+ * Called by the LocationRequestController only when the state it wants differs from the state it
+ * has applied, so implementations don't need to check whether a call is redundant.
+ */
+public interface LocationRequestTarget {
+
+    /**
+     * Request active location updates, replacing the current request if any.
+     * 
+     * @param accuracy
+     *            the accuracy of the criteria, i.e. Criteria.ACCURACY_FINE
+     * @param powerRequirement
+     *            the power requirement of the criteria, i.e. Criteria.POWER_LOW
+     */
+    void requestActiveUpdates(long minTime, long minDistance, int accuracy, int powerRequirement);
+
+    void removeActiveUpdates();
+
+    void requestPassiveUpdates(long minTime, long minDistance);
+
+    void removePassiveUpdates();
+
+    /**
+     * Listen for the given provider, currently disabled, to be enabled.
+     */
+    void watchProvider(String provider);
+
+    void unwatchProvider();
+
+    void registerReceivers();
+
+    void unregisterReceivers();
+
+}
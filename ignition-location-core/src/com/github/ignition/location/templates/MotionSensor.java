@@ -0,0 +1,40 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for a sensor that detects when a device that has been still starts moving
+ * again, e.g. by watching the accelerometer.
+ * 
+ * The sensor is only started while location updates are suspended because the device is still, so
+ * implementations should be cheap to run but don't need to be accurate: location updates are
+ * resumed on the first motion reported.
+ */
+public interface MotionSensor {
+
+    /**
+     * Start watching for motion.
+     * 
+     * @param listener
+     *            the listener to notify, on the main thread
+     */
+    void start(OnSignificantMotionListener listener);
+
+    /**
+     * Stop watching for motion. Does nothing if the sensor isn't started.
+     */
+    void stop();
+
+}
@@ -0,0 +1,44 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.templates;
+
+import com.github.ignition.location.utils.IgnitedTripSegment;
+import com.github.ignition.location.utils.IgnitedTripSegmenter;
+
+/**
+ * Interface definition for a callback to be invoked when the {@link IgnitedTripSegmenter} finds
+ * that a trip or a stop has started or ended.
+ * 
+ * A stop ending always starts a trip and the other way round, the ended segment is reported
+ * first. The segment is only valid during the call.
+ * 
+ * Called on the thread the fixes are fed on: the main thread for the listener set on the
+ * IgnitedLocationManager.
+ */
+public interface OnTripSegmentListener {
+
+    /**
+     * Called when a segment starts, with what's known of it so far.
+     */
+    void onSegmentStarted(IgnitedTripSegment segment);
+
+    /**
+     * Called when a segment ends, with its summary.
+     */
+    void onSegmentEnded(IgnitedTripSegment segment);
+
+}
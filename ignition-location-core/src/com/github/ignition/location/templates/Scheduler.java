@@ -0,0 +1,44 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for running tasks later on the main thread, like a Handler. Each component
+ * owns its scheduler, so that {@link #removeAllCallbacks()} only cancels its own tasks.
+ * 
+ * All the methods can be called from any thread.
+ */
+public interface Scheduler {
+
+    void post(Runnable task);
+
+    /**
+     * Run the task once the delay, in milliseconds of the {@link Clock} the scheduler was created
+     * by, has elapsed.
+     */
+    void postDelayed(Runnable task, long delay);
+
+    /**
+     * Remove the pending runs of the task.
+     */
+    void removeCallbacks(Runnable task);
+
+    /**
+     * Remove all the tasks pending on this scheduler.
+     */
+    void removeAllCallbacks();
+
+}
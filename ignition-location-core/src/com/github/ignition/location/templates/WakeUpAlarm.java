@@ -0,0 +1,40 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+/**
+ * Interface definition for an alarm that wakes the device up at a given time, even if it's asleep,
+ * e.g. with the AlarmManager.
+ */
+public interface WakeUpAlarm {
+
+    /**
+     * Wake the device up at the given time, replacing the time set before.
+     * 
+     * @param elapsedRealtime
+     *            the time to wake up at, in milliseconds since boot (see
+     *            {@link Clock#elapsedRealtime()})
+     * @param listener
+     *            run on the main thread once the device is awake
+     */
+    void set(long elapsedRealtime, Runnable listener);
+
+    /**
+     * Cancel the alarm. Does nothing if it isn't set.
+     */
+    void cancel();
+
+}
@@ -0,0 +1,321 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.utils;
+
+/**
+ * Plans provider usage so that location stays within a battery budget, expressed as the
+ * percentage of the battery the app may use for location per hour.
+ * <p/>
+ * The cost of each provider is estimated from the time it's been on and the number of fixes it
+ * returned, using a cost per hour on and a cost per fix (see
+ * {@link #setCost(int, double, double)}). The estimated drain over the last
+ * {@link #DRAIN_WINDOW} is compared with the budget, and {@link #plan(long, long, int, boolean)}
+ * picks the provider, interval and distance for the next period: the requested ones if they're
+ * affordable, otherwise the requested interval stretched up to {@link #MAX_INTERVAL_STRETCH}
+ * times, otherwise a cheaper provider, and passive updates only as a last resort. Overspending
+ * lowers the budget of the next periods by as much, underspending raises it.
+ * <p/>
+ * Every decision and the figures it was based on can be read back through the getters, i.e. to
+ * report them as metrics. Providers are identified by their {@link IgnitedLocationCodec} ids.
+ */
+public class BatteryBudgetGovernor {
+
+    // Default cost estimates, in percent of the battery.
+    public static final double GPS_COST_PER_HOUR_DEFAULT = 8.0;
+    public static final double GPS_COST_PER_FIX_DEFAULT = 0.002;
+    public static final double NETWORK_COST_PER_HOUR_DEFAULT = 1.0;
+    public static final double NETWORK_COST_PER_FIX_DEFAULT = 0.01;
+    // Time a provider is assumed to stay on for a fix until it's been measured.
+    public static final long GPS_TIME_TO_FIX_DEFAULT = 30 * 1000; // 30s
+    public static final long NETWORK_TIME_TO_FIX_DEFAULT = 5 * 1000; // 5s
+
+    public static final int MAX_INTERVAL_STRETCH = 4;
+    public static final long DRAIN_WINDOW = 60 * 60 * 1000; // 1 hour
+
+    private static final double HOUR = 60 * 60 * 1000;
+    private static final int PROVIDER_COUNT = IgnitedLocationCodec.PROVIDER_PASSIVE + 1;
+
+    private final double budget;
+    private final double[] costPerHour = new double[PROVIDER_COUNT];
+    private final double[] costPerFix = new double[PROVIDER_COUNT];
+    private final long[] timeToFix = new long[PROVIDER_COUNT];
+
+    private final long[] onTime = new long[PROVIDER_COUNT];
+    private final boolean[] on = new boolean[PROVIDER_COUNT];
+    private final int[] fixCount = new int[PROVIDER_COUNT];
+    private final double[] cost = new double[PROVIDER_COUNT];
+    private long startTime = -1, lastUpdate;
+    // Cost decayed over the drain window, in percent.
+    private double recentCost;
+
+    // Last decision.
+    private int provider = IgnitedLocationCodec.PROVIDER_UNKNOWN;
+    private long interval;
+    private int distance;
+    private double effectiveBudget, estimatedDrain;
+    private int decisionCount;
+    private final int[] decisionCountByProvider = new int[PROVIDER_COUNT];
+
+    /**
+     * @param budget
+     *            percentage of the battery location may use per hour
+     */
+    public BatteryBudgetGovernor(double budget) {
+        this.budget = budget;
+        this.effectiveBudget = budget;
+        setCost(IgnitedLocationCodec.PROVIDER_GPS, GPS_COST_PER_HOUR_DEFAULT,
+                GPS_COST_PER_FIX_DEFAULT);
+        setCost(IgnitedLocationCodec.PROVIDER_NETWORK, NETWORK_COST_PER_HOUR_DEFAULT,
+                NETWORK_COST_PER_FIX_DEFAULT);
+        timeToFix[IgnitedLocationCodec.PROVIDER_GPS] = GPS_TIME_TO_FIX_DEFAULT;
+        timeToFix[IgnitedLocationCodec.PROVIDER_NETWORK] = NETWORK_TIME_TO_FIX_DEFAULT;
+    }
+
+    /**
+     * Replace the cost estimates of a provider, i.e. with figures measured on a given device.
+     * 
+     * @param perHour
+     *            percentage of the battery used per hour the provider is on
+     * @param perFix
+     *            percentage of the battery used per fix
+     */
+    public synchronized void setCost(int providerId, double perHour, double perFix) {
+        costPerHour[providerId] = perHour;
+        costPerFix[providerId] = perFix;
+    }
+
+    /**
+     * Record that updates are now requested from the provider, instead of any other one.
+     */
+    public synchronized void onProviderStarted(int providerId, long now) {
+        update(now);
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            on[i] = i == providerId;
+        }
+    }
+
+    public synchronized void onProviderStopped(long now) {
+        update(now);
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            on[i] = false;
+        }
+    }
+
+    public synchronized void onFix(int providerId, long now) {
+        update(now);
+        fixCount[providerId]++;
+        addCost(providerId, costPerFix[providerId]);
+    }
+
+    private void update(long now) {
+        if (startTime < 0) {
+            startTime = now;
+            lastUpdate = now;
+            return;
+        }
+        long elapsed = now - lastUpdate;
+        if (elapsed <= 0) {
+            return;
+        }
+        recentCost *= Math.exp(-elapsed / (double) DRAIN_WINDOW);
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            if (on[i]) {
+                onTime[i] += elapsed;
+                addCost(i, costPerHour[i] * elapsed / HOUR);
+            }
+        }
+        lastUpdate = now;
+    }
+
+    private void addCost(int providerId, double amount) {
+        cost[providerId] += amount;
+        recentCost += amount;
+    }
+
+    /**
+     * Returns the estimated drain over the last {@link #DRAIN_WINDOW}, in percent per hour.
+     */
+    public synchronized double getEstimatedDrain(long now) {
+        update(now);
+        long elapsed = now - startTime;
+        if (startTime < 0 || elapsed <= 0) {
+            return 0;
+        }
+        // The decayed cost amounts to the drain times the window once the window is full; before
+        // that, only the time elapsed so far counts.
+        double window = DRAIN_WINDOW * (1 - Math.exp(-elapsed / (double) DRAIN_WINDOW));
+        return recentCost / (window / HOUR);
+    }
+
+    /**
+     * Returns the estimated cost per hour, in percent, of requesting fixes from a provider at the
+     * given interval.
+     */
+    public synchronized double getHourlyCost(int providerId, long interval) {
+        double onTimePerFix = getTimeToFix(providerId);
+        double fixesPerHour = HOUR / Math.max(interval, 1);
+        return costPerHour[providerId] * Math.min(1, onTimePerFix / Math.max(interval, 1))
+                + costPerFix[providerId] * fixesPerHour;
+    }
+
+    /**
+     * Returns the time a provider stays on per fix, in milliseconds: measured once it has returned
+     * fixes, an estimate until then.
+     */
+    public synchronized long getTimeToFix(int providerId) {
+        if (fixCount[providerId] > 0 && onTime[providerId] > 0) {
+            return onTime[providerId] / fixCount[providerId];
+        }
+        return timeToFix[providerId];
+    }
+
+    /**
+     * Returns the shortest interval at which fixes from the provider fit in the hourly budget, or
+     * {@link Long#MAX_VALUE} if none does.
+     */
+    private long getAffordableInterval(int providerId, double hourlyBudget) {
+        if (hourlyBudget <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double perHour = costPerHour[providerId];
+        double perFix = costPerFix[providerId] * HOUR;
+        long onTimePerFix = getTimeToFix(providerId);
+        // Once the interval is longer than the time to fix, the provider is only on while fixing.
+        double interval = (perHour * onTimePerFix + perFix) / hourlyBudget;
+        if (interval < onTimePerFix) {
+            // Otherwise it's always on, and only the fixes cost more as the interval gets shorter.
+            interval = hourlyBudget > perHour ? perFix / (hourlyBudget - perHour) : onTimePerFix;
+        }
+        return (long) Math.ceil(interval);
+    }
+
+    /**
+     * Decide the provider, interval and distance for the next period.
+     * 
+     * @param now
+     *            current time in milliseconds
+     * @param requestedInterval
+     *            the interval the app asked for
+     * @param requestedDistance
+     *            the distance the app asked for
+     * @param allowGps
+     *            false if gps shouldn't be used regardless of the budget
+     * @return true if the decision differs from the previous one
+     */
+    public synchronized boolean plan(long now, long requestedInterval, int requestedDistance,
+            boolean allowGps) {
+        estimatedDrain = getEstimatedDrain(now);
+        // The drain estimate is only trusted as much of the window as has elapsed.
+        double weight = startTime < 0 ? 0 : 1 - Math.exp(-(now - startTime)
+                / (double) DRAIN_WINDOW);
+        effectiveBudget = budget + (budget - estimatedDrain) * weight;
+        effectiveBudget = Math.max(0, Math.min(2 * budget, effectiveBudget));
+
+        int newProvider = IgnitedLocationCodec.PROVIDER_PASSIVE;
+        long newInterval = requestedInterval * MAX_INTERVAL_STRETCH;
+        int first = allowGps ? IgnitedLocationCodec.PROVIDER_GPS
+                : IgnitedLocationCodec.PROVIDER_NETWORK;
+        int last = IgnitedLocationCodec.PROVIDER_NETWORK;
+        for (int providerId = first; providerId <= last; providerId++) {
+            long affordable = getAffordableInterval(providerId, effectiveBudget);
+            if (affordable <= requestedInterval * MAX_INTERVAL_STRETCH) {
+                newProvider = providerId;
+                newInterval = Math.max(requestedInterval, affordable);
+                break;
+            }
+        }
+        // Fixes are spread out over the distance as much as over time.
+        int newDistance = (int) Math.min(Integer.MAX_VALUE, (long) requestedDistance * newInterval
+                / Math.max(requestedInterval, 1));
+
+        boolean changed = newProvider != provider || newInterval != interval
+                || newDistance != distance;
+        provider = newProvider;
+        interval = newInterval;
+        distance = newDistance;
+        decisionCount++;
+        decisionCountByProvider[provider]++;
+        return changed;
+    }
+
+    public double getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the budget the last decision was planned against, in percent per hour: the budget
+     * corrected by the overspending or underspending so far.
+     */
+    public synchronized double getEffectiveBudget() {
+        return effectiveBudget;
+    }
+
+    /**
+     * Returns the drain estimated when the last decision was made, in percent per hour.
+     */
+    public synchronized double getLastEstimatedDrain() {
+        return estimatedDrain;
+    }
+
+    /**
+     * Returns the provider decided, {@link IgnitedLocationCodec#PROVIDER_PASSIVE} if only passive
+     * updates are affordable, or {@link IgnitedLocationCodec#PROVIDER_UNKNOWN} before the first
+     * decision.
+     */
+    public synchronized int getProvider() {
+        return provider;
+    }
+
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    public synchronized int getDistance() {
+        return distance;
+    }
+
+    public synchronized int getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * Returns how many decisions picked the provider.
+     */
+    public synchronized int getDecisionCount(int providerId) {
+        return decisionCountByProvider[providerId];
+    }
+
+    /**
+     * Returns the time the provider has been on, in milliseconds.
+     */
+    public synchronized long getOnTime(int providerId, long now) {
+        update(now);
+        return onTime[providerId];
+    }
+
+    public synchronized int getFixCount(int providerId) {
+        return fixCount[providerId];
+    }
+
+    /**
+     * Returns the estimated total cost of the provider, in percent of the battery.
+     */
+    public synchronized double getCost(int providerId, long now) {
+        update(now);
+        return cost[providerId];
+    }
+}
@@ -0,0 +1,58 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.templates.FixFilter;
+
+/**
+ * Drops a fix with the same time and position as the last one accepted, i.e. the same update
+ * broadcast twice. Positions are compared at the precision {@link IgnitedLocationCodec} records
+ * them with.
+ */
+public class DuplicateFixFilter implements FixFilter {
+
+    private boolean hasLast;
+    private long lastTime;
+    private int lastLatitudeE7, lastLongitudeE7;
+
+    @Override
+    public boolean accept(IgnitedFix fix, long now) {
+        return !hasLast || fix.getTime() != lastTime
+                || IgnitedLocationCodec.toE7(fix.getLatitude()) != lastLatitudeE7
+                || IgnitedLocationCodec.toE7(fix.getLongitude()) != lastLongitudeE7;
+    }
+
+    @Override
+    public void onAccepted(IgnitedFix fix, long now) {
+        setLast(fix.getTime(), IgnitedLocationCodec.toE7(fix.getLatitude()),
+                IgnitedLocationCodec.toE7(fix.getLongitude()));
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+    }
+
+    /**
+     * Set the last fix accepted, i.e. when it's been accepted in another process.
+     */
+    public void setLast(long time, int latitudeE7, int longitudeE7) {
+        hasLast = true;
+        lastTime = time;
+        lastLatitudeE7 = latitudeE7;
+        lastLongitudeE7 = longitudeE7;
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.templates.FixFilter;
+
+/**
+ * Runs fixes through a sequence of {@link FixFilter}s, the same on the device and when
+ * reprocessing uploaded tracks. A fix is accepted if every stage accepts it, and only then do the
+ * stages remember it.
+ * <p/>
+ * The chain counts how many fixes each stage dropped. It's itself a filter, so chains can be
+ * nested. Not thread safe.
+ */
+public class FixFilterChain implements FixFilter {
+
+    public static final int ACCEPTED = -1;
+
+    private final FixFilter[] filters;
+    private final long[] dropCounts;
+    private long acceptedCount;
+
+    public FixFilterChain(FixFilter... filters) {
+        this.filters = filters.clone();
+        this.dropCounts = new long[filters.length];
+    }
+
+    /**
+     * Run a fix through the chain, and remember it if it's accepted.
+     * 
+     * @param now
+     *            the time the fix is processed at, in milliseconds
+     * @return {@link #ACCEPTED}, or the index of the stage that dropped the fix
+     */
+    public int filter(IgnitedFix fix, long now) {
+        for (int i = 0; i < filters.length; i++) {
+            if (!filters[i].accept(fix, now)) {
+                dropCounts[i]++;
+                return i;
+            }
+        }
+        onAccepted(fix, now);
+        acceptedCount++;
+        return ACCEPTED;
+    }
+
+    @Override
+    public boolean accept(IgnitedFix fix, long now) {
+        for (int i = 0; i < filters.length; i++) {
+            if (!filters[i].accept(fix, now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onAccepted(IgnitedFix fix, long now) {
+        for (int i = 0; i < filters.length; i++) {
+            filters[i].onAccepted(fix, now);
+        }
+    }
+
+    /**
+     * Forget the fixes accepted so far, e.g. to start on the track of another device. The counts
+     * are kept.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < filters.length; i++) {
+            filters[i].reset();
+        }
+    }
+
+    public int size() {
+        return filters.length;
+    }
+
+    public FixFilter get(int index) {
+        return filters[index];
+    }
+
+    /**
+     * Returns the number of fixes dropped by the stage at the given index.
+     */
+    public long getDropCount(int index) {
+        return dropCounts[index];
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public void clearCounts() {
+        for (int i = 0; i < dropCounts.length; i++) {
+            dropCounts[i] = 0;
+        }
+        acceptedCount = 0;
+    }
+}
@@ -0,0 +1,109 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Computes the on and off windows used to duty-cycle gps during long tracking sessions.
+ * <p/>
+ * Gps is kept on until a fix accurate enough is received, then it's turned off until the next fix
+ * is due. How long the gps engine takes to get a fix depends on how long ago the last one was
+ * received: within a couple of hours the ephemeris data is still valid and the engine can hot
+ * start in a few seconds, after that it has to warm start. The on window is shortened accordingly,
+ * so a gps that can't get a fix (i.e.: indoors) is given up on sooner.
+ */
+public class GpsDutyCycle {
+
+    // Ephemeris data is valid for a couple of hours.
+    public static final long HOT_START_MAX_AGE = 2 * 60 * 60 * 1000; // 2 hours
+    // Almanac data and a rough position are good for a few hours more.
+    public static final long WARM_START_MAX_AGE = 6 * 60 * 60 * 1000; // 6 hours
+
+    public static final long HOT_START_TIME_TO_FIX = 5 * 1000; // 5s
+    public static final long WARM_START_TIME_TO_FIX = 35 * 1000; // 35s
+
+    // Turning gps off isn't worth it if it has to be turned on again straight away.
+    public static final long MIN_SLEEP_WINDOW = 30 * 1000; // 30s
+
+    private long lastFixTime = -1;
+
+    /**
+     * Record that gps has returned a fix accurate enough for this cycle.
+     *
+     * @param now
+     *            current time in milliseconds
+     */
+    public void onFix(long now) {
+        lastFixTime = now;
+    }
+
+    /**
+     * Forget about the last fix, e.g. when location updates are disabled.
+     */
+    public void reset() {
+        lastFixTime = -1;
+    }
+
+    /**
+     * Returns how long gps should be kept on while waiting for a fix.
+     *
+     * @param now
+     *            current time in milliseconds
+     * @param coldStartWindow
+     *            how long to wait for a fix when nothing is known about the last one
+     * @return the on window in milliseconds
+     */
+    public long getAcquisitionWindow(long now, long coldStartWindow) {
+        long expectedTimeToFix = getExpectedTimeToFix(now);
+        if (expectedTimeToFix < 0) {
+            return coldStartWindow;
+        }
+        // Give the engine some slack, but never wait longer than a cold start would.
+        return Math.min(coldStartWindow, expectedTimeToFix * 3);
+    }
+
+    /**
+     * Returns how long gps should be turned off for after a fix has been received, so that the next
+     * fix is available when it's due.
+     *
+     * @param now
+     *            current time in milliseconds
+     * @param interval
+     *            the time that should pass between location updates
+     * @return the off window in milliseconds, or 0 if gps should be left on
+     */
+    public long getSleepWindow(long now, long interval) {
+        // When gps is turned back on the last fix will be roughly interval old.
+        long expectedTimeToFix = getExpectedTimeToFix(now + interval);
+        if (expectedTimeToFix < 0) {
+            expectedTimeToFix = WARM_START_TIME_TO_FIX;
+        }
+        long sleepWindow = interval - expectedTimeToFix;
+        return sleepWindow < MIN_SLEEP_WINDOW ? 0 : sleepWindow;
+    }
+
+    private long getExpectedTimeToFix(long now) {
+        if (lastFixTime < 0) {
+            return -1;
+        }
+        long age = now - lastFixTime;
+        if (age <= HOT_START_MAX_AGE) {
+            return HOT_START_TIME_TO_FIX;
+        } else if (age <= WARM_START_MAX_AGE) {
+            return WARM_START_TIME_TO_FIX;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Streaming track compressor: a fix is kept only if its position deviates by more than the
+ * tolerance from the one predicted by moving from the last kept fix at the last known velocity.
+ * <p/>
+ * Unlike {@link IgnitedTrackSimplifier} it decides on each fix as soon as it's received, so it
+ * needs no buffering, but it keeps more points on curvy tracks. The velocity is estimated from the
+ * last two kept fixes. Instances aren't thread safe.
+ */
+public class IgnitedDeadReckoningCompressor {
+
+    private final double tolerance;
+
+    private int keptCount;
+    private double lastLatitude, lastLongitude;
+    private long lastTime;
+    // Velocity, in degrees per millisecond.
+    private double latitudeVelocity, longitudeVelocity;
+
+    /**
+     * @param tolerance
+     *            maximum distance, in meters, between a dropped fix and its predicted position
+     */
+    public IgnitedDeadReckoningCompressor(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns true if the fix should be kept.
+     */
+    public boolean add(double latitude, double longitude, long time) {
+        if (keptCount > 1 && time >= lastTime) {
+            long elapsed = time - lastTime;
+            double predictedLatitude = lastLatitude + latitudeVelocity * elapsed;
+            double predictedLongitude = lastLongitude + longitudeVelocity * elapsed;
+            if (IgnitedDistance.distanceBetween(predictedLatitude, predictedLongitude,
+                    latitude, longitude) <= tolerance) {
+                return false;
+            }
+        }
+
+        if (keptCount > 0 && time > lastTime) {
+            latitudeVelocity = (latitude - lastLatitude) / (time - lastTime);
+            longitudeVelocity = IgnitedDistance.longitudeDifference(lastLongitude, longitude)
+                    / (time - lastTime);
+        }
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = time;
+        keptCount++;
+        return true;
+    }
+
+    /**
+     * Compress a whole track.
+     *
+     * @param kept
+     *            receives the indexes of the fixes kept, in order; must hold up to {@code count}
+     *            indexes
+     * @return the number of fixes kept
+     */
+    public int compress(double[] latitudes, double[] longitudes, long[] times, int from, int count,
+            int[] kept) {
+        reset();
+        int keptCount = 0;
+        for (int i = from; i < from + count; i++) {
+            if (add(latitudes[i], longitudes[i], times[i])) {
+                kept[keptCount++] = i;
+            }
+        }
+        return keptCount;
+    }
+
+    /**
+     * Forget the fixes seen so far, to start a new track.
+     */
+    public void reset() {
+        keptCount = 0;
+        latitudeVelocity = 0;
+        longitudeVelocity = 0;
+    }
+}
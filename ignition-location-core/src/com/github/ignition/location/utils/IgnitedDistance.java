@@ -0,0 +1,59 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Distances between fixes, without the platform's {@code Location.distanceBetween}.
+ */
+public final class IgnitedDistance {
+
+    public static final double EARTH_RADIUS = 6371009; // meters
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+
+    private IgnitedDistance() {
+    }
+
+    /**
+     * Great circle distance in meters between two points, using the haversine formula. Unlike
+     * Location.distanceBetween this doesn't allocate, and it's accurate enough for the distances
+     * the location policies deal with.
+     */
+    public static double distanceBetween(double startLatitude, double startLongitude,
+            double endLatitude, double endLongitude) {
+        double dLat = Math.toRadians(endLatitude - startLatitude);
+        double dLon = Math.toRadians(endLongitude - startLongitude);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(startLatitude))
+                * Math.cos(Math.toRadians(endLatitude)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Returns the difference in degrees from the start longitude to the end one the short way
+     * around, in [-180, 180), so that a track crossing the antimeridian isn't measured all the way
+     * around the earth.
+     */
+    public static double longitudeDifference(double startLongitude, double endLongitude) {
+        double difference = (endLongitude - startLongitude) % 360;
+        if (difference >= 180) {
+            difference -= 360;
+        } else if (difference < -180) {
+            difference += 360;
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,149 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Mutable location fix, without any platform dependency, so that the same filtering and scoring
+ * rules can run on the device and on a plain JVM.
+ * <p/>
+ * The library flags (see the {@code FLAG_*} constants of {@link IgnitedLocationCodec}) are kept in
+ * an int, along with the ones telling which of the values are set.
+ */
+public class IgnitedFix {
+
+    private double latitude, longitude, altitude;
+    private long time;
+    private float accuracy, speed, bearing;
+    private int providerId;
+    private int flags;
+
+    public IgnitedFix() {
+    }
+
+    /**
+     * @param providerId
+     *            one of the {@code PROVIDER_*} constants of {@link IgnitedLocationCodec}
+     * @param flags
+     *            the {@code FLAG_*} constants of {@link IgnitedLocationCodec} that apply; a value
+     *            is only set if the matching {@code FLAG_HAS_*} is
+     */
+    public void set(int providerId, long time, double latitude, double longitude, float accuracy,
+            float speed, float bearing, double altitude, int flags) {
+        this.providerId = providerId;
+        this.time = time;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.bearing = bearing;
+        this.altitude = altitude;
+        this.flags = flags;
+    }
+
+    public void set(IgnitedFix other) {
+        set(other.providerId, other.time, other.latitude, other.longitude, other.accuracy,
+                other.speed, other.bearing, other.altitude, other.flags);
+    }
+
+    public void clear() {
+        set(IgnitedLocationCodec.PROVIDER_UNKNOWN, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public void addFlags(int flags) {
+        this.flags |= flags;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public float getBearing() {
+        return bearing;
+    }
+
+    /**
+     * Returns one of the {@code PROVIDER_*} constants of {@link IgnitedLocationCodec}.
+     */
+    public int getProviderId() {
+        return providerId;
+    }
+
+    public String getProvider() {
+        return IgnitedLocationCodec.getProviderName(providerId);
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean hasAccuracy() {
+        return (flags & IgnitedLocationCodec.FLAG_HAS_ACCURACY) != 0;
+    }
+
+    public boolean hasSpeed() {
+        return (flags & IgnitedLocationCodec.FLAG_HAS_SPEED) != 0;
+    }
+
+    public boolean hasBearing() {
+        return (flags & IgnitedLocationCodec.FLAG_HAS_BEARING) != 0;
+    }
+
+    public boolean hasAltitude() {
+        return (flags & IgnitedLocationCodec.FLAG_HAS_ALTITUDE) != 0;
+    }
+
+    /**
+     * Returns true if this is the last known location, found when location updates started.
+     */
+    public boolean isLastLocation() {
+        return (flags & IgnitedLocationCodec.FLAG_LAST_LOCATION) != 0;
+    }
+
+    /**
+     * Returns true if the last known location found is older or less accurate than requested.
+     */
+    public boolean isLastLocationTooOld() {
+        return (flags & IgnitedLocationCodec.FLAG_LAST_LOCATION_TOO_OLD) != 0;
+    }
+
+    /**
+     * Returns the distance in meters to another fix.
+     */
+    public double distanceTo(IgnitedFix other) {
+        return IgnitedDistance.distanceBetween(latitude, longitude, other.latitude,
+                other.longitude);
+    }
+}
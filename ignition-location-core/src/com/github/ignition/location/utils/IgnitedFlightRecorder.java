@@ -0,0 +1,191 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+
+/**
+ * Always-on, fixed capacity log of the decisions the library takes: state transitions, location
+ * requests and removals, and the fixes it accepts or drops. It's meant to be dumped when
+ * diagnosing a field report such as "gps stayed on".
+ * <p/>
+ * Each event is two longs in a ring buffer: the {@link System#nanoTime()} it was recorded at, and
+ * the event type, a 24 bit argument and a 32 bit value packed together. Recording an event doesn't
+ * allocate; when the buffer is full the oldest events are overwritten.
+ */
+public class IgnitedFlightRecorder {
+    public static final int EVENT_UPDATES_ENABLED = 1;
+    public static final int EVENT_UPDATES_DISABLED = 2;
+    public static final int EVENT_ACTIVE_REQUESTED = 3;
+    public static final int EVENT_ACTIVE_REMOVED = 4;
+    public static final int EVENT_PASSIVE_REQUESTED = 5;
+    public static final int EVENT_PASSIVE_REMOVED = 6;
+    public static final int EVENT_PROVIDER_WATCHED = 7;
+    public static final int EVENT_PROVIDER_UNWATCHED = 8;
+    public static final int EVENT_RECEIVERS_REGISTERED = 9;
+    public static final int EVENT_RECEIVERS_UNREGISTERED = 10;
+    public static final int EVENT_CLIENT_ATTACHED = 11;
+    public static final int EVENT_CLIENT_DETACHED = 12;
+    public static final int EVENT_TEARDOWN = 13;
+    public static final int EVENT_GPS_TIMEOUT = 14;
+    public static final int EVENT_GPS_SUSPENDED = 15;
+    public static final int EVENT_GPS_RESUMED = 16;
+    public static final int EVENT_STILL = 17;
+    public static final int EVENT_MOVING = 18;
+    public static final int EVENT_PROVIDER_DISABLED = 19;
+    public static final int EVENT_REFRESH = 20;
+    public static final int EVENT_BATTERY_LOW = 21;
+    public static final int EVENT_BATTERY_OK = 22;
+    public static final int EVENT_FIX_ACCEPTED = 23;
+    public static final int EVENT_FIX_DROPPED = 24;
+    public static final int EVENT_STOP_STARTED = 25;
+    public static final int EVENT_STOP_ENDED = 26;
+    public static final int EVENT_BATTERY_READ = 27;
+
+    private static final String[] EVENT_NAMES = { null, "updates enabled", "updates disabled",
+            "active requested", "active removed", "passive requested", "passive removed",
+            "provider watched", "provider unwatched", "receivers registered",
+            "receivers unregistered", "client attached", "client detached", "teardown",
+            "gps timeout", "gps suspended", "gps resumed", "still", "moving",
+            "provider disabled", "refresh", "battery low", "battery ok", "fix accepted",
+            "fix dropped", "stop started", "stop ended", "battery read" };
+
+    public static final int EVENT_SIZE = 16; // bytes
+
+    private static final int MAX_ARG = 0xffffff;
+
+    private static IgnitedFlightRecorder instance;
+
+    // Time and packed event of each slot, interleaved.
+    private final long[] events;
+    private final int capacity;
+    private long nextSequence;
+
+    /**
+     * Returns the recorder the library records its events into.
+     */
+    public static synchronized IgnitedFlightRecorder getInstance() {
+        if (instance == null) {
+            instance = new IgnitedFlightRecorder(
+                    IgnitedLocationConstants.FLIGHT_RECORDER_CAPACITY_DEFAULT);
+        }
+        return instance;
+    }
+
+    /**
+     * Record an event in the library's recorder.
+     */
+    public static void log(int type, int arg, int value) {
+        getInstance().record(type, arg, value);
+    }
+
+    public static void log(int type) {
+        getInstance().record(type, 0, 0);
+    }
+
+    public IgnitedFlightRecorder(int capacity) {
+        this.capacity = capacity;
+        this.events = new long[capacity * 2];
+    }
+
+    /**
+     * @param type
+     *            one of the {@code EVENT_*} constants
+     * @param arg
+     *            small argument, i.e. a provider id; clamped to 24 bits
+     * @param value
+     *            i.e. an interval or an accuracy
+     */
+    public void record(int type, int arg, int value) {
+        long time = System.nanoTime();
+        long event = ((long) type << 56) | ((long) Math.min(Math.max(arg, 0), MAX_ARG) << 32)
+                | (value & 0xffffffffL);
+        synchronized (this) {
+            int slot = (int) (nextSequence++ % capacity) * 2;
+            events[slot] = time;
+            events[slot + 1] = event;
+        }
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(nextSequence, capacity);
+    }
+
+    /**
+     * Returns the number of events recorded so far, including the overwritten ones.
+     */
+    public synchronized long getCount() {
+        return nextSequence;
+    }
+
+    public synchronized void clear() {
+        nextSequence = 0;
+    }
+
+    /**
+     * Copy the events, oldest first, to the buffer: {@link #EVENT_SIZE} bytes each, the time
+     * followed by the packed event.
+     * 
+     * @return the number of events copied
+     */
+    public synchronized int copyTo(ByteBuffer buffer) {
+        int count = Math.min(size(), buffer.remaining() / EVENT_SIZE);
+        for (long sequence = nextSequence - count; sequence < nextSequence; sequence++) {
+            int slot = (int) (sequence % capacity) * 2;
+            buffer.putLong(events[slot]);
+            buffer.putLong(events[slot + 1]);
+        }
+        return count;
+    }
+
+    /**
+     * Print the events, oldest first, with their time relative to the newest one.
+     */
+    public synchronized void dump(PrintWriter writer) {
+        int size = size();
+        writer.println(size + " of " + nextSequence + " events");
+        if (size == 0) {
+            return;
+        }
+        long newestTime = events[(int) ((nextSequence - 1) % capacity) * 2];
+        for (long sequence = nextSequence - size; sequence < nextSequence; sequence++) {
+            int slot = (int) (sequence % capacity) * 2;
+            long event = events[slot + 1];
+            writer.println(String.format("%+10.3fs %-22s %8d %11d",
+                    (events[slot] - newestTime) / 1E9, getEventName(getType(event)),
+                    getArg(event), getValue(event)));
+        }
+    }
+
+    public static int getType(long event) {
+        return (int) (event >>> 56);
+    }
+
+    public static int getArg(long event) {
+        return (int) (event >>> 32) & MAX_ARG;
+    }
+
+    public static int getValue(long event) {
+        return (int) event;
+    }
+
+    public static String getEventName(int type) {
+        return type > 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : "unknown " + type;
+    }
+}
@@ -0,0 +1,217 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact, fixed layout binary encoding of a location fix.
+ * <p/>
+ * Each fix takes {@link #RECORD_SIZE} bytes:
+ * <ul>
+ * <li>latitude and longitude, in 1E-7 degrees (int)</li>
+ * <li>time, in milliseconds relative to a base time chosen by the caller (int, about 24 days
+ * either way)</li>
+ * <li>accuracy, in decimeters (unsigned short)</li>
+ * <li>speed, in centimeters per second (unsigned short)</li>
+ * <li>bearing, in hundredths of a degree (unsigned short)</li>
+ * <li>provider id (byte) and flags (byte)</li>
+ * </ul>
+ * All the methods read and write a {@link ByteBuffer} at an absolute offset and don't allocate. The
+ * library converts {@code android.location.Location}s with {@code IgnitedLocationSupport}.
+ */
+public final class IgnitedLocationCodec {
+
+    public static final int RECORD_SIZE = 20;
+
+    private static final int LATITUDE = 0;
+    private static final int LONGITUDE = 4;
+    private static final int TIME_DELTA = 8;
+    private static final int ACCURACY = 12;
+    private static final int SPEED = 14;
+    private static final int BEARING = 16;
+    private static final int PROVIDER = 18;
+    private static final int FLAGS = 19;
+
+    public static final int PROVIDER_UNKNOWN = 0;
+    public static final int PROVIDER_GPS = 1;
+    public static final int PROVIDER_NETWORK = 2;
+    public static final int PROVIDER_PASSIVE = 3;
+
+    // Same as the LocationManager constants (the passive one is only available from Froyo).
+    public static final String GPS_PROVIDER = "gps";
+    public static final String NETWORK_PROVIDER = "network";
+    public static final String PASSIVE_PROVIDER = "passive";
+
+    public static final int FLAG_HAS_ACCURACY = 1;
+    public static final int FLAG_HAS_SPEED = 1 << 1;
+    public static final int FLAG_HAS_BEARING = 1 << 2;
+    // Same meaning as IgnitedLocationConstants.IGNITED_LAST_LOCATION_EXTRA.
+    public static final int FLAG_LAST_LOCATION = 1 << 3;
+    // Same meaning as ILastLocationFinder.LAST_LOCATION_TOO_OLD_EXTRA.
+    public static final int FLAG_LAST_LOCATION_TOO_OLD = 1 << 4;
+    // The altitude isn't encoded, the flag is only carried over.
+    public static final int FLAG_HAS_ALTITUDE = 1 << 5;
+
+    private static final double E7 = 1E7;
+    private static final int MAX_UNSIGNED_SHORT = 0xffff;
+
+    private IgnitedLocationCodec() {
+    }
+
+    /**
+     * Encode the fix at the given offset.
+     *
+     * @param fix
+     *            the fix to encode
+     * @param baseTime
+     *            the time the fix time is encoded relative to
+     * @param buffer
+     *            the buffer to write to
+     * @param offset
+     *            absolute offset of the record in the buffer
+     * @throws IllegalArgumentException
+     *             if the fix time is too far from the base time
+     */
+    public static void encode(IgnitedFix fix, long baseTime, ByteBuffer buffer, int offset) {
+        encode(fix.getLatitude(), fix.getLongitude(), fix.getTime(), fix.getAccuracy(),
+                fix.getSpeed(), fix.getBearing(), fix.getProviderId(), fix.getFlags(), baseTime,
+                buffer, offset);
+    }
+
+    public static void encode(double latitude, double longitude, long time, float accuracy,
+            float speed, float bearing, int providerId, int flags, long baseTime,
+            ByteBuffer buffer, int offset) {
+        long timeDelta = time - baseTime;
+        if (timeDelta < Integer.MIN_VALUE || timeDelta > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Location time " + time
+                    + " is too far from base time " + baseTime);
+        }
+
+        buffer.putInt(offset + LATITUDE, (int) Math.round(latitude * E7));
+        buffer.putInt(offset + LONGITUDE, (int) Math.round(longitude * E7));
+        buffer.putInt(offset + TIME_DELTA, (int) timeDelta);
+        buffer.putShort(offset + ACCURACY, toUnsignedShort(accuracy * 10));
+        buffer.putShort(offset + SPEED, toUnsignedShort(speed * 100));
+        buffer.putShort(offset + BEARING, toUnsignedShort(bearing * 100));
+        buffer.put(offset + PROVIDER, (byte) providerId);
+        buffer.put(offset + FLAGS, (byte) flags);
+    }
+
+    /**
+     * Decode the record at the given offset into an existing fix.
+     *
+     * @param buffer
+     *            the buffer to read from
+     * @param offset
+     *            absolute offset of the record in the buffer
+     * @param baseTime
+     *            the base time the record was encoded with
+     * @param fix
+     *            the fix to decode into; its previous state is discarded
+     */
+    public static void decode(ByteBuffer buffer, int offset, long baseTime, IgnitedFix fix) {
+        int flags = getFlags(buffer, offset);
+        fix.set(getProviderId(buffer, offset), getTime(buffer, offset, baseTime),
+                getLatitude(buffer, offset), getLongitude(buffer, offset),
+                (flags & FLAG_HAS_ACCURACY) != 0 ? getAccuracy(buffer, offset) : 0,
+                (flags & FLAG_HAS_SPEED) != 0 ? getSpeed(buffer, offset) : 0,
+                (flags & FLAG_HAS_BEARING) != 0 ? getBearing(buffer, offset) : 0, 0,
+                flags & ~FLAG_HAS_ALTITUDE);
+    }
+
+    public static int getLatitudeE7(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + LATITUDE);
+    }
+
+    public static int getLongitudeE7(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + LONGITUDE);
+    }
+
+    public static double getLatitude(ByteBuffer buffer, int offset) {
+        return getLatitudeE7(buffer, offset) / E7;
+    }
+
+    public static double getLongitude(ByteBuffer buffer, int offset) {
+        return getLongitudeE7(buffer, offset) / E7;
+    }
+
+    public static long getTime(ByteBuffer buffer, int offset, long baseTime) {
+        return baseTime + buffer.getInt(offset + TIME_DELTA);
+    }
+
+    public static float getAccuracy(ByteBuffer buffer, int offset) {
+        return (buffer.getShort(offset + ACCURACY) & MAX_UNSIGNED_SHORT) / 10f;
+    }
+
+    public static float getSpeed(ByteBuffer buffer, int offset) {
+        return (buffer.getShort(offset + SPEED) & MAX_UNSIGNED_SHORT) / 100f;
+    }
+
+    public static float getBearing(ByteBuffer buffer, int offset) {
+        return (buffer.getShort(offset + BEARING) & MAX_UNSIGNED_SHORT) / 100f;
+    }
+
+    public static int getProviderId(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + PROVIDER);
+    }
+
+    public static int getFlags(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + FLAGS) & 0xff;
+    }
+
+    /**
+     * Convert a coordinate in degrees to the encoded representation, i.e. to compare it with
+     * {@link #getLatitudeE7(ByteBuffer, int)} without decoding the record.
+     */
+    public static int toE7(double degrees) {
+        return (int) Math.round(degrees * E7);
+    }
+
+    public static int getProviderId(String provider) {
+        if (GPS_PROVIDER.equals(provider)) {
+            return PROVIDER_GPS;
+        } else if (NETWORK_PROVIDER.equals(provider)) {
+            return PROVIDER_NETWORK;
+        } else if (PASSIVE_PROVIDER.equals(provider)) {
+            return PROVIDER_PASSIVE;
+        }
+        return PROVIDER_UNKNOWN;
+    }
+
+    public static String getProviderName(int providerId) {
+        switch (providerId) {
+        case PROVIDER_GPS:
+            return GPS_PROVIDER;
+        case PROVIDER_NETWORK:
+            return NETWORK_PROVIDER;
+        case PROVIDER_PASSIVE:
+            return PASSIVE_PROVIDER;
+        default:
+            return null;
+        }
+    }
+
+    private static short toUnsignedShort(float value) {
+        int i = Math.round(value);
+        if (i < 0) {
+            i = 0;
+        } else if (i > MAX_UNSIGNED_SHORT) {
+            i = MAX_UNSIGNED_SHORT;
+        }
+        return (short) i;
+    }
+}
@@ -0,0 +1,141 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a batch of {@link IgnitedLocationCodec} records for upload.
+ * <p/>
+ * Consecutive fixes are usually close in space and time, so each field is written as the
+ * difference from the previous fix, zig-zag and varint encoded, and the result is deflated. The
+ * uncompressed format is:
+ * <ul>
+ * <li>version (byte)</li>
+ * <li>number of fixes (varint)</li>
+ * <li>for each fix: latitude and longitude deltas in 1E-7 degrees, time delta in milliseconds
+ * (the first one relative to the epoch), accuracy, speed and bearing as in the codec, then
+ * provider id and flags packed in one byte: {@code providerId << 5 | flags}</li>
+ * </ul>
+ * The encoder reuses its buffers between batches and isn't thread safe.
+ */
+public class IgnitedTrackEncoder {
+
+    public static final int VERSION = 1;
+
+    // Worst case for a fix: 3 varints of up to 10 bytes, 3 of up to 3 bytes and a byte.
+    private static final int MAX_ENCODED_FIX_SIZE = 40;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private byte[] raw = new byte[0];
+    private byte[] compressed = new byte[0];
+    private int rawLength;
+
+    /**
+     * Encode the records and compress them.
+     *
+     * @param records
+     *            the records, from position 0
+     * @param count
+     *            the number of records
+     * @param baseTime
+     *            the base time the records were encoded with
+     * @return the length of the batch, available from {@link #getBatch()}
+     */
+    public int encode(ByteBuffer records, int count, long baseTime) {
+        ensureRawCapacity(count * MAX_ENCODED_FIX_SIZE + 16);
+        rawLength = 0;
+        raw[rawLength++] = VERSION;
+        writeVarLong(count);
+
+        int previousLatitude = 0, previousLongitude = 0;
+        long previousTime = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = i * IgnitedLocationCodec.RECORD_SIZE;
+            int latitude = IgnitedLocationCodec.getLatitudeE7(records, offset);
+            int longitude = IgnitedLocationCodec.getLongitudeE7(records, offset);
+            long time = IgnitedLocationCodec.getTime(records, offset, baseTime);
+
+            writeVarLong(zigZag((long) latitude - previousLatitude));
+            writeVarLong(zigZag((long) longitude - previousLongitude));
+            writeVarLong(zigZag(time - previousTime));
+            writeVarLong(Math.round(IgnitedLocationCodec.getAccuracy(records, offset) * 10));
+            writeVarLong(Math.round(IgnitedLocationCodec.getSpeed(records, offset) * 100));
+            writeVarLong(Math.round(IgnitedLocationCodec.getBearing(records, offset) * 100));
+            raw[rawLength++] = (byte) (IgnitedLocationCodec.getProviderId(records, offset) << 5 | IgnitedLocationCodec
+                    .getFlags(records, offset));
+
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+            previousTime = time;
+        }
+
+        return compress();
+    }
+
+    /**
+     * Returns the buffer holding the last encoded batch. Reused by the next call to
+     * {@link #encode(ByteBuffer, int, long)}.
+     */
+    public byte[] getBatch() {
+        return compressed;
+    }
+
+    /**
+     * Returns the size of the last batch before compression.
+     */
+    public int getUncompressedLength() {
+        return rawLength;
+    }
+
+    private int compress() {
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        if (compressed.length < rawLength + 64) {
+            compressed = new byte[rawLength + 64];
+        }
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                byte[] larger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, larger, 0, length);
+                compressed = larger;
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    private void ensureRawCapacity(int capacity) {
+        if (raw.length < capacity) {
+            raw = new byte[capacity];
+        }
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            raw[rawLength++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        raw[rawLength++] = (byte) value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
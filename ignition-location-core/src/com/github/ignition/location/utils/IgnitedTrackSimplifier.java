@@ -0,0 +1,270 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Douglas-Peucker simplification of a track, working on primitive arrays.
+ * <p/>
+ * {@link #simplify(double[], double[], int, int, double, int[])} simplifies a whole track at once.
+ * To simplify a track while it's being recorded, {@link #add(double, double, long)} the fixes one
+ * by one: they're buffered until the lookahead window is full, then the window is simplified and the
+ * points kept are appended to the output arrays. The last point of a window is the first one of the
+ * next, so the simplified track stays connected; {@link #flush()} simplifies what's left once the
+ * track is over.
+ * <p/>
+ * Distances are measured on a local equirectangular projection, which is accurate enough at the
+ * scale of a tolerance. Instances reuse their buffers and aren't thread safe.
+ */
+public class IgnitedTrackSimplifier {
+
+    private final double tolerance;
+    private final int lookahead;
+
+    // Current window.
+    private final double[] windowLatitudes, windowLongitudes;
+    private final long[] windowTimes;
+    private final int[] kept;
+    private final int[] stack;
+    private int windowSize;
+
+    // Simplified track.
+    private double[] latitudes = new double[16], longitudes = new double[16];
+    private long[] times = new long[16];
+    private int size;
+
+    /**
+     * @param tolerance
+     *            maximum distance, in meters, between a dropped point and the simplified track
+     * @param lookahead
+     *            number of points simplified at once; the larger the window, the closer the result
+     *            is to simplifying the whole track
+     */
+    public IgnitedTrackSimplifier(double tolerance, int lookahead) {
+        if (lookahead < 3) {
+            throw new IllegalArgumentException("The lookahead must be at least 3 points");
+        }
+        this.tolerance = tolerance;
+        this.lookahead = lookahead;
+        this.windowLatitudes = new double[lookahead];
+        this.windowLongitudes = new double[lookahead];
+        this.windowTimes = new long[lookahead];
+        this.kept = new int[lookahead];
+        this.stack = new int[lookahead * 2];
+    }
+
+    public void add(double latitude, double longitude, long time) {
+        windowLatitudes[windowSize] = latitude;
+        windowLongitudes[windowSize] = longitude;
+        windowTimes[windowSize] = time;
+        windowSize++;
+        if (windowSize == lookahead) {
+            simplifyWindow(false);
+        }
+    }
+
+    /**
+     * Simplify the points still buffered, ending the simplified track with the last point added.
+     */
+    public void flush() {
+        if (windowSize > 0) {
+            simplifyWindow(true);
+        }
+    }
+
+    /**
+     * Returns the number of points in the simplified track.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitudes of the simplified track, valid up to {@link #size()}. The array is
+     * replaced when the track grows.
+     */
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    /**
+     * Drop the simplified points, e.g. once they've been stored. The points still buffered are kept.
+     */
+    public void clearOutput() {
+        size = 0;
+    }
+
+    /**
+     * Drop both the simplified points and the buffered ones, to start a new track.
+     */
+    public void reset() {
+        size = 0;
+        windowSize = 0;
+    }
+
+    private void simplifyWindow(boolean last) {
+        int count = simplify(windowLatitudes, windowLongitudes, 0, windowSize, tolerance, kept,
+                stack);
+        // The last point of the window is emitted by the next one, unless the track is over.
+        int emitted = last ? count : count - 1;
+        ensureCapacity(size + emitted);
+        for (int i = 0; i < emitted; i++) {
+            int index = kept[i];
+            latitudes[size] = windowLatitudes[index];
+            longitudes[size] = windowLongitudes[index];
+            times[size] = windowTimes[index];
+            size++;
+        }
+
+        if (last) {
+            windowSize = 0;
+        } else {
+            windowLatitudes[0] = windowLatitudes[windowSize - 1];
+            windowLongitudes[0] = windowLongitudes[windowSize - 1];
+            windowTimes[0] = windowTimes[windowSize - 1];
+            windowSize = 1;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > latitudes.length) {
+            int newCapacity = Math.max(capacity, latitudes.length * 2);
+            double[] newLatitudes = new double[newCapacity];
+            double[] newLongitudes = new double[newCapacity];
+            long[] newTimes = new long[newCapacity];
+            System.arraycopy(latitudes, 0, newLatitudes, 0, size);
+            System.arraycopy(longitudes, 0, newLongitudes, 0, size);
+            System.arraycopy(times, 0, newTimes, 0, size);
+            latitudes = newLatitudes;
+            longitudes = newLongitudes;
+            times = newTimes;
+        }
+    }
+
+    /**
+     * Simplify a track with the Douglas-Peucker algorithm.
+     *
+     * @param latitudes
+     *            latitudes of the track, in degrees
+     * @param longitudes
+     *            longitudes of the track, in degrees
+     * @param from
+     *            index of the first point
+     * @param count
+     *            number of points
+     * @param tolerance
+     *            maximum distance, in meters, between a dropped point and the simplified track
+     * @param kept
+     *            receives the indexes of the points kept, in order; must hold up to {@code count}
+     *            indexes
+     * @return the number of points kept
+     */
+    public static int simplify(double[] latitudes, double[] longitudes, int from, int count,
+            double tolerance, int[] kept) {
+        return simplify(latitudes, longitudes, from, count, tolerance, kept, new int[count * 2]);
+    }
+
+    private static int simplify(double[] latitudes, double[] longitudes, int from, int count,
+            double tolerance, int[] kept, int[] stack) {
+        if (count <= 2) {
+            for (int i = 0; i < count; i++) {
+                kept[i] = from + i;
+            }
+            return count;
+        }
+
+        // Marks the kept points in the kept array itself, then compacts it.
+        for (int i = 0; i < count; i++) {
+            kept[i] = 0;
+        }
+        kept[0] = 1;
+        kept[count - 1] = 1;
+
+        // Ranges still to be simplified, as pairs of start and end indexes. A range is split in
+        // two at most once per point, so the stack never holds more than count ranges.
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            if (end - start < 2) {
+                continue;
+            }
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceToSegment(latitudes[from + i], longitudes[from + i],
+                        latitudes[from + start], longitudes[from + start], latitudes[from + end],
+                        longitudes[from + end]);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (maxDistance > tolerance) {
+                kept[farthest] = 1;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+
+        int keptCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (kept[i] != 0) {
+                kept[keptCount++] = from + i;
+            }
+        }
+        return keptCount;
+    }
+
+    /**
+     * Returns the distance in meters from a point to a segment, on a local equirectangular
+     * projection centered on the segment start. Longitudes are compared the short way around, so
+     * segments can cross the antimeridian.
+     */
+    public static double distanceToSegment(double latitude, double longitude,
+            double startLatitude, double startLongitude, double endLatitude, double endLongitude) {
+        double scale = Math.cos(Math.toRadians(startLatitude));
+        double x = IgnitedDistance.longitudeDifference(startLongitude, longitude) * scale;
+        double y = latitude - startLatitude;
+        double dx = IgnitedDistance.longitudeDifference(startLongitude, endLongitude) * scale;
+        double dy = endLatitude - startLatitude;
+
+        double lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared > 0) {
+            double t = (x * dx + y * dy) / lengthSquared;
+            if (t > 1) {
+                x -= dx;
+                y -= dy;
+            } else if (t > 0) {
+                x -= t * dx;
+                y -= t * dy;
+            }
+        }
+        return Math.sqrt(x * x + y * y) * IgnitedDistance.METERS_PER_DEGREE;
+    }
+}
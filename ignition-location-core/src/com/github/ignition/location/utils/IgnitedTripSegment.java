@@ -0,0 +1,153 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.utils;
+
+/**
+ * Summary of a trip or a stop found by the {@link IgnitedTripSegmenter}.
+ * <p/>
+ * The segmenter reuses its segments, so a segment is only valid during the listener call it's
+ * passed to: {@link #copy()} it to keep it.
+ */
+public class IgnitedTripSegment {
+
+    public static final int TYPE_TRIP = 1;
+    public static final int TYPE_STOP = 2;
+
+    private final int type;
+
+    long startTime, endTime;
+    double startLatitude, startLongitude;
+    double endLatitude, endLongitude;
+    double distance;
+    float maxSpeed;
+    int fixCount;
+
+    IgnitedTripSegment(int type) {
+        this.type = type;
+    }
+
+    void start(long time, double latitude, double longitude, int fixCount) {
+        startTime = endTime = time;
+        startLatitude = endLatitude = latitude;
+        startLongitude = endLongitude = longitude;
+        distance = 0;
+        maxSpeed = 0;
+        this.fixCount = fixCount;
+    }
+
+    void set(IgnitedTripSegment other) {
+        startTime = other.startTime;
+        endTime = other.endTime;
+        startLatitude = other.startLatitude;
+        startLongitude = other.startLongitude;
+        endLatitude = other.endLatitude;
+        endLongitude = other.endLongitude;
+        distance = other.distance;
+        maxSpeed = other.maxSpeed;
+        fixCount = other.fixCount;
+    }
+
+    /**
+     * Returns a copy of the segment, to keep it after the listener call.
+     */
+    public IgnitedTripSegment copy() {
+        IgnitedTripSegment copy = new IgnitedTripSegment(type);
+        copy.set(this);
+        return copy;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isStop() {
+        return type == TYPE_STOP;
+    }
+
+    /**
+     * Returns the time of the first fix of the segment. A stop starts at the first fix within its
+     * radius, not when it's detected.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time of the last fix of the segment so far.
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getDuration() {
+        return endTime - startTime;
+    }
+
+    /**
+     * Returns where a trip starts from, or the center of a stop.
+     */
+    public double getStartLatitude() {
+        return startLatitude;
+    }
+
+    public double getStartLongitude() {
+        return startLongitude;
+    }
+
+    /**
+     * Returns where a trip ends, or the center of a stop.
+     */
+    public double getEndLatitude() {
+        return endLatitude;
+    }
+
+    public double getEndLongitude() {
+        return endLongitude;
+    }
+
+    /**
+     * Returns the length of the path of a trip in meters, 0 for a stop.
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the highest speed seen during a trip in meters/second, 0 for a stop.
+     */
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Returns the average speed of a trip in meters/second, 0 for a stop.
+     */
+    public float getAverageSpeed() {
+        long duration = getDuration();
+        return duration > 0 ? (float) (distance * 1000 / duration) : 0;
+    }
+
+    public int getFixCount() {
+        return fixCount;
+    }
+
+    @Override
+    public String toString() {
+        return (isStop() ? "stop" : "trip") + " from " + startTime + " to " + endTime + ", "
+                + fixCount + " fixes, " + Math.round(distance) + "m";
+    }
+}
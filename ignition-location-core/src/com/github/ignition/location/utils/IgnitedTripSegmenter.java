@@ -0,0 +1,238 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.templates.OnTripSegmentListener;
+
+/**
+ * Splits a stream of fixes into trips and stops as the fixes arrive, keeping a constant amount of
+ * state instead of the track.
+ * <p/>
+ * A stop starts once all the fixes received for the minimum duration are within a radius of
+ * their mean position; it's backdated to the first of those fixes, and the trip before it is cut
+ * back to end there. The stop ends with the first fix outside the radius, which starts a trip. As
+ * in the {@link StillnessDetector}, the radius is widened to the accuracy of each fix so that a
+ * poor fix isn't mistaken for movement.
+ * <p/>
+ * Until the first stop is found or the device is seen moving, the fixes received are neither a
+ * trip nor a stop and nothing is reported.
+ * <p/>
+ * Not thread safe: feed the fixes from a single thread.
+ */
+public class IgnitedTripSegmenter {
+
+    public static final int STATE_UNKNOWN = 0;
+    public static final int STATE_TRIP = 1;
+    public static final int STATE_STOP = 2;
+
+    private final double radius;
+    private final long minStopDuration;
+    private OnTripSegmentListener listener;
+
+    private final IgnitedTripSegment trip = new IgnitedTripSegment(IgnitedTripSegment.TYPE_TRIP);
+    private final IgnitedTripSegment stop = new IgnitedTripSegment(IgnitedTripSegment.TYPE_STOP);
+    // The trip as it was at the first fix of the candidate stop: what it's cut back to if the
+    // candidate turns out to be a stop.
+    private final IgnitedTripSegment tripAtCandidate = new IgnitedTripSegment(
+            IgnitedTripSegment.TYPE_TRIP);
+    private int state = STATE_UNKNOWN;
+
+    // The fixes that may be a stop: the time of the first one, and their mean position.
+    private long candidateTime;
+    private double candidateLatitude, candidateLongitude;
+    private int candidateCount;
+
+    private double lastLatitude, lastLongitude;
+    private long lastTime = -1;
+
+    /**
+     * @param radius
+     *            the distance, in meters, the device can drift within while stopped
+     * @param minStopDuration
+     *            how long, in milliseconds, the device must stay within the radius for a stop
+     */
+    public IgnitedTripSegmenter(double radius, long minStopDuration) {
+        this.radius = radius;
+        this.minStopDuration = minStopDuration;
+    }
+
+    public void setListener(OnTripSegmentListener listener) {
+        this.listener = listener;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public long getMinStopDuration() {
+        return minStopDuration;
+    }
+
+    /**
+     * Feed a new fix to the segmenter. Fixes that aren't newer than the last one are ignored.
+     * 
+     * @param speed
+     *            the speed of the fix in meters/second, or -1 if it has none
+     * @return true if a stop has started or ended
+     */
+    public boolean onFix(double latitude, double longitude, float accuracy, float speed,
+            long time) {
+        if (lastTime >= 0 && time <= lastTime) {
+            return false;
+        }
+        boolean changed = false;
+        double maxDistance = Math.max(radius, accuracy);
+        if (lastTime < 0) {
+            trip.start(time, latitude, longitude, 1);
+            startCandidate(latitude, longitude, time);
+        } else if (state == STATE_STOP) {
+            if (IgnitedDistance.distanceBetween(stop.endLatitude, stop.endLongitude, latitude,
+                    longitude) <= maxDistance) {
+                addToStop(latitude, longitude, time);
+            } else {
+                endStop(latitude, longitude, speed, time);
+                changed = true;
+            }
+        } else {
+            extendTrip(latitude, longitude, speed, time);
+            if (IgnitedDistance.distanceBetween(candidateLatitude, candidateLongitude, latitude,
+                    longitude) <= maxDistance) {
+                candidateCount++;
+                candidateLatitude += (latitude - candidateLatitude) / candidateCount;
+                candidateLongitude += (longitude - candidateLongitude) / candidateCount;
+                if (time - candidateTime >= minStopDuration) {
+                    startStop(time);
+                    changed = true;
+                }
+            } else {
+                if (state == STATE_UNKNOWN) {
+                    state = STATE_TRIP;
+                    notifyStarted(trip);
+                }
+                startCandidate(latitude, longitude, time);
+            }
+        }
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = time;
+        return changed;
+    }
+
+    /**
+     * Convenience for {@link #onFix(double, double, float, float, long)}.
+     */
+    public boolean onFix(IgnitedFix fix) {
+        return onFix(fix.getLatitude(), fix.getLongitude(), fix.getAccuracy(),
+                fix.hasSpeed() ? fix.getSpeed() : -1, fix.getTime());
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public boolean isStopped() {
+        return state == STATE_STOP;
+    }
+
+    /**
+     * Returns the trip or the stop in progress, or null if neither has started yet. Only valid
+     * until the next fix.
+     */
+    public IgnitedTripSegment getCurrentSegment() {
+        switch (state) {
+        case STATE_TRIP:
+            return trip;
+        case STATE_STOP:
+            return stop;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Forget the fixes received so far, without reporting the end of the segment in progress.
+     */
+    public void reset() {
+        state = STATE_UNKNOWN;
+        lastTime = -1;
+    }
+
+    private void startCandidate(double latitude, double longitude, long time) {
+        candidateTime = time;
+        candidateLatitude = latitude;
+        candidateLongitude = longitude;
+        candidateCount = 1;
+        tripAtCandidate.set(trip);
+    }
+
+    private void extendTrip(double latitude, double longitude, float speed, long time) {
+        double leg = IgnitedDistance.distanceBetween(lastLatitude, lastLongitude, latitude,
+                longitude);
+        if (speed < 0) {
+            speed = (float) (leg * 1000 / (time - lastTime));
+        }
+        trip.distance += leg;
+        trip.maxSpeed = Math.max(trip.maxSpeed, speed);
+        trip.endTime = time;
+        trip.endLatitude = latitude;
+        trip.endLongitude = longitude;
+        trip.fixCount++;
+    }
+
+    private void startStop(long time) {
+        if (state == STATE_TRIP) {
+            trip.set(tripAtCandidate);
+            notifyEnded(trip);
+        }
+        stop.start(candidateTime, candidateLatitude, candidateLongitude, candidateCount);
+        stop.endTime = time;
+        state = STATE_STOP;
+        notifyStarted(stop);
+    }
+
+    private void addToStop(double latitude, double longitude, long time) {
+        stop.fixCount++;
+        stop.startLatitude = stop.endLatitude += (latitude - stop.endLatitude) / stop.fixCount;
+        stop.startLongitude = stop.endLongitude += (longitude - stop.endLongitude)
+                / stop.fixCount;
+        stop.endTime = time;
+    }
+
+    private void endStop(double latitude, double longitude, float speed, long time) {
+        notifyEnded(stop);
+        // The trip leaves from the center of the stop, at the time of its last fix.
+        trip.start(stop.endTime, stop.endLatitude, stop.endLongitude, 0);
+        lastLatitude = stop.endLatitude;
+        lastLongitude = stop.endLongitude;
+        extendTrip(latitude, longitude, speed, time);
+        startCandidate(latitude, longitude, time);
+        state = STATE_TRIP;
+        notifyStarted(trip);
+    }
+
+    private void notifyStarted(IgnitedTripSegment segment) {
+        if (listener != null) {
+            listener.onSegmentStarted(segment);
+        }
+    }
+
+    private void notifyEnded(IgnitedTripSegment segment) {
+        if (listener != null) {
+            listener.onSegmentEnded(segment);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+/**
+ * Picks the best of several candidate fixes, i.e. the last known fixes of each provider, the way
+ * the last location finders do: the most accurate of the fixes newer than the minimum time or, if
+ * there's none, the newest of the older ones.
+ * <p/>
+ * Candidates are offered one at a time, so the caller keeps track of the fix itself and nothing is
+ * allocated. Instances can be reused with {@link #reset(long)} and aren't thread safe.
+ */
+public class LastFixSelector {
+
+    private long minTime;
+    private float bestAccuracy;
+    private long bestTime;
+    private int bestIndex;
+    private int count;
+
+    /**
+     * @param minTime
+     *            fixes older than this are only picked if there's no newer one
+     */
+    public LastFixSelector(long minTime) {
+        reset(minTime);
+    }
+
+    public void reset(long minTime) {
+        this.minTime = minTime;
+        bestAccuracy = Float.MAX_VALUE;
+        bestTime = Long.MIN_VALUE;
+        bestIndex = -1;
+        count = 0;
+    }
+
+    /**
+     * Offer a candidate.
+     * 
+     * @return true if it's the best candidate so far
+     */
+    public boolean offer(long time, float accuracy) {
+        int index = count++;
+        if (time > minTime && accuracy < bestAccuracy) {
+            bestAccuracy = accuracy;
+            bestTime = time;
+            bestIndex = index;
+            return true;
+        } else if (time < minTime && bestAccuracy == Float.MAX_VALUE && time > bestTime) {
+            // Only the time of an old fix counts, its accuracy is left out.
+            bestTime = time;
+            bestIndex = index;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean offer(IgnitedFix fix) {
+        return offer(fix.getTime(), fix.getAccuracy());
+    }
+
+    /**
+     * Returns the index of the best candidate, in the order they were offered, or -1 if none was
+     * picked.
+     */
+    public int getBestIndex() {
+        return bestIndex;
+    }
+
+    public long getBestTime() {
+        return bestTime;
+    }
+
+    /**
+     * Returns the accuracy of the best candidate, or {@link Float#MAX_VALUE} if it's older than the
+     * minimum time.
+     */
+    public float getBestAccuracy() {
+        return bestAccuracy;
+    }
+
+    /**
+     * Returns true if the best candidate is older than the minimum time or less accurate than the
+     * given distance, i.e. if a fresh fix should be requested.
+     */
+    public boolean isTooOld(int minDistance) {
+        return bestTime < minTime || bestAccuracy > minDistance;
+    }
+}
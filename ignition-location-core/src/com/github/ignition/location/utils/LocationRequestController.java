@@ -0,0 +1,247 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.utils;
+
+import java.util.concurrent.Executor;
+
+import com.github.ignition.location.templates.LocationRequestTarget;
+
+/**
+ * Keeps track of the location requests the manager wants in place and of the ones actually in
+ * place, and applies only the difference.
+ * <p/>
+ * The manager can change the desired state as often as it likes, i.e. once for each provider
+ * event: the changes are batched and applied once, in a single task run on the executor (the
+ * manager's handler). Changes that cancel each other out, such as turning gps off and on again
+ * before the batch runs, don't reach the {@link LocationRequestTarget} at all.
+ * <p/>
+ * Active updates are requested with criteria, which the system resolves to a provider when the
+ * request is made. The provider the manager expects them to resolve to is part of the state, so
+ * that a request is made again once another provider becomes the best one, even if the criteria
+ * haven't changed.
+ * <p/>
+ * Not thread safe: use it from the thread the executor runs on.
+ */
+public class LocationRequestController {
+
+    private final LocationRequestTarget target;
+    private Executor executor;
+    private boolean applyPending;
+
+    // Desired state.
+    private boolean receivers;
+    private boolean active;
+    private long activeMinTime, activeMinDistance;
+    private int accuracy, powerRequirement;
+    private String provider;
+    private boolean passive;
+    private long passiveMinTime, passiveMinDistance;
+    private String watchedProvider;
+
+    // Applied state. Passive updates outlive the process, so they're assumed to be requested until
+    // they're removed.
+    private boolean appliedReceivers;
+    private boolean appliedActive;
+    private long appliedActiveMinTime, appliedActiveMinDistance;
+    private int appliedAccuracy, appliedPowerRequirement;
+    private String appliedProvider;
+    private boolean appliedPassive = true;
+    private long appliedPassiveMinTime = -1, appliedPassiveMinDistance = -1;
+    private String appliedWatchedProvider;
+
+    private final Runnable apply = new Runnable() {
+        @Override
+        public void run() {
+            applyNow();
+        }
+    };
+
+    public LocationRequestController(LocationRequestTarget target, Executor executor) {
+        this.target = target;
+        this.executor = executor;
+    }
+
+    /**
+     * Replace the executor the changes are applied on, i.e. to hold them back in tests.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void setReceiversRegistered(boolean registered) {
+        receivers = registered;
+        scheduleApply();
+    }
+
+    public void setActiveUpdates(long minTime, long minDistance, int accuracy,
+            int powerRequirement) {
+        setActiveUpdates(minTime, minDistance, accuracy, powerRequirement, null);
+    }
+
+    /**
+     * @param provider
+     *            the provider the criteria currently resolve to, or null if unknown
+     */
+    public void setActiveUpdates(long minTime, long minDistance, int accuracy,
+            int powerRequirement, String provider) {
+        active = true;
+        activeMinTime = minTime;
+        activeMinDistance = minDistance;
+        this.accuracy = accuracy;
+        this.powerRequirement = powerRequirement;
+        this.provider = provider;
+        scheduleApply();
+    }
+
+    public void removeActiveUpdates() {
+        active = false;
+        scheduleApply();
+    }
+
+    public void setPassiveUpdates(long minTime, long minDistance) {
+        passive = true;
+        passiveMinTime = minTime;
+        passiveMinDistance = minDistance;
+        scheduleApply();
+    }
+
+    public void removePassiveUpdates() {
+        passive = false;
+        scheduleApply();
+    }
+
+    /**
+     * @param provider
+     *            the disabled provider to watch, or null to stop watching
+     */
+    public void setWatchedProvider(String provider) {
+        watchedProvider = provider;
+        scheduleApply();
+    }
+
+    public boolean isActiveUpdatesRequested() {
+        return appliedActive;
+    }
+
+    public boolean isPassiveUpdatesRequested() {
+        return appliedPassive;
+    }
+
+    public boolean isReceiversRegistered() {
+        return appliedReceivers;
+    }
+
+    public String getWatchedProvider() {
+        return appliedWatchedProvider;
+    }
+
+    /**
+     * Returns true if the desired state hasn't been applied yet.
+     */
+    public boolean isDirty() {
+        return receivers != appliedReceivers || isActiveDirty() || isPassiveDirty()
+                || !equal(watchedProvider, appliedWatchedProvider);
+    }
+
+    /**
+     * Apply the pending changes straight away, e.g. before the activity goes away.
+     */
+    public void applyNow() {
+        applyPending = false;
+
+        if (!passive && appliedPassive) {
+            target.removePassiveUpdates();
+            appliedPassive = false;
+        }
+
+        if (isActiveDirty()) {
+            if (appliedActive
+                    && (!active || accuracy != appliedAccuracy
+                            || powerRequirement != appliedPowerRequirement
+                            || !equal(provider, appliedProvider))) {
+                // Requesting another provider with the same intent doesn't replace the old one.
+                target.removeActiveUpdates();
+                appliedActive = false;
+            }
+            if (active) {
+                target.requestActiveUpdates(activeMinTime, activeMinDistance, accuracy,
+                        powerRequirement);
+                appliedActive = true;
+                appliedActiveMinTime = activeMinTime;
+                appliedActiveMinDistance = activeMinDistance;
+                appliedAccuracy = accuracy;
+                appliedPowerRequirement = powerRequirement;
+                appliedProvider = provider;
+            }
+        }
+
+        if (receivers != appliedReceivers) {
+            if (receivers) {
+                target.registerReceivers();
+            } else {
+                target.unregisterReceivers();
+            }
+            appliedReceivers = receivers;
+        }
+
+        if (!equal(watchedProvider, appliedWatchedProvider)) {
+            if (appliedWatchedProvider != null) {
+                target.unwatchProvider();
+            }
+            if (watchedProvider != null) {
+                target.watchProvider(watchedProvider);
+            }
+            appliedWatchedProvider = watchedProvider;
+        }
+
+        if (isPassiveDirty()) {
+            target.requestPassiveUpdates(passiveMinTime, passiveMinDistance);
+            appliedPassive = true;
+            appliedPassiveMinTime = passiveMinTime;
+            appliedPassiveMinDistance = passiveMinDistance;
+        }
+    }
+
+    private void scheduleApply() {
+        if (!applyPending && isDirty()) {
+            applyPending = true;
+            executor.execute(apply);
+        }
+    }
+
+    private boolean isActiveDirty() {
+        if (active != appliedActive) {
+            return true;
+        }
+        return active
+                && (activeMinTime != appliedActiveMinTime
+                        || activeMinDistance != appliedActiveMinDistance
+                        || accuracy != appliedAccuracy
+                        || powerRequirement != appliedPowerRequirement
+                        || !equal(provider, appliedProvider));
+    }
+
+    private boolean isPassiveDirty() {
+        if (!passive) {
+            return appliedPassive;
+        }
+        return !appliedPassive || passiveMinTime != appliedPassiveMinTime
+                || passiveMinDistance != appliedPassiveMinDistance;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
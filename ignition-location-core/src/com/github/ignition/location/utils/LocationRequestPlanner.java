@@ -0,0 +1,819 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.utils;
+
+import java.util.concurrent.Executor;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.templates.Clock;
+import com.github.ignition.location.templates.LocationRequestHost;
+import com.github.ignition.location.templates.LocationRequestTarget;
+import com.github.ignition.location.templates.MotionSensor;
+import com.github.ignition.location.templates.OnSignificantMotionListener;
+import com.github.ignition.location.templates.OnTripSegmentListener;
+import com.github.ignition.location.templates.Scheduler;
+
+/**
+ * Decides which location updates to request, and when, for a merged {@link LocationRequestPolicy}
+ * and the fixes received: gps is given up on if it doesn't get a fix in time and backed off, it's
+ * duty-cycled, not used on a low battery or beyond the battery budget, and active updates are
+ * suspended while the device is still. The interval follows the proximity schedule and is relaxed
+ * while the device is stopped.
+ * <p/>
+ * The planner has no Android dependency: the requests are made through a
+ * {@link LocationRequestTarget}, via a {@link LocationRequestController}, and the platform is
+ * queried through a {@link LocationRequestHost}. This is what the IgnitedLocationManager runs, and
+ * what the policy simulator replays traces against.
+ * <p/>
+ * Not thread safe: call it, and let it run its delayed work, on the thread of its scheduler.
+ */
+public class LocationRequestPlanner {
+
+    // The values of android.location.Criteria the active updates are requested with.
+    public static final int NO_REQUIREMENT = 0;
+    public static final int ACCURACY_FINE = 1;
+    public static final int POWER_LOW = 1;
+
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final LocationRequestHost host;
+    private final IgnitedFlightRecorder recorder;
+    private final LocationRequestController locationRequests;
+    private final GpsDutyCycle gpsDutyCycle = new GpsDutyCycle();
+    private final ProviderHealthTracker providerHealth = new ProviderHealthTracker();
+
+    // The merged policy.
+    private boolean enableLocationUpdates;
+    private boolean useGps;
+    private long locationUpdatesInterval, passiveLocationUpdatesInterval;
+    private int locationUpdatesDistanceDiff, passiveLocationUpdatesDistanceDiff;
+    private boolean enablePassiveUpdates =
+            IgnitedLocationConstants.ENABLE_PASSIVE_LOCATION_UPDATES_DEFAULT;
+    private long waitForGpsFix = IgnitedLocationConstants.WAIT_FOR_GPS_FIX_INTERVAL_DEFAULT;
+    private int minBatteryLevel = IgnitedLocationConstants.MIN_BATTERY_LEVEL_DEFAULT;
+    private boolean dutyCycleGps;
+    private int dutyCycleGpsAccuracy;
+    private boolean detectStillness;
+    private long stillnessTimeout;
+
+    private boolean locationUpdatesDisabled = true;
+    private boolean suspendedWhileStill;
+    // Gps is turned off by the duty cycle until the next fix is due.
+    private boolean gpsSuspended;
+    // The criteria the active updates are requested with, and the provider they resolved to.
+    private boolean activeUseGps;
+    private String activeProvider;
+    private boolean reRegistrationPending;
+    private StillnessDetector stillnessDetector;
+    private BatteryBudgetGovernor batteryBudget;
+    private ProximitySchedule proximitySchedule;
+    private IgnitedTripSegmenter tripSegmenter;
+    private boolean relaxWhileStopped;
+
+    // Switch to another provider if gps doesn't return a location quickly enough.
+    private final Runnable removeGpsUpdates = new Runnable() {
+        @Override
+        public void run() {
+            host.log("It looks like GPS isn't available at this time (i.e.: maybe you're "
+                    + "indoors). Removing GPS location updates and requesting network updates.");
+
+            recorder.record(IgnitedFlightRecorder.EVENT_GPS_TIMEOUT, 0, 0);
+            // Gps is backed off, so the low power criteria are picked until it's retried.
+            providerHealth.onFailure(IgnitedLocationCodec.PROVIDER_GPS, clock.currentTimeMillis());
+            disableLocationUpdates(false);
+            requestLocationUpdates();
+        }
+    };
+
+    // Re-request location updates with the provider that's currently healthiest.
+    private final Runnable reRegisterLocationUpdates = new Runnable() {
+        @Override
+        public void run() {
+            reRegistrationPending = false;
+            if (!locationUpdatesDisabled) {
+                disableLocationUpdates(false);
+                requestLocationUpdates();
+            }
+        }
+    };
+
+    // Turn gps back on when duty-cycling once the next fix is due.
+    private final Runnable resumeGpsUpdates = new Runnable() {
+        @Override
+        public void run() {
+            host.log("Duty cycle: turning GPS back on");
+            recorder.record(IgnitedFlightRecorder.EVENT_GPS_RESUMED, 0, 0);
+            gpsSuspended = false;
+            requestActiveLocationUpdates();
+            postRemoveGpsUpdates();
+        }
+    };
+
+    // Resume active updates once the device moves again after having been still.
+    private final Runnable resumeAfterStillness = new Runnable() {
+        @Override
+        public void run() {
+            if (!suspendedWhileStill) {
+                return;
+            }
+            host.log("Device is moving, resuming location updates");
+            recorder.record(IgnitedFlightRecorder.EVENT_MOVING, 0, 0);
+            stopStillnessDetection();
+            locationRequests.removePassiveUpdates();
+            requestActiveLocationUpdates();
+            if (useGps) {
+                postRemoveGpsUpdates();
+            }
+        }
+    };
+
+    private final OnSignificantMotionListener significantMotionListener =
+            new OnSignificantMotionListener() {
+                @Override
+                public void onSignificantMotion() {
+                    scheduler.post(resumeAfterStillness);
+                }
+            };
+
+    // Check the battery budget again, and re-request updates if the plan has changed.
+    private final Runnable planBatteryBudget = new Runnable() {
+        @Override
+        public void run() {
+            if (planBatteryBudget()) {
+                scheduleReRegistration();
+            }
+            scheduler.postDelayed(this, IgnitedLocationConstants.BATTERY_BUDGET_PLAN_INTERVAL);
+        }
+    };
+
+    // Give gps another chance once it's no longer backed off.
+    private final Runnable retryGpsUpdates = new Runnable() {
+        @Override
+        public void run() {
+            scheduleReRegistration();
+        }
+    };
+
+    /**
+     * @param clock
+     *            the clock the fixes and the battery usage are timed with
+     * @param scheduler
+     *            the scheduler the delayed decisions and the requests run on
+     * @param target
+     *            makes the requests
+     * @param host
+     *            the platform
+     * @param recorder
+     *            records the decisions taken
+     */
+    public LocationRequestPlanner(Clock clock, Scheduler scheduler,
+            final LocationRequestTarget target, LocationRequestHost host,
+            IgnitedFlightRecorder recorder) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.host = host;
+        this.recorder = recorder;
+        this.locationRequests = new LocationRequestController(new BudgetedTarget(target),
+                new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        LocationRequestPlanner.this.scheduler.post(command);
+                    }
+                });
+    }
+
+    /**
+     * Apply the merged policy of the clients, and update the requests in place if they're active.
+     */
+    public void setPolicy(LocationRequestPolicy policy) {
+        boolean wasUsingGps = useGps;
+        boolean changed = policy.locationUpdatesInterval != locationUpdatesInterval
+                || policy.locationUpdatesDistanceDiff != locationUpdatesDistanceDiff
+                || policy.batteryBudget != (batteryBudget != null ? batteryBudget.getBudget() : 0);
+
+        enableLocationUpdates = policy.requestLocationUpdates;
+        locationUpdatesDistanceDiff = policy.locationUpdatesDistanceDiff;
+        locationUpdatesInterval = policy.locationUpdatesInterval;
+        enablePassiveUpdates = policy.enablePassiveUpdates;
+        passiveLocationUpdatesDistanceDiff = policy.passiveLocationUpdatesDistanceDiff;
+        passiveLocationUpdatesInterval = policy.passiveLocationUpdatesInterval;
+        waitForGpsFix = policy.waitForGpsFix;
+        minBatteryLevel = policy.minBatteryLevel;
+        dutyCycleGps = policy.dutyCycleGps;
+        dutyCycleGpsAccuracy = policy.dutyCycleGpsAccuracy;
+        detectStillness = policy.detectStillness;
+        if (detectStillness
+                && (stillnessDetector == null || stillnessTimeout != policy.stillnessTimeout)) {
+            stillnessDetector = new StillnessDetector(
+                    IgnitedLocationConstants.STILLNESS_RADIUS_DEFAULT, policy.stillnessTimeout);
+        }
+        stillnessTimeout = policy.stillnessTimeout;
+        if (policy.batteryBudget <= 0) {
+            batteryBudget = null;
+        } else if (batteryBudget == null || batteryBudget.getBudget() != policy.batteryBudget) {
+            batteryBudget = new BatteryBudgetGovernor(policy.batteryBudget);
+        }
+
+        // Checking the battery may be costly, skip it when gps isn't going to be used anyway.
+        useGps = policy.useGps && policy.requestLocationUpdates && isBatteryOk();
+        changed |= useGps != wasUsingGps;
+
+        if (suspendedWhileStill && !detectStillness) {
+            scheduler.post(resumeAfterStillness);
+        }
+        if (!locationUpdatesDisabled) {
+            if (!enableLocationUpdates) {
+                disableLocationUpdates(true);
+            } else if (changed) {
+                requestLocationUpdates();
+            }
+        }
+    }
+
+    public boolean isBatteryOk() {
+        return host.getBatteryLevel() >= minBatteryLevel;
+    }
+
+    /**
+     * Request location updates if the policy asks for them and they aren't requested yet.
+     */
+    public void startLocationUpdates() {
+        if (enableLocationUpdates && locationUpdatesDisabled) {
+            requestLocationUpdates();
+        }
+    }
+
+    /**
+     * Called for every fresh fix the app receives from its active updates.
+     * 
+     * @param speed
+     *            the speed, in m/s, or -1 if unknown
+     */
+    public void onFix(int providerId, double latitude, double longitude, float accuracy,
+            float speed, long time) {
+        providerHealth.onFix(providerId, accuracy, time);
+        if (batteryBudget != null) {
+            batteryBudget.onFix(providerId, clock.currentTimeMillis());
+        }
+        if (proximitySchedule != null
+                && proximitySchedule.onFix(latitude, longitude, speed, time)) {
+            onProximityBandChanged();
+        }
+        onTripSegmenterFix(latitude, longitude, accuracy, speed, time);
+
+        // If gps is enabled location comes from gps, remove runnable that removes gps updates
+        if (useGps && providerId == IgnitedLocationCodec.PROVIDER_GPS) {
+            scheduler.removeCallbacks(removeGpsUpdates);
+
+            if (dutyCycleGps && !locationUpdatesDisabled && accuracy <= dutyCycleGpsAccuracy) {
+                suspendGpsUpdates();
+            }
+        }
+
+        if (detectStillness && !locationUpdatesDisabled && !suspendedWhileStill
+                && stillnessDetector.onFix(latitude, longitude, accuracy, time)) {
+            suspendWhileStill();
+        }
+    }
+
+    /**
+     * Called for every fix received from the passive updates.
+     * 
+     * @param speed
+     *            the speed, in m/s, or -1 if unknown
+     */
+    public void onPassiveFix(int providerId, double latitude, double longitude, float accuracy,
+            float speed, long time) {
+        providerHealth.onFix(providerId, accuracy, time);
+        onTripSegmenterFix(latitude, longitude, accuracy, speed, time);
+        // Passive fixes are all we get while active updates are suspended, watch them for movement.
+        if (suspendedWhileStill && !stillnessDetector.onFix(latitude, longitude, accuracy, time)) {
+            scheduler.post(resumeAfterStillness);
+        }
+    }
+
+    /**
+     * The device hasn't moved for a while: stop active updates and fall back to passive ones until
+     * the motion sensor or a passive fix shows it's moving again.
+     */
+    private void suspendWhileStill() {
+        host.log("Device is still, suspending location updates");
+        recorder.record(IgnitedFlightRecorder.EVENT_STILL, 0, 0);
+        locationRequests.removeActiveUpdates();
+        scheduler.removeCallbacks(removeGpsUpdates);
+        cancelGpsSuspension();
+        requestPassiveLocationUpdates();
+        suspendedWhileStill = true;
+        host.getMotionSensor().start(significantMotionListener);
+    }
+
+    private void stopStillnessDetection() {
+        if (suspendedWhileStill) {
+            host.getMotionSensor().stop();
+        }
+        suspendedWhileStill = false;
+        scheduler.removeCallbacks(resumeAfterStillness);
+        if (stillnessDetector != null) {
+            stillnessDetector.reset();
+        }
+    }
+
+    /**
+     * Turn gps off until the next fix is due. The on window of the next cycle will be shorter if
+     * gps can hot or warm start.
+     */
+    private void suspendGpsUpdates() {
+        long now = clock.currentTimeMillis();
+        gpsDutyCycle.onFix(now);
+        long sleepWindow = gpsDutyCycle.getSleepWindow(now, getActiveInterval());
+        if (sleepWindow > 0) {
+            host.log("Duty cycle: turning GPS off for " + sleepWindow / 1000 + "s");
+            recorder.record(IgnitedFlightRecorder.EVENT_GPS_SUSPENDED, 0, (int) sleepWindow);
+            locationRequests.removeActiveUpdates();
+            scheduler.removeCallbacks(resumeGpsUpdates);
+            scheduler.postDelayed(resumeGpsUpdates, sleepWindow);
+            gpsSuspended = true;
+        }
+    }
+
+    private void cancelGpsSuspension() {
+        scheduler.removeCallbacks(resumeGpsUpdates);
+        gpsSuspended = false;
+    }
+
+    private void postRemoveGpsUpdates() {
+        long waitForGpsFix = this.waitForGpsFix;
+        if (dutyCycleGps) {
+            waitForGpsFix = gpsDutyCycle.getAcquisitionWindow(clock.currentTimeMillis(),
+                    waitForGpsFix);
+        }
+        scheduler.removeCallbacks(removeGpsUpdates);
+        scheduler.postDelayed(removeGpsUpdates, waitForGpsFix);
+    }
+
+    /**
+     * Start listening for location updates, with the provider that's currently healthiest and fits
+     * the battery budget. The requests are applied on the scheduler, together with any other
+     * change made in the meantime.
+     */
+    public void requestLocationUpdates() {
+        planBatteryBudget();
+        requestLocationUpdates(selectGps());
+    }
+
+    /**
+     * Let the battery budget governor, if any, decide the provider, interval and distance to use
+     * from now on.
+     * 
+     * @return true if the decision has changed
+     */
+    private boolean planBatteryBudget() {
+        if (batteryBudget == null) {
+            return false;
+        }
+        boolean changed = batteryBudget.plan(clock.currentTimeMillis(), getRequestedInterval(),
+                getRequestedDistance(), useGps);
+        if (changed) {
+            host.log("Battery budget: estimated drain " + batteryBudget.getLastEstimatedDrain()
+                    + "%/h, budget " + batteryBudget.getEffectiveBudget() + "%/h, using "
+                    + IgnitedLocationCodec.getProviderName(batteryBudget.getProvider()) + " every "
+                    + batteryBudget.getInterval() / 1000 + "s or " + batteryBudget.getDistance()
+                    + "m");
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the battery budget governor, to read its decisions, or null if no budget is set.
+     */
+    public BatteryBudgetGovernor getBatteryBudgetGovernor() {
+        return batteryBudget;
+    }
+
+    private long getActiveInterval() {
+        if (batteryBudget != null && batteryBudget.getDecisionCount() > 0) {
+            return batteryBudget.getInterval();
+        }
+        return getRequestedInterval();
+    }
+
+    private int getActiveDistance() {
+        if (batteryBudget != null && batteryBudget.getDecisionCount() > 0) {
+            return batteryBudget.getDistance();
+        }
+        return getRequestedDistance();
+    }
+
+    // The interval the app needs, before the battery budget is applied.
+    private long getRequestedInterval() {
+        long interval = locationUpdatesInterval;
+        if (proximitySchedule != null && proximitySchedule.getBand() >= 0) {
+            interval = proximitySchedule.getInterval();
+        }
+        if (isRelaxedWhileStopped()) {
+            interval = Math.max(interval,
+                    IgnitedLocationConstants.STOPPED_LOCATION_UPDATES_INTERVAL);
+        }
+        return interval;
+    }
+
+    private int getRequestedDistance() {
+        int distance = locationUpdatesDistanceDiff;
+        if (proximitySchedule != null && proximitySchedule.getBand() >= 0) {
+            distance = proximitySchedule.getDistance();
+        }
+        if (isRelaxedWhileStopped()) {
+            // A fix closer than the radius wouldn't end the stop anyway.
+            distance = Math.max(distance, (int) tripSegmenter.getRadius());
+        }
+        return distance;
+    }
+
+    /**
+     * Schedule the location updates according to the distance left to a target, until it's
+     * cleared.
+     * 
+     * @param schedule
+     *            the schedule of the target, already fed the current fix if any, or null to clear
+     *            the target
+     */
+    public void setProximitySchedule(ProximitySchedule schedule) {
+        if (schedule == null && proximitySchedule == null) {
+            return;
+        }
+        proximitySchedule = schedule;
+        onProximityBandChanged();
+    }
+
+    /**
+     * Returns the schedule of the current proximity target, or null if none is set.
+     */
+    public ProximitySchedule getProximitySchedule() {
+        return proximitySchedule;
+    }
+
+    private void onProximityBandChanged() {
+        if (proximitySchedule != null) {
+            host.log("Proximity target " + (int) proximitySchedule.getRemainingDistance()
+                    + "m away, requesting updates every " + getRequestedInterval() / 1000 + "s");
+        }
+        onRequestedScheduleChanged();
+    }
+
+    /**
+     * Split the fixes into trips and stops, and report them to the listener.
+     * 
+     * @param relaxWhileStopped
+     *            request updates at most every
+     *            {@link IgnitedLocationConstants#STOPPED_LOCATION_UPDATES_INTERVAL}, and no closer
+     *            than the radius, while the device is stopped
+     */
+    public void setTripSegmentListener(OnTripSegmentListener listener, float radius,
+            long minStopDuration, boolean relaxWhileStopped) {
+        boolean wasRelaxed = isRelaxedWhileStopped();
+        tripSegmenter = new IgnitedTripSegmenter(radius, minStopDuration);
+        tripSegmenter.setListener(listener);
+        this.relaxWhileStopped = relaxWhileStopped;
+        if (wasRelaxed) {
+            onRequestedScheduleChanged();
+        }
+    }
+
+    public void clearTripSegmentListener() {
+        if (tripSegmenter != null) {
+            boolean wasRelaxed = isRelaxedWhileStopped();
+            tripSegmenter = null;
+            if (wasRelaxed) {
+                onRequestedScheduleChanged();
+            }
+        }
+    }
+
+    /**
+     * Returns the segmenter the fixes are fed to, or null if no trip segment listener is set.
+     */
+    public IgnitedTripSegmenter getTripSegmenter() {
+        return tripSegmenter;
+    }
+
+    private boolean isRelaxedWhileStopped() {
+        return relaxWhileStopped && tripSegmenter != null && tripSegmenter.isStopped();
+    }
+
+    private void onTripSegmenterFix(double latitude, double longitude, float accuracy,
+            float speed, long time) {
+        if (tripSegmenter == null
+                || !tripSegmenter.onFix(latitude, longitude, accuracy, speed, time)) {
+            return;
+        }
+        boolean stopped = tripSegmenter.isStopped();
+        recorder.record(stopped ? IgnitedFlightRecorder.EVENT_STOP_STARTED
+                : IgnitedFlightRecorder.EVENT_STOP_ENDED, 0, 0);
+        if (relaxWhileStopped) {
+            host.log((stopped ? "Device stopped" : "Device left the stop")
+                    + ", requesting updates every " + getRequestedInterval() / 1000 + "s");
+            onRequestedScheduleChanged();
+        }
+    }
+
+    // Re-request the active updates once the interval or distance the app needs have changed.
+    private void onRequestedScheduleChanged() {
+        // The controller may not have applied the requests yet, so the planner's own state decides.
+        // While the active updates are suspended, because the device is still or gps is
+        // duty-cycled off, the new interval is picked up when they're requested again.
+        if (locationUpdatesDisabled || suspendedWhileStill || gpsSuspended) {
+            return;
+        }
+        if (batteryBudget != null) {
+            // The budget may afford another provider at the new interval.
+            scheduleReRegistration();
+        } else {
+            requestActiveLocationUpdates();
+        }
+    }
+
+    /**
+     * Returns true if gps should be requested, based on the health of the providers: the low power
+     * criteria are used while gps is backed off after failing to get a fix, or while it's been
+     * less accurate than the network, and gps is retried once its backoff expires.
+     */
+    private boolean selectGps() {
+        if (!useGps) {
+            return false;
+        }
+        if (batteryBudget != null
+                && batteryBudget.getProvider() == IgnitedLocationCodec.PROVIDER_NETWORK) {
+            // Gps doesn't fit in the battery budget.
+            return false;
+        }
+        // Keep asking for gps while it's disabled: getBestProvider falls back to the enabled
+        // providers, and the inactive provider watch notices when gps is enabled again. A disabled
+        // network provider gets gps picked even while it's backed off.
+        long now = clock.currentTimeMillis();
+        boolean gpsEnabled = providerHealth.isEnabled(IgnitedLocationCodec.PROVIDER_GPS);
+        if (!gpsEnabled
+                || providerHealth.selectProvider(true, now) != IgnitedLocationCodec.PROVIDER_NETWORK) {
+            return true;
+        }
+
+        long retryDelay = providerHealth.getRetryDelay(IgnitedLocationCodec.PROVIDER_GPS, now);
+        if (retryDelay > 0) {
+            host.log("GPS backed off, retrying in " + retryDelay / 1000 + "s");
+            scheduler.removeCallbacks(retryGpsUpdates);
+            scheduler.postDelayed(retryGpsUpdates, retryDelay);
+        }
+        return false;
+    }
+
+    /**
+     * Called when the provider the active updates were requested from has been disabled.
+     */
+    public void onActiveProviderDisabled() {
+        if (activeProvider != null) {
+            providerHealth.setEnabled(IgnitedLocationCodec.getProviderId(activeProvider), false);
+        }
+        scheduleReRegistration();
+    }
+
+    /**
+     * Called when the watched provider, better than the one in use, has been enabled.
+     */
+    public void onProviderEnabled(String provider) {
+        providerHealth.setEnabled(IgnitedLocationCodec.getProviderId(provider), true);
+        scheduleReRegistration();
+    }
+
+    /**
+     * Re-register the location updates once the providers have settled, coalescing the triggers
+     * received in the meantime.
+     */
+    public void scheduleReRegistration() {
+        if (reRegistrationPending) {
+            return;
+        }
+        reRegistrationPending = true;
+        scheduler.postDelayed(reRegisterLocationUpdates,
+                IgnitedLocationConstants.LOCATION_UPDATES_REREGISTRATION_DELAY);
+    }
+
+    private void requestLocationUpdates(boolean useGps) {
+        host.log("Requesting location updates");
+        cancelGpsSuspension();
+        stopStillnessDetection();
+
+        // The criteria are resolved by the system when they're requested, so re-requesting them is
+        // only needed, and only made by the controller, when the best provider has changed.
+        int accuracy = useGps ? ACCURACY_FINE : NO_REQUIREMENT;
+        int powerRequirement = useGps ? NO_REQUIREMENT : POWER_LOW;
+        String bestProvider = host.getBestProvider(accuracy, powerRequirement, false);
+        String bestAvailableProvider = host.getBestProvider(accuracy, powerRequirement, true);
+        activeUseGps = useGps;
+        activeProvider = bestAvailableProvider;
+        if (bestAvailableProvider != null) {
+            providerHealth.setEnabled(IgnitedLocationCodec.getProviderId(bestAvailableProvider),
+                    true);
+        }
+        boolean passiveOnly = batteryBudget != null
+                && batteryBudget.getProvider() == IgnitedLocationCodec.PROVIDER_PASSIVE;
+        if (passiveOnly) {
+            host.log("Battery budget exhausted, falling back to passive updates");
+            locationRequests.removeActiveUpdates();
+            requestPassiveLocationUpdates();
+        } else {
+            // Normal updates while activity is visible, instead of passive ones.
+            locationRequests.removePassiveUpdates();
+            requestActiveLocationUpdates();
+        }
+        if (batteryBudget != null) {
+            scheduler.removeCallbacks(planBatteryBudget);
+            scheduler.postDelayed(planBatteryBudget,
+                    IgnitedLocationConstants.BATTERY_BUDGET_PLAN_INTERVAL);
+        }
+
+        // Listen for when the provider I'm using has been disabled, and for battery changes.
+        locationRequests.setReceiversRegistered(true);
+
+        // Listen for when a better provider than I'm using becomes available.
+        if (bestProvider != null && !bestProvider.equals(bestAvailableProvider)) {
+            locationRequests.setWatchedProvider(bestProvider);
+        } else {
+            locationRequests.setWatchedProvider(null);
+        }
+
+        int activeProviderId = IgnitedLocationCodec.getProviderId(bestAvailableProvider);
+        recorder.record(IgnitedFlightRecorder.EVENT_UPDATES_ENABLED,
+                passiveOnly ? IgnitedLocationCodec.PROVIDER_PASSIVE : activeProviderId,
+                (int) getActiveInterval());
+
+        if (!passiveOnly && activeProviderId == IgnitedLocationCodec.PROVIDER_GPS) {
+            host.log("Posting delayed remove GPS updates message");
+            // Post a runnable that will remove gps updates if no gps location is returned after 1
+            // minute in order to avoid draining the battery.
+            postRemoveGpsUpdates();
+        }
+
+        locationUpdatesDisabled = false;
+    }
+
+    private void requestActiveLocationUpdates() {
+        locationRequests.setActiveUpdates(getActiveInterval(), getActiveDistance(),
+                activeUseGps ? ACCURACY_FINE : NO_REQUIREMENT, activeUseGps ? NO_REQUIREMENT
+                        : POWER_LOW, activeProvider);
+    }
+
+    /**
+     * Stop listening for location updates
+     * 
+     * @param requestPassiveLocationUpdates
+     *            fall back to passive updates
+     */
+    public void disableLocationUpdates(boolean requestPassiveLocationUpdates) {
+        if (locationUpdatesDisabled) {
+            return;
+        }
+
+        host.log("Disabling location updates");
+        recorder.record(IgnitedFlightRecorder.EVENT_UPDATES_DISABLED,
+                requestPassiveLocationUpdates ? 1 : 0, 0);
+        locationRequests.setReceiversRegistered(false);
+        locationRequests.removeActiveUpdates();
+        locationRequests.setWatchedProvider(null);
+        cancelGpsSuspension();
+        scheduler.removeCallbacks(planBatteryBudget);
+        stopStillnessDetection();
+        // The next time gps is requested, e.g. after it failed to get a fix, it gets the full
+        // acquisition window.
+        gpsDutyCycle.reset();
+
+        if (requestPassiveLocationUpdates) {
+            requestPassiveLocationUpdates();
+        }
+
+        locationUpdatesDisabled = true;
+    }
+
+    /**
+     * Release the location updates, and cancel all the pending decisions, once no client is
+     * attached anymore. The calls to the system are made right away.
+     */
+    public void teardown(boolean requestPassiveLocationUpdates) {
+        disableLocationUpdates(requestPassiveLocationUpdates);
+        scheduler.removeCallbacks(removeGpsUpdates);
+        cancelGpsSuspension();
+        scheduler.removeCallbacks(retryGpsUpdates);
+        scheduler.removeCallbacks(reRegisterLocationUpdates);
+        scheduler.removeCallbacks(planBatteryBudget);
+        reRegistrationPending = false;
+        gpsDutyCycle.reset();
+        // Providers may be enabled or disabled before the next start without us noticing.
+        providerHealth.setEnabled(IgnitedLocationCodec.PROVIDER_GPS, true);
+        providerHealth.setEnabled(IgnitedLocationCodec.PROVIDER_NETWORK, true);
+        locationRequests.applyNow();
+    }
+
+    /**
+     * Request the passive updates again if the battery is ok, or remove them if it's low.
+     */
+    public void refreshPassiveUpdates() {
+        boolean batteryOk = isBatteryOk();
+        recorder.record(IgnitedFlightRecorder.EVENT_REFRESH, batteryOk ? 1 : 0, 0);
+        if (batteryOk) {
+            requestPassiveLocationUpdates();
+        } else {
+            locationRequests.removePassiveUpdates();
+        }
+    }
+
+    private void requestPassiveLocationUpdates() {
+        if (enablePassiveUpdates) {
+            host.log("Requesting passive location updates");
+            // Passive location updates from 3rd party apps when the Activity isn't
+            // visible.
+            locationRequests.setPassiveUpdates(passiveLocationUpdatesInterval,
+                    passiveLocationUpdatesDistanceDiff);
+        }
+    }
+
+    public boolean isLocationUpdatesDisabled() {
+        return locationUpdatesDisabled;
+    }
+
+    public boolean isSuspendedWhileStill() {
+        return suspendedWhileStill;
+    }
+
+    /**
+     * Charges the time the active updates are on to the provider the criteria resolve to, when a
+     * battery budget is set.
+     */
+    private class BudgetedTarget implements LocationRequestTarget {
+        private final LocationRequestTarget target;
+
+        BudgetedTarget(LocationRequestTarget target) {
+            this.target = target;
+        }
+
+        @Override
+        public void requestActiveUpdates(long minTime, long minDistance, int accuracy,
+                int powerRequirement) {
+            target.requestActiveUpdates(minTime, minDistance, accuracy, powerRequirement);
+            if (batteryBudget != null) {
+                batteryBudget.onProviderStarted(IgnitedLocationCodec.getProviderId(host
+                        .getBestProvider(accuracy, powerRequirement, true)), clock
+                        .currentTimeMillis());
+            }
+        }
+
+        @Override
+        public void removeActiveUpdates() {
+            target.removeActiveUpdates();
+            if (batteryBudget != null) {
+                batteryBudget.onProviderStopped(clock.currentTimeMillis());
+            }
+        }
+
+        @Override
+        public void requestPassiveUpdates(long minTime, long minDistance) {
+            target.requestPassiveUpdates(minTime, minDistance);
+        }
+
+        @Override
+        public void removePassiveUpdates() {
+            target.removePassiveUpdates();
+        }
+
+        @Override
+        public void watchProvider(String provider) {
+            target.watchProvider(provider);
+        }
+
+        @Override
+        public void unwatchProvider() {
+            target.unwatchProvider();
+        }
+
+        @Override
+        public void registerReceivers() {
+            target.registerReceivers();
+        }
+
+        @Override
+        public void unregisterReceivers() {
+            target.unregisterReceivers();
+        }
+    }
+}
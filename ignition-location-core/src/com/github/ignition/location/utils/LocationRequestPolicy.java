@@ -0,0 +1,144 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.annotations.IgnitedLocationActivity;
+
+/**
+ * The location settings of an {@link IgnitedLocationActivity}, which can be merged with the
+ * settings of the other activities attached to the manager into a single effective request.
+ * <p/>
+ * The merged policy satisfies every activity: it uses gps if any of the activities requesting
+ * updates does, the shortest intervals and distances, and only saves power (duty cycling, stillness
+ * detection, battery budget) if all of them allow it.
+ */
+public class LocationRequestPolicy {
+
+    public boolean requestLocationUpdates;
+    public boolean useGps;
+    public long locationUpdatesInterval;
+    public int locationUpdatesDistanceDiff;
+    public boolean enablePassiveUpdates;
+    public long passiveLocationUpdatesInterval;
+    public int passiveLocationUpdatesDistanceDiff;
+    public long waitForGpsFix;
+    public int minBatteryLevel;
+    public boolean dutyCycleGps;
+    public int dutyCycleGpsAccuracy;
+    public boolean detectStillness;
+    public long stillnessTimeout;
+    public float batteryBudget;
+
+    /**
+     * Returns a policy with the same settings as an activity annotated with the default values.
+     */
+    public static LocationRequestPolicy fromDefaults() {
+        LocationRequestPolicy policy = new LocationRequestPolicy();
+        policy.requestLocationUpdates = IgnitedLocationConstants.ENABLE_LOCATION_UPDATES_DEFAULT;
+        policy.useGps = IgnitedLocationConstants.USE_GPS_DEFAULT;
+        policy.locationUpdatesInterval = IgnitedLocationConstants.LOCATION_UPDATES_INTERVAL_DEFAULT;
+        policy.locationUpdatesDistanceDiff = IgnitedLocationConstants
+                .LOCATION_UPDATES_DISTANCE_DIFF_DEFAULT;
+        policy.enablePassiveUpdates = IgnitedLocationConstants
+                .ENABLE_PASSIVE_LOCATION_UPDATES_DEFAULT;
+        policy.passiveLocationUpdatesInterval = IgnitedLocationConstants
+                .PASSIVE_LOCATION_UPDATES_INTERVAL_DEFAULT;
+        policy.passiveLocationUpdatesDistanceDiff = IgnitedLocationConstants
+                .PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF_DEFAULT;
+        policy.waitForGpsFix = IgnitedLocationConstants.WAIT_FOR_GPS_FIX_INTERVAL_DEFAULT;
+        policy.minBatteryLevel = IgnitedLocationConstants.MIN_BATTERY_LEVEL_DEFAULT;
+        policy.dutyCycleGps = IgnitedLocationConstants.DUTY_CYCLE_GPS_DEFAULT;
+        policy.dutyCycleGpsAccuracy = IgnitedLocationConstants.DUTY_CYCLE_GPS_ACCURACY_DEFAULT;
+        policy.detectStillness = IgnitedLocationConstants.DETECT_STILLNESS_DEFAULT;
+        policy.stillnessTimeout = IgnitedLocationConstants.STILLNESS_TIMEOUT_DEFAULT;
+        policy.batteryBudget = IgnitedLocationConstants.BATTERY_BUDGET_DEFAULT;
+        return policy;
+    }
+
+    public static LocationRequestPolicy fromAnnotation(IgnitedLocationActivity annotation) {
+        LocationRequestPolicy policy = new LocationRequestPolicy();
+        policy.requestLocationUpdates = annotation.requestLocationUpdates();
+        policy.useGps = annotation.useGps();
+        policy.locationUpdatesInterval = annotation.locationUpdatesInterval();
+        policy.locationUpdatesDistanceDiff = annotation.locationUpdatesDistanceDiff();
+        policy.enablePassiveUpdates = annotation.enablePassiveUpdates();
+        policy.passiveLocationUpdatesInterval = annotation.passiveLocationUpdatesInterval();
+        policy.passiveLocationUpdatesDistanceDiff = annotation.passiveLocationUpdatesDistanceDiff();
+        policy.waitForGpsFix = annotation.waitForGpsFix();
+        policy.minBatteryLevel = annotation.minBatteryLevel();
+        policy.dutyCycleGps = annotation.dutyCycleGps();
+        policy.dutyCycleGpsAccuracy = annotation.dutyCycleGpsAccuracy();
+        policy.detectStillness = annotation.detectStillness();
+        policy.stillnessTimeout = annotation.stillnessTimeout();
+        policy.batteryBudget = annotation.batteryBudget();
+        return policy;
+    }
+
+    public LocationRequestPolicy copy() {
+        LocationRequestPolicy policy = new LocationRequestPolicy();
+        policy.requestLocationUpdates = requestLocationUpdates;
+        policy.useGps = useGps;
+        policy.locationUpdatesInterval = locationUpdatesInterval;
+        policy.locationUpdatesDistanceDiff = locationUpdatesDistanceDiff;
+        policy.enablePassiveUpdates = enablePassiveUpdates;
+        policy.passiveLocationUpdatesInterval = passiveLocationUpdatesInterval;
+        policy.passiveLocationUpdatesDistanceDiff = passiveLocationUpdatesDistanceDiff;
+        policy.waitForGpsFix = waitForGpsFix;
+        policy.minBatteryLevel = minBatteryLevel;
+        policy.dutyCycleGps = dutyCycleGps;
+        policy.dutyCycleGpsAccuracy = dutyCycleGpsAccuracy;
+        policy.detectStillness = detectStillness;
+        policy.stillnessTimeout = stillnessTimeout;
+        policy.batteryBudget = batteryBudget;
+        return policy;
+    }
+
+    /**
+     * Merge the other policy into this one.
+     *
+     * @return this policy
+     */
+    public LocationRequestPolicy merge(LocationRequestPolicy other) {
+        // The active settings of an activity that doesn't request updates don't matter.
+        if (other.requestLocationUpdates && !requestLocationUpdates) {
+            requestLocationUpdates = true;
+            useGps = other.useGps;
+            locationUpdatesInterval = other.locationUpdatesInterval;
+            locationUpdatesDistanceDiff = other.locationUpdatesDistanceDiff;
+        } else if (other.requestLocationUpdates) {
+            useGps |= other.useGps;
+            locationUpdatesInterval = Math.min(locationUpdatesInterval,
+                    other.locationUpdatesInterval);
+            locationUpdatesDistanceDiff = Math.min(locationUpdatesDistanceDiff,
+                    other.locationUpdatesDistanceDiff);
+        }
+        enablePassiveUpdates |= other.enablePassiveUpdates;
+        passiveLocationUpdatesInterval = Math.min(passiveLocationUpdatesInterval,
+                other.passiveLocationUpdatesInterval);
+        passiveLocationUpdatesDistanceDiff = Math.min(passiveLocationUpdatesDistanceDiff,
+                other.passiveLocationUpdatesDistanceDiff);
+        waitForGpsFix = Math.max(waitForGpsFix, other.waitForGpsFix);
+        minBatteryLevel = Math.min(minBatteryLevel, other.minBatteryLevel);
+        dutyCycleGps &= other.dutyCycleGps;
+        dutyCycleGpsAccuracy = Math.min(dutyCycleGpsAccuracy, other.dutyCycleGpsAccuracy);
+        detectStillness &= other.detectStillness;
+        stillnessTimeout = Math.max(stillnessTimeout, other.stillnessTimeout);
+        // No budget (0) is the largest one.
+        batteryBudget = batteryBudget == 0 || other.batteryBudget == 0 ? 0 : Math.max(
+                batteryBudget, other.batteryBudget);
+        return this;
+    }
+}
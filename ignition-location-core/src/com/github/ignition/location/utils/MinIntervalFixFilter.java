@@ -0,0 +1,73 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.templates.FixFilter;
+
+/**
+ * Drops the fixes processed less than the minimum interval after the last one accepted. The
+ * interval is measured on the processing time, not on the fix time; if the clock goes backwards
+ * fixes aren't dropped until it catches up.
+ */
+public class MinIntervalFixFilter implements FixFilter {
+
+    private long minInterval;
+    private boolean hasLast;
+    private long lastAcceptedAt;
+
+    public MinIntervalFixFilter(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Returns true if enough time has passed since the last fix accepted to accept a new one.
+     */
+    public boolean isDue(long now) {
+        return !hasLast || now < lastAcceptedAt || now - lastAcceptedAt >= minInterval;
+    }
+
+    @Override
+    public boolean accept(IgnitedFix fix, long now) {
+        return isDue(now);
+    }
+
+    @Override
+    public void onAccepted(IgnitedFix fix, long now) {
+        setLastAcceptedAt(now);
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+        lastAcceptedAt = 0;
+    }
+
+    public long getLastAcceptedAt() {
+        return lastAcceptedAt;
+    }
+
+    /**
+     * Set the time the last fix was accepted at, i.e. when it's been accepted in another process.
+     */
+    public void setLastAcceptedAt(long lastAcceptedAt) {
+        hasLast = true;
+        this.lastAcceptedAt = lastAcceptedAt;
+    }
+}
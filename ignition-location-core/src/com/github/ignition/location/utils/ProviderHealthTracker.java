@@ -0,0 +1,184 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.utils;
+
+/**
+ * Keeps track of how well each location provider has been doing: fix rate, mean accuracy, time
+ * since the last fix and streak of failures (i.e. gps timing out without a fix). The manager uses
+ * it to pick the provider to request updates from, instead of relying on static criteria alone.
+ * <p/>
+ * A provider that fails is backed off for {@link #FAILURE_BACKOFF}, doubled for each failure in a
+ * row up to {@link #MAX_FAILURE_BACKOFF}; a fix resets the streak. Providers are identified by
+ * their {@link IgnitedLocationCodec} ids.
+ */
+public class ProviderHealthTracker {
+
+    public static final long FAILURE_BACKOFF = 60 * 1000; // 1 minute
+    public static final long MAX_FAILURE_BACKOFF = 30 * 60 * 1000; // 30 minutes
+    // Gps is given another chance once its accuracy is this old.
+    public static final long MAX_ACCURACY_AGE = 10 * 60 * 1000; // 10 minutes
+
+    // Weight of the newest sample in the moving averages.
+    private static final double SMOOTHING = 0.25;
+    private static final int PROVIDER_COUNT = IgnitedLocationCodec.PROVIDER_PASSIVE + 1;
+
+    private final boolean[] enabled = new boolean[PROVIDER_COUNT];
+    private final long[] lastFixTime = new long[PROVIDER_COUNT];
+    private final double[] meanFixInterval = new double[PROVIDER_COUNT];
+    private final double[] meanAccuracy = new double[PROVIDER_COUNT];
+    private final int[] failureStreak = new int[PROVIDER_COUNT];
+    private final long[] lastFailureTime = new long[PROVIDER_COUNT];
+
+    public ProviderHealthTracker() {
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            // Assume enabled until told otherwise.
+            enabled[i] = true;
+            lastFixTime[i] = -1;
+            meanFixInterval[i] = -1;
+            meanAccuracy[i] = -1;
+        }
+    }
+
+    /**
+     * Record a fix. Fixes that aren't newer than the last one recorded for the provider are
+     * ignored, so that the app's own fixes, delivered again by the passive updates, aren't counted
+     * twice.
+     */
+    public synchronized void onFix(int providerId, float accuracy, long time) {
+        if (time <= lastFixTime[providerId]) {
+            return;
+        }
+        if (lastFixTime[providerId] >= 0) {
+            meanFixInterval[providerId] = average(meanFixInterval[providerId], time
+                    - lastFixTime[providerId]);
+        }
+        if (accuracy > 0) {
+            meanAccuracy[providerId] = average(meanAccuracy[providerId], accuracy);
+        }
+        lastFixTime[providerId] = time;
+        failureStreak[providerId] = 0;
+    }
+
+    /**
+     * Record that the provider failed to return a fix in time.
+     */
+    public synchronized void onFailure(int providerId, long now) {
+        failureStreak[providerId]++;
+        lastFailureTime[providerId] = now;
+    }
+
+    /**
+     * @return true if the enabled state of the provider has changed
+     */
+    public synchronized boolean setEnabled(int providerId, boolean enabled) {
+        boolean changed = this.enabled[providerId] != enabled;
+        this.enabled[providerId] = enabled;
+        return changed;
+    }
+
+    public synchronized boolean isEnabled(int providerId) {
+        return enabled[providerId];
+    }
+
+    /**
+     * Returns how long to wait, in milliseconds, before trying a provider that has been failing
+     * again, or 0 if it can be used now.
+     */
+    public synchronized long getRetryDelay(int providerId, long now) {
+        int streak = failureStreak[providerId];
+        if (streak == 0) {
+            return 0;
+        }
+        long backoff = FAILURE_BACKOFF << Math.min(streak - 1, 16);
+        backoff = Math.min(backoff, MAX_FAILURE_BACKOFF);
+        return Math.max(0, lastFailureTime[providerId] + backoff - now);
+    }
+
+    public synchronized boolean isHealthy(int providerId, long now) {
+        return enabled[providerId] && getRetryDelay(providerId, now) == 0;
+    }
+
+    /**
+     * Returns the mean time between fixes in milliseconds, or -1 if not known yet.
+     */
+    public synchronized double getMeanFixInterval(int providerId) {
+        return meanFixInterval[providerId];
+    }
+
+    /**
+     * Returns the mean accuracy in meters, or -1 if not known yet.
+     */
+    public synchronized double getMeanAccuracy(int providerId) {
+        return meanAccuracy[providerId];
+    }
+
+    /**
+     * Returns the time since the last fix in milliseconds, or -1 if no fix has been received.
+     */
+    public synchronized long getTimeSinceLastFix(int providerId, long now) {
+        return lastFixTime[providerId] < 0 ? -1 : now - lastFixTime[providerId];
+    }
+
+    public synchronized int getFailureStreak(int providerId) {
+        return failureStreak[providerId];
+    }
+
+    /**
+     * Pick the provider to request active updates from.
+     * 
+     * @param allowGps
+     *            false if gps shouldn't be used, i.e. because the battery is low
+     * @param now
+     *            current time in milliseconds
+     * @return {@link IgnitedLocationCodec#PROVIDER_GPS}, {@link IgnitedLocationCodec#PROVIDER_NETWORK}
+     *         or {@link IgnitedLocationCodec#PROVIDER_UNKNOWN} if neither is enabled
+     */
+    public synchronized int selectProvider(boolean allowGps, long now) {
+        int gps = IgnitedLocationCodec.PROVIDER_GPS;
+        int network = IgnitedLocationCodec.PROVIDER_NETWORK;
+        boolean gpsHealthy = allowGps && isHealthy(gps, now);
+        boolean networkHealthy = isHealthy(network, now);
+
+        if (gpsHealthy && networkHealthy) {
+            // Gps is only worth its cost if it's actually been more accurate, i.e. not in an
+            // urban canyon.
+            if (meanAccuracy[gps] >= 0 && meanAccuracy[network] >= 0
+                    && meanAccuracy[gps] >= meanAccuracy[network]
+                    && now - lastFixTime[gps] < MAX_ACCURACY_AGE) {
+                return network;
+            }
+            return gps;
+        } else if (gpsHealthy) {
+            return gps;
+        } else if (networkHealthy) {
+            return network;
+        }
+
+        // Nothing healthy: fall back to whichever enabled provider recovers first.
+        boolean gpsEnabled = allowGps && enabled[gps];
+        if (gpsEnabled && enabled[network]) {
+            return getRetryDelay(gps, now) <= getRetryDelay(network, now) ? gps : network;
+        } else if (gpsEnabled) {
+            return gps;
+        } else if (enabled[network]) {
+            return network;
+        }
+        return IgnitedLocationCodec.PROVIDER_UNKNOWN;
+    }
+
+    private static double average(double mean, double sample) {
+        return mean < 0 ? sample : mean + SMOOTHING * (sample - mean);
+    }
+}
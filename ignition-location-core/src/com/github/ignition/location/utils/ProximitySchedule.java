@@ -0,0 +1,147 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.utils;
+
+/**
+ * Schedules location updates for an app heading towards a target: sparse while the target is far,
+ * dense as it gets near.
+ * <p/>
+ * The time left before reaching the target is estimated from the remaining distance and the
+ * current speed, and mapped to one of a few bands, each with its own interval and distance. The
+ * band picked is the sparsest one that still gives {@link #FIXES_PER_APPROACH} fixes before the
+ * target is reached. Requests only need to be changed when the band changes, and moving to a
+ * sparser band needs a margin of {@link #HYSTERESIS} so that a speed hovering around a threshold
+ * doesn't flip the requests back and forth.
+ */
+public class ProximitySchedule {
+
+    // Bands, from the densest to the sparsest.
+    public static final long[] BAND_INTERVALS = { 5 * 1000, 15 * 1000, 60 * 1000, 5 * 60 * 1000,
+            15 * 60 * 1000 };
+    public static final int[] BAND_DISTANCES = { 0, 25, 100, 500, 2000 };
+
+    public static final int FIXES_PER_APPROACH = 4;
+    public static final double HYSTERESIS = 1.5;
+    // Assumed when the device looks stopped, so that the time left stays finite.
+    public static final float MIN_SPEED = 0.5f; // m/s
+
+    private final double targetLatitude, targetLongitude;
+    private final float radius;
+
+    private double lastLatitude, lastLongitude;
+    private long lastTime = -1;
+    private double remainingDistance = -1;
+    private long timeLeft = -1;
+    private int band = -1;
+
+    /**
+     * @param radius
+     *            distance from the target, in meters, at which it's considered reached
+     */
+    public ProximitySchedule(double targetLatitude, double targetLongitude, float radius) {
+        this.targetLatitude = targetLatitude;
+        this.targetLongitude = targetLongitude;
+        this.radius = radius;
+    }
+
+    /**
+     * Feed a new fix to the schedule.
+     * 
+     * @param speed
+     *            speed reported with the fix, in m/s, or a negative value if unknown; it's then
+     *            estimated from the previous fix
+     * @return true if the band has changed, i.e. the requests should be updated
+     */
+    public synchronized boolean onFix(double latitude, double longitude, float speed, long time) {
+        if (speed < 0) {
+            speed = 0;
+            if (lastTime >= 0 && time > lastTime) {
+                speed = (float) (IgnitedDistance.distanceBetween(lastLatitude,
+                        lastLongitude, latitude, longitude) * 1000 / (time - lastTime));
+            }
+        }
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastTime = time;
+
+        remainingDistance = Math.max(0, IgnitedDistance.distanceBetween(latitude,
+                longitude, targetLatitude, targetLongitude) - radius);
+        timeLeft = (long) (remainingDistance * 1000 / Math.max(speed, MIN_SPEED));
+
+        int newBand = 0;
+        for (int i = BAND_INTERVALS.length - 1; i > 0; i--) {
+            double needed = BAND_INTERVALS[i] * FIXES_PER_APPROACH;
+            if (i > band && band >= 0) {
+                needed *= HYSTERESIS;
+            }
+            if (timeLeft >= needed) {
+                newBand = i;
+                break;
+            }
+        }
+        boolean changed = newBand != band;
+        band = newBand;
+        return changed;
+    }
+
+    /**
+     * Returns the current band, 0 being the densest, or -1 before the first fix.
+     */
+    public synchronized int getBand() {
+        return band;
+    }
+
+    public synchronized long getInterval() {
+        return BAND_INTERVALS[Math.max(band, 0)];
+    }
+
+    public synchronized int getDistance() {
+        return BAND_DISTANCES[Math.max(band, 0)];
+    }
+
+    /**
+     * Returns the distance left to the edge of the target radius, in meters, or -1 before the first
+     * fix.
+     */
+    public synchronized double getRemainingDistance() {
+        return remainingDistance;
+    }
+
+    /**
+     * Returns the estimated time before the target is reached, in milliseconds, or -1 before the
+     * first fix.
+     */
+    public synchronized long getTimeLeft() {
+        return timeLeft;
+    }
+
+    public synchronized boolean isTargetReached() {
+        return remainingDistance == 0;
+    }
+
+    public double getTargetLatitude() {
+        return targetLatitude;
+    }
+
+    public double getTargetLongitude() {
+        return targetLongitude;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,70 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import com.github.ignition.location.templates.FixFilter;
+
+/**
+ * Drops a fix if the last one accepted is newer than the minimum time, or closer than the minimum
+ * distance: the same thresholds location updates are requested with.
+ */
+public class SignificantChangeFixFilter implements FixFilter {
+
+    private final long minTime;
+    private final float minDistance;
+
+    private boolean hasLast;
+    private long lastTime;
+    private double lastLatitude, lastLongitude;
+
+    public SignificantChangeFixFilter(long minTime, float minDistance) {
+        this.minTime = minTime;
+        this.minDistance = minDistance;
+    }
+
+    /**
+     * Returns true if a fix is a significant change from the last one.
+     * 
+     * @param now
+     *            the time the fix is processed at, in milliseconds
+     */
+    public static boolean isSignificant(long lastTime, double lastLatitude, double lastLongitude,
+            double latitude, double longitude, long now, long minTime, float minDistance) {
+        return lastTime <= now - minTime
+                && IgnitedDistance.distanceBetween(lastLatitude, lastLongitude, latitude,
+                        longitude) >= minDistance;
+    }
+
+    @Override
+    public boolean accept(IgnitedFix fix, long now) {
+        return !hasLast
+                || isSignificant(lastTime, lastLatitude, lastLongitude, fix.getLatitude(),
+                        fix.getLongitude(), now, minTime, minDistance);
+    }
+
+    @Override
+    public void onAccepted(IgnitedFix fix, long now) {
+        hasLast = true;
+        lastTime = fix.getTime();
+        lastLatitude = fix.getLatitude();
+        lastLongitude = fix.getLongitude();
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+    }
+}
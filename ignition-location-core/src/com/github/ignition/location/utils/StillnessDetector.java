@@ -0,0 +1,77 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.utils;
+
+/**
+ * Detects that the device is still from the stream of fixes it receives.
+ * <p/>
+ * The first fix is taken as an anchor. The device is considered still once all the fixes received
+ * for a while have been within a radius of the anchor; a fix outside the radius becomes the new
+ * anchor. The radius is widened to the accuracy of each fix, so that a poor fix isn't mistaken for
+ * movement.
+ */
+public class StillnessDetector {
+
+    private final double radius;
+    private final long timeout;
+
+    private double anchorLatitude, anchorLongitude;
+    private long anchorTime = -1;
+    private boolean still;
+
+    /**
+     * @param radius
+     *            the distance, in meters, the device can drift within while still
+     * @param timeout
+     *            how long, in milliseconds, the device must stay within the radius before it's
+     *            considered still
+     */
+    public StillnessDetector(double radius, long timeout) {
+        this.radius = radius;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Feed a new fix to the detector.
+     * 
+     * @return true if the device is still
+     */
+    public synchronized boolean onFix(double latitude, double longitude, float accuracy,
+            long time) {
+        if (anchorTime < 0 || time < anchorTime
+                || IgnitedDistance.distanceBetween(anchorLatitude, anchorLongitude,
+                        latitude, longitude) > Math.max(radius, accuracy)) {
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+            anchorTime = time;
+            still = false;
+        } else if (time - anchorTime >= timeout) {
+            still = true;
+        }
+        return still;
+    }
+
+    public synchronized boolean isStill() {
+        return still;
+    }
+
+    /**
+     * Forget the anchor, e.g. when the device has been seen moving by other means than the fixes.
+     */
+    public synchronized void reset() {
+        anchorTime = -1;
+        still = false;
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+import com.github.ignition.location.templates.Clock;
+import com.github.ignition.location.templates.Scheduler;
+
+/**
+ * Clock whose time only moves when it's told to, running the tasks of its schedulers in time order
+ * as it goes. Hours of tracking can be simulated in milliseconds:
+ * 
+ * <pre>
+ * VirtualClock clock = new VirtualClock(startTime);
+ * IgnitedClock.setClock(clock);
+ * // ...
+ * clock.advanceBy(24 * 60 * 60 * 1000);
+ * </pre>
+ * 
+ * Tasks run on the thread advancing the clock; the ones posted from other threads wait until the
+ * clock is advanced again, even by 0.
+ */
+public class VirtualClock implements Clock {
+
+    private final long bootTime;
+    private long now;
+    private long nextSequence;
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<Task>(16, new Comparator<Task>() {
+        @Override
+        public int compare(Task lhs, Task rhs) {
+            if (lhs.time != rhs.time) {
+                return lhs.time < rhs.time ? -1 : 1;
+            }
+            // Same time: first posted, first run.
+            return lhs.sequence < rhs.sequence ? -1 : (lhs.sequence == rhs.sequence ? 0 : 1);
+        }
+    });
+
+    /**
+     * @param startTime
+     *            the initial time, in milliseconds since the epoch; the virtual device boots then
+     */
+    public VirtualClock(long startTime) {
+        this.bootTime = startTime;
+        this.now = startTime;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public synchronized long elapsedRealtime() {
+        return now - bootTime;
+    }
+
+    @Override
+    public Scheduler newScheduler() {
+        return new VirtualScheduler();
+    }
+
+    /**
+     * Move the time forward, running the tasks that become due, including the ones they post.
+     */
+    public void advanceBy(long millis) {
+        long time;
+        synchronized (this) {
+            time = now + millis;
+        }
+        advanceTo(time);
+    }
+
+    public void advanceTo(long time) {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = tasks.peek();
+                if (task == null || task.time > time) {
+                    now = Math.max(now, time);
+                    return;
+                }
+                tasks.poll();
+                now = Math.max(now, task.time);
+            }
+            task.runnable.run();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run, on all the schedulers.
+     */
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns the time the next task is due, or -1 if there's none.
+     */
+    public synchronized long getNextTaskTime() {
+        Task task = tasks.peek();
+        return task != null ? task.time : -1;
+    }
+
+    private synchronized void post(VirtualScheduler owner, Runnable runnable, long delay) {
+        tasks.add(new Task(owner, runnable, now + Math.max(delay, 0), nextSequence++));
+    }
+
+    private synchronized void remove(VirtualScheduler owner, Runnable runnable) {
+        Iterator<Task> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            Task task = iterator.next();
+            if (task.owner == owner && (runnable == null || task.runnable == runnable)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Task {
+        final VirtualScheduler owner;
+        final Runnable runnable;
+        final long time;
+        final long sequence;
+
+        Task(VirtualScheduler owner, Runnable runnable, long time, long sequence) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.time = time;
+            this.sequence = sequence;
+        }
+    }
+
+    private class VirtualScheduler implements Scheduler {
+
+        @Override
+        public void post(Runnable task) {
+            VirtualClock.this.post(this, task, 0);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delay) {
+            VirtualClock.this.post(this, task, delay);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            if (task != null) {
+                remove(this, task);
+            }
+        }
+
+        @Override
+        public void removeAllCallbacks() {
+            remove(this, null);
+        }
+    }
+}
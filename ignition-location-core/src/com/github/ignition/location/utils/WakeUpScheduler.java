@@ -0,0 +1,194 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.ignition.location.templates.Clock;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.templates.WakeUpAlarm;
+
+/**
+ * Scheduler running its delayed tasks at their time even while the device sleeps.
+ * <p/>
+ * The tasks are posted to the scheduler of the clock, which stops counting while the device sleeps.
+ * While wake-ups are enabled, a {@link WakeUpAlarm} is also set for the earliest delayed task: when
+ * it goes off the tasks that are due run right away, and are removed from the other scheduler.
+ * Tasks posted without a delay are never late, so they're only posted to the other scheduler.
+ */
+public class WakeUpScheduler implements Scheduler {
+
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private WakeUpAlarm alarm;
+    private boolean wakeUp;
+
+    // The delayed tasks still pending, in the order they were posted.
+    private final List<DelayedTask> delayedTasks = new ArrayList<DelayedTask>();
+    private long alarmTime = -1;
+
+    private final Runnable runDueTasks = new Runnable() {
+        @Override
+        public void run() {
+            runDueTasks();
+        }
+    };
+
+    private class DelayedTask implements Runnable {
+        final Runnable task;
+        final long time;
+
+        DelayedTask(Runnable task, long time) {
+            this.task = task;
+            this.time = time;
+        }
+
+        @Override
+        public void run() {
+            synchronized (WakeUpScheduler.this) {
+                if (!delayedTasks.remove(this)) {
+                    // Already run by the alarm.
+                    return;
+                }
+                updateAlarm();
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * @param clock
+     *            the clock the delays are measured with
+     * @param scheduler
+     *            the scheduler running the tasks while the device is awake
+     */
+    public WakeUpScheduler(Clock clock, Scheduler scheduler) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Set the alarm used to wake the device up. Must be set before wake-ups are enabled.
+     */
+    public synchronized void setWakeUpAlarm(WakeUpAlarm alarm) {
+        if (this.alarm != null && alarmTime >= 0) {
+            this.alarm.cancel();
+        }
+        this.alarm = alarm;
+        alarmTime = -1;
+        updateAlarm();
+    }
+
+    /**
+     * Enable or disable waking the device up for the delayed tasks.
+     */
+    public synchronized void setWakeUp(boolean wakeUp) {
+        this.wakeUp = wakeUp;
+        updateAlarm();
+    }
+
+    public synchronized boolean isWakeUp() {
+        return wakeUp;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        scheduler.post(task);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delay) {
+        DelayedTask delayedTask = new DelayedTask(task, clock.elapsedRealtime()
+                + Math.max(delay, 0));
+        delayedTasks.add(delayedTask);
+        scheduler.postDelayed(delayedTask, delay);
+        updateAlarm();
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable task) {
+        scheduler.removeCallbacks(task);
+        for (int i = delayedTasks.size() - 1; i >= 0; i--) {
+            DelayedTask delayedTask = delayedTasks.get(i);
+            if (delayedTask.task == task) {
+                scheduler.removeCallbacks(delayedTask);
+                delayedTasks.remove(i);
+            }
+        }
+        updateAlarm();
+    }
+
+    @Override
+    public synchronized void removeAllCallbacks() {
+        scheduler.removeAllCallbacks();
+        delayedTasks.clear();
+        updateAlarm();
+    }
+
+    /**
+     * Run the delayed tasks that are due, in time order. Called when the alarm goes off.
+     */
+    public void runDueTasks() {
+        List<DelayedTask> dueTasks = new ArrayList<DelayedTask>();
+        synchronized (this) {
+            alarmTime = -1;
+            long now = clock.elapsedRealtime();
+            for (int i = 0; i < delayedTasks.size(); i++) {
+                DelayedTask delayedTask = delayedTasks.get(i);
+                if (delayedTask.time <= now) {
+                    // Keeps the tasks due at the same time in the order they were posted.
+                    int index = dueTasks.size();
+                    while (index > 0 && dueTasks.get(index - 1).time > delayedTask.time) {
+                        index--;
+                    }
+                    dueTasks.add(index, delayedTask);
+                }
+            }
+            for (DelayedTask delayedTask : dueTasks) {
+                delayedTasks.remove(delayedTask);
+                scheduler.removeCallbacks(delayedTask);
+            }
+            updateAlarm();
+        }
+        for (DelayedTask delayedTask : dueTasks) {
+            delayedTask.task.run();
+        }
+    }
+
+    private void updateAlarm() {
+        if (alarm == null) {
+            return;
+        }
+        long time = -1;
+        if (wakeUp) {
+            for (DelayedTask delayedTask : delayedTasks) {
+                if (time < 0 || delayedTask.time < time) {
+                    time = delayedTask.time;
+                }
+            }
+        }
+        if (time == alarmTime) {
+            return;
+        }
+        alarmTime = time;
+        if (time >= 0) {
+            alarm.set(time, runDueTasks);
+        } else {
+            alarm.cancel();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Test;
+
+import com.github.ignition.location.utils.BatteryBudgetGovernor;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+
+public class BatteryBudgetGovernorTest {
+    private static final int GPS = IgnitedLocationCodec.PROVIDER_GPS;
+    private static final int NETWORK = IgnitedLocationCodec.PROVIDER_NETWORK;
+    private static final int PASSIVE = IgnitedLocationCodec.PROVIDER_PASSIVE;
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void shouldKeepTheRequestedSettingsWhenAffordable() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(10);
+
+        governor.plan(0, 5 * MINUTE, 100, true);
+
+        assertThat(governor.getProvider(), equalTo(GPS));
+        assertThat(governor.getInterval(), equalTo(5 * MINUTE));
+        assertThat(governor.getDistance(), equalTo(100));
+    }
+
+    @Test
+    public void shouldStretchTheIntervalAndDistanceToFitTheBudget() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(2);
+
+        governor.plan(0, MINUTE, 100, true);
+
+        assertThat(governor.getProvider(), equalTo(GPS));
+        assertThat(governor.getInterval() > MINUTE, is(true));
+        assertThat(governor.getHourlyCost(GPS, governor.getInterval()) <= 2, is(true));
+        assertThat((long) governor.getDistance(), equalTo(100 * governor.getInterval() / MINUTE));
+    }
+
+    @Test
+    public void shouldFallBackToACheaperProviderThenToPassiveUpdates() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(0.5);
+
+        governor.plan(0, 30 * 1000, 10, true);
+        assertThat(governor.getProvider(), equalTo(NETWORK));
+
+        governor = new BatteryBudgetGovernor(0.01);
+        governor.plan(0, 30 * 1000, 10, true);
+        assertThat(governor.getProvider(), equalTo(PASSIVE));
+    }
+
+    @Test
+    public void shouldNotUseGpsWhenNotAllowed() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(10);
+
+        governor.plan(0, 5 * MINUTE, 100, false);
+
+        assertThat(governor.getProvider(), equalTo(NETWORK));
+    }
+
+    @Test
+    public void shouldEstimateTheCostFromOnTimeAndFixes() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(5);
+        governor.setCost(GPS, 10, 0.1);
+
+        governor.onProviderStarted(GPS, 0);
+        governor.onFix(GPS, HOUR / 2);
+        governor.onProviderStopped(HOUR);
+
+        assertThat(governor.getOnTime(GPS, HOUR), equalTo(HOUR));
+        assertThat(governor.getFixCount(GPS), equalTo(1));
+        assertThat(Math.abs(governor.getCost(GPS, HOUR) - 10.1) < 1e-9, is(true));
+        assertThat(governor.getTimeToFix(GPS), equalTo(HOUR));
+    }
+
+    @Test
+    public void shouldTightenThePlanAfterOverspending() {
+        BatteryBudgetGovernor governor = new BatteryBudgetGovernor(2);
+        governor.plan(0, MINUTE, 100, true);
+        long interval = governor.getInterval();
+
+        // Gps left on for an hour, way over budget.
+        governor.onProviderStarted(GPS, 0);
+        governor.onProviderStopped(HOUR);
+        boolean changed = governor.plan(HOUR, MINUTE, 100, true);
+
+        assertThat(changed, is(true));
+        assertThat(governor.getLastEstimatedDrain() > 2, is(true));
+        assertThat(governor.getEffectiveBudget() < 2, is(true));
+        assertThat(governor.getProvider() != GPS || governor.getInterval() > interval, is(true));
+        assertThat(governor.getDecisionCount(), equalTo(2));
+    }
+}
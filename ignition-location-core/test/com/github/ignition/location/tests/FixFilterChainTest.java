@@ -0,0 +1,90 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.DuplicateFixFilter;
+import com.github.ignition.location.utils.FixFilterChain;
+import com.github.ignition.location.utils.IgnitedFix;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.MinIntervalFixFilter;
+import com.github.ignition.location.utils.SignificantChangeFixFilter;
+
+public class FixFilterChainTest {
+    private static final long MIN_INTERVAL = 60 * 1000;
+    private static final long MIN_TIME = 5 * 60 * 1000;
+    private static final float MIN_DISTANCE = 100;
+    // About 111m.
+    private static final double ONE_THOUSANDTH_DEGREE = 0.001;
+
+    private FixFilterChain chain;
+    private IgnitedFix fix;
+
+    @Before
+    public void setUp() throws Exception {
+        chain = new FixFilterChain(new DuplicateFixFilter(), new MinIntervalFixFilter(
+                MIN_INTERVAL), new SignificantChangeFixFilter(MIN_TIME, MIN_DISTANCE));
+        fix = new IgnitedFix();
+    }
+
+    private int filter(long time, double latitude, long now) {
+        fix.set(IgnitedLocationCodec.PROVIDER_NETWORK, time, latitude, 9, 50, 0, 0, 0,
+                IgnitedLocationCodec.FLAG_HAS_ACCURACY);
+        return chain.filter(fix, now);
+    }
+
+    @Test
+    public void shouldAcceptTheFirstFix() {
+        assertThat(filter(1000, 45, 1000), equalTo(FixFilterChain.ACCEPTED));
+        assertThat(chain.getAcceptedCount(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldDropDuplicates() {
+        filter(1000, 45, 1000);
+
+        assertThat(filter(1000, 45, 1000 + MIN_TIME), equalTo(0));
+        assertThat(chain.getDropCount(0), equalTo(1L));
+    }
+
+    @Test
+    public void shouldDropFixesProcessedTooSoon() {
+        filter(1000, 45, 1000);
+
+        assertThat(filter(2000, 45 + ONE_THOUSANDTH_DEGREE, 2000), equalTo(1));
+        // Fine once the clock goes backwards.
+        assertThat(chain.accept(fix, 0), equalTo(false));
+        assertThat(chain.get(1).accept(fix, 0), equalTo(true));
+    }
+
+    @Test
+    public void shouldOnlyAcceptSignificantChanges() {
+        filter(0, 45, 0);
+
+        long now = MIN_TIME;
+        assertThat(filter(now, 45 + ONE_THOUSANDTH_DEGREE / 2, now), equalTo(2));
+        assertThat(filter(now, 45 + ONE_THOUSANDTH_DEGREE, now), equalTo(
+                FixFilterChain.ACCEPTED));
+    }
+
+    @Test
+    public void shouldOnlyRememberAcceptedFixes() {
+        filter(0, 45, 0);
+        // Dropped by the interval stage, so the duplicate stage mustn't remember it.
+        filter(1000, 46, 1000);
+
+        assertThat(filter(1000, 46, MIN_TIME), equalTo(FixFilterChain.ACCEPTED));
+    }
+
+    @Test
+    public void shouldForgetFixesOnReset() {
+        filter(0, 45, 0);
+        chain.reset();
+
+        assertThat(filter(0, 45, 0), equalTo(FixFilterChain.ACCEPTED));
+        assertThat(chain.getAcceptedCount(), equalTo(2L));
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.GpsDutyCycle;
+
+public class GpsDutyCycleTest {
+    private static final long NOW = 1300000000000L;
+    private static final long COLD_START_WINDOW = 60 * 1000;
+    private static final long INTERVAL = 5 * 60 * 1000;
+
+    private GpsDutyCycle dutyCycle;
+
+    @Before
+    public void setUp() throws Exception {
+        dutyCycle = new GpsDutyCycle();
+    }
+
+    @Test
+    public void shouldWaitForAColdStartWithoutAFix() {
+        assertThat(dutyCycle.getAcquisitionWindow(NOW, COLD_START_WINDOW),
+                equalTo(COLD_START_WINDOW));
+    }
+
+    @Test
+    public void shouldShortenTheAcquisitionWindowAfterAFix() {
+        dutyCycle.onFix(NOW);
+
+        assertThat(dutyCycle.getAcquisitionWindow(NOW + GpsDutyCycle.HOT_START_MAX_AGE,
+                COLD_START_WINDOW), equalTo(3 * GpsDutyCycle.HOT_START_TIME_TO_FIX));
+        // Never longer than a cold start.
+        assertThat(dutyCycle.getAcquisitionWindow(NOW + GpsDutyCycle.HOT_START_MAX_AGE + 1,
+                COLD_START_WINDOW), equalTo(COLD_START_WINDOW));
+        assertThat(dutyCycle.getAcquisitionWindow(NOW + GpsDutyCycle.HOT_START_MAX_AGE + 1,
+                10 * COLD_START_WINDOW), equalTo(3 * GpsDutyCycle.WARM_START_TIME_TO_FIX));
+        assertThat(dutyCycle.getAcquisitionWindow(NOW + GpsDutyCycle.WARM_START_MAX_AGE + 1,
+                10 * COLD_START_WINDOW), equalTo(10 * COLD_START_WINDOW));
+    }
+
+    @Test
+    public void shouldSleepUntilTheNextFixIsDue() {
+        dutyCycle.onFix(NOW);
+
+        assertThat(dutyCycle.getSleepWindow(NOW, INTERVAL),
+                equalTo(INTERVAL - GpsDutyCycle.HOT_START_TIME_TO_FIX));
+        // Woken up past the hot start age.
+        long interval = GpsDutyCycle.HOT_START_MAX_AGE + 1;
+        assertThat(dutyCycle.getSleepWindow(NOW, interval),
+                equalTo(interval - GpsDutyCycle.WARM_START_TIME_TO_FIX));
+    }
+
+    @Test
+    public void shouldStayOnForShortIntervals() {
+        dutyCycle.onFix(NOW);
+
+        long interval = GpsDutyCycle.MIN_SLEEP_WINDOW + GpsDutyCycle.HOT_START_TIME_TO_FIX;
+        assertThat(dutyCycle.getSleepWindow(NOW, interval),
+                equalTo(GpsDutyCycle.MIN_SLEEP_WINDOW));
+        assertThat(dutyCycle.getSleepWindow(NOW, interval - 1), equalTo(0L));
+    }
+
+    @Test
+    public void shouldForgetTheLastFixOnReset() {
+        dutyCycle.onFix(NOW);
+        dutyCycle.reset();
+
+        assertThat(dutyCycle.getAcquisitionWindow(NOW, COLD_START_WINDOW),
+                equalTo(COLD_START_WINDOW));
+        assertThat(dutyCycle.getSleepWindow(NOW, INTERVAL),
+                equalTo(INTERVAL - GpsDutyCycle.WARM_START_TIME_TO_FIX));
+    }
+}
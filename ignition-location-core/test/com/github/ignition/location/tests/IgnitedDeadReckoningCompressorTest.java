@@ -0,0 +1,83 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedDeadReckoningCompressor;
+
+public class IgnitedDeadReckoningCompressorTest {
+    private static final double TOLERANCE = 5;
+    // About 11 meters along the equator, every second.
+    private static final double STEP = 0.0001;
+    private static final long INTERVAL = 1000;
+
+    private IgnitedDeadReckoningCompressor compressor;
+
+    @Before
+    public void setUp() throws Exception {
+        compressor = new IgnitedDeadReckoningCompressor(TOLERANCE);
+    }
+
+    private int[] compress(double[] latitudes, double[] longitudes) {
+        long[] times = new long[latitudes.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * INTERVAL;
+        }
+        int[] kept = new int[latitudes.length];
+        int count = compressor.compress(latitudes, longitudes, times, 0, latitudes.length, kept);
+        return Arrays.copyOf(kept, count);
+    }
+
+    @Test
+    public void shouldDropFixesAtTheSameVelocity() {
+        double[] latitudes = new double[10];
+        double[] longitudes = new double[10];
+        for (int i = 0; i < latitudes.length; i++) {
+            longitudes[i] = 9.0 + i * STEP;
+        }
+
+        // The first two fixes give the velocity.
+        assertThat(compress(latitudes, longitudes), equalTo(new int[] { 0, 1 }));
+    }
+
+    @Test
+    public void shouldKeepTheFixWhereTheTrackTurns() {
+        double[] latitudes = { 0, 0, 0, 0, 0, STEP, 2 * STEP };
+        double[] longitudes = { 0, STEP, 2 * STEP, 3 * STEP, 4 * STEP, 4 * STEP, 4 * STEP };
+
+        // After the turn the velocity is estimated from the fix before it, so the one after is
+        // kept as well.
+        assertThat(compress(latitudes, longitudes), equalTo(new int[] { 0, 1, 5, 6 }));
+    }
+
+    @Test
+    public void shouldPredictAcrossTheAntimeridian() {
+        // The velocity is taken from the first two fixes, on either side of the antimeridian.
+        long[] times = { 0, INTERVAL, INTERVAL * 3 / 2, INTERVAL * 3, INTERVAL * 7 / 2 };
+        for (int i = 0; i < times.length; i++) {
+            double longitude = 179.99995 + STEP * times[i] / INTERVAL;
+            if (longitude >= 180) {
+                longitude -= 360;
+            }
+            assertThat(compressor.add(0, longitude, times[i]), equalTo(i < 2));
+        }
+    }
+
+    @Test
+    public void shouldForgetTheVelocityOnReset() {
+        assertThat(compressor.add(0, 0, 0), equalTo(true));
+        assertThat(compressor.add(0, STEP, INTERVAL), equalTo(true));
+        assertThat(compressor.add(0, 2 * STEP, 2 * INTERVAL), equalTo(false));
+
+        compressor.reset();
+
+        assertThat(compressor.add(0, 3 * STEP, 3 * INTERVAL), equalTo(true));
+        assertThat(compressor.add(0, 4 * STEP, 4 * INTERVAL), equalTo(true));
+        assertThat(compressor.add(0, 5 * STEP, 5 * INTERVAL), equalTo(false));
+    }
+}
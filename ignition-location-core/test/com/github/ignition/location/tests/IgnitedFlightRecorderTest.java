@@ -0,0 +1,84 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+
+public class IgnitedFlightRecorderTest {
+    private static final int CAPACITY = 4;
+
+    private IgnitedFlightRecorder recorder;
+
+    @Before
+    public void setUp() throws Exception {
+        recorder = new IgnitedFlightRecorder(CAPACITY);
+    }
+
+    private long[] copyEvents() {
+        ByteBuffer buffer = ByteBuffer.allocate(CAPACITY * IgnitedFlightRecorder.EVENT_SIZE);
+        int count = recorder.copyTo(buffer);
+        buffer.flip();
+        long[] events = new long[count * 2];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = buffer.getLong();
+        }
+        return events;
+    }
+
+    @Test
+    public void shouldPackTheEventFields() {
+        recorder.record(IgnitedFlightRecorder.EVENT_ACTIVE_REQUESTED, 1, 300000);
+
+        long event = copyEvents()[1];
+        assertThat(IgnitedFlightRecorder.getType(event),
+                equalTo(IgnitedFlightRecorder.EVENT_ACTIVE_REQUESTED));
+        assertThat(IgnitedFlightRecorder.getArg(event), equalTo(1));
+        assertThat(IgnitedFlightRecorder.getValue(event), equalTo(300000));
+    }
+
+    @Test
+    public void shouldKeepNegativeValues() {
+        recorder.record(IgnitedFlightRecorder.EVENT_GPS_SUSPENDED, 0, -5);
+
+        assertThat(IgnitedFlightRecorder.getValue(copyEvents()[1]), equalTo(-5));
+    }
+
+    @Test
+    public void shouldOverwriteTheOldestEvents() {
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            recorder.record(IgnitedFlightRecorder.EVENT_FIX_ACCEPTED, 0, i);
+        }
+
+        assertThat(recorder.size(), equalTo(CAPACITY));
+        assertThat(recorder.getCount(), equalTo((long) CAPACITY + 2));
+        long[] events = copyEvents();
+        assertThat(IgnitedFlightRecorder.getValue(events[1]), equalTo(2));
+        assertThat(IgnitedFlightRecorder.getValue(events[events.length - 1]),
+                equalTo(CAPACITY + 1));
+        // Oldest first, with monotonic timestamps.
+        for (int i = 2; i < events.length; i += 2) {
+            assertThat(events[i] >= events[i - 2], equalTo(true));
+        }
+    }
+
+    @Test
+    public void shouldDumpTheEventNames() {
+        recorder.record(IgnitedFlightRecorder.EVENT_UPDATES_ENABLED, 1, 60000);
+        recorder.record(IgnitedFlightRecorder.EVENT_GPS_TIMEOUT, 0, 0);
+
+        StringWriter out = new StringWriter();
+        recorder.dump(new PrintWriter(out));
+
+        String dump = out.toString();
+        assertThat(dump.startsWith("2 of 2 events"), equalTo(true));
+        assertThat(dump.indexOf("updates enabled") < dump.indexOf("gps timeout"), equalTo(true));
+    }
+}
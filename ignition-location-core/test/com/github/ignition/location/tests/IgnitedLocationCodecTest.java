@@ -0,0 +1,149 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedFix;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+
+public class IgnitedLocationCodecTest {
+    private static final long BASE_TIME = 1300000000000L;
+    private static final int ALL_VALUES = IgnitedLocationCodec.FLAG_HAS_ACCURACY
+            | IgnitedLocationCodec.FLAG_HAS_SPEED | IgnitedLocationCodec.FLAG_HAS_BEARING;
+
+    private ByteBuffer buffer;
+    private IgnitedFix fix;
+
+    @Before
+    public void setUp() throws Exception {
+        buffer = ByteBuffer.allocate(2 * IgnitedLocationCodec.RECORD_SIZE);
+        fix = new IgnitedFix();
+    }
+
+    private void encode(double latitude, double longitude, long time, float accuracy,
+            float speed, float bearing, int flags, int offset) {
+        IgnitedLocationCodec.encode(latitude, longitude, time, accuracy, speed, bearing,
+                IgnitedLocationCodec.PROVIDER_GPS, flags, BASE_TIME, buffer, offset);
+    }
+
+    private static boolean isWithin(double value, double expected, double tolerance) {
+        return Math.abs(value - expected) <= tolerance;
+    }
+
+    private boolean encodesTime(long time) {
+        try {
+            encode(45.0, 9.0, time, 10, 0, 0, ALL_VALUES, 0);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void shouldRoundTripAFix() {
+        encode(45.12345678, -9.87654321, BASE_TIME + 1234, 12.34f, 3.456f, 359.994f, ALL_VALUES
+                | IgnitedLocationCodec.FLAG_LAST_LOCATION, IgnitedLocationCodec.RECORD_SIZE);
+
+        IgnitedLocationCodec.decode(buffer, IgnitedLocationCodec.RECORD_SIZE, BASE_TIME, fix);
+
+        // Coordinates are kept to 1E-7 degrees, about a centimeter.
+        assertThat(isWithin(fix.getLatitude(), 45.12345678, 0.5E-7), equalTo(true));
+        assertThat(isWithin(fix.getLongitude(), -9.87654321, 0.5E-7), equalTo(true));
+        assertThat(IgnitedLocationCodec.getLatitudeE7(buffer, IgnitedLocationCodec.RECORD_SIZE),
+                equalTo(IgnitedLocationCodec.toE7(45.12345678)));
+        assertThat(fix.getTime(), equalTo(BASE_TIME + 1234));
+        assertThat(fix.getAccuracy(), equalTo(12.3f));
+        assertThat(fix.getSpeed(), equalTo(3.46f));
+        assertThat(fix.getBearing(), equalTo(359.99f));
+        assertThat(fix.getProviderId(), equalTo(IgnitedLocationCodec.PROVIDER_GPS));
+        assertThat(fix.getFlags(), equalTo(ALL_VALUES | IgnitedLocationCodec.FLAG_LAST_LOCATION));
+        assertThat(fix.isLastLocation(), equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepTheRecordsApart() {
+        encode(-90.0, -180.0, BASE_TIME - 1000, 5, 0, 0, ALL_VALUES, 0);
+        encode(90.0, 180.0, BASE_TIME + 1000, 50, 0, 0, ALL_VALUES,
+                IgnitedLocationCodec.RECORD_SIZE);
+
+        IgnitedLocationCodec.decode(buffer, 0, BASE_TIME, fix);
+        assertThat(fix.getLatitude(), equalTo(-90.0));
+        assertThat(fix.getLongitude(), equalTo(-180.0));
+        assertThat(fix.getTime(), equalTo(BASE_TIME - 1000));
+        assertThat(fix.getAccuracy(), equalTo(5f));
+
+        IgnitedLocationCodec.decode(buffer, IgnitedLocationCodec.RECORD_SIZE, BASE_TIME, fix);
+        assertThat(fix.getLatitude(), equalTo(90.0));
+        assertThat(fix.getLongitude(), equalTo(180.0));
+        assertThat(fix.getTime(), equalTo(BASE_TIME + 1000));
+        assertThat(fix.getAccuracy(), equalTo(50f));
+    }
+
+    @Test
+    public void shouldOnlyDecodeTheValuesTheFixHas() {
+        encode(45.0, 9.0, BASE_TIME, 12, 3, 90, IgnitedLocationCodec.FLAG_HAS_ACCURACY
+                | IgnitedLocationCodec.FLAG_HAS_ALTITUDE, 0);
+
+        IgnitedLocationCodec.decode(buffer, 0, BASE_TIME, fix);
+
+        assertThat(fix.hasAccuracy(), equalTo(true));
+        assertThat(fix.getAccuracy(), equalTo(12f));
+        assertThat(fix.hasSpeed(), equalTo(false));
+        assertThat(fix.getSpeed(), equalTo(0f));
+        assertThat(fix.hasBearing(), equalTo(false));
+        assertThat(fix.getBearing(), equalTo(0f));
+        // The altitude itself isn't encoded.
+        assertThat(fix.hasAltitude(), equalTo(false));
+        int flags = IgnitedLocationCodec.getFlags(buffer, 0);
+        assertThat(flags & IgnitedLocationCodec.FLAG_HAS_ALTITUDE,
+                equalTo(IgnitedLocationCodec.FLAG_HAS_ALTITUDE));
+    }
+
+    @Test
+    public void shouldClampValuesOutOfRange() {
+        encode(45.0, 9.0, BASE_TIME, 10000, -1, 720, ALL_VALUES, 0);
+
+        IgnitedLocationCodec.decode(buffer, 0, BASE_TIME, fix);
+
+        assertThat(fix.getAccuracy(), equalTo(6553.5f));
+        assertThat(fix.getSpeed(), equalTo(0f));
+        assertThat(fix.getBearing(), equalTo(655.35f));
+    }
+
+    @Test
+    public void shouldOnlyEncodeTimesAbout24DaysFromTheBaseTime() {
+        assertThat(encodesTime(BASE_TIME + Integer.MAX_VALUE), equalTo(true));
+        assertThat(IgnitedLocationCodec.getTime(buffer, 0, BASE_TIME),
+                equalTo(BASE_TIME + Integer.MAX_VALUE));
+        assertThat(encodesTime(BASE_TIME + Integer.MIN_VALUE), equalTo(true));
+        assertThat(IgnitedLocationCodec.getTime(buffer, 0, BASE_TIME),
+                equalTo(BASE_TIME + Integer.MIN_VALUE));
+
+        assertThat(encodesTime(BASE_TIME + Integer.MAX_VALUE + 1L), equalTo(false));
+        assertThat(encodesTime(BASE_TIME + Integer.MIN_VALUE - 1L), equalTo(false));
+        // A failed encode leaves the record alone.
+        assertThat(IgnitedLocationCodec.getTime(buffer, 0, BASE_TIME),
+                equalTo(BASE_TIME + Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void shouldMapTheProviders() {
+        int[] ids = { IgnitedLocationCodec.PROVIDER_GPS, IgnitedLocationCodec.PROVIDER_NETWORK,
+                IgnitedLocationCodec.PROVIDER_PASSIVE };
+        for (int id : ids) {
+            String name = IgnitedLocationCodec.getProviderName(id);
+            assertThat(IgnitedLocationCodec.getProviderId(name), equalTo(id));
+        }
+        assertThat(IgnitedLocationCodec.getProviderId("fused"),
+                equalTo(IgnitedLocationCodec.PROVIDER_UNKNOWN));
+        assertThat(IgnitedLocationCodec.getProviderId((String) null),
+                equalTo(IgnitedLocationCodec.PROVIDER_UNKNOWN));
+        assertThat(IgnitedLocationCodec.getProviderName(IgnitedLocationCodec.PROVIDER_UNKNOWN),
+                equalTo(null));
+    }
+}
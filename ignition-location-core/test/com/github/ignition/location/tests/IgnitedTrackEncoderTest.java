@@ -0,0 +1,125 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedTrackEncoder;
+
+public class IgnitedTrackEncoderTest {
+    private static final long BASE_TIME = 1300000000000L;
+    private static final int FLAGS = IgnitedLocationCodec.FLAG_HAS_ACCURACY
+            | IgnitedLocationCodec.FLAG_HAS_SPEED;
+
+    private final IgnitedTrackEncoder encoder = new IgnitedTrackEncoder();
+
+    // Reads the uncompressed batch back.
+    private static class BatchReader {
+        private final byte[] raw;
+        private int position;
+
+        BatchReader(byte[] batch, int length) throws DataFormatException {
+            Inflater inflater = new Inflater();
+            inflater.setInput(batch, 0, length);
+            byte[] buffer = new byte[64 * 1024];
+            int rawLength = inflater.inflate(buffer);
+            assertThat(inflater.finished(), is(true));
+            raw = new byte[rawLength];
+            System.arraycopy(buffer, 0, raw, 0, rawLength);
+        }
+
+        int readByte() {
+            return raw[position++] & 0xff;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        boolean isDone() {
+            return position == raw.length;
+        }
+    }
+
+    private static ByteBuffer newTrack(int count, double step) {
+        ByteBuffer records = ByteBuffer.allocate(count * IgnitedLocationCodec.RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            IgnitedLocationCodec.encode(45.0 + i * step, 9.0 - i * step, BASE_TIME + i * 1000,
+                    5.5f, 12.25f, 0, IgnitedLocationCodec.PROVIDER_GPS, FLAGS, BASE_TIME,
+                    records, i * IgnitedLocationCodec.RECORD_SIZE);
+        }
+        return records;
+    }
+
+    @Test
+    public void shouldDeltaEncodeTheFixes() throws DataFormatException {
+        ByteBuffer records = newTrack(3, 0.0001);
+
+        int length = encoder.encode(records, 3, BASE_TIME);
+        BatchReader reader = new BatchReader(encoder.getBatch(), length);
+
+        assertThat(reader.readByte(), equalTo(IgnitedTrackEncoder.VERSION));
+        assertThat(reader.readVarLong(), equalTo(3L));
+        long latitude = 0, longitude = 0, time = 0;
+        for (int i = 0; i < 3; i++) {
+            latitude += reader.readZigZag();
+            longitude += reader.readZigZag();
+            time += reader.readZigZag();
+            assertThat(latitude, equalTo((long) IgnitedLocationCodec.toE7(45.0 + i * 0.0001)));
+            assertThat(longitude, equalTo((long) IgnitedLocationCodec.toE7(9.0 - i * 0.0001)));
+            assertThat(time, equalTo(BASE_TIME + i * 1000));
+            assertThat(reader.readVarLong(), equalTo(55L)); // decimeters
+            assertThat(reader.readVarLong(), equalTo(1225L)); // centimeters per second
+            assertThat(reader.readVarLong(), equalTo(0L));
+            assertThat(reader.readByte(), equalTo(IgnitedLocationCodec.PROVIDER_GPS << 5 | FLAGS));
+        }
+        assertThat(reader.isDone(), is(true));
+    }
+
+    @Test
+    public void shouldCompressATrack() {
+        int count = 500;
+        ByteBuffer records = newTrack(count, 0.0001);
+
+        int length = encoder.encode(records, count, BASE_TIME);
+
+        // A regular track is mostly the same deltas over and over.
+        assertThat(encoder.getUncompressedLength() < count * IgnitedLocationCodec.RECORD_SIZE,
+                is(true));
+        assertThat(length < count * IgnitedLocationCodec.RECORD_SIZE / 10, is(true));
+    }
+
+    @Test
+    public void shouldReuseTheBuffersAcrossBatches() throws DataFormatException {
+        encoder.encode(newTrack(500, 0.01), 500, BASE_TIME);
+        byte[] batch = encoder.getBatch();
+
+        int length = encoder.encode(newTrack(1, 0), 1, BASE_TIME);
+        BatchReader reader = new BatchReader(encoder.getBatch(), length);
+
+        assertThat(encoder.getBatch() == batch, is(true));
+        assertThat(reader.readByte(), equalTo(IgnitedTrackEncoder.VERSION));
+        assertThat(reader.readVarLong(), equalTo(1L));
+        assertThat(reader.readZigZag(), equalTo((long) IgnitedLocationCodec.toE7(45.0)));
+    }
+}
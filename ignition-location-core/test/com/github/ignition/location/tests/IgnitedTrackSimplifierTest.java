@@ -0,0 +1,110 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedDistance;
+import com.github.ignition.location.utils.IgnitedTrackSimplifier;
+
+public class IgnitedTrackSimplifierTest {
+    private static final double TOLERANCE = 5;
+    // About 111 meters along the equator.
+    private static final double STEP = 0.001;
+
+    private static int[] simplify(double[] latitudes, double[] longitudes) {
+        int[] kept = new int[latitudes.length];
+        int count = IgnitedTrackSimplifier.simplify(latitudes, longitudes, 0, latitudes.length,
+                TOLERANCE, kept);
+        return Arrays.copyOf(kept, count);
+    }
+
+    @Test
+    public void shouldDropPointsWithinTheTolerance() {
+        double[] latitudes = new double[10];
+        double[] longitudes = new double[10];
+        for (int i = 0; i < latitudes.length; i++) {
+            // Wobbling by about a meter.
+            latitudes[i] = (i % 2 == 0 ? 1 : -1) * 0.00001;
+            longitudes[i] = 9.0 + i * STEP;
+        }
+
+        assertThat(simplify(latitudes, longitudes), equalTo(new int[] { 0, 9 }));
+    }
+
+    @Test
+    public void shouldKeepTheCorners() {
+        double[] latitudes = { 0, 0, 0, STEP, 2 * STEP };
+        double[] longitudes = { 0, STEP, 2 * STEP, 2 * STEP, 2 * STEP };
+
+        assertThat(simplify(latitudes, longitudes), equalTo(new int[] { 0, 2, 4 }));
+    }
+
+    @Test
+    public void shouldSimplifyAcrossTheAntimeridian() {
+        double[] latitudes = new double[9];
+        double[] longitudes = new double[9];
+        for (int i = 0; i < latitudes.length; i++) {
+            double longitude = 179.996 + i * STEP;
+            longitudes[i] = longitude >= 180 ? longitude - 360 : longitude;
+        }
+
+        assertThat(simplify(latitudes, longitudes), equalTo(new int[] { 0, 8 }));
+        assertThat(IgnitedTrackSimplifier.distanceToSegment(0, 180, 0, 179.999, 0, -179.999) < 1,
+                equalTo(true));
+        // Two steps east of a segment heading west.
+        double distance = IgnitedTrackSimplifier.distanceToSegment(0, -179.999, 0, 179.999, 0,
+                179.998);
+        assertThat(Math.abs(distance - 2 * STEP * IgnitedDistance.METERS_PER_DEGREE) < 0.01,
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepTheStreamedTrackConnected() {
+        IgnitedTrackSimplifier simplifier = new IgnitedTrackSimplifier(TOLERANCE, 4);
+        for (int i = 0; i < 10; i++) {
+            simplifier.add(0, i * STEP, i);
+        }
+        // Each window starts with the last point of the previous one.
+        assertThat(simplifier.size(), equalTo(3));
+
+        simplifier.flush();
+
+        assertThat(simplifier.size(), equalTo(4));
+        assertThat(Arrays.copyOf(simplifier.getTimes(), 4), equalTo(new long[] { 0, 3, 6, 9 }));
+        assertThat(simplifier.getLongitudes()[3], equalTo(9 * STEP));
+    }
+
+    @Test
+    public void shouldStreamLikeTheWholeTrackWithinTheLookahead() {
+        double[] latitudes = { 0, 0, 0, STEP, 2 * STEP, 2 * STEP };
+        double[] longitudes = { 0, STEP, 2 * STEP, 2 * STEP, 2 * STEP, 3 * STEP };
+        IgnitedTrackSimplifier simplifier = new IgnitedTrackSimplifier(TOLERANCE, 10);
+        for (int i = 0; i < latitudes.length; i++) {
+            simplifier.add(latitudes[i], longitudes[i], i);
+        }
+        simplifier.flush();
+
+        int[] kept = simplify(latitudes, longitudes);
+        assertThat(simplifier.size(), equalTo(kept.length));
+        for (int i = 0; i < kept.length; i++) {
+            assertThat(simplifier.getTimes()[i], equalTo((long) kept[i]));
+        }
+    }
+
+    @Test
+    public void shouldStartANewTrackAfterAReset() {
+        IgnitedTrackSimplifier simplifier = new IgnitedTrackSimplifier(TOLERANCE, 4);
+        simplifier.add(0, 0, 0);
+        simplifier.add(0, STEP, 1);
+        simplifier.reset();
+        simplifier.add(1, 0, 2);
+        simplifier.flush();
+
+        assertThat(simplifier.size(), equalTo(1));
+        assertThat(simplifier.getTimes()[0], equalTo(2L));
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.templates.OnTripSegmentListener;
+import com.github.ignition.location.utils.IgnitedTripSegment;
+import com.github.ignition.location.utils.IgnitedTripSegmenter;
+
+public class IgnitedTripSegmenterTest {
+    private static final double RADIUS = 50;
+    private static final long MIN_STOP_DURATION = 5 * 60 * 1000;
+    private static final long MINUTE = 60 * 1000;
+    // About 111m.
+    private static final double ONE_THOUSANDTH_DEGREE = 0.001;
+    // About 11m.
+    private static final double JITTER = 0.0001;
+
+    private IgnitedTripSegmenter segmenter;
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        segmenter = new IgnitedTripSegmenter(RADIUS, MIN_STOP_DURATION);
+        listener = new RecordingListener();
+        segmenter.setListener(listener);
+    }
+
+    private boolean fix(long minute, double latitude, double longitude) {
+        return segmenter.onFix(latitude, longitude, 10, -1, minute * MINUTE);
+    }
+
+    // Moves north by a thousandth of a degree a minute, from the given minute to the last one.
+    private void walk(long from, long to, double fromLatitude) {
+        for (long minute = from; minute <= to; minute++) {
+            fix(minute, fromLatitude + (minute - from) * ONE_THOUSANDTH_DEGREE, 9);
+        }
+    }
+
+    // Stays put, drifting east and back, from the given minute to the last one.
+    private void stay(long from, long to, double latitude) {
+        for (long minute = from; minute <= to; minute++) {
+            fix(minute, latitude, 9 + (minute % 2) * JITTER);
+        }
+    }
+
+    @Test
+    public void shouldBackdateAStopToItsFirstFix() {
+        stay(0, 4, 45);
+        assertThat(listener.events.size(), equalTo(0));
+        assertThat(segmenter.getState(), equalTo(IgnitedTripSegmenter.STATE_UNKNOWN));
+
+        assertThat(fix(5, 45, 9), equalTo(true));
+
+        // Nothing is known of the trip before the first fix, only the stop is reported.
+        assertThat(listener.events, equalTo(list("stop started 0-5")));
+        assertThat(segmenter.isStopped(), equalTo(true));
+        assertThat(segmenter.getCurrentSegment().getFixCount(), equalTo(6));
+    }
+
+    @Test
+    public void shouldSplitTripsAndStops() {
+        walk(0, 5, 45);
+        assertThat(listener.events, equalTo(list("trip started 0-1")));
+
+        stay(6, 10, 45.005);
+        // The trip is cut back to the first fix of the stop, the drift isn't part of it.
+        assertThat(listener.events, equalTo(list("trip started 0-1", "trip ended 0-5",
+                "stop started 5-10")));
+        assertThat(Math.round(listener.lastEnded.getDistance()), equalTo(556L));
+        assertThat(listener.lastEnded.getFixCount(), equalTo(6));
+        assertThat(Math.round(listener.lastEnded.getMaxSpeed() * 10), equalTo(19));
+
+        stay(11, 15, 45.005);
+        walk(16, 18, 45.006);
+        assertThat(listener.events, equalTo(list("trip started 0-1", "trip ended 0-5",
+                "stop started 5-10", "stop ended 5-15", "trip started 15-16")));
+        assertThat(listener.lastEnded.getFixCount(), equalTo(11));
+        assertThat(Math.round(listener.lastEnded.getStartLatitude() * 1000), equalTo(45005L));
+        assertThat(segmenter.isStopped(), equalTo(false));
+        assertThat(segmenter.getCurrentSegment().getFixCount(), equalTo(3));
+    }
+
+    @Test
+    public void shouldNotSplitATripOnAShortPause() {
+        walk(0, 5, 45);
+        stay(6, 9, 45.005);
+        walk(10, 12, 45.006);
+
+        assertThat(listener.events, equalTo(list("trip started 0-1")));
+        assertThat(segmenter.getCurrentSegment().getFixCount(), equalTo(13));
+    }
+
+    @Test
+    public void shouldNotEndAStopOnAPoorFix() {
+        stay(0, 5, 45);
+
+        // 111m away, but only accurate to 500m.
+        assertThat(segmenter.onFix(45.001, 9, 500, -1, 6 * MINUTE), equalTo(false));
+        assertThat(segmenter.isStopped(), equalTo(true));
+    }
+
+    @Test
+    public void shouldIgnoreFixesOutOfOrder() {
+        stay(0, 5, 45);
+
+        assertThat(fix(3, 45.01, 9), equalTo(false));
+        assertThat(segmenter.isStopped(), equalTo(true));
+        assertThat(segmenter.getCurrentSegment().getEndTime(), equalTo(5 * MINUTE));
+    }
+
+    private static List<String> list(String... events) {
+        List<String> list = new ArrayList<String>();
+        for (String event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    private static class RecordingListener implements OnTripSegmentListener {
+        final List<String> events = new ArrayList<String>();
+        IgnitedTripSegment lastEnded;
+
+        @Override
+        public void onSegmentStarted(IgnitedTripSegment segment) {
+            events.add(describe(segment, "started"));
+        }
+
+        @Override
+        public void onSegmentEnded(IgnitedTripSegment segment) {
+            events.add(describe(segment, "ended"));
+            lastEnded = segment.copy();
+        }
+
+        private static String describe(IgnitedTripSegment segment, String what) {
+            return (segment.isStop() ? "stop " : "trip ") + what + " "
+                    + segment.getStartTime() / MINUTE + "-" + segment.getEndTime() / MINUTE;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Test;
+
+import com.github.ignition.location.utils.LastFixSelector;
+
+public class LastFixSelectorTest {
+    private static final long MIN_TIME = 1000000;
+    private static final int MIN_DISTANCE = 100;
+
+    @Test
+    public void shouldPickTheMostAccurateRecentFix() {
+        LastFixSelector selector = new LastFixSelector(MIN_TIME);
+
+        selector.offer(MIN_TIME + 10, 500);
+        selector.offer(MIN_TIME + 20, 20);
+        selector.offer(MIN_TIME + 30, 50);
+
+        assertThat(selector.getBestIndex(), equalTo(1));
+        assertThat(selector.getBestTime(), equalTo(MIN_TIME + 20));
+        assertThat(selector.isTooOld(MIN_DISTANCE), equalTo(false));
+    }
+
+    @Test
+    public void shouldPreferARecentFixToAMoreAccurateOldOne() {
+        LastFixSelector selector = new LastFixSelector(MIN_TIME);
+
+        selector.offer(MIN_TIME - 10, 5);
+        selector.offer(MIN_TIME + 10, 500);
+
+        assertThat(selector.getBestIndex(), equalTo(1));
+        // Recent, but not accurate enough.
+        assertThat(selector.isTooOld(MIN_DISTANCE), equalTo(true));
+    }
+
+    @Test
+    public void shouldFallBackToTheNewestOldFix() {
+        LastFixSelector selector = new LastFixSelector(MIN_TIME);
+
+        selector.offer(MIN_TIME - 30, 5);
+        selector.offer(MIN_TIME - 10, 50);
+        selector.offer(MIN_TIME - 20, 10);
+
+        assertThat(selector.getBestIndex(), equalTo(1));
+        assertThat(selector.isTooOld(MIN_DISTANCE), equalTo(true));
+    }
+
+    @Test
+    public void shouldPickNothingWithoutCandidates() {
+        LastFixSelector selector = new LastFixSelector(MIN_TIME);
+
+        assertThat(selector.getBestIndex(), equalTo(-1));
+        assertThat(selector.isTooOld(MIN_DISTANCE), equalTo(true));
+
+        selector.offer(MIN_TIME + 10, 20);
+        selector.reset(MIN_TIME);
+        assertThat(selector.getBestIndex(), equalTo(-1));
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.templates.LocationRequestHost;
+import com.github.ignition.location.templates.LocationRequestTarget;
+import com.github.ignition.location.templates.MotionSensor;
+import com.github.ignition.location.templates.OnSignificantMotionListener;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.LocationRequestPlanner;
+import com.github.ignition.location.utils.LocationRequestPolicy;
+import com.github.ignition.location.utils.ProximitySchedule;
+import com.github.ignition.location.utils.VirtualClock;
+
+public class LocationRequestPlannerTest {
+    private static final long START = 1300000000000L;
+    private static final long INTERVAL = 5 * 60 * 1000;
+    private static final double LATITUDE = 45.0;
+    private static final double LONGITUDE = 9.0;
+
+    private VirtualClock clock;
+    private FakeTarget target;
+    private LocationRequestPlanner planner;
+
+    private static class FakeTarget implements LocationRequestTarget {
+        boolean active;
+        long activeMinTime;
+        int activeRequests;
+
+        @Override
+        public void requestActiveUpdates(long minTime, long minDistance, int accuracy,
+                int powerRequirement) {
+            active = true;
+            activeMinTime = minTime;
+            activeRequests++;
+        }
+
+        @Override
+        public void removeActiveUpdates() {
+            active = false;
+        }
+
+        @Override
+        public void requestPassiveUpdates(long minTime, long minDistance) {
+        }
+
+        @Override
+        public void removePassiveUpdates() {
+        }
+
+        @Override
+        public void watchProvider(String provider) {
+        }
+
+        @Override
+        public void unwatchProvider() {
+        }
+
+        @Override
+        public void registerReceivers() {
+        }
+
+        @Override
+        public void unregisterReceivers() {
+        }
+    }
+
+    private static class FakeHost implements LocationRequestHost, MotionSensor {
+
+        @Override
+        public double getBatteryLevel() {
+            return 100;
+        }
+
+        @Override
+        public String getBestProvider(int accuracy, int powerRequirement, boolean enabledOnly) {
+            return powerRequirement == LocationRequestPlanner.POWER_LOW ? "network" : "gps";
+        }
+
+        @Override
+        public MotionSensor getMotionSensor() {
+            return this;
+        }
+
+        @Override
+        public void log(String message) {
+        }
+
+        @Override
+        public void start(OnSignificantMotionListener listener) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        target = new FakeTarget();
+        planner = new LocationRequestPlanner(clock, clock.newScheduler(), target, new FakeHost(),
+                new IgnitedFlightRecorder(64));
+
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.requestLocationUpdates = true;
+        policy.useGps = true;
+        policy.locationUpdatesInterval = INTERVAL;
+        policy.dutyCycleGps = true;
+        policy.dutyCycleGpsAccuracy = 50;
+        planner.setPolicy(policy);
+    }
+
+    // A target about a kilometer north, approached at 10 m/s.
+    private static ProximitySchedule newProximitySchedule() {
+        ProximitySchedule schedule = new ProximitySchedule(LATITUDE + 0.01, LONGITUDE, 50);
+        schedule.onFix(LATITUDE, LONGITUDE, 10, START);
+        return schedule;
+    }
+
+    @Test
+    public void shouldRequestTheNewIntervalBeforeTheFirstRequestIsApplied() {
+        planner.startLocationUpdates();
+        ProximitySchedule schedule = newProximitySchedule();
+        planner.setProximitySchedule(schedule);
+        clock.advanceBy(0);
+
+        assertThat(target.active, equalTo(true));
+        assertThat(target.activeMinTime, equalTo(schedule.getInterval()));
+    }
+
+    @Test
+    public void shouldNotTurnGpsBackOnWhenTheIntervalChangesWhileDutyCycledOff() {
+        planner.startLocationUpdates();
+        clock.advanceBy(0);
+        assertThat(target.activeRequests, equalTo(1));
+
+        // Gps is turned off, and the band changes before the removal is applied.
+        planner.onFix(IgnitedLocationCodec.PROVIDER_GPS, LATITUDE, LONGITUDE, 10, -1,
+                clock.currentTimeMillis());
+        ProximitySchedule schedule = newProximitySchedule();
+        planner.setProximitySchedule(schedule);
+        clock.advanceBy(0);
+
+        assertThat(target.active, equalTo(false));
+        assertThat(target.activeRequests, equalTo(1));
+
+        // The new interval is picked up when gps is turned back on.
+        clock.advanceBy(INTERVAL);
+        assertThat(target.active, equalTo(true));
+        assertThat(target.activeMinTime, equalTo(schedule.getInterval()));
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Test;
+
+import com.github.ignition.location.utils.LocationRequestPolicy;
+
+public class LocationRequestPolicyTest {
+
+    private static LocationRequestPolicy policy(boolean requestLocationUpdates, boolean useGps,
+            long locationUpdatesInterval, int locationUpdatesDistanceDiff) {
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.requestLocationUpdates = requestLocationUpdates;
+        policy.useGps = useGps;
+        policy.locationUpdatesInterval = locationUpdatesInterval;
+        policy.locationUpdatesDistanceDiff = locationUpdatesDistanceDiff;
+        return policy;
+    }
+
+    @Test
+    public void shouldMergeTheActiveSettingsOfTheActivitiesRequestingUpdates() {
+        // This policy, the other one, and the merged one.
+        LocationRequestPolicy[][] cases = {
+                // Both request updates: gps if either uses it, the shortest interval and distance.
+                { policy(true, false, 60000, 100), policy(true, true, 120000, 50),
+                        policy(true, true, 60000, 50) },
+                { policy(true, true, 120000, 50), policy(true, false, 60000, 100),
+                        policy(true, true, 60000, 50) },
+                // Only one requests updates: the settings of the other one don't matter.
+                { policy(true, false, 60000, 100), policy(false, true, 1000, 1),
+                        policy(true, false, 60000, 100) },
+                { policy(false, true, 1000, 1), policy(true, false, 60000, 100),
+                        policy(true, false, 60000, 100) },
+                // Neither does: nothing to merge.
+                { policy(false, true, 1000, 1), policy(false, false, 60000, 100),
+                        policy(false, true, 1000, 1) },
+        };
+
+        for (int i = 0; i < cases.length; i++) {
+            LocationRequestPolicy other = cases[i][1];
+            LocationRequestPolicy expected = cases[i][2];
+            LocationRequestPolicy merged = cases[i][0].copy().merge(other);
+
+            String reason = "case " + i;
+            assertThat(reason, merged.requestLocationUpdates,
+                    equalTo(expected.requestLocationUpdates));
+            assertThat(reason, merged.useGps, equalTo(expected.useGps));
+            assertThat(reason, merged.locationUpdatesInterval,
+                    equalTo(expected.locationUpdatesInterval));
+            assertThat(reason, merged.locationUpdatesDistanceDiff,
+                    equalTo(expected.locationUpdatesDistanceDiff));
+        }
+    }
+
+    @Test
+    public void shouldMergeThePassiveSettingsOfAllTheActivities() {
+        LocationRequestPolicy policy = policy(false, false, 60000, 100);
+        policy.enablePassiveUpdates = false;
+        policy.passiveLocationUpdatesInterval = 60000;
+        policy.passiveLocationUpdatesDistanceDiff = 50;
+        LocationRequestPolicy other = policy(false, false, 60000, 100);
+        other.enablePassiveUpdates = true;
+        other.passiveLocationUpdatesInterval = 120000;
+        other.passiveLocationUpdatesDistanceDiff = 10;
+
+        policy.merge(other);
+
+        assertThat(policy.enablePassiveUpdates, equalTo(true));
+        assertThat(policy.passiveLocationUpdatesInterval, equalTo(60000L));
+        assertThat(policy.passiveLocationUpdatesDistanceDiff, equalTo(10));
+    }
+
+    @Test
+    public void shouldOnlySavePowerIfAllTheActivitiesAllowIt() {
+        LocationRequestPolicy policy = policy(true, true, 60000, 100);
+        policy.waitForGpsFix = 30000;
+        policy.minBatteryLevel = 20;
+        policy.dutyCycleGps = true;
+        policy.dutyCycleGpsAccuracy = 50;
+        policy.detectStillness = true;
+        policy.stillnessTimeout = 60000;
+        LocationRequestPolicy other = policy(true, true, 60000, 100);
+        other.waitForGpsFix = 60000;
+        other.minBatteryLevel = 10;
+        other.dutyCycleGps = false;
+        other.dutyCycleGpsAccuracy = 20;
+        other.detectStillness = false;
+        other.stillnessTimeout = 300000;
+
+        policy.merge(other);
+
+        assertThat(policy.waitForGpsFix, equalTo(60000L));
+        assertThat(policy.minBatteryLevel, equalTo(10));
+        assertThat(policy.dutyCycleGps, equalTo(false));
+        assertThat(policy.dutyCycleGpsAccuracy, equalTo(20));
+        assertThat(policy.detectStillness, equalTo(false));
+        assertThat(policy.stillnessTimeout, equalTo(300000L));
+    }
+
+    @Test
+    public void shouldMergeTheLargestBatteryBudget() {
+        // This budget, the other one, and the merged one; no budget (0) is the largest one.
+        float[][] cases = { { 0.05f, 0.1f, 0.1f }, { 0.1f, 0.05f, 0.1f }, { 0.05f, 0, 0 },
+                { 0, 0.05f, 0 }, { 0, 0, 0 } };
+
+        for (int i = 0; i < cases.length; i++) {
+            LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+            policy.batteryBudget = cases[i][0];
+            LocationRequestPolicy other = LocationRequestPolicy.fromDefaults();
+            other.batteryBudget = cases[i][1];
+
+            assertThat("case " + i, policy.merge(other).batteryBudget, equalTo(cases[i][2]));
+        }
+    }
+
+    @Test
+    public void shouldLeaveTheOtherPolicyAlone() {
+        LocationRequestPolicy policy = policy(true, true, 60000, 50);
+        LocationRequestPolicy other = policy(true, false, 120000, 100);
+
+        assertThat(policy.merge(other), equalTo(policy));
+        assertThat(other.useGps, equalTo(false));
+        assertThat(other.locationUpdatesInterval, equalTo(120000L));
+        assertThat(other.locationUpdatesDistanceDiff, equalTo(100));
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.ProviderHealthTracker;
+
+public class ProviderHealthTrackerTest {
+    private static final int GPS = IgnitedLocationCodec.PROVIDER_GPS;
+    private static final int NETWORK = IgnitedLocationCodec.PROVIDER_NETWORK;
+    private static final int UNKNOWN = IgnitedLocationCodec.PROVIDER_UNKNOWN;
+    private static final long NOW = 1300000000000L;
+
+    private ProviderHealthTracker tracker;
+
+    @Before
+    public void setUp() throws Exception {
+        tracker = new ProviderHealthTracker();
+    }
+
+    @Test
+    public void shouldAverageTheFixes() {
+        tracker.onFix(GPS, 10, NOW);
+        tracker.onFix(GPS, 30, NOW + 1000);
+        tracker.onFix(GPS, 30, NOW + 3000);
+
+        assertThat(tracker.getMeanAccuracy(GPS), equalTo(18.75));
+        assertThat(tracker.getMeanFixInterval(GPS), equalTo(1250.0));
+        assertThat(tracker.getTimeSinceLastFix(GPS, NOW + 4000), equalTo(1000L));
+        assertThat(tracker.getMeanAccuracy(NETWORK), equalTo(-1.0));
+    }
+
+    @Test
+    public void shouldNotCountTheSameFixTwice() {
+        tracker.onFix(GPS, 10, NOW);
+        // The same fix, delivered again by the passive updates.
+        tracker.onFix(GPS, 10, NOW);
+        tracker.onFix(GPS, 30, NOW + 1000);
+
+        assertThat(tracker.getMeanAccuracy(GPS), equalTo(15.0));
+        assertThat(tracker.getMeanFixInterval(GPS), equalTo(1000.0));
+    }
+
+    @Test
+    public void shouldBackOffAFailingProvider() {
+        tracker.onFailure(GPS, NOW);
+        assertThat(tracker.getRetryDelay(GPS, NOW), equalTo(ProviderHealthTracker.FAILURE_BACKOFF));
+        tracker.onFailure(GPS, NOW);
+        tracker.onFailure(GPS, NOW);
+        assertThat(tracker.getRetryDelay(GPS, NOW),
+                equalTo(4 * ProviderHealthTracker.FAILURE_BACKOFF));
+        assertThat(tracker.isHealthy(GPS, NOW), equalTo(false));
+
+        for (int i = 0; i < 20; i++) {
+            tracker.onFailure(GPS, NOW);
+        }
+        assertThat(tracker.getRetryDelay(GPS, NOW),
+                equalTo(ProviderHealthTracker.MAX_FAILURE_BACKOFF));
+
+        tracker.onFix(GPS, 10, NOW + 1000);
+        assertThat(tracker.getFailureStreak(GPS), equalTo(0));
+        assertThat(tracker.isHealthy(GPS, NOW + 1000), equalTo(true));
+    }
+
+    @Test
+    public void shouldPreferTheNetworkWhileGpsIsLessAccurate() {
+        tracker.onFix(GPS, 50, NOW);
+        tracker.onFix(NETWORK, 20, NOW);
+        assertThat(tracker.selectProvider(true, NOW), equalTo(NETWORK));
+
+        // Gps gets another chance once its accuracy is old.
+        long later = NOW + ProviderHealthTracker.MAX_ACCURACY_AGE;
+        assertThat(tracker.selectProvider(true, later), equalTo(GPS));
+        assertThat(tracker.selectProvider(false, later), equalTo(NETWORK));
+    }
+
+    @Test
+    public void shouldFallBackToTheProviderThatRecoversFirst() {
+        tracker.onFailure(GPS, NOW);
+        tracker.onFailure(NETWORK, NOW);
+        tracker.onFailure(NETWORK, NOW);
+
+        assertThat(tracker.selectProvider(true, NOW), equalTo(GPS));
+    }
+
+    @Test
+    public void shouldSkipDisabledProviders() {
+        tracker.onFailure(GPS, NOW);
+        assertThat(tracker.selectProvider(true, NOW), equalTo(NETWORK));
+
+        assertThat(tracker.setEnabled(NETWORK, false), equalTo(true));
+        assertThat(tracker.setEnabled(NETWORK, false), equalTo(false));
+        // Backed off, but the only one left.
+        assertThat(tracker.selectProvider(true, NOW), equalTo(GPS));
+        assertThat(tracker.selectProvider(false, NOW), equalTo(UNKNOWN));
+
+        tracker.setEnabled(NETWORK, true);
+        assertThat(tracker.selectProvider(true, NOW), equalTo(NETWORK));
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedDistance;
+import com.github.ignition.location.utils.ProximitySchedule;
+
+public class ProximityScheduleTest {
+    private static final double TARGET_LATITUDE = 45.0;
+    private static final double TARGET_LONGITUDE = 9.0;
+    private static final float RADIUS = 50;
+    private static final float SPEED = 15; // m/s
+
+    private ProximitySchedule schedule;
+
+    @Before
+    public void setUp() throws Exception {
+        schedule = new ProximitySchedule(TARGET_LATITUDE, TARGET_LONGITUDE, RADIUS);
+    }
+
+    // A point due south of the target.
+    private static double latitudeAt(double meters) {
+        return TARGET_LATITUDE - meters / IgnitedDistance.METERS_PER_DEGREE;
+    }
+
+    @Test
+    public void shouldBeSparseWhenFarAndDenseWhenNear() {
+        schedule.onFix(latitudeAt(100000), TARGET_LONGITUDE, SPEED, 0);
+        assertThat(schedule.getBand(), equalTo(ProximitySchedule.BAND_INTERVALS.length - 1));
+
+        schedule.onFix(latitudeAt(200), TARGET_LONGITUDE, SPEED, 1000);
+        assertThat(schedule.getBand(), equalTo(0));
+        assertThat(schedule.getInterval(), equalTo(ProximitySchedule.BAND_INTERVALS[0]));
+    }
+
+    @Test
+    public void shouldOnlyReportBandChanges() {
+        assertThat(schedule.onFix(latitudeAt(100000), TARGET_LONGITUDE, SPEED, 0), is(true));
+
+        int changes = 0;
+        // Approach the target at constant speed, one fix per second.
+        for (int i = 1; i < 100000 / SPEED; i++) {
+            if (schedule.onFix(latitudeAt(100000 - i * SPEED), TARGET_LONGITUDE, SPEED, i * 1000)) {
+                changes++;
+            }
+        }
+
+        assertThat(changes, equalTo(ProximitySchedule.BAND_INTERVALS.length - 1));
+        assertThat(schedule.isTargetReached(), is(true));
+    }
+
+    @Test
+    public void shouldNotFlipBackOnASmallSpeedDrop() {
+        // Just short of the time left needed for band 2.
+        double meters = RADIUS + ProximitySchedule.BAND_INTERVALS[2]
+                * ProximitySchedule.FIXES_PER_APPROACH / 1000 * SPEED - 100;
+        schedule.onFix(latitudeAt(meters), TARGET_LONGITUDE, SPEED, 0);
+        int band = schedule.getBand();
+
+        // Slowing down a little would call for a sparser band without the hysteresis.
+        assertThat(schedule.onFix(latitudeAt(meters), TARGET_LONGITUDE, SPEED * 0.9f, 1000),
+                is(false));
+        assertThat(schedule.getBand(), equalTo(band));
+    }
+
+    @Test
+    public void shouldEstimateTheSpeedWhenUnknown() {
+        schedule.onFix(latitudeAt(10000), TARGET_LONGITUDE, -1, 0);
+        schedule.onFix(latitudeAt(10000 - SPEED * 10), TARGET_LONGITUDE, -1, 10000);
+
+        double expected = (10000 - SPEED * 10 - RADIUS) / SPEED * 1000;
+        assertThat(Math.abs(schedule.getTimeLeft() - expected) < 2000, is(true));
+    }
+}
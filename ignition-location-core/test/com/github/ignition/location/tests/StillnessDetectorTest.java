@@ -0,0 +1,84 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.IgnitedDistance;
+import com.github.ignition.location.utils.StillnessDetector;
+
+public class StillnessDetectorTest {
+    private static final double LATITUDE = 45.0;
+    private static final double LONGITUDE = 9.0;
+    private static final double RADIUS = 50;
+    private static final long TIMEOUT = 5 * 60 * 1000;
+    private static final long NOW = 1300000000000L;
+
+    private StillnessDetector detector;
+
+    @Before
+    public void setUp() throws Exception {
+        detector = new StillnessDetector(RADIUS, TIMEOUT);
+    }
+
+    // A point due north of the anchor.
+    private static double latitudeAt(double meters) {
+        return LATITUDE + meters / IgnitedDistance.METERS_PER_DEGREE;
+    }
+
+    @Test
+    public void shouldBeStillOnceWithinTheRadiusForTheTimeout() {
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW), equalTo(false));
+        assertThat(detector.onFix(latitudeAt(40), LONGITUDE, 10, NOW + TIMEOUT - 1),
+                equalTo(false));
+        assertThat(detector.onFix(latitudeAt(-40), LONGITUDE, 10, NOW + TIMEOUT),
+                equalTo(true));
+        assertThat(detector.isStill(), equalTo(true));
+    }
+
+    @Test
+    public void shouldMoveTheAnchorOnAFixOutsideTheRadius() {
+        detector.onFix(LATITUDE, LONGITUDE, 10, NOW);
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW + TIMEOUT), equalTo(true));
+
+        assertThat(detector.onFix(latitudeAt(100), LONGITUDE, 10, NOW + TIMEOUT + 1000),
+                equalTo(false));
+        // The timeout runs from the new anchor.
+        assertThat(detector.onFix(latitudeAt(100), LONGITUDE, 10, NOW + 2 * TIMEOUT),
+                equalTo(false));
+        assertThat(detector.onFix(latitudeAt(100), LONGITUDE, 10, NOW + 2 * TIMEOUT + 1000),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldNotMistakeAPoorFixForMovement() {
+        detector.onFix(LATITUDE, LONGITUDE, 10, NOW);
+
+        assertThat(detector.onFix(latitudeAt(100), LONGITUDE, 150, NOW + TIMEOUT),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldStartOverWhenTimeGoesBack() {
+        detector.onFix(LATITUDE, LONGITUDE, 10, NOW);
+
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW - 1000), equalTo(false));
+        // The timeout runs from the earlier fix.
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW + TIMEOUT - 1001),
+                equalTo(false));
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW + TIMEOUT - 1000),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldForgetTheAnchorOnReset() {
+        detector.onFix(LATITUDE, LONGITUDE, 10, NOW);
+        detector.onFix(LATITUDE, LONGITUDE, 10, NOW + TIMEOUT);
+
+        detector.reset();
+        assertThat(detector.isStill(), equalTo(false));
+        assertThat(detector.onFix(LATITUDE, LONGITUDE, 10, NOW + TIMEOUT + 1000), equalTo(false));
+    }
+}
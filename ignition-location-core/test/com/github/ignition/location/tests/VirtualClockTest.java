@@ -0,0 +1,84 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.utils.VirtualClock;
+
+public class VirtualClockTest {
+    private static final long START = 1300000000000L;
+
+    private VirtualClock clock;
+    private Scheduler scheduler;
+    private List<String> runs;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        scheduler = clock.newScheduler();
+        runs = new ArrayList<String>();
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.add(name + "@" + (clock.currentTimeMillis() - START));
+            }
+        };
+    }
+
+    @Test
+    public void shouldRunTasksInTimeOrderAtTheirTime() {
+        scheduler.postDelayed(task("b"), 2000);
+        scheduler.postDelayed(task("a"), 1000);
+        scheduler.post(task("now"));
+
+        clock.advanceBy(1500);
+        assertThat(runs.toString(), equalTo("[now@0, a@1000]"));
+        assertThat(clock.currentTimeMillis(), equalTo(START + 1500));
+        assertThat(clock.elapsedRealtime(), equalTo(1500L));
+
+        clock.advanceBy(1000);
+        assertThat(runs.toString(), equalTo("[now@0, a@1000, b@2000]"));
+    }
+
+    @Test
+    public void shouldRunTasksPostedWhileAdvancing() {
+        scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.postDelayed(this, 60 * 1000);
+                runs.add("tick");
+            }
+        }, 60 * 1000);
+
+        clock.advanceBy(24 * 60 * 60 * 1000);
+
+        assertThat(runs.size(), equalTo(24 * 60));
+        assertThat(clock.getPendingCount(), equalTo(1));
+    }
+
+    @Test
+    public void shouldOnlyRemoveTheSchedulersOwnTasks() {
+        Scheduler other = clock.newScheduler();
+        Runnable shared = task("shared");
+        scheduler.postDelayed(shared, 1000);
+        other.postDelayed(shared, 1000);
+        other.postDelayed(task("other"), 1000);
+
+        scheduler.removeCallbacks(shared);
+        other.removeAllCallbacks();
+        scheduler.postDelayed(task("mine"), 1000);
+        clock.advanceBy(1000);
+
+        assertThat(runs.toString(), equalTo("[mine@1000]"));
+    }
+}
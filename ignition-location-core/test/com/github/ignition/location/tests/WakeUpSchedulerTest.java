@@ -0,0 +1,180 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.templates.WakeUpAlarm;
+import com.github.ignition.location.utils.VirtualClock;
+import com.github.ignition.location.utils.WakeUpScheduler;
+
+public class WakeUpSchedulerTest {
+    private static final long START = 1300000000000L;
+
+    private VirtualClock clock;
+    private SleepingScheduler sleepingScheduler;
+    private FakeWakeUpAlarm alarm;
+    private WakeUpScheduler scheduler;
+    private List<String> runs;
+
+    // Never runs the delayed tasks, like a Handler while the device sleeps.
+    private static class SleepingScheduler implements Scheduler {
+        final List<Runnable> delayedTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void post(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delay) {
+            delayedTasks.add(task);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            delayedTasks.removeAll(Collections.singleton(task));
+        }
+
+        @Override
+        public void removeAllCallbacks() {
+            delayedTasks.clear();
+        }
+    }
+
+    private static class FakeWakeUpAlarm implements WakeUpAlarm {
+        long time = -1;
+        Runnable listener;
+        int sets;
+
+        @Override
+        public void set(long elapsedRealtime, Runnable listener) {
+            time = elapsedRealtime;
+            this.listener = listener;
+            sets++;
+        }
+
+        @Override
+        public void cancel() {
+            time = -1;
+            listener = null;
+        }
+
+        void goOff() {
+            Runnable listener = this.listener;
+            cancel();
+            listener.run();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        sleepingScheduler = new SleepingScheduler();
+        alarm = new FakeWakeUpAlarm();
+        scheduler = new WakeUpScheduler(clock, sleepingScheduler);
+        scheduler.setWakeUpAlarm(alarm);
+        runs = new ArrayList<String>();
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runs.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void shouldOnlySetTheAlarmWhileWakeUpsAreEnabled() {
+        scheduler.postDelayed(task("a"), 1000);
+        assertThat(alarm.time, equalTo(-1L));
+
+        scheduler.setWakeUp(true);
+        assertThat(alarm.time, equalTo(clock.elapsedRealtime() + 1000));
+
+        scheduler.setWakeUp(false);
+        assertThat(alarm.time, equalTo(-1L));
+    }
+
+    @Test
+    public void shouldSetTheAlarmForTheEarliestTask() {
+        scheduler.setWakeUp(true);
+        long now = clock.elapsedRealtime();
+        scheduler.postDelayed(task("a"), 5000);
+        scheduler.postDelayed(task("b"), 2000);
+        scheduler.postDelayed(task("c"), 3000);
+
+        assertThat(alarm.time, equalTo(now + 2000));
+        // Not set again for the later task.
+        assertThat(alarm.sets, equalTo(2));
+    }
+
+    @Test
+    public void shouldRunTheDueTasksInOrderWhenTheAlarmGoesOff() {
+        scheduler.setWakeUp(true);
+        long now = clock.elapsedRealtime();
+        scheduler.postDelayed(task("a"), 5000);
+        scheduler.postDelayed(task("b"), 3000);
+        scheduler.postDelayed(task("c"), 2000);
+        scheduler.postDelayed(task("d"), 10000);
+
+        // The device slept past the first deadlines.
+        clock.advanceBy(6000);
+        alarm.goOff();
+
+        assertThat(runs, equalTo(list("c", "b", "a")));
+        assertThat(sleepingScheduler.delayedTasks.size(), equalTo(1));
+        assertThat(alarm.time, equalTo(now + 10000));
+    }
+
+    @Test
+    public void shouldCancelTheAlarmOnceTheTasksAreRemoved() {
+        scheduler.setWakeUp(true);
+        Runnable a = task("a");
+        Runnable b = task("b");
+        long now = clock.elapsedRealtime();
+        scheduler.postDelayed(a, 1000);
+        scheduler.postDelayed(b, 2000);
+
+        scheduler.removeCallbacks(a);
+        assertThat(alarm.time, equalTo(now + 2000));
+
+        scheduler.removeAllCallbacks();
+        assertThat(alarm.time, equalTo(-1L));
+        assertThat(sleepingScheduler.delayedTasks.size(), equalTo(0));
+    }
+
+    @Test
+    public void shouldNotRunATaskTwice() {
+        scheduler = new WakeUpScheduler(clock, clock.newScheduler());
+        scheduler.setWakeUpAlarm(alarm);
+        scheduler.setWakeUp(true);
+        scheduler.postDelayed(task("a"), 1000);
+        Runnable listener = alarm.listener;
+
+        // Run while the device was awake, the alarm goes off late.
+        clock.advanceBy(1000);
+        assertThat(runs, equalTo(list("a")));
+        assertThat(alarm.time, equalTo(-1L));
+        listener.run();
+
+        assertThat(runs, equalTo(list("a")));
+    }
+
+    private static List<String> list(String... names) {
+        List<String> list = new ArrayList<String>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+}
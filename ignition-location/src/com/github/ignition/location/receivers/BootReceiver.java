@@ -27,6 +27,7 @@ import android.content.SharedPreferences;
 
 import com.github.ignition.location.IgnitedLocationConstants;
 import com.github.ignition.location.templates.LocationUpdateRequester;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
 import com.github.ignition.location.utils.PlatformSpecificImplementationFactory;
 import com.github.ignition.support.IgnitedDiagnostics;
 
@@ -39,6 +40,18 @@ import com.github.ignition.support.IgnitedDiagnostics;
 public class BootReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
+        final Context appContext = context.getApplicationContext();
+        // Reading the preferences and requesting updates can be slow during a boot storm, so keep
+        // it off the main thread.
+        IgnitedReceiverWorkQueue.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                requestPassiveLocationUpdates(appContext);
+            }
+        });
+    }
+
+    protected void requestPassiveLocationUpdates(Context context) {
         SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCE_FILE,
                 Context.MODE_PRIVATE);
         boolean runOnce = prefs.getBoolean(SP_KEY_RUN_ONCE, false);
@@ -17,13 +17,15 @@
 package com.github.ignition.location.receivers;
 
 import android.content.BroadcastReceiver;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.location.utils.IgnitedTrackUploader;
+
 /**
  * This Receiver class is designed to listen for changes in connectivity.
  * 
@@ -31,11 +33,22 @@ import android.net.NetworkInfo;
  * disable passive Location updates and queue pending checkins.
  * 
  * This class will restart the checkin service to retry pending checkins and
- * re-enables passive location updates.
+ * re-enables passive location updates. It also flushes the fixes the track
+ * uploader couldn't upload while the device was offline.
  */
 public class ConnectivityChangedReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
+        final Context appContext = context.getApplicationContext();
+        IgnitedReceiverWorkQueue.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                onConnectivityChanged(appContext);
+            }
+        });
+    }
+
+    protected void onConnectivityChanged(Context context) {
         ConnectivityManager cm = (ConnectivityManager) context
                 .getSystemService(Context.CONNECTIVITY_SERVICE);
 
@@ -45,34 +58,28 @@ public class ConnectivityChangedReceiver extends BroadcastReceiver {
                 && activeNetwork.isConnectedOrConnecting();
 
         if (isConnected) {
-            PackageManager pm = context.getPackageManager();
-
-            ComponentName connectivityReceiver = new ComponentName(context,
-                    ConnectivityChangedReceiver.class);
-            ComponentName locationReceiver = new ComponentName(context,
-                    IgnitedLocationChangedReceiver.class);
-            ComponentName passiveLocationReceiver = new ComponentName(context,
-                    IgnitedPassiveLocationChangedReceiver.class);
+            // The three changes are applied by the work queue in a single pass.
+            IgnitedReceiverWorkQueue workQueue = IgnitedReceiverWorkQueue.getInstance();
 
             // The default state for this Receiver is disabled. it is only
             // enabled when a Service disables updates pending connectivity.
-            pm.setComponentEnabledSetting(connectivityReceiver,
-                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
-                    PackageManager.DONT_KILL_APP);
+            workQueue.setComponentEnabledSetting(context, ConnectivityChangedReceiver.class,
+                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT);
 
             // The default state for the Location Receiver is enabled. it is
             // only
             // disabled when a Service disables updates pending connectivity.
-            pm.setComponentEnabledSetting(locationReceiver,
-                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
-                    PackageManager.DONT_KILL_APP);
+            workQueue.setComponentEnabledSetting(context, IgnitedLocationChangedReceiver.class,
+                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT);
 
             // The default state for the Location Receiver is enabled. it is
             // only
             // disabled when a Service disables updates pending connectivity.
-            pm.setComponentEnabledSetting(passiveLocationReceiver,
-                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
-                    PackageManager.DONT_KILL_APP);
+            workQueue.setComponentEnabledSetting(context,
+                    IgnitedPassiveLocationChangedReceiver.class,
+                    PackageManager.COMPONENT_ENABLED_STATE_DEFAULT);
+
+            IgnitedTrackUploader.onConnectivityRestored();
         }
 
     }
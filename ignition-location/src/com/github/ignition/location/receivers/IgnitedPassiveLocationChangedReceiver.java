@@ -27,7 +27,13 @@ import android.util.Log;
 
 import com.github.ignition.location.IgnitedLocationConstants;
 import com.github.ignition.location.annotations.IgnitedLocation;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
 import com.github.ignition.location.utils.IgnitedLegacyLastLocationFinder;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.location.utils.PassiveLocationGate;
+import com.github.ignition.location.utils.SignificantChangeFixFilter;
 
 /**
  * This Receiver class is used to listen for Broadcast Intents that announce that a location change
@@ -48,20 +54,44 @@ public class IgnitedPassiveLocationChangedReceiver extends BroadcastReceiver {
      * Activity is not visible.
      */
     @Override
-    public void onReceive(Context context, Intent intent) {
+    public void onReceive(Context context, final Intent intent) {
+        final Context appContext = context.getApplicationContext();
+        // Scanning the providers and reading the preferences is done off the main thread.
+        IgnitedReceiverWorkQueue.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                onLocationChanged(appContext, intent);
+            }
+        });
+    }
+
+    protected void onLocationChanged(Context context, Intent intent) {
         String key = LocationManager.KEY_LOCATION_CHANGED;
         Location location = null;
+        PassiveLocationGate gate = PassiveLocationGate.getInstance(context);
+        long now = IgnitedClock.currentTimeMillis();
 
         if (intent.hasExtra(key)) {
             // This update came from Passive provider, so we can extract the
             // location directly.
             location = (Location) intent.getExtras().get(key);
+            // Drop updates we have already seen or that come too soon after the last one.
+            if (location != null && !gate.accept(location, now)) {
+                IgnitedFlightRecorder.log(IgnitedFlightRecorder.EVENT_FIX_DROPPED,
+                        IgnitedLocationCodec.getProviderId(location.getProvider()), 0);
+                location = null;
+            }
 
         } else {
             // This update came from a recurring alarm. We need to determine if
             // there has been a more recent Location received than the last
             // location we used.
 
+            // Don't bother querying the providers if we've just processed an update.
+            if (!gate.isDue(now)) {
+                return;
+            }
+
             SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCE_FILE,
                     Context.MODE_PRIVATE);
             long locationUpdateInterval = prefs.getLong(
@@ -75,7 +105,7 @@ public class IgnitedPassiveLocationChangedReceiver extends BroadcastReceiver {
             IgnitedLegacyLastLocationFinder lastLocationFinder = new IgnitedLegacyLastLocationFinder(
                     context);
             location = lastLocationFinder.getLastBestLocation(context, locationUpdateDistanceDiff,
-                    System.currentTimeMillis() - locationUpdateInterval);
+                    now - locationUpdateInterval);
 
             // Check if the last location detected from the providers is either
             // too soon, or too close to the last
@@ -83,9 +113,17 @@ public class IgnitedPassiveLocationChangedReceiver extends BroadcastReceiver {
             // location to null to prevent the update
             // Service being run unnecessarily (and spending battery on data
             // transfers).
-            if (currentLocation != null
-                    && (currentLocation.getTime() > System.currentTimeMillis()
-                            - locationUpdateInterval || currentLocation.distanceTo(location) < locationUpdateDistanceDiff)) {
+            if (location != null
+                    && currentLocation != null
+                    && !SignificantChangeFixFilter.isSignificant(currentLocation.getTime(),
+                            currentLocation.getLatitude(), currentLocation.getLongitude(),
+                            location.getLatitude(), location.getLongitude(), now,
+                            locationUpdateInterval, locationUpdateDistanceDiff)) {
+                location = null;
+            }
+            if (location != null && !gate.accept(location, now)) {
+                IgnitedFlightRecorder.log(IgnitedFlightRecorder.EVENT_FIX_DROPPED,
+                        IgnitedLocationCodec.getProviderId(location.getProvider()), 0);
                 location = null;
             }
         }
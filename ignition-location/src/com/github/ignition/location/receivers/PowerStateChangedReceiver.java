@@ -17,12 +17,13 @@
 package com.github.ignition.location.receivers;
 
 import android.content.BroadcastReceiver;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
 
 /**
  * The manifest Receiver is used to detect changes in battery state. When the system broadcasts a
@@ -36,20 +37,29 @@ public class PowerStateChangedReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         boolean batteryLow = intent.getAction().equals(Intent.ACTION_BATTERY_LOW);
-
-        SharedPreferences prefs = context.getSharedPreferences(
-                IgnitedLocationConstants.SHARED_PREFERENCE_FILE, Context.MODE_PRIVATE);
-
-        PackageManager pm = context.getPackageManager();
-        ComponentName passiveLocationReceiver = new ComponentName(context,
-                IgnitedPassiveLocationChangedReceiver.class);
+        IgnitedFlightRecorder.log(batteryLow ? IgnitedFlightRecorder.EVENT_BATTERY_LOW
+                : IgnitedFlightRecorder.EVENT_BATTERY_OK);
+        final Context appContext = context.getApplicationContext();
+        IgnitedReceiverWorkQueue workQueue = IgnitedReceiverWorkQueue.getInstance();
 
         // Disable the passive location update receiver when the battery state
         // is low.
-        pm.setComponentEnabledSetting(passiveLocationReceiver,
+        workQueue.setComponentEnabledSetting(appContext,
+                IgnitedPassiveLocationChangedReceiver.class,
                 batteryLow ? PackageManager.COMPONENT_ENABLED_STATE_DISABLED
-                        : PackageManager.COMPONENT_ENABLED_STATE_DEFAULT,
-                PackageManager.DONT_KILL_APP);
+                        : PackageManager.COMPONENT_ENABLED_STATE_DEFAULT);
+
+        workQueue.execute(new Runnable() {
+            @Override
+            public void run() {
+                refreshLocationUpdatesCriteria(appContext);
+            }
+        });
+    }
+
+    protected void refreshLocationUpdatesCriteria(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(
+                IgnitedLocationConstants.SHARED_PREFERENCE_FILE, Context.MODE_PRIVATE);
 
         if (prefs.getBoolean(IgnitedLocationConstants.SP_KEY_ENABLE_PASSIVE_LOCATION_UPDATES,
                 IgnitedLocationConstants.ENABLE_PASSIVE_LOCATION_UPDATES_DEFAULT)
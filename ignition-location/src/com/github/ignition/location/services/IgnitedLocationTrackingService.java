@@ -0,0 +1,383 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.Location;
+import android.os.BatteryManager;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.templates.OnIgnitedLocationChangedListener;
+import com.github.ignition.location.templates.OnLocationBatchListener;
+import com.github.ignition.location.templates.OnLocationSampleListener;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.LocationRequestPolicy;
+import com.github.ignition.location.utils.LocationSample;
+import com.github.ignition.support.IgnitedDiagnostics;
+
+/**
+ * Keeps requesting active location updates while the application is in the background, for apps
+ * that need a fresh fix at all times (i.e. fleet tracking).
+ * <p/>
+ * The service attaches itself to the {@link IgnitedLocationManager} like a resumed activity would,
+ * so the updates go through the same pipeline and policies (provider health, gps duty cycling,
+ * stillness detection), merged with the settings of the activities that are resumed. It runs in the
+ * foreground, and uses gps only while the battery level is at least the minimum battery level of
+ * its policy, {@link IgnitedLocationConstants#MIN_BATTERY_LEVEL_DEFAULT} by default. While it runs
+ * the manager wakes the device up with an alarm when a delayed decision is due, i.e. to turn gps
+ * back on after a duty cycle with the screen off (see
+ * {@link IgnitedLocationManager#setWakeUpForDelayedWork(boolean)}).
+ * <p/>
+ * Fixes are delivered to the {@link OnLocationBatchListener}s of the process in batches, once
+ * {@link IgnitedLocationConstants#TRACKING_BATCH_SIZE_DEFAULT} of them have been received or the
+ * oldest one is {@link IgnitedLocationConstants#TRACKING_MAX_BATCH_LATENCY_DEFAULT} old.
+ * <p/>
+ * Declare it in your manifest, then {@link #start(Context, LocationRequestPolicy)} and
+ * {@link #stop(Context)} it. The text of the notification shown while tracking can be passed to
+ * {@link #start(Context, LocationRequestPolicy, int, long, String)}; override
+ * {@link #createNotification()} to customize the notification further.
+ */
+public class IgnitedLocationTrackingService extends Service implements
+        OnIgnitedLocationChangedListener, OnLocationSampleListener {
+    protected static final String LOG_TAG = IgnitedLocationTrackingService.class.getSimpleName();
+
+    public static final int NOTIFICATION_ID = 0x1971;
+
+    public static final String EXTRA_LOCATION_UPDATES_INTERVAL = "ign_loc_tracking_interval";
+    public static final String EXTRA_LOCATION_UPDATES_DISTANCE_DIFF =
+            "ign_loc_tracking_distance_diff";
+    public static final String EXTRA_USE_GPS = "ign_loc_tracking_use_gps";
+    public static final String EXTRA_MIN_BATTERY_LEVEL = "ign_loc_tracking_min_battery_level";
+    public static final String EXTRA_DUTY_CYCLE_GPS = "ign_loc_tracking_duty_cycle_gps";
+    public static final String EXTRA_DETECT_STILLNESS = "ign_loc_tracking_detect_stillness";
+    public static final String EXTRA_ENABLE_PASSIVE_UPDATES = "ign_loc_tracking_enable_passive";
+    public static final String EXTRA_PASSIVE_LOCATION_UPDATES_INTERVAL =
+            "ign_loc_tracking_passive_interval";
+    public static final String EXTRA_PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF =
+            "ign_loc_tracking_passive_distance_diff";
+    public static final String EXTRA_WAIT_FOR_GPS_FIX = "ign_loc_tracking_wait_for_gps_fix";
+    public static final String EXTRA_DUTY_CYCLE_GPS_ACCURACY =
+            "ign_loc_tracking_duty_cycle_gps_accuracy";
+    public static final String EXTRA_STILLNESS_TIMEOUT = "ign_loc_tracking_stillness_timeout";
+    public static final String EXTRA_BATTERY_BUDGET = "ign_loc_tracking_battery_budget";
+    public static final String EXTRA_BATCH_SIZE = "ign_loc_tracking_batch_size";
+    public static final String EXTRA_MAX_BATCH_LATENCY = "ign_loc_tracking_max_batch_latency";
+    public static final String EXTRA_NOTIFICATION_TEXT = "ign_loc_tracking_notification_text";
+
+    private static final List<OnLocationBatchListener> listeners =
+            new CopyOnWriteArrayList<OnLocationBatchListener>();
+
+    private final List<Location> batch = new ArrayList<Location>();
+    private Scheduler scheduler;
+    private LocationRequestPolicy policy;
+    private int batchSize = IgnitedLocationConstants.TRACKING_BATCH_SIZE_DEFAULT;
+    private long maxBatchLatency = IgnitedLocationConstants.TRACKING_MAX_BATCH_LATENCY_DEFAULT;
+    private String notificationText;
+    private boolean batteryLow;
+
+    private final Runnable flushBatch = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    // Re-applies the policy when the battery level crosses the minimum one, so that gps is turned
+    // off or back on.
+    private final BroadcastReceiver batteryChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (policy == null) {
+                return;
+            }
+            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            IgnitedLocationManager manager = IgnitedLocationManager.aspectOf();
+            if (level >= 0) {
+                manager.setBatteryLevel(level);
+            }
+            boolean low = level >= 0 && level < policy.minBatteryLevel;
+            if (low != batteryLow) {
+                batteryLow = low;
+                Log.d(LOG_TAG, "Battery level " + (low ? "below" : "back above") + " "
+                        + policy.minBatteryLevel + "%, updating location requests");
+                manager.attach(IgnitedLocationTrackingService.this,
+                        IgnitedLocationTrackingService.this, policy);
+            }
+        }
+    };
+
+    /**
+     * Start tracking the location in the background with the given settings, or update the
+     * settings if the service is already running.
+     */
+    public static void start(Context context, LocationRequestPolicy policy) {
+        start(context, policy, IgnitedLocationConstants.TRACKING_BATCH_SIZE_DEFAULT,
+                IgnitedLocationConstants.TRACKING_MAX_BATCH_LATENCY_DEFAULT);
+    }
+
+    /**
+     * Start tracking the location in the background, delivering the fixes in batches of the given
+     * size, or as soon as the oldest one is {@code maxBatchLatency} milliseconds old.
+     */
+    public static void start(Context context, LocationRequestPolicy policy, int batchSize,
+            long maxBatchLatency) {
+        start(context, policy, batchSize, maxBatchLatency, null);
+    }
+
+    /**
+     * Start tracking the location in the background, delivering the fixes in batches.
+     * 
+     * @param notificationText
+     *            the text of the notification shown while tracking, or null for none
+     */
+    public static void start(Context context, LocationRequestPolicy policy, int batchSize,
+            long maxBatchLatency, String notificationText) {
+        context.startService(newStartIntent(context, policy, batchSize, maxBatchLatency,
+                notificationText));
+    }
+
+    /**
+     * Returns the intent {@link #start(Context, LocationRequestPolicy, int, long, String)} starts
+     * the service with, i.e. to start it from a PendingIntent. It carries every setting of the
+     * policy.
+     */
+    public static Intent newStartIntent(Context context, LocationRequestPolicy policy,
+            int batchSize, long maxBatchLatency, String notificationText) {
+        Intent intent = new Intent(context, IgnitedLocationTrackingService.class);
+        intent.putExtra(EXTRA_LOCATION_UPDATES_INTERVAL, policy.locationUpdatesInterval);
+        intent.putExtra(EXTRA_LOCATION_UPDATES_DISTANCE_DIFF, policy.locationUpdatesDistanceDiff);
+        intent.putExtra(EXTRA_USE_GPS, policy.useGps);
+        intent.putExtra(EXTRA_ENABLE_PASSIVE_UPDATES, policy.enablePassiveUpdates);
+        intent.putExtra(EXTRA_PASSIVE_LOCATION_UPDATES_INTERVAL,
+                policy.passiveLocationUpdatesInterval);
+        intent.putExtra(EXTRA_PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF,
+                policy.passiveLocationUpdatesDistanceDiff);
+        intent.putExtra(EXTRA_WAIT_FOR_GPS_FIX, policy.waitForGpsFix);
+        intent.putExtra(EXTRA_MIN_BATTERY_LEVEL, policy.minBatteryLevel);
+        intent.putExtra(EXTRA_DUTY_CYCLE_GPS, policy.dutyCycleGps);
+        intent.putExtra(EXTRA_DUTY_CYCLE_GPS_ACCURACY, policy.dutyCycleGpsAccuracy);
+        intent.putExtra(EXTRA_DETECT_STILLNESS, policy.detectStillness);
+        intent.putExtra(EXTRA_STILLNESS_TIMEOUT, policy.stillnessTimeout);
+        intent.putExtra(EXTRA_BATTERY_BUDGET, policy.batteryBudget);
+        intent.putExtra(EXTRA_BATCH_SIZE, batchSize);
+        intent.putExtra(EXTRA_MAX_BATCH_LATENCY, maxBatchLatency);
+        if (notificationText != null) {
+            intent.putExtra(EXTRA_NOTIFICATION_TEXT, notificationText);
+        }
+        return intent;
+    }
+
+    /**
+     * Returns the policy a start intent carries, with the default values for the settings it
+     * doesn't have. Location updates are always requested.
+     */
+    public static LocationRequestPolicy getPolicy(Intent intent) {
+        Bundle extras = intent != null ? intent.getExtras() : null;
+        if (extras == null) {
+            extras = new Bundle();
+        }
+        LocationRequestPolicy defaults = LocationRequestPolicy.fromDefaults();
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.requestLocationUpdates = true;
+        policy.locationUpdatesInterval = extras.getLong(EXTRA_LOCATION_UPDATES_INTERVAL,
+                defaults.locationUpdatesInterval);
+        policy.locationUpdatesDistanceDiff = extras.getInt(EXTRA_LOCATION_UPDATES_DISTANCE_DIFF,
+                defaults.locationUpdatesDistanceDiff);
+        policy.useGps = extras.getBoolean(EXTRA_USE_GPS, defaults.useGps);
+        policy.enablePassiveUpdates = extras.getBoolean(EXTRA_ENABLE_PASSIVE_UPDATES,
+                defaults.enablePassiveUpdates);
+        policy.passiveLocationUpdatesInterval = extras.getLong(
+                EXTRA_PASSIVE_LOCATION_UPDATES_INTERVAL, defaults.passiveLocationUpdatesInterval);
+        policy.passiveLocationUpdatesDistanceDiff = extras.getInt(
+                EXTRA_PASSIVE_LOCATION_UPDATES_DISTANCE_DIFF,
+                defaults.passiveLocationUpdatesDistanceDiff);
+        policy.waitForGpsFix = extras.getLong(EXTRA_WAIT_FOR_GPS_FIX, defaults.waitForGpsFix);
+        policy.minBatteryLevel = extras.getInt(EXTRA_MIN_BATTERY_LEVEL, defaults.minBatteryLevel);
+        policy.dutyCycleGps = extras.getBoolean(EXTRA_DUTY_CYCLE_GPS, defaults.dutyCycleGps);
+        policy.dutyCycleGpsAccuracy = extras.getInt(EXTRA_DUTY_CYCLE_GPS_ACCURACY,
+                defaults.dutyCycleGpsAccuracy);
+        policy.detectStillness = extras.getBoolean(EXTRA_DETECT_STILLNESS,
+                defaults.detectStillness);
+        policy.stillnessTimeout = extras.getLong(EXTRA_STILLNESS_TIMEOUT,
+                defaults.stillnessTimeout);
+        policy.batteryBudget = extras.getFloat(EXTRA_BATTERY_BUDGET, defaults.batteryBudget);
+        return policy;
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, IgnitedLocationTrackingService.class));
+    }
+
+    public static void addListener(OnLocationBatchListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(OnLocationBatchListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        scheduler = IgnitedClock.newScheduler();
+        // The current level is delivered right away, since the broadcast is sticky.
+        registerReceiver(batteryChangedReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        handleCommand(intent);
+        // Restarted with the same settings if the process is killed.
+        return START_REDELIVER_INTENT;
+    }
+
+    @Override
+    public void onStart(Intent intent, int startId) {
+        // Only called before Android 2.0.
+        handleCommand(intent);
+    }
+
+    protected void handleCommand(Intent intent) {
+        Bundle extras = intent != null ? intent.getExtras() : null;
+        if (extras == null) {
+            extras = new Bundle();
+        }
+        policy = getPolicy(intent);
+        batchSize = Math.max(1, extras.getInt(EXTRA_BATCH_SIZE,
+                IgnitedLocationConstants.TRACKING_BATCH_SIZE_DEFAULT));
+        maxBatchLatency = extras.getLong(EXTRA_MAX_BATCH_LATENCY,
+                IgnitedLocationConstants.TRACKING_MAX_BATCH_LATENCY_DEFAULT);
+        notificationText = extras.getString(EXTRA_NOTIFICATION_TEXT);
+
+        Log.d(LOG_TAG, "Tracking location every " + policy.locationUpdatesInterval / 1000 + "s");
+        startForegroundCompat();
+        IgnitedLocationManager manager = IgnitedLocationManager.aspectOf();
+        manager.attach(this, this, policy);
+        manager.setWakeUpForDelayedWork(true);
+    }
+
+    @Override
+    public void onDestroy() {
+        IgnitedLocationManager manager = IgnitedLocationManager.aspectOf();
+        manager.setWakeUpForDelayedWork(false);
+        manager.detach(this);
+        flush();
+        unregisterReceiver(batteryChangedReceiver);
+        stopForegroundCompat();
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    /**
+     * The manager hands the fixes over as samples, so that the last known location can be told
+     * apart without looking into the extras.
+     */
+    @Override
+    public boolean onLocationSample(LocationSample sample) {
+        if (!sample.isLastLocation()) {
+            Location location = new Location(sample.getProvider());
+            sample.toLocation(location);
+            onIgnitedLocationChanged(location);
+        }
+        // Keep tracking until the service is stopped.
+        return true;
+    }
+
+    /**
+     * Add a new fix to the batch.
+     */
+    @Override
+    public boolean onIgnitedLocationChanged(Location newLocation) {
+        batch.add(newLocation);
+        if (batch.size() >= batchSize) {
+            flush();
+        } else if (batch.size() == 1) {
+            scheduler.postDelayed(flushBatch, maxBatchLatency);
+        }
+        // Keep tracking until the service is stopped.
+        return true;
+    }
+
+    /**
+     * Deliver the fixes received so far to the listeners, without waiting for the batch to be full.
+     */
+    public void flush() {
+        scheduler.removeCallbacks(flushBatch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Location> locations = Collections.unmodifiableList(new ArrayList<Location>(batch));
+        batch.clear();
+        for (OnLocationBatchListener listener : listeners) {
+            listener.onLocationBatch(locations);
+        }
+    }
+
+    /**
+     * Returns the notification shown while the service runs in the foreground. By default it shows
+     * the application name and launches the application when clicked.
+     */
+    protected Notification createNotification() {
+        Notification notification = new Notification(getApplicationInfo().icon, null,
+                IgnitedClock.currentTimeMillis());
+        Intent launchIntent = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        if (launchIntent == null) {
+            launchIntent = new Intent();
+        }
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+        notification.setLatestEventInfo(this, getApplicationInfo().loadLabel(getPackageManager()),
+                notificationText, contentIntent);
+        notification.flags |= Notification.FLAG_ONGOING_EVENT | Notification.FLAG_NO_CLEAR;
+        return notification;
+    }
+
+    private void startForegroundCompat() {
+        if (IgnitedDiagnostics.supportsApiLevel(IgnitedDiagnostics.ECLAIR)) {
+            startForeground(NOTIFICATION_ID, createNotification());
+        } else {
+            setForeground(true);
+        }
+    }
+
+    private void stopForegroundCompat() {
+        if (IgnitedDiagnostics.supportsApiLevel(IgnitedDiagnostics.ECLAIR)) {
+            stopForeground(true);
+        } else {
+            setForeground(false);
+        }
+    }
+}
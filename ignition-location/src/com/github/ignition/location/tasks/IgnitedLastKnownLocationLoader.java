@@ -0,0 +1,226 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.ignition.location.tasks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Process;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.annotations.IgnitedLocation;
+import com.github.ignition.location.templates.ILastLocationFinder;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.LastFixSelector;
+import com.github.ignition.location.utils.PlatformSpecificImplementationFactory;
+
+/**
+ * Loads the last known location when location updates start, so that there's a location to show
+ * before the first fix.
+ * <p/>
+ * The lookup runs on a small executor owned by the library, at a slightly higher priority than
+ * background work, so it doesn't queue behind the app's own AsyncTasks. It has a hard deadline:
+ * if the {@link ILastLocationFinder} hasn't returned by then, the best location it has found so far
+ * is delivered instead, and the finder's answer is dropped when it eventually comes. Either way the
+ * location is checked against the accuracy and time thresholds, and delivered on the main thread
+ * through the same path as the other locations, with its flags kept in an int (see
+ * {@link #getLibraryFlags()}).
+ */
+public class IgnitedLastKnownLocationLoader {
+    protected static final String LOG_TAG = IgnitedLastKnownLocationLoader.class.getSimpleName();
+
+    private static Executor executor;
+
+    private final Context appContext;
+    // Created by the worker, since the finder's constructor makes binder calls.
+    private volatile ILastLocationFinder lastLocationFinder;
+    private final int locationUpdateDistanceDiff;
+    private final long locationUpdateInterval;
+    private final long deadline;
+    // Fixes older than this are too old, set when the lookup starts.
+    private long minTime;
+    private final Scheduler scheduler = IgnitedClock.newScheduler();
+
+    @SuppressWarnings("unused")
+    @IgnitedLocation
+    private Location currentLocation;
+
+    private FutureTask<Location> future;
+    private boolean delivered;
+    private int libraryFlags;
+
+    private final Runnable deliverResult = new Runnable() {
+        @Override
+        public void run() {
+            if (delivered || future.isCancelled()) {
+                return;
+            }
+            scheduler.removeCallbacks(deadlineExpired);
+            try {
+                deliver(future.get());
+            } catch (InterruptedException e) {
+                deliverBestLocationSoFar();
+            } catch (ExecutionException e) {
+                Log.w(LOG_TAG, "Unable to find the last known location", e.getCause());
+                deliverBestLocationSoFar();
+            }
+        }
+    };
+
+    private final Runnable deadlineExpired = new Runnable() {
+        @Override
+        public void run() {
+            if (delivered) {
+                return;
+            }
+            Log.d(LOG_TAG, "Last known location not found in " + deadline
+                    + "ms, using the best one so far");
+            deliverBestLocationSoFar();
+        }
+    };
+
+    private static synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(
+                    IgnitedLocationConstants.LAST_KNOWN_LOCATION_LOADER_THREADS,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable r) {
+                            return new Thread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND
+                                            + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+                                    r.run();
+                                }
+                            }, LOG_TAG);
+                        }
+                    });
+        }
+        return executor;
+    }
+
+    /**
+     * Replace the executor the lookups run on. Mainly useful in tests, to run them synchronously.
+     */
+    public static synchronized void setExecutor(Executor executor) {
+        IgnitedLastKnownLocationLoader.executor = executor;
+    }
+
+    /**
+     * @param appContext
+     * @param locationUpdateDistanceDiff
+     *            the last known location is too old if it's less accurate than this, in meters
+     * @param locationUpdateInterval
+     *            the last known location is too old if it's older than this
+     * @param deadline
+     *            how long to wait for the finder, in milliseconds
+     */
+    public IgnitedLastKnownLocationLoader(Context appContext, int locationUpdateDistanceDiff,
+            long locationUpdateInterval, long deadline) {
+        this.appContext = appContext;
+        this.locationUpdateDistanceDiff = locationUpdateDistanceDiff;
+        this.locationUpdateInterval = locationUpdateInterval;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Start looking for the last known location. Must be called on the main thread, and only once.
+     * 
+     * @return a handle on the location the finder returns; it isn't affected by the deadline
+     */
+    public Future<Location> load() {
+        future = new FutureTask<Location>(new Callable<Location>() {
+            @Override
+            public Location call() throws Exception {
+                return getLastKnownLocation();
+            }
+        }) {
+            @Override
+            protected void done() {
+                scheduler.post(deliverResult);
+            }
+        };
+        minTime = IgnitedClock.currentTimeMillis() - locationUpdateInterval;
+        scheduler.postDelayed(deadlineExpired, deadline);
+        getExecutor().execute(future);
+        return future;
+    }
+
+    protected Location getLastKnownLocation() {
+        // Find the last known location, specifying a required accuracy
+        // of within the min distance between updates
+        // and a required latency of the minimum time required between
+        // updates.
+        lastLocationFinder = PlatformSpecificImplementationFactory.getLastLocationFinder(appContext);
+        return lastLocationFinder.getLastBestLocation(appContext, locationUpdateDistanceDiff,
+                minTime);
+    }
+
+    private void deliverBestLocationSoFar() {
+        ILastLocationFinder lastLocationFinder = this.lastLocationFinder;
+        deliver(lastLocationFinder != null ? lastLocationFinder.getBestLocationSoFar() : null);
+    }
+
+    private void deliver(Location location) {
+        delivered = true;
+        if (location != null) {
+            // The same thresholds the finder is given.
+            libraryFlags = IgnitedLocationCodec.FLAG_LAST_LOCATION;
+            LastFixSelector selector = new LastFixSelector(minTime);
+            selector.offer(location.getTime(), location.getAccuracy());
+            if (selector.isTooOld(locationUpdateDistanceDiff)) {
+                libraryFlags |= IgnitedLocationCodec.FLAG_LAST_LOCATION_TOO_OLD;
+            }
+            currentLocation = location;
+        }
+    }
+
+    /**
+     * Returns the {@link IgnitedLocationCodec} flags of the location being delivered, i.e.
+     * {@link IgnitedLocationCodec#FLAG_LAST_LOCATION_TOO_OLD}. They aren't stored in its extras.
+     */
+    public int getLibraryFlags() {
+        return libraryFlags;
+    }
+
+    /**
+     * Stop looking for the last known location: nothing is delivered after this.
+     */
+    public void cancel() {
+        delivered = true;
+        scheduler.removeCallbacks(deadlineExpired);
+        scheduler.removeCallbacks(deliverResult);
+        if (future != null) {
+            future.cancel(true);
+        }
+        ILastLocationFinder lastLocationFinder = this.lastLocationFinder;
+        if (lastLocationFinder != null) {
+            lastLocationFinder.cancel();
+        }
+    }
+}
@@ -50,6 +50,12 @@ public interface ILastLocationFinder {
      */
     public Location getLastBestLocation(Context appContext, int minDistance, long minTime);
 
+    /**
+     * Returns the best location {@link #getLastBestLocation(Context, int, long)} has found so far,
+     * while it's still looking, or null if it hasn't found any yet. Can be called from any thread.
+     */
+    public Location getBestLocationSoFar();
+
     /**
      * Cancel the one-shot current location update.
      */
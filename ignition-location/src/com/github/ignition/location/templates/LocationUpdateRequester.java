@@ -31,8 +31,6 @@ public abstract class LocationUpdateRequester {
 
     protected LocationManager locationManager;
 
-    private PendingIntent locationUpdatesPendingIntent;
-
     protected LocationUpdateRequester(LocationManager locationManager) {
         this.locationManager = locationManager;
     }
@@ -52,11 +50,16 @@ public abstract class LocationUpdateRequester {
      */
     public void requestLocationUpdates(long minTime, long minDistance, Criteria criteria,
             PendingIntent pendingIntent) {
-        this.locationUpdatesPendingIntent = pendingIntent;
     }
 
-    public void removeLocationUpdates() {
-        locationManager.removeUpdates(locationUpdatesPendingIntent);
+    /**
+     * Remove the active location updates requested with the Pending Intent.
+     * 
+     * @param pendingIntent
+     *            The Pending Intent the active location updates were requested with.
+     */
+    public void removeLocationUpdates(PendingIntent pendingIntent) {
+        locationManager.removeUpdates(pendingIntent);
     }
 
     /**
@@ -0,0 +1,33 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import java.util.List;
+
+import android.location.Location;
+
+public interface OnLocationBatchListener {
+
+    /**
+     * Called on the main thread with the fixes received by the tracking service since the last
+     * batch, oldest first.
+     * 
+     * @param locations
+     *            the new fixes; the list can't be modified
+     */
+    void onLocationBatch(List<Location> locations);
+
+}
@@ -0,0 +1,40 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import com.github.ignition.location.utils.LocationSample;
+
+/**
+ * Implemented by clients that only need the values of the new locations. They're handed a
+ * {@link LocationSample} reused for every fix instead of the {@link android.location.Location},
+ * and {@link OnIgnitedLocationChangedListener#onIgnitedLocationChanged(android.location.Location)}
+ * isn't called.
+ */
+public interface OnLocationSampleListener {
+
+    /**
+     * Returns true if more location updates should be requested, false otherwise (this will disable
+     * location updates requests).
+     * 
+     * @param sample
+     *            the new location; it's recycled when this method returns, so copy it with
+     *            {@link LocationSample#obtain(com.github.ignition.location.utils.IgnitedFix)}
+     *            to keep it
+     * @return true to request more location updates, false to stop location updates.
+     */
+    boolean onLocationSample(LocationSample sample);
+
+}
@@ -0,0 +1,31 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import android.location.Location;
+
+public interface OnSingleLocationUpdateListener {
+
+    /**
+     * Called once when the one-shot location update requested on behalf of this listener completes.
+     * 
+     * @param location
+     *            the new location, or null if no location was received before the request timed
+     *            out
+     */
+    void onSingleLocationUpdate(Location location);
+
+}
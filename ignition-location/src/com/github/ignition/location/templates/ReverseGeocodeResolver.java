@@ -0,0 +1,41 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import java.io.IOException;
+
+/**
+ * Interface definition for a reverse geocoder.
+ * 
+ * Implementations are used by the reverse geocode cache to resolve the cells that aren't cached
+ * yet. They're called from worker threads and may block.
+ */
+public interface ReverseGeocodeResolver {
+
+    /**
+     * Returns a human readable address for the given coordinates.
+     * 
+     * @param latitude
+     *            the latitude
+     * @param longitude
+     *            the longitude
+     * @return the address, or null if no address is known for these coordinates
+     * @throws IOException
+     *             if the address couldn't be resolved, e.g. because the network is unavailable
+     */
+    String getAddress(double latitude, double longitude) throws IOException;
+
+}
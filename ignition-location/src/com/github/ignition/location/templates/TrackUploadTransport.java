@@ -0,0 +1,40 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.templates;
+
+import java.io.IOException;
+
+/**
+ * Interface definition for the transport used by the track uploader to send batches of fixes to a
+ * server.
+ * 
+ * Implementations are called from a worker thread and may block.
+ */
+public interface TrackUploadTransport {
+
+    /**
+     * Upload a batch of fixes.
+     * 
+     * @param batch
+     *            the compressed, delta encoded batch; only valid until this method returns
+     * @param length
+     *            the number of bytes of the batch
+     * @throws IOException
+     *             if the batch couldn't be uploaded; it will be retried with the next flush
+     */
+    void upload(byte[] batch, int length) throws IOException;
+
+}
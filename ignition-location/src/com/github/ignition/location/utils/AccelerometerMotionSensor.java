@@ -0,0 +1,92 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.ignition.location.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.util.Log;
+
+import com.github.ignition.location.templates.MotionSensor;
+import com.github.ignition.location.templates.OnSignificantMotionListener;
+
+/**
+ * {@link MotionSensor} watching the accelerometer at its slowest rate. Motion is reported when the
+ * acceleration, gravity excluded, stays above a threshold for a few samples in a row, so that
+ * putting the phone down on a desk doesn't count.
+ * <p/>
+ * Devices without an accelerometer never report motion; location updates are then only resumed
+ * when the fixes show the device has moved.
+ */
+public class AccelerometerMotionSensor implements MotionSensor, SensorEventListener {
+    protected static final String LOG_TAG = AccelerometerMotionSensor.class.getSimpleName();
+
+    public static final float MOTION_THRESHOLD = 1.5f; // m/s^2
+    public static final int MOTION_SAMPLES = 3;
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer;
+    private OnSignificantMotionListener listener;
+    private int samplesAboveThreshold;
+
+    public AccelerometerMotionSensor(Context context) {
+        sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+    }
+
+    @Override
+    public void start(OnSignificantMotionListener listener) {
+        if (accelerometer == null) {
+            Log.d(LOG_TAG, "No accelerometer available");
+            return;
+        }
+        if (this.listener == null) {
+            sensorManager.registerListener(this, accelerometer,
+                    SensorManager.SENSOR_DELAY_NORMAL);
+        }
+        this.listener = listener;
+        samplesAboveThreshold = 0;
+    }
+
+    @Override
+    public void stop() {
+        if (listener != null) {
+            sensorManager.unregisterListener(this);
+            listener = null;
+        }
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        double acceleration = Math.abs(Math.sqrt(x * x + y * y + z * z)
+                - SensorManager.GRAVITY_EARTH);
+        if (acceleration < MOTION_THRESHOLD) {
+            samplesAboveThreshold = 0;
+        } else if (++samplesAboveThreshold >= MOTION_SAMPLES && listener != null) {
+            OnSignificantMotionListener listener = this.listener;
+            stop();
+            listener.onSignificantMotion();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.io.IOException;
+import java.util.List;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+
+import com.github.ignition.location.templates.ReverseGeocodeResolver;
+
+/**
+ * {@link ReverseGeocodeResolver} backed by the platform {@link Geocoder}.
+ */
+public class AndroidReverseGeocodeResolver implements ReverseGeocodeResolver {
+
+    private final Geocoder geocoder;
+
+    public AndroidReverseGeocodeResolver(Context context) {
+        this.geocoder = new Geocoder(context.getApplicationContext());
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude) throws IOException {
+        List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        if (addresses == null || addresses.isEmpty()) {
+            return null;
+        }
+
+        Address address = addresses.get(0);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= address.getMaxAddressLineIndex(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(address.getAddressLine(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import android.os.SystemClock;
+
+import com.github.ignition.location.templates.Clock;
+import com.github.ignition.location.templates.Scheduler;
+
+/**
+ * Holds the {@link Clock} the whole library reads the time from and schedules its delayed work
+ * with. Components created by the system, such as the receivers and the finders, can't be handed
+ * a clock, so it's shared here.
+ */
+public final class IgnitedClock {
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public Scheduler newScheduler() {
+            return new HandlerScheduler();
+        }
+    };
+
+    private static volatile Clock clock = SYSTEM_CLOCK;
+
+    private IgnitedClock() {
+    }
+
+    public static Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Replace the clock, i.e. with a {@link VirtualClock} in tests. Set it before the components
+     * using it are created, since they create their scheduler once.
+     * 
+     * @param clock
+     *            the new clock, or null to use the system clock again
+     */
+    public static void setClock(Clock clock) {
+        IgnitedClock.clock = clock != null ? clock : SYSTEM_CLOCK;
+    }
+
+    public static long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
+    public static long elapsedRealtime() {
+        return clock.elapsedRealtime();
+    }
+
+    public static Scheduler newScheduler() {
+        return clock.newScheduler();
+    }
+}
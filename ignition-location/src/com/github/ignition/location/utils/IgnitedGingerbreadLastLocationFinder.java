@@ -16,22 +16,16 @@
 
 package com.github.ignition.location.utils;
 
-import java.util.Date;
 import java.util.List;
 
-import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.location.Criteria;
 import android.location.Location;
-import android.location.LocationListener;
 import android.location.LocationManager;
 import android.util.Log;
 
 import com.github.ignition.location.annotations.IgnitedLocation;
 import com.github.ignition.location.templates.ILastLocationFinder;
+import com.github.ignition.location.templates.OnSingleLocationUpdateListener;
 
 /**
  * Optimized implementation of Last Location Finder for devices running Gingerbread and above.
@@ -43,15 +37,15 @@ import com.github.ignition.location.templates.ILastLocationFinder;
  * (where one exists) and setup a oneshot location update to find the current location.
  */
 public class IgnitedGingerbreadLastLocationFinder implements ILastLocationFinder {
-    protected static String SINGLE_LOCATION_UPDATE_ACTION = "com.github.ignition.location.SINGLE_LOCATION_UPDATE_ACTION";
 
     @SuppressWarnings("unused")
     @IgnitedLocation
     private Location currentLocation;
 
-    protected PendingIntent singleUpatePI;
     protected LocationManager locationManager;
-    protected Criteria criteria;
+    // Published while the providers are looked at, in case the caller can't wait.
+    private volatile Location bestLocationSoFar;
+    protected IgnitedSingleUpdateCoordinator singleUpdateCoordinator;
 
     /**
      * Construct a new Gingerbread Last Location Finder.
@@ -62,23 +56,15 @@ public class IgnitedGingerbreadLastLocationFinder implements ILastLocationFinder
     public IgnitedGingerbreadLastLocationFinder(Context appContext) {
         this.locationManager = (LocationManager) appContext
                 .getSystemService(Context.LOCATION_SERVICE);
-        // Coarse accuracy is specified here to get the fastest possible result.
-        // The calling Activity will likely (or have already) request ongoing
-        // updates using the Fine location provider.
-        this.criteria = new Criteria();
-        this.criteria.setAccuracy(Criteria.ACCURACY_COARSE);
-
-        // Construct the Pending Intent that will be broadcast by the oneshot
-        // location update.
-        Intent updateIntent = new Intent(SINGLE_LOCATION_UPDATE_ACTION);
-        this.singleUpatePI = PendingIntent.getBroadcast(appContext, 0, updateIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT);
+        // The oneshot location update is shared with any other finder waiting for one.
+        this.singleUpdateCoordinator = IgnitedSingleUpdateCoordinator.getInstance(appContext);
     }
 
     /**
      * Returns the most accurate and timely previously detected location. Where the last result is
      * beyond the specified maximum distance or latency a one-off location update is returned via
-     * the {@link LocationListener} specified in {@link setChangedLocationListener}.
+     * the {@link android.location.LocationListener} specified in
+     * {@link setChangedLocationListener}.
      * 
      * @param minDistance
      *            Minimum distance before we require a location update.
@@ -89,8 +75,7 @@ public class IgnitedGingerbreadLastLocationFinder implements ILastLocationFinder
     @Override
     public Location getLastBestLocation(Context context, int minDistance, long minTime) {
         Location bestResult = null;
-        float bestAccuracy = Float.MAX_VALUE;
-        long bestTime = Long.MIN_VALUE;
+        LastFixSelector selector = new LastFixSelector(minTime);
 
         // Iterate through all the providers on the system, keeping
         // note of the most accurate result within the acceptable time limit.
@@ -99,22 +84,16 @@ public class IgnitedGingerbreadLastLocationFinder implements ILastLocationFinder
         for (String provider : matchingProviders) {
             Location location = this.locationManager.getLastKnownLocation(provider);
             if (location != null) {
-                float accuracy = location.getAccuracy();
                 long time = location.getTime();
 
                 // Workaround to this bug: http://code.google.com/p/android/issues/detail?id=23937
-                if (new Date(time).after(new Date(System.currentTimeMillis()))) {
+                if (time > IgnitedClock.currentTimeMillis()) {
                     time -= 1000 * 60 * 60 * 24;
                 }
 
-                if (((time > minTime) && (accuracy < bestAccuracy))) {
-                    bestResult = location;
-                    bestAccuracy = accuracy;
-                    bestTime = time;
-                } else if ((time < minTime) && (bestAccuracy == Float.MAX_VALUE)
-                        && (time > bestTime)) {
+                if (selector.offer(time, location.getAccuracy())) {
                     bestResult = location;
-                    bestTime = time;
+                    bestLocationSoFar = location;
                 }
             }
         }
@@ -126,50 +105,40 @@ public class IgnitedGingerbreadLastLocationFinder implements ILastLocationFinder
         // This check simply implements the same conditions we set when
         // requesting regular
         // location updates every [minTime] and [minDistance].
-        if ((bestTime < minTime) || (bestAccuracy > minDistance)) {
+        if (selector.isTooOld(minDistance)) {
             Log.d(LOG_TAG, "Last location is too old. Retrieving a new one...");
-            IntentFilter locIntentFilter = new IntentFilter(SINGLE_LOCATION_UPDATE_ACTION);
-            context.registerReceiver(this.singleUpdateReceiver, locIntentFilter);
-            this.locationManager.requestSingleUpdate(this.criteria, this.singleUpatePI);
-
-            bestResult.getExtras().putBoolean(LAST_LOCATION_TOO_OLD_EXTRA, true);
+            this.singleUpdateCoordinator.requestSingleUpdate(this.singleUpdateListener);
         }
 
         return bestResult;
     }
 
     /**
-     * This {@link BroadcastReceiver} listens for a single location update before unregistering
-     * itself. The oneshot location update is returned via the {@link LocationListener} specified in
-     * {@link setChangedLocationListener}.
+     * This listener is notified when the shared oneshot location update completes.
      */
-    protected BroadcastReceiver singleUpdateReceiver = new BroadcastReceiver() {
+    protected OnSingleLocationUpdateListener singleUpdateListener = new OnSingleLocationUpdateListener() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            context.unregisterReceiver(IgnitedGingerbreadLastLocationFinder.this.singleUpdateReceiver);
-
-            String key = LocationManager.KEY_LOCATION_CHANGED;
-            Location location = (Location) intent.getExtras().get(key);
-
+        public void onSingleLocationUpdate(Location location) {
             if (location != null) {
-                Log.d(LOG_TAG,
-                        "Single Location Update Received from " + location.getProvider()
-                                + " (lat, long): " + location.getLatitude() + ", "
-                                + location.getLongitude());
                 setCurrentLocation(location);
             }
-
-            IgnitedGingerbreadLastLocationFinder.this.locationManager
-                    .removeUpdates(IgnitedGingerbreadLastLocationFinder.this.singleUpatePI);
         }
     };
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Location getBestLocationSoFar() {
+        return bestLocationSoFar;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void cancel() {
-        this.locationManager.removeUpdates(this.singleUpatePI);
+        this.singleUpdateCoordinator.cancel(this.singleUpdateListener);
     }
 
     public void setCurrentLocation(Location currentLocation) {
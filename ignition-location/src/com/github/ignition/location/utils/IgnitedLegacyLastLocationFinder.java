@@ -19,15 +19,12 @@ package com.github.ignition.location.utils;
 import java.util.List;
 
 import android.content.Context;
-import android.location.Criteria;
 import android.location.Location;
-import android.location.LocationListener;
 import android.location.LocationManager;
-import android.os.Bundle;
-import android.util.Log;
 
 import com.github.ignition.location.annotations.IgnitedLocation;
 import com.github.ignition.location.templates.ILastLocationFinder;
+import com.github.ignition.location.templates.OnSingleLocationUpdateListener;
 
 /**
  * Legacy implementation of Last Location Finder for all Android platforms down to Android 1.6.
@@ -46,7 +43,9 @@ public class IgnitedLegacyLastLocationFinder implements ILastLocationFinder {
     private Location currentLocation;
 
     protected LocationManager locationManager;
-    protected Criteria criteria;
+    // Published while the providers are looked at, in case the caller can't wait.
+    private volatile Location bestLocationSoFar;
+    protected IgnitedSingleUpdateCoordinator singleUpdateCoordinator;
     protected Context context;
 
     /**
@@ -59,17 +58,15 @@ public class IgnitedLegacyLastLocationFinder implements ILastLocationFinder {
         this.context = appContext;
         this.locationManager = (LocationManager) appContext
                 .getSystemService(Context.LOCATION_SERVICE);
-        this.criteria = new Criteria();
-        // Coarse accuracy is specified here to get the fastest possible result.
-        // The calling Activity will likely (or have already) request ongoing
-        // updates using the Fine location provider.
-        this.criteria.setAccuracy(Criteria.ACCURACY_COARSE);
+        // The one-off location update is shared with any other finder waiting for one.
+        this.singleUpdateCoordinator = IgnitedSingleUpdateCoordinator.getInstance(appContext);
     }
 
     /**
      * Returns the most accurate and timely previously detected location. Where the last result is
      * beyond the specified maximum distance or latency a one-off location update is returned via
-     * the {@link LocationListener} specified in {@link setChangedLocationListener}.
+     * the {@link android.location.LocationListener} specified in
+     * {@link setChangedLocationListener}.
      * 
      * @param minDistance
      *            Minimum distance before we require a location update.
@@ -80,8 +77,7 @@ public class IgnitedLegacyLastLocationFinder implements ILastLocationFinder {
     @Override
     public Location getLastBestLocation(Context context, int minDistance, long minTime) {
         Location bestResult = null;
-        float bestAccuracy = Float.MAX_VALUE;
-        long bestTime = Long.MAX_VALUE;
+        LastFixSelector selector = new LastFixSelector(minTime);
 
         // Iterate through all the providers on the system, keeping
         // note of the most accurate result within the acceptable time limit.
@@ -90,17 +86,9 @@ public class IgnitedLegacyLastLocationFinder implements ILastLocationFinder {
         for (String provider : matchingProviders) {
             Location location = this.locationManager.getLastKnownLocation(provider);
             if (location != null) {
-                float accuracy = location.getAccuracy();
-                long time = location.getTime();
-
-                if (((time < minTime) && (accuracy < bestAccuracy))) {
-                    bestResult = location;
-                    bestAccuracy = accuracy;
-                    bestTime = time;
-                } else if ((time > minTime) && (bestAccuracy == Float.MAX_VALUE)
-                        && (time < bestTime)) {
+                if (selector.offer(location.getTime(), location.getAccuracy())) {
                     bestResult = location;
-                    bestTime = time;
+                    bestLocationSoFar = location;
                 }
             }
         }
@@ -111,61 +99,41 @@ public class IgnitedLegacyLastLocationFinder implements ILastLocationFinder {
         // This check simply implements the same conditions we set when
         // requesting regular location updates every [minTime] and
         // [minDistance].
-        // Prior to Gingerbread "one-shot" updates weren't available, so we need
-        // to implement this manually.
-        if ((bestTime > minTime) || (bestAccuracy > minDistance)) {
-            String provider = this.locationManager.getBestProvider(this.criteria, true);
-            if (provider != null) {
-                this.locationManager.requestLocationUpdates(provider, 0, 0,
-                        this.singeUpdateListener, context.getMainLooper());
-            }
-
-            bestResult.getExtras().putBoolean(LAST_LOCATION_TOO_OLD_EXTRA, true);
+        // Prior to Gingerbread "one-shot" updates weren't available, so the
+        // coordinator implements this manually.
+        if (selector.isTooOld(minDistance)) {
+            this.singleUpdateCoordinator.requestSingleUpdate(this.singleUpdateListener);
         }
 
         return bestResult;
     }
 
     /**
-     * This one-off {@link LocationListener} simply listens for a single location update before
-     * unregistering itself. The one-off location update is returned via the
-     * {@link LocationListener} specified in {@link setChangedLocationListener}.
+     * This listener is notified when the shared one-off location update completes.
      */
-    protected LocationListener singeUpdateListener = new LocationListener() {
+    protected OnSingleLocationUpdateListener singleUpdateListener = new OnSingleLocationUpdateListener() {
         @Override
-        public void onLocationChanged(Location location) {
+        public void onSingleLocationUpdate(Location location) {
             if (location != null) {
-                Log.d(LOG_TAG,
-                        "Single Location Update Received from " + location.getProvider()
-                                + " (lat, long): " + location.getLatitude() + ", "
-                                + location.getLongitude());
                 setCurrentLocation(location);
-                // if (context instanceof OnIgnitedLocationChangedListener) {
-                // ((OnIgnitedLocationChangedListener) context).onIgnitedLocationChanged(location);
-                // }
             }
-            locationManager.removeUpdates(IgnitedLegacyLastLocationFinder.this.singeUpdateListener);
-        }
-
-        @Override
-        public void onStatusChanged(String provider, int status, Bundle extras) {
-        }
-
-        @Override
-        public void onProviderEnabled(String provider) {
-        }
-
-        @Override
-        public void onProviderDisabled(String provider) {
         }
     };
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Location getBestLocationSoFar() {
+        return bestLocationSoFar;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void cancel() {
-        locationManager.removeUpdates(this.singeUpdateListener);
+        this.singleUpdateCoordinator.cancel(this.singleUpdateListener);
     }
 
     public void setCurrentLocation(Location currentLocation) {
@@ -0,0 +1,240 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.nio.ByteBuffer;
+
+import android.location.Location;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+
+/**
+ * Fixed capacity history of the location fixes received by the app, stored as
+ * {@link IgnitedLocationCodec} records in a single buffer. When the history is full the oldest
+ * fixes are overwritten.
+ * <p/>
+ * Every fix added gets a sequence number, increasing by one for each fix. Readers can keep the
+ * sequence number of the last fix they've seen and read from there, as long as it hasn't been
+ * overwritten yet (see {@link #getFirstSequence()}).
+ * <p/>
+ * The fix times are encoded relative to a base time, so the fixes in the history must be within
+ * about 24 days of each other. A fix out of that range starts the history over, unless a reader
+ * hasn't read the fixes already there yet (see {@link #setReaderSequence(long)}): then it's
+ * dropped.
+ */
+public class IgnitedLocationHistory {
+    protected static final String LOG_TAG = IgnitedLocationHistory.class.getSimpleName();
+
+    private static IgnitedLocationHistory instance;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private long baseTime = Long.MIN_VALUE;
+    private long nextSequence;
+    private int size;
+    // Sequence number of the first fix a reader still needs.
+    private long readerSequence = Long.MAX_VALUE;
+
+    /**
+     * Returns the history the library records the fixes it receives into.
+     */
+    public static synchronized IgnitedLocationHistory getInstance() {
+        if (instance == null) {
+            instance = new IgnitedLocationHistory(
+                    IgnitedLocationConstants.LOCATION_HISTORY_CAPACITY_DEFAULT);
+        }
+        return instance;
+    }
+
+    public IgnitedLocationHistory(int capacity) {
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity * IgnitedLocationCodec.RECORD_SIZE);
+    }
+
+    /**
+     * Add a fix to the history.
+     *
+     * @param libraryFlags
+     *            the flags the library knows about the fix, the ones describing its values are
+     *            taken from the location itself
+     * @return false if the fix was dropped because it's too far in time from the fixes a reader
+     *         hasn't read yet
+     */
+    public synchronized boolean add(Location location, int libraryFlags) {
+        return add(location.getLatitude(), location.getLongitude(), location.getTime(),
+                location.getAccuracy(), location.getSpeed(), location.getBearing(),
+                IgnitedLocationCodec.getProviderId(location.getProvider()),
+                libraryFlags | IgnitedLocationSupport.getValueFlags(location));
+    }
+
+    public synchronized boolean add(double latitude, double longitude, long time,
+            float accuracy, float speed, float bearing, int providerId, int flags) {
+        if (baseTime == Long.MIN_VALUE || Math.abs(time - baseTime) > Integer.MAX_VALUE) {
+            if (Math.max(readerSequence, getFirstSequence()) < nextSequence) {
+                Log.w(LOG_TAG, "Fix time out of range of the fixes not read yet, dropping it");
+                return false;
+            }
+            if (size > 0) {
+                // Tracking stopped for weeks, or the clock has been changed.
+                Log.d(LOG_TAG, "Fix time out of range, clearing history");
+                size = 0;
+            }
+            baseTime = time;
+        }
+
+        IgnitedLocationCodec.encode(latitude, longitude, time, accuracy, speed, bearing,
+                providerId, flags, baseTime, buffer, getOffset(nextSequence));
+        nextSequence++;
+        if (size < capacity) {
+            size++;
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the time the records are encoded relative to.
+     */
+    public synchronized long getBaseTime() {
+        return baseTime;
+    }
+
+    /**
+     * Returns the sequence number of the oldest fix in the history.
+     */
+    public synchronized long getFirstSequence() {
+        return nextSequence - size;
+    }
+
+    /**
+     * Keep the fixes from the given sequence number on until they've been read: a fix out of their
+     * time range is dropped instead of clearing them. The history still overwrites them when it's
+     * full.
+     *
+     * @param sequence
+     *            the sequence number of the first fix the reader hasn't read yet, or
+     *            {@link Long#MAX_VALUE} if it doesn't need any
+     */
+    public synchronized void setReaderSequence(long sequence) {
+        this.readerSequence = sequence;
+    }
+
+    /**
+     * Returns the sequence number the next fix will be given.
+     */
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Decode a fix into an existing location.
+     *
+     * @param sequence
+     *            the sequence number of the fix
+     * @param location
+     *            the location to decode into
+     * @return false if the fix isn't in the history (anymore)
+     */
+    public synchronized boolean get(long sequence, Location location) {
+        if (!contains(sequence)) {
+            return false;
+        }
+        IgnitedLocationSupport.decode(buffer, getOffset(sequence), baseTime, location);
+        return true;
+    }
+
+    /**
+     * Copy the records starting from the given sequence number to another buffer, e.g. to persist
+     * or upload them. Copies as many records as fit in the destination.
+     *
+     * @param fromSequence
+     *            the sequence number of the first fix to copy; fixes that have been overwritten
+     *            are skipped
+     * @param dst
+     *            the destination buffer, records are written from its position onwards
+     * @return the sequence number of the next fix to copy
+     */
+    public synchronized long copyTo(long fromSequence, ByteBuffer dst) {
+        long sequence = Math.max(fromSequence, getFirstSequence());
+        while (sequence < nextSequence && dst.remaining() >= IgnitedLocationCodec.RECORD_SIZE) {
+            int offset = getOffset(sequence);
+            for (int i = 0; i < IgnitedLocationCodec.RECORD_SIZE; i++) {
+                dst.put(buffer.get(offset + i));
+            }
+            sequence++;
+        }
+        return sequence;
+    }
+
+    public synchronized int getLatitudeE7(long sequence) {
+        return IgnitedLocationCodec.getLatitudeE7(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized int getLongitudeE7(long sequence) {
+        return IgnitedLocationCodec.getLongitudeE7(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized double getLatitude(long sequence) {
+        return IgnitedLocationCodec.getLatitude(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized double getLongitude(long sequence) {
+        return IgnitedLocationCodec.getLongitude(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized long getTime(long sequence) {
+        return IgnitedLocationCodec.getTime(buffer, checkedOffset(sequence), baseTime);
+    }
+
+    public synchronized float getAccuracy(long sequence) {
+        return IgnitedLocationCodec.getAccuracy(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized int getProviderId(long sequence) {
+        return IgnitedLocationCodec.getProviderId(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized int getFlags(long sequence) {
+        return IgnitedLocationCodec.getFlags(buffer, checkedOffset(sequence));
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    private boolean contains(long sequence) {
+        return sequence >= nextSequence - size && sequence < nextSequence;
+    }
+
+    private int checkedOffset(long sequence) {
+        if (!contains(sequence)) {
+            throw new IndexOutOfBoundsException("No fix with sequence number " + sequence);
+        }
+        return getOffset(sequence);
+    }
+
+    private int getOffset(long sequence) {
+        return (int) (sequence % capacity) * IgnitedLocationCodec.RECORD_SIZE;
+    }
+}
@@ -1,13 +1,29 @@
 package com.github.ignition.location.utils;
 
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_HAS_ACCURACY;
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_HAS_ALTITUDE;
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_HAS_BEARING;
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_HAS_SPEED;
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_LAST_LOCATION;
+import static com.github.ignition.location.utils.IgnitedLocationCodec.FLAG_LAST_LOCATION_TOO_OLD;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import android.content.Context;
+import android.location.Location;
 import android.location.LocationManager;
+import android.os.Bundle;
+import android.util.Log;
 
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.templates.ILastLocationFinder;
 import com.github.ignition.support.IgnitedDiagnostics;
 
 public class IgnitedLocationSupport {
+    protected static final String LOG_TAG = IgnitedLocationSupport.class.getSimpleName();
 
     /*
      * Get all enabled "physical" providers (so don't include passive provider).
@@ -22,4 +38,145 @@ public class IgnitedLocationSupport {
 
         return providers;
     }
+
+    /**
+     * Copy the values of a location into a fix.
+     * 
+     * @param libraryFlags
+     *            the flags the library knows about the location, i.e.
+     *            {@link IgnitedLocationCodec#FLAG_LAST_LOCATION}; the ones describing its values
+     *            are taken from the location itself
+     */
+    public static void toFix(Location location, int libraryFlags, IgnitedFix fix) {
+        fix.set(IgnitedLocationCodec.getProviderId(location.getProvider()), location.getTime(),
+                location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+                location.getSpeed(), location.getBearing(), location.getAltitude(),
+                libraryFlags | getValueFlags(location));
+    }
+
+    /**
+     * Copy the values of a fix into an existing location. The library flags aren't copied.
+     */
+    public static void toLocation(IgnitedFix fix, Location location) {
+        location.reset();
+        location.setProvider(fix.getProvider());
+        location.setLatitude(fix.getLatitude());
+        location.setLongitude(fix.getLongitude());
+        location.setTime(fix.getTime());
+        if (fix.hasAccuracy()) {
+            location.setAccuracy(fix.getAccuracy());
+        }
+        if (fix.hasSpeed()) {
+            location.setSpeed(fix.getSpeed());
+        }
+        if (fix.hasBearing()) {
+            location.setBearing(fix.getBearing());
+        }
+        if (fix.hasAltitude()) {
+            location.setAltitude(fix.getAltitude());
+        }
+    }
+
+    /**
+     * Encode a location with {@link IgnitedLocationCodec} at the given offset.
+     * 
+     * @throws IllegalArgumentException
+     *             if the location time is too far from the base time
+     */
+    public static void encode(Location location, long baseTime, ByteBuffer buffer, int offset) {
+        IgnitedLocationCodec.encode(location.getLatitude(), location.getLongitude(),
+                location.getTime(), location.getAccuracy(), location.getSpeed(),
+                location.getBearing(), IgnitedLocationCodec.getProviderId(location.getProvider()),
+                getFlags(location), baseTime, buffer, offset);
+    }
+
+    /**
+     * Decode an {@link IgnitedLocationCodec} record into an existing location; its previous state
+     * is discarded.
+     */
+    public static void decode(ByteBuffer buffer, int offset, long baseTime, Location location) {
+        location.reset();
+        location.setProvider(IgnitedLocationCodec.getProviderName(IgnitedLocationCodec
+                .getProviderId(buffer, offset)));
+        location.setLatitude(IgnitedLocationCodec.getLatitude(buffer, offset));
+        location.setLongitude(IgnitedLocationCodec.getLongitude(buffer, offset));
+        location.setTime(IgnitedLocationCodec.getTime(buffer, offset, baseTime));
+        int flags = IgnitedLocationCodec.getFlags(buffer, offset);
+        if ((flags & FLAG_HAS_ACCURACY) != 0) {
+            location.setAccuracy(IgnitedLocationCodec.getAccuracy(buffer, offset));
+        }
+        if ((flags & FLAG_HAS_SPEED) != 0) {
+            location.setSpeed(IgnitedLocationCodec.getSpeed(buffer, offset));
+        }
+        if ((flags & FLAG_HAS_BEARING) != 0) {
+            location.setBearing(IgnitedLocationCodec.getBearing(buffer, offset));
+        }
+    }
+
+    /**
+     * Returns the {@link IgnitedLocationCodec} flags of the location, including the ones ignition
+     * stores in its extras.
+     */
+    public static int getFlags(Location location) {
+        int flags = getValueFlags(location);
+        Bundle extras = location.getExtras();
+        if (extras != null) {
+            if (extras.getBoolean(IgnitedLocationConstants.IGNITED_LAST_LOCATION_EXTRA)) {
+                flags |= FLAG_LAST_LOCATION;
+            }
+            if (extras.getBoolean(ILastLocationFinder.LAST_LOCATION_TOO_OLD_EXTRA)) {
+                flags |= FLAG_LAST_LOCATION_TOO_OLD;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Store the library flags of the location (i.e.
+     * {@link IgnitedLocationCodec#FLAG_LAST_LOCATION}) in its extras, where the clients receiving a
+     * {@link Location} look for them. The extras are created if the location has none.
+     */
+    public static void addFlags(Location location, int flags) {
+        Bundle extras = location.getExtras();
+        if (extras == null) {
+            extras = new Bundle();
+            location.setExtras(extras);
+        }
+        if ((flags & FLAG_LAST_LOCATION) != 0) {
+            extras.putBoolean(IgnitedLocationConstants.IGNITED_LAST_LOCATION_EXTRA, true);
+        }
+        if ((flags & FLAG_LAST_LOCATION_TOO_OLD) != 0) {
+            extras.putBoolean(ILastLocationFinder.LAST_LOCATION_TOO_OLD_EXTRA, true);
+        }
+    }
+
+    /**
+     * Returns the {@link IgnitedLocationCodec} flags describing which values the location has, i.e.
+     * {@link IgnitedLocationCodec#FLAG_HAS_ACCURACY}.
+     */
+    public static int getValueFlags(Location location) {
+        int flags = 0;
+        if (location.hasAccuracy()) {
+            flags |= FLAG_HAS_ACCURACY;
+        }
+        if (location.hasSpeed()) {
+            flags |= FLAG_HAS_SPEED;
+        }
+        if (location.hasBearing()) {
+            flags |= FLAG_HAS_BEARING;
+        }
+        if (location.hasAltitude()) {
+            flags |= FLAG_HAS_ALTITUDE;
+        }
+        return flags;
+    }
+
+    /**
+     * Dump the events of the library's flight recorder to the log, i.e. when handling a bug report.
+     */
+    public static void dumpFlightRecorder() {
+        StringWriter out = new StringWriter();
+        IgnitedFlightRecorder.getInstance().dump(new PrintWriter(out));
+        Log.i(LOG_TAG, out.toString());
+    }
 }
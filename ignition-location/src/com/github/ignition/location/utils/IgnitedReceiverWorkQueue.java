@@ -0,0 +1,144 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Single threaded work queue the broadcast receivers submit their work to, so that preferences
+ * I/O, {@link PackageManager} and {@link android.location.LocationManager} calls don't run on the
+ * main thread inside onReceive.
+ * <p/>
+ * Component state changes are batched: all the changes submitted before the worker gets to them
+ * are applied in one pass, and only the last state requested for each component is applied.
+ * <p/>
+ * Note that once onReceive returns the process is no longer guaranteed to be kept alive, so only
+ * short tasks should be submitted here.
+ */
+public class IgnitedReceiverWorkQueue {
+    protected static final String LOG_TAG = IgnitedReceiverWorkQueue.class.getSimpleName();
+
+    private static IgnitedReceiverWorkQueue instance;
+
+    private Executor executor;
+
+    private final Map<ComponentName, Integer> pendingComponentStates = new LinkedHashMap<ComponentName, Integer>();
+    private boolean componentStatesFlushScheduled;
+    private PackageManager packageManager;
+
+    private final Runnable flushComponentStates = new Runnable() {
+        @Override
+        public void run() {
+            Map<ComponentName, Integer> componentStates;
+            PackageManager pm;
+            synchronized (pendingComponentStates) {
+                componentStates = new LinkedHashMap<ComponentName, Integer>(
+                        pendingComponentStates);
+                pendingComponentStates.clear();
+                componentStatesFlushScheduled = false;
+                pm = packageManager;
+            }
+
+            Log.d(LOG_TAG, "Applying " + componentStates.size() + " component state change(s)");
+            for (Entry<ComponentName, Integer> entry : componentStates.entrySet()) {
+                pm.setComponentEnabledSetting(entry.getKey(), entry.getValue(),
+                        PackageManager.DONT_KILL_APP);
+            }
+        }
+    };
+
+    public static synchronized IgnitedReceiverWorkQueue getInstance() {
+        if (instance == null) {
+            instance = new IgnitedReceiverWorkQueue();
+        }
+        return instance;
+    }
+
+    protected IgnitedReceiverWorkQueue() {
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, LOG_TAG);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Replace the executor the work is submitted to. Mainly useful in tests, to run the work
+     * synchronously.
+     *
+     * @param executor
+     *            a single threaded executor
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run the task on the worker thread.
+     *
+     * @param task
+     *            the task to run
+     */
+    public synchronized void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Queue a change of the enabled state of a component. Changes queued before the worker gets to
+     * them are applied together.
+     *
+     * @param context
+     *            Context
+     * @param component
+     *            the component class
+     * @param newState
+     *            the new state, as in {@link PackageManager#setComponentEnabledSetting}
+     */
+    public void setComponentEnabledSetting(Context context, Class<?> component, int newState) {
+        boolean scheduleFlush;
+        synchronized (pendingComponentStates) {
+            ComponentName componentName = new ComponentName(context, component);
+            // Re-insert so that the component is applied in the order it was last requested.
+            pendingComponentStates.remove(componentName);
+            pendingComponentStates.put(componentName, newState);
+            packageManager = context.getPackageManager();
+            scheduleFlush = !componentStatesFlushScheduled;
+            componentStatesFlushScheduled = true;
+        }
+        if (scheduleFlush) {
+            execute(flushComponentStates);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Process;
+import android.util.Log;
+
+import com.github.ignition.location.templates.ReverseGeocodeResolver;
+
+/**
+ * Reverse geocode cache keyed by quantized cell.
+ * <p/>
+ * The world is split into square cells about {@code precision} meters wide: a lookup for a fix
+ * falling in a cell that has already been resolved is answered from memory (LRU) or from the
+ * on-disk cache without calling the {@link ReverseGeocodeResolver}. When consecutive lookups fall
+ * in different cells, the cells ahead in the direction of movement are resolved in the background.
+ * <p/>
+ * Only the most recently used cells are kept in memory, the others are read back from the
+ * on-disk cache when needed. Lookups of cells that aren't cached call the resolver on the calling
+ * thread, so they shouldn't be made from the main thread. Call {@link #shutdown()} when the cache
+ * isn't needed anymore.
+ */
+public class IgnitedReverseGeocodeCache {
+    protected static final String LOG_TAG = IgnitedReverseGeocodeCache.class.getSimpleName();
+
+    public static final int PRECISION_DEFAULT = 100; // meters
+    public static final int MAX_ENTRIES_DEFAULT = 512;
+
+    private static final String CACHE_FILE_PREFIX = "ignited_reverse_geocode_cache_";
+    private static final String COMPACT_FILE_SUFFIX = ".tmp";
+    private static final double METERS_PER_DEGREE = 111320.0;
+    // Stored in place of a null address, so that cells without an address aren't resolved again.
+    private static final String NO_ADDRESS = "";
+
+    private final ReverseGeocodeResolver resolver;
+    private final File cacheFile;
+    private final double latitudeStep;
+    private final LinkedHashMap<Long, String> cells;
+    // Offset in the cache file of the latest record of every cell, including the evicted ones.
+    private final Map<Long, Long> offsets = new HashMap<Long, Long>();
+    private final Set<Long> pendingCells = new HashSet<Long>();
+    private final ExecutorService defaultPrefetchExecutor;
+    private Executor prefetchExecutor;
+    private RandomAccessFile cacheData;
+    private int records;
+    private boolean loaded;
+    private boolean shutdown;
+    private long lastCell = Long.MIN_VALUE;
+
+    public IgnitedReverseGeocodeCache(Context context, ReverseGeocodeResolver resolver) {
+        this(context, resolver, PRECISION_DEFAULT, MAX_ENTRIES_DEFAULT);
+    }
+
+    /**
+     * @param context
+     *            Context
+     * @param resolver
+     *            resolver used for the cells that aren't cached
+     * @param precision
+     *            width of a cell in meters
+     * @param maxEntries
+     *            maximum number of cells kept in memory
+     */
+    public IgnitedReverseGeocodeCache(Context context, ReverseGeocodeResolver resolver,
+            int precision, int maxEntries) {
+        this(context.getCacheDir(), resolver, precision, maxEntries);
+    }
+
+    /**
+     * @param cacheDir
+     *            directory the on-disk cache is kept in
+     * @param resolver
+     *            resolver used for the cells that aren't cached
+     * @param precision
+     *            width of a cell in meters
+     * @param maxEntries
+     *            maximum number of cells kept in memory
+     */
+    public IgnitedReverseGeocodeCache(File cacheDir, ReverseGeocodeResolver resolver,
+            int precision, final int maxEntries) {
+        this.resolver = resolver;
+        // Caches built with a different precision use different keys, keep them apart.
+        this.cacheFile = new File(cacheDir, CACHE_FILE_PREFIX + precision);
+        this.latitudeStep = precision / METERS_PER_DEGREE;
+        this.cells = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Long, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.defaultPrefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, LOG_TAG);
+                // Don't keep the process alive for a prefetch.
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.prefetchExecutor = defaultPrefetchExecutor;
+    }
+
+    /**
+     * Replace the executor used to resolve neighbouring cells, i.e. to run prefetches
+     * synchronously in tests.
+     */
+    public synchronized void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Stop prefetching and close the on-disk cache. Lookups made afterwards are still answered
+     * from memory or from the resolver, but nothing is prefetched or written to disk anymore.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        defaultPrefetchExecutor.shutdownNow();
+        closeQuietly(cacheData);
+        cacheData = null;
+    }
+
+    public String getAddress(Location location) throws IOException {
+        return getAddress(location.getLatitude(), location.getLongitude());
+    }
+
+    /**
+     * Returns the address of the cell the coordinates fall in, resolving it if it isn't cached.
+     *
+     * @param latitude
+     *            the latitude
+     * @param longitude
+     *            the longitude
+     * @return the address, or null if no address is known for this cell
+     * @throws IOException
+     *             if the cell isn't cached and the resolver failed
+     */
+    public String getAddress(double latitude, double longitude) throws IOException {
+        int row = getRow(latitude);
+        int column = getColumn(row, longitude);
+        long cell = toCell(row, column);
+
+        String address;
+        long previousCell;
+        synchronized (this) {
+            loadIfNeeded();
+            address = getCached(cell);
+            previousCell = lastCell;
+            lastCell = cell;
+        }
+
+        if (previousCell != Long.MIN_VALUE && previousCell != cell) {
+            prefetchAhead(getRow(previousCell), getColumn(previousCell), row, column);
+        }
+
+        if (address == null) {
+            address = resolve(cell);
+        }
+        return NO_ADDRESS.equals(address) ? null : address;
+    }
+
+    /**
+     * Returns the cached address of the cell, without resolving it.
+     *
+     * @return the address, or null if the cell isn't cached or has no address
+     */
+    public synchronized String getCachedAddress(double latitude, double longitude) {
+        loadIfNeeded();
+        int row = getRow(latitude);
+        String address = getCached(toCell(row, getColumn(row, longitude)));
+        return NO_ADDRESS.equals(address) ? null : address;
+    }
+
+    // Resolve the cells ahead of the direction of movement: the next cell and the two next to it.
+    private void prefetchAhead(int fromRow, int fromColumn, int toRow, int toColumn) {
+        int dRow = Integer.signum(toRow - fromRow);
+        int dColumn = toColumn - fromColumn;
+        // Moving across the antimeridian, the columns jump from one end of the row to the other.
+        int columns = getColumns(toRow);
+        if (dColumn > columns / 2) {
+            dColumn -= columns;
+        } else if (dColumn < -columns / 2) {
+            dColumn += columns;
+        }
+        dColumn = Integer.signum(dColumn);
+        int aheadRow = toRow + dRow;
+        int aheadColumn = toColumn + dColumn;
+        prefetch(aheadRow, aheadColumn);
+        if (dRow != 0 && dColumn != 0) {
+            // Moving diagonally.
+            prefetch(aheadRow, toColumn);
+            prefetch(toRow, aheadColumn);
+        } else if (dRow != 0) {
+            prefetch(aheadRow, aheadColumn - 1);
+            prefetch(aheadRow, aheadColumn + 1);
+        } else {
+            prefetch(aheadRow - 1, aheadColumn);
+            prefetch(aheadRow + 1, aheadColumn);
+        }
+    }
+
+    private void prefetch(int row, int column) {
+        final long cell = toCell(row, wrapColumn(row, column));
+        Executor executor;
+        synchronized (this) {
+            if (shutdown || cells.containsKey(cell) || offsets.containsKey(cell)
+                    || !pendingCells.add(cell)) {
+                return;
+            }
+            executor = prefetchExecutor;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resolve(cell);
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Unable to prefetch cell " + cell, e);
+                } finally {
+                    synchronized (IgnitedReverseGeocodeCache.this) {
+                        pendingCells.remove(cell);
+                    }
+                }
+            }
+        });
+    }
+
+    private String resolve(long cell) throws IOException {
+        int row = getRow(cell);
+        int column = getColumn(cell);
+        double latitude = (row + 0.5) * latitudeStep;
+        double longitudeStep = getLongitudeStep(row);
+        // The last column of a row is cut at the antimeridian.
+        double west = -180 + column * longitudeStep;
+        double east = Math.min(west + longitudeStep, 180);
+        String address = resolver.getAddress(latitude, (west + east) / 2);
+        if (address == null) {
+            address = NO_ADDRESS;
+        }
+        put(cell, address);
+        return address;
+    }
+
+    // Look the cell up in memory first, then on disk.
+    private String getCached(long cell) {
+        String address = cells.get(cell);
+        if (address != null) {
+            return address;
+        }
+        Long offset = offsets.get(cell);
+        if (offset == null || cacheData == null) {
+            return null;
+        }
+        try {
+            cacheData.seek(offset);
+            cacheData.readLong();
+            address = cacheData.readUTF();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to read " + cacheFile, e);
+            offsets.remove(cell);
+            return null;
+        }
+        cells.put(cell, address);
+        return address;
+    }
+
+    private synchronized void put(long cell, String address) {
+        cells.put(cell, address);
+        if (cacheData == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeLong(cell);
+            out.writeUTF(address);
+            long offset = cacheData.length();
+            cacheData.seek(offset);
+            cacheData.write(record.toByteArray());
+            offsets.put(cell, offset);
+            records++;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to write " + cacheFile, e);
+        }
+    }
+
+    private void loadIfNeeded() {
+        if (loaded || shutdown) {
+            return;
+        }
+        loaded = true;
+
+        // Only the offsets are loaded, the addresses are read when they're looked up.
+        long length = 0;
+        if (cacheFile.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+                byte[] skipped = new byte[0xffff];
+                while (true) {
+                    long cell = in.readLong();
+                    int addressLength = in.readUnsignedShort();
+                    in.readFully(skipped, 0, addressLength);
+                    offsets.put(cell, length);
+                    length += 8 + 2 + addressLength;
+                    records++;
+                }
+            } catch (EOFException e) {
+                // done
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to read " + cacheFile, e);
+            } finally {
+                closeQuietly(in);
+            }
+        }
+
+        try {
+            cacheData = new RandomAccessFile(cacheFile, "rw");
+            // Drop what's left of a record that was being written when the process died.
+            cacheData.setLength(length);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to open " + cacheFile, e);
+            closeQuietly(cacheData);
+            cacheData = null;
+            offsets.clear();
+            return;
+        }
+
+        // A cell is written again if it's resolved by two lookups at once, rewrite the file when
+        // it holds too many stale records.
+        if (records > offsets.size() * 2) {
+            compact();
+        }
+    }
+
+    // Rewrite the latest record of every cell, evicted or not, dropping the stale ones.
+    private void compact() {
+        List<Long> latestOffsets = new ArrayList<Long>(offsets.values());
+        Collections.sort(latestOffsets);
+
+        File compactFile = new File(cacheFile.getPath() + COMPACT_FILE_SUFFIX);
+        Map<Long, Long> compactOffsets = new HashMap<Long, Long>();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                    compactFile)));
+            for (long offset : latestOffsets) {
+                cacheData.seek(offset);
+                long cell = cacheData.readLong();
+                String address = cacheData.readUTF();
+                compactOffsets.put(cell, (long) out.size());
+                out.writeLong(cell);
+                out.writeUTF(address);
+            }
+            out.close();
+            out = null;
+
+            cacheData.close();
+            if (!compactFile.renameTo(cacheFile)) {
+                throw new IOException("Unable to rename " + compactFile);
+            }
+            offsets.clear();
+            offsets.putAll(compactOffsets);
+            records = compactOffsets.size();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to compact " + cacheFile, e);
+            compactFile.delete();
+        } finally {
+            closeQuietly(out);
+        }
+
+        closeQuietly(cacheData);
+        try {
+            cacheData = new RandomAccessFile(cacheFile, "rw");
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to open " + cacheFile, e);
+            cacheData = null;
+            offsets.clear();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private int getRow(double latitude) {
+        return (int) Math.floor(latitude / latitudeStep);
+    }
+
+    // Cells get narrower towards the poles, keep them roughly square.
+    private double getLongitudeStep(int row) {
+        double cos = Math.cos(Math.toRadians((row + 0.5) * latitudeStep));
+        return latitudeStep / Math.max(cos, 0.01);
+    }
+
+    // Columns are counted eastwards from the antimeridian.
+    private int getColumns(int row) {
+        return (int) Math.ceil(360 / getLongitudeStep(row));
+    }
+
+    private int getColumn(int row, double longitude) {
+        // 180 is the same meridian as -180.
+        double east = ((longitude + 180) % 360 + 360) % 360;
+        return wrapColumn(row, (int) Math.floor(east / getLongitudeStep(row)));
+    }
+
+    private int wrapColumn(int row, int column) {
+        int columns = getColumns(row);
+        return ((column % columns) + columns) % columns;
+    }
+
+    private static long toCell(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private static int getRow(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    private static int getColumn(long cell) {
+        return (int) cell;
+    }
+}
@@ -0,0 +1,228 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import static com.github.ignition.support.IgnitedDiagnostics.GINGERBREAD;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.Criteria;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.templates.OnSingleLocationUpdateListener;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.support.IgnitedDiagnostics;
+
+/**
+ * Process-wide coordinator for one-shot location updates.
+ * <p/>
+ * At most one one-shot request is in flight at any time: listeners requesting an update while one
+ * is already running are attached to it, and all of them are notified when it completes or times
+ * out. On Gingerbread and above the request is made with
+ * {@link LocationManager#requestSingleUpdate(Criteria, PendingIntent)} using a single, reused
+ * {@link PendingIntent}; on older platforms a {@link LocationListener} removes itself after the
+ * first update.
+ */
+public class IgnitedSingleUpdateCoordinator {
+    protected static final String LOG_TAG = IgnitedSingleUpdateCoordinator.class.getSimpleName();
+
+    public static final String SINGLE_LOCATION_UPDATE_ACTION = "com.github.ignition.location.SINGLE_LOCATION_UPDATE_ACTION";
+
+    private static IgnitedSingleUpdateCoordinator instance;
+
+    private final Context appContext;
+    private final LocationManager locationManager;
+    private final Criteria criteria;
+    private final Scheduler scheduler;
+    private final boolean useSingleUpdate;
+    private PendingIntent singleUpdatePI;
+
+    private final List<OnSingleLocationUpdateListener> waiters = new ArrayList<OnSingleLocationUpdateListener>();
+    private boolean inFlight;
+    private long timeout = IgnitedLocationConstants.SINGLE_LOCATION_UPDATE_TIMEOUT_DEFAULT;
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Log.d(LOG_TAG, "Single location update timed out");
+            complete(null);
+        }
+    };
+
+    public static synchronized IgnitedSingleUpdateCoordinator getInstance(Context context) {
+        if (instance == null) {
+            instance = new IgnitedSingleUpdateCoordinator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    protected IgnitedSingleUpdateCoordinator(Context appContext) {
+        this.appContext = appContext;
+        this.locationManager = (LocationManager) appContext
+                .getSystemService(Context.LOCATION_SERVICE);
+        // Coarse accuracy is specified here to get the fastest possible result.
+        // The calling Activity will likely (or have already) request ongoing
+        // updates using the Fine location provider.
+        this.criteria = new Criteria();
+        this.criteria.setAccuracy(Criteria.ACCURACY_COARSE);
+        this.scheduler = IgnitedClock.newScheduler();
+        this.useSingleUpdate = IgnitedDiagnostics.supportsApiLevel(GINGERBREAD);
+    }
+
+    public synchronized void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Request a one-shot location update. If one is already in flight the listener is attached to
+     * it instead of starting a new one.
+     *
+     * @param listener
+     *            the listener to notify once the update completes
+     */
+    public synchronized void requestSingleUpdate(OnSingleLocationUpdateListener listener) {
+        if (!waiters.contains(listener)) {
+            waiters.add(listener);
+        }
+        if (inFlight) {
+            Log.d(LOG_TAG, "Single location update already in flight, " + waiters.size()
+                    + " waiter(s)");
+            return;
+        }
+
+        if (useSingleUpdate) {
+            if (singleUpdatePI == null) {
+                Intent updateIntent = new Intent(SINGLE_LOCATION_UPDATE_ACTION);
+                singleUpdatePI = PendingIntent.getBroadcast(appContext, 0, updateIntent,
+                        PendingIntent.FLAG_UPDATE_CURRENT);
+            }
+            appContext.registerReceiver(singleUpdateReceiver, new IntentFilter(
+                    SINGLE_LOCATION_UPDATE_ACTION));
+            locationManager.requestSingleUpdate(criteria, singleUpdatePI);
+        } else {
+            // Prior to Gingerbread "one-shot" updates weren't available, so we need
+            // to implement this manually.
+            String provider = locationManager.getBestProvider(criteria, true);
+            if (provider == null) {
+                waiters.clear();
+                return;
+            }
+            locationManager.requestLocationUpdates(provider, 0, 0, singleUpdateListener,
+                    Looper.getMainLooper());
+        }
+        inFlight = true;
+        scheduler.postDelayed(timeoutRunnable, timeout);
+    }
+
+    /**
+     * Detach the listener from the in-flight request. The request is cancelled when no listener is
+     * left waiting for it.
+     *
+     * @param listener
+     *            the listener to detach
+     */
+    public synchronized void cancel(OnSingleLocationUpdateListener listener) {
+        waiters.remove(listener);
+        if (waiters.isEmpty() && inFlight) {
+            Log.d(LOG_TAG, "No waiters left, cancelling single location update");
+            stop();
+        }
+    }
+
+    private void complete(Location location) {
+        List<OnSingleLocationUpdateListener> listeners;
+        synchronized (this) {
+            if (!inFlight) {
+                return;
+            }
+            stop();
+            listeners = new ArrayList<OnSingleLocationUpdateListener>(waiters);
+            waiters.clear();
+        }
+        for (OnSingleLocationUpdateListener listener : listeners) {
+            listener.onSingleLocationUpdate(location);
+        }
+    }
+
+    private void stop() {
+        scheduler.removeCallbacks(timeoutRunnable);
+        if (useSingleUpdate) {
+            locationManager.removeUpdates(singleUpdatePI);
+            appContext.unregisterReceiver(singleUpdateReceiver);
+        } else {
+            locationManager.removeUpdates(singleUpdateListener);
+        }
+        inFlight = false;
+    }
+
+    private void onLocationReceived(Location location) {
+        if (location != null) {
+            Log.d(LOG_TAG,
+                    "Single Location Update Received from " + location.getProvider()
+                            + " (lat, long): " + location.getLatitude() + ", "
+                            + location.getLongitude());
+        }
+        complete(location);
+    }
+
+    /**
+     * This {@link BroadcastReceiver} listens for the one-shot location update on Gingerbread and
+     * above.
+     */
+    protected BroadcastReceiver singleUpdateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String key = LocationManager.KEY_LOCATION_CHANGED;
+            if (intent.hasExtra(key)) {
+                onLocationReceived((Location) intent.getExtras().get(key));
+            }
+        }
+    };
+
+    /**
+     * This {@link LocationListener} listens for the first location update prior to Gingerbread.
+     */
+    protected LocationListener singleUpdateListener = new LocationListener() {
+        @Override
+        public void onLocationChanged(Location location) {
+            onLocationReceived(location);
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    };
+}
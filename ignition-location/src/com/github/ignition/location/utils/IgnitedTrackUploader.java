@@ -0,0 +1,308 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.receivers.ConnectivityChangedReceiver;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.templates.TrackUploadTransport;
+
+/**
+ * Uploads the fixes recorded in the {@link IgnitedLocationHistory} in batches, instead of waking
+ * the radio up for every fix.
+ * <p/>
+ * A batch is flushed when it reaches the maximum size, when its oldest fix reaches the maximum age
+ * (even if no other fix follows it), or when connectivity is restored. Batches are delta encoded
+ * and compressed by {@link IgnitedTrackEncoder} and handed to the {@link TrackUploadTransport} set
+ * with {@link #setTransport(TrackUploadTransport)}; nothing is uploaded until a transport is set.
+ * A failed upload is retried with an exponential backoff. Last known fixes aren't uploaded, they
+ * were when they were fresh.
+ * <p/>
+ * When there's no connectivity the {@link ConnectivityChangedReceiver} is enabled; it disables
+ * itself and triggers a flush once the device is connected again.
+ */
+public class IgnitedTrackUploader {
+    protected static final String LOG_TAG = IgnitedTrackUploader.class.getSimpleName();
+
+    private static IgnitedTrackUploader instance;
+
+    private final Context appContext;
+    private final IgnitedLocationHistory history;
+    private final IgnitedTrackEncoder encoder = new IgnitedTrackEncoder();
+    private final Scheduler scheduler = IgnitedClock.newScheduler();
+    private Executor executor = Executors.newSingleThreadExecutor();
+    private TrackUploadTransport transport;
+    private int maxBatchSize = IgnitedLocationConstants.TRACK_UPLOAD_MAX_BATCH_SIZE_DEFAULT;
+    private long maxBatchAge = IgnitedLocationConstants.TRACK_UPLOAD_MAX_BATCH_AGE_DEFAULT;
+
+    private ByteBuffer records;
+    // Sequence number of the first fix that hasn't been uploaded yet.
+    private long uploadedSequence;
+    private boolean flushScheduled;
+    // Whether the scheduled flush should upload all the pending fixes, not just a full batch.
+    private boolean flushForced;
+    // Sequence number of the first fix of the batch the age flush is posted for.
+    private long ageFlushSequence = -1;
+    private long retryDelay = IgnitedLocationConstants.TRACK_UPLOAD_RETRY_DELAY_DEFAULT;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            boolean force;
+            synchronized (IgnitedTrackUploader.this) {
+                flushScheduled = false;
+                force = flushForced;
+                flushForced = false;
+            }
+            flushNow(force);
+        }
+    };
+
+    private final Runnable ageFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (IgnitedTrackUploader.this) {
+                ageFlushSequence = -1;
+            }
+            flushIfNeeded();
+        }
+    };
+
+    // The failed batch was due already, so the retry uploads everything pending.
+    private final Runnable retry = new Runnable() {
+        @Override
+        public void run() {
+            flushIfNeeded(true);
+        }
+    };
+
+    public static synchronized IgnitedTrackUploader getInstance(Context context) {
+        if (instance == null) {
+            instance = new IgnitedTrackUploader(context.getApplicationContext(),
+                    IgnitedLocationHistory.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Notify the uploader, if one has been created, that a fix has been added to the history.
+     */
+    public static void onLocationAdded() {
+        IgnitedTrackUploader uploader;
+        synchronized (IgnitedTrackUploader.class) {
+            uploader = instance;
+        }
+        if (uploader != null) {
+            uploader.flushIfNeeded();
+        }
+    }
+
+    /**
+     * Notify the uploader, if one has been created, that connectivity has been restored.
+     */
+    public static void onConnectivityRestored() {
+        IgnitedTrackUploader uploader;
+        synchronized (IgnitedTrackUploader.class) {
+            uploader = instance;
+        }
+        if (uploader != null) {
+            uploader.flushIfNeeded(true);
+        }
+    }
+
+    protected IgnitedTrackUploader(Context appContext, IgnitedLocationHistory history) {
+        this.appContext = appContext;
+        this.history = history;
+        // Only upload the fixes received from now on.
+        this.uploadedSequence = history.getNextSequence();
+    }
+
+    public synchronized void setTransport(TrackUploadTransport transport) {
+        this.transport = transport;
+        // Don't let a fix far in time clear the history before the pending ones are uploaded.
+        history.setReaderSequence(transport != null ? uploadedSequence : Long.MAX_VALUE);
+    }
+
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public synchronized void setMaxBatchAge(long maxBatchAge) {
+        this.maxBatchAge = maxBatchAge;
+    }
+
+    /**
+     * Replace the executor the uploads run on, i.e. to run them synchronously in tests.
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Upload all the pending fixes, regardless of the batch size and age.
+     */
+    public void flush() {
+        flushIfNeeded(true);
+    }
+
+    /**
+     * Upload the pending fixes if the batch has reached the maximum size or age; otherwise make
+     * sure they're uploaded once the batch gets too old.
+     */
+    public void flushIfNeeded() {
+        flushIfNeeded(false);
+    }
+
+    private void flushIfNeeded(boolean force) {
+        synchronized (this) {
+            if (transport == null) {
+                return;
+            }
+            if (flushScheduled) {
+                flushForced |= force;
+                return;
+            }
+            long first = Math.max(uploadedSequence, history.getFirstSequence());
+            long pending = history.getNextSequence() - first;
+            if (pending <= 0) {
+                return;
+            }
+            long age = IgnitedClock.currentTimeMillis() - history.getTime(first);
+            if (!force && pending < maxBatchSize && age < maxBatchAge) {
+                // Nothing may be added to the history for a while, don't wait for it.
+                if (ageFlushSequence != first) {
+                    ageFlushSequence = first;
+                    scheduler.removeCallbacks(ageFlush);
+                    scheduler.postDelayed(ageFlush, maxBatchAge - age);
+                }
+                return;
+            }
+            flushScheduled = true;
+            flushForced = force;
+            ageFlushSequence = -1;
+            scheduler.removeCallbacks(ageFlush);
+        }
+        executor.execute(flush);
+    }
+
+    private void flushNow(boolean force) {
+        if (!isConnected()) {
+            Log.d(LOG_TAG, "No connectivity, waiting for it to be restored");
+            // The receiver disables itself again once we're connected.
+            IgnitedReceiverWorkQueue.getInstance().setComponentEnabledSetting(appContext,
+                    ConnectivityChangedReceiver.class,
+                    PackageManager.COMPONENT_ENABLED_STATE_ENABLED);
+            return;
+        }
+
+        TrackUploadTransport transport;
+        int count;
+        long baseTime, nextSequence;
+        synchronized (this) {
+            transport = this.transport;
+            int capacity = Math.max(maxBatchSize, 1) * IgnitedLocationCodec.RECORD_SIZE;
+            if (records == null || records.capacity() < capacity) {
+                records = ByteBuffer.allocate(capacity);
+            }
+            records.clear();
+            // Lock the history so that the base time matches the records copied.
+            synchronized (history) {
+                long first = Math.max(uploadedSequence, history.getFirstSequence());
+                if (first > uploadedSequence) {
+                    Log.w(LOG_TAG, (first - uploadedSequence)
+                            + " fixes were overwritten before being uploaded");
+                }
+                baseTime = history.getBaseTime();
+                nextSequence = history.copyTo(first, records);
+                count = skipLastLocations(records, (int) (nextSequence - first));
+            }
+        }
+
+        if (count > 0) {
+            int length = encoder.encode(records, count, baseTime);
+            try {
+                transport.upload(encoder.getBatch(), length);
+            } catch (IOException e) {
+                long delay;
+                synchronized (this) {
+                    delay = retryDelay;
+                    retryDelay = Math.min(retryDelay * 2,
+                            IgnitedLocationConstants.TRACK_UPLOAD_MAX_RETRY_DELAY);
+                    scheduler.removeCallbacks(retry);
+                    scheduler.postDelayed(retry, delay);
+                }
+                Log.w(LOG_TAG, "Unable to upload " + count + " fixes, retrying in " + delay
+                        + "ms", e);
+                return;
+            }
+            Log.d(LOG_TAG, "Uploaded " + count + " fixes in " + length + " bytes ("
+                    + encoder.getUncompressedLength() + " uncompressed)");
+        }
+
+        synchronized (this) {
+            retryDelay = IgnitedLocationConstants.TRACK_UPLOAD_RETRY_DELAY_DEFAULT;
+            scheduler.removeCallbacks(retry);
+            uploadedSequence = nextSequence;
+            if (this.transport != null) {
+                history.setReaderSequence(uploadedSequence);
+            }
+        }
+        // Drains what's left after a forced flush, otherwise flushes the next batch if it's already
+        // full or posts its age flush.
+        flushIfNeeded(force);
+    }
+
+    // Drops the records of last known fixes, moving the others up. Returns how many are left.
+    private static int skipLastLocations(ByteBuffer records, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = i * IgnitedLocationCodec.RECORD_SIZE;
+            if ((IgnitedLocationCodec.getFlags(records, offset)
+                    & IgnitedLocationCodec.FLAG_LAST_LOCATION) != 0) {
+                continue;
+            }
+            if (kept != i) {
+                int keptOffset = kept * IgnitedLocationCodec.RECORD_SIZE;
+                for (int j = 0; j < IgnitedLocationCodec.RECORD_SIZE; j++) {
+                    records.put(keptOffset + j, records.get(offset + j));
+                }
+            }
+            kept++;
+        }
+        return kept;
+    }
+
+    /**
+     * Returns whether there's connectivity to upload the batches with.
+     */
+    protected boolean isConnected() {
+        ConnectivityManager cm = (ConnectivityManager) appContext
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return activeNetwork != null && activeNetwork.isConnected();
+    }
+}
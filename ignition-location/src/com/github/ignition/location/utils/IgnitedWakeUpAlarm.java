@@ -0,0 +1,93 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.templates.WakeUpAlarm;
+
+/**
+ * {@link WakeUpAlarm} set with the AlarmManager as an
+ * {@link AlarmManager#ELAPSED_REALTIME_WAKEUP} alarm. The alarm is delivered to a receiver that's
+ * only registered while it's set, so it doesn't need to be declared in the manifest; the system
+ * keeps the device awake until the listener returns.
+ */
+public class IgnitedWakeUpAlarm implements WakeUpAlarm {
+
+    private final Context appContext;
+    private AlarmManager alarmManager;
+    private PendingIntent wakeUpIntent;
+    private volatile Runnable listener;
+    private boolean registered;
+
+    private final BroadcastReceiver wakeUpReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Runnable listener = IgnitedWakeUpAlarm.this.listener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    };
+
+    public IgnitedWakeUpAlarm(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    @Override
+    public synchronized void set(long elapsedRealtime, Runnable listener) {
+        this.listener = listener;
+        if (!registered) {
+            appContext.registerReceiver(wakeUpReceiver, new IntentFilter(
+                    IgnitedLocationConstants.WAKE_UP_ACTION));
+            registered = true;
+        }
+        getAlarmManager().set(AlarmManager.ELAPSED_REALTIME_WAKEUP, elapsedRealtime,
+                getWakeUpIntent());
+    }
+
+    @Override
+    public synchronized void cancel() {
+        if (!registered) {
+            return;
+        }
+        getAlarmManager().cancel(getWakeUpIntent());
+        appContext.unregisterReceiver(wakeUpReceiver);
+        registered = false;
+        listener = null;
+    }
+
+    private AlarmManager getAlarmManager() {
+        if (alarmManager == null) {
+            alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+        }
+        return alarmManager;
+    }
+
+    private PendingIntent getWakeUpIntent() {
+        if (wakeUpIntent == null) {
+            wakeUpIntent = PendingIntent.getBroadcast(appContext, 0, new Intent(
+                    IgnitedLocationConstants.WAKE_UP_ACTION), PendingIntent.FLAG_UPDATE_CURRENT);
+        }
+        return wakeUpIntent;
+    }
+}
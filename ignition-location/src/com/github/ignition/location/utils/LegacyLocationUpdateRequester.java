@@ -74,6 +74,6 @@ public class LegacyLocationUpdateRequester extends LocationUpdateRequester {
         // transitioned beyond the minimum time and
         // distance before initiating a background nearby loction update.
         this.alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
-                System.currentTimeMillis() + minTime, minDistance, pendingIntent);
+                IgnitedClock.elapsedRealtime() + minTime, minTime, pendingIntent);
     }
 }
@@ -0,0 +1,101 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import android.location.Location;
+
+/**
+ * Copy of the values of a location fix, delivered to
+ * {@link com.github.ignition.location.templates.OnLocationSampleListener}s.
+ * <p/>
+ * Samples are pooled: get one with {@link #obtain()} and give it back with {@link #recycle()}, so
+ * that delivering a fix doesn't allocate. Unlike the {@link Location} extras, the library flags
+ * (see the {@code FLAG_*} constants of {@link IgnitedLocationCodec}) are kept in an int.
+ */
+public final class LocationSample extends IgnitedFix {
+
+    private static final int MAX_POOL_SIZE = 8;
+
+    private static final Object poolLock = new Object();
+    private static LocationSample pool;
+    private static int poolSize;
+
+    private LocationSample next;
+
+    private LocationSample() {
+    }
+
+    /**
+     * Returns a sample from the pool, or a new one if the pool is empty.
+     */
+    public static LocationSample obtain() {
+        synchronized (poolLock) {
+            if (pool != null) {
+                LocationSample sample = pool;
+                pool = sample.next;
+                sample.next = null;
+                poolSize--;
+                return sample;
+            }
+        }
+        return new LocationSample();
+    }
+
+    /**
+     * Returns a sample from the pool holding a copy of the given fix.
+     */
+    public static LocationSample obtain(IgnitedFix other) {
+        LocationSample sample = obtain();
+        sample.set(other);
+        return sample;
+    }
+
+    /**
+     * Give the sample back to the pool. It mustn't be used after this.
+     */
+    public void recycle() {
+        clear();
+        synchronized (poolLock) {
+            if (poolSize < MAX_POOL_SIZE) {
+                next = pool;
+                pool = this;
+                poolSize++;
+            }
+        }
+    }
+
+    /**
+     * Copy the values of a location.
+     * 
+     * @param location
+     *            the location to copy
+     * @param libraryFlags
+     *            the flags the library knows about the location, i.e.
+     *            {@link IgnitedLocationCodec#FLAG_LAST_LOCATION}; the ones describing its values
+     *            are taken from the location itself
+     */
+    public void set(Location location, int libraryFlags) {
+        IgnitedLocationSupport.toFix(location, libraryFlags, this);
+    }
+
+    /**
+     * Copy the values of the sample into an existing location, e.g. to pass it to an API that
+     * needs one. The library flags aren't copied.
+     */
+    public void toLocation(Location location) {
+        IgnitedLocationSupport.toLocation(this, location);
+    }
+}
@@ -0,0 +1,162 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.content.Context;
+import android.location.Location;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+
+/**
+ * Gate used by the passive receiver to drop location updates it has already seen, and to avoid
+ * processing updates more often than {@link #setMinProcessingInterval(long)}: a
+ * {@link FixFilterChain} of a {@link DuplicateFixFilter} and a {@link MinIntervalFixFilter}.
+ * <p/>
+ * The last processed fix is kept in memory and in a small memory mapped file, so that receivers
+ * running in other processes of the same app share the same record. Concurrent writes from
+ * different processes aren't locked: in the worst case an update is processed twice.
+ */
+public class PassiveLocationGate {
+    protected static final String LOG_TAG = PassiveLocationGate.class.getSimpleName();
+
+    private static final String GATE_FILE = "ignited_passive_location_gate";
+
+    // Record layout: processing time, followed by the fix encoded relative to it.
+    private static final int PROCESSED_AT = 0;
+    private static final int FIX = 8;
+    private static final int RECORD_SIZE = FIX + IgnitedLocationCodec.RECORD_SIZE;
+
+    private static PassiveLocationGate instance;
+
+    private final MappedByteBuffer record;
+    private final DuplicateFixFilter duplicateFilter = new DuplicateFixFilter();
+    private final MinIntervalFixFilter intervalFilter = new MinIntervalFixFilter(
+            IgnitedLocationConstants.PASSIVE_LOCATION_UPDATES_MIN_PROCESSING_INTERVAL_DEFAULT);
+    private final FixFilterChain filters = new FixFilterChain(duplicateFilter, intervalFilter);
+    private final IgnitedFix fix = new IgnitedFix();
+
+    /**
+     * Returns the gate shared by all the receivers in this process.
+     *
+     * @param context
+     *            Context
+     */
+    public static synchronized PassiveLocationGate getInstance(Context context) {
+        if (instance == null) {
+            instance = new PassiveLocationGate(new File(context.getApplicationContext()
+                    .getFilesDir(), GATE_FILE));
+        }
+        return instance;
+    }
+
+    protected PassiveLocationGate(File file) {
+        this.record = map(file);
+        if (record != null) {
+            readRecord();
+        }
+    }
+
+    private static MappedByteBuffer map(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            // The mapping stays valid after the channel has been closed.
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, RECORD_SIZE);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to map " + file + ", falling back to an in-memory record", e);
+            return null;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    public synchronized void setMinProcessingInterval(long minProcessingInterval) {
+        intervalFilter.setMinInterval(minProcessingInterval);
+    }
+
+    /**
+     * Returns true if enough time has passed since the last processed update to look for a new
+     * location. Cheap enough to be called before reading any preference or querying the providers.
+     *
+     * @param now
+     *            current time in milliseconds
+     */
+    public synchronized boolean isDue(long now) {
+        refresh();
+        return intervalFilter.isDue(now);
+    }
+
+    /**
+     * Returns true and records the location as processed if it is neither a duplicate of the last
+     * processed one nor too soon after it.
+     *
+     * @param location
+     *            the passive location update
+     * @param now
+     *            current time in milliseconds
+     */
+    public synchronized boolean accept(Location location, long now) {
+        refresh();
+        IgnitedLocationSupport.toFix(location, 0, fix);
+        if (filters.filter(fix, now) != FixFilterChain.ACCEPTED) {
+            return false;
+        }
+        writeRecord(now);
+        return true;
+    }
+
+    // Pick up updates processed by other processes.
+    private void refresh() {
+        if (record != null && record.getLong(PROCESSED_AT) != intervalFilter.getLastAcceptedAt()) {
+            readRecord();
+        }
+    }
+
+    private void readRecord() {
+        long processedAt = record.getLong(PROCESSED_AT);
+        intervalFilter.setLastAcceptedAt(processedAt);
+        duplicateFilter.setLast(IgnitedLocationCodec.getTime(record, FIX, processedAt),
+                IgnitedLocationCodec.getLatitudeE7(record, FIX),
+                IgnitedLocationCodec.getLongitudeE7(record, FIX));
+    }
+
+    private void writeRecord(long processedAt) {
+        if (record == null) {
+            return;
+        }
+        try {
+            IgnitedLocationCodec.encode(fix, processedAt, record, FIX);
+        } catch (IllegalArgumentException e) {
+            // The fix time is way off, only the processing time is shared.
+            Log.w(LOG_TAG, e.getMessage());
+        }
+        // Written last, other processes use it to detect a new record.
+        record.putLong(PROCESSED_AT, processedAt);
+    }
+}
@@ -0,0 +1,38 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.batch;
+
+/**
+ * Interface definition for a callback receiving the fixes of a device once they've been
+ * reprocessed.
+ * 
+ * Called from the worker threads, as soon as each device is done, so implementations must be
+ * thread safe. The chunk is only valid until the call returns.
+ */
+public interface BatchOutput {
+
+    /**
+     * @param chunk
+     *            the chunk being reprocessed; the fixes accepted are the ones for which
+     *            {@link FixChunk#isAccepted(int)} returns true
+     * @param from
+     *            index of the first fix of the device in the chunk
+     * @param to
+     *            index after the last fix of the device
+     */
+    void onDeviceProcessed(long deviceId, FixChunk chunk, int from, int to);
+
+}
@@ -0,0 +1,209 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.batch;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.ignition.location.utils.DuplicateFixFilter;
+import com.github.ignition.location.utils.FixFilterChain;
+import com.github.ignition.location.utils.IgnitedFix;
+import com.github.ignition.location.utils.MinIntervalFixFilter;
+import com.github.ignition.location.utils.SignificantChangeFixFilter;
+
+/**
+ * Runs uploaded fixes through the same {@link FixFilterChain}s the devices apply, on all cores.
+ * <p/>
+ * Fixes are fed a {@link FixChunk} at a time. Each chunk is sorted by device and split into the
+ * runs of fixes of each device; runs are processed in parallel on a {@link ForkJoinPool}, splitting
+ * the chunk in halves until a task holds a single device or few enough fixes. The fixes of a device
+ * are always processed in order by a single thread, with a chain that's kept from one chunk to the
+ * next, so the result doesn't depend on the number of threads or on how the fixes are chunked.
+ * <p/>
+ * Results are streamed to the {@link BatchOutput} as each device is done, so memory is bounded by
+ * the chunk and by the filter state of each device, which can be dropped with
+ * {@link #forgetDevice(long)} once a device's tracks are over.
+ */
+public class BatchReprocessor {
+
+    // A task with fewer fixes than this processes them instead of splitting.
+    public static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private final ForkJoinPool pool;
+    private final FixFilterChainFactory chainFactory;
+    private final BatchOutput output;
+    private final ConcurrentHashMap<Long, FixFilterChain> chains;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong acceptedCount = new AtomicLong();
+
+    // Start of the run of fixes of each device in the chunk being processed, plus its end.
+    private int[] runStarts = new int[0];
+
+    /**
+     * @param parallelism
+     *            number of worker threads
+     * @param output
+     *            receives the results, or null to only count them
+     */
+    public BatchReprocessor(int parallelism, FixFilterChainFactory chainFactory,
+            BatchOutput output) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.chains = new ConcurrentHashMap<Long, FixFilterChain>(1024, 0.75f, parallelism);
+        this.chainFactory = chainFactory;
+        this.output = output;
+    }
+
+    /**
+     * Returns a factory of the chains the passive receiver applies: duplicates, updates processed
+     * too often and fixes that aren't a significant change are dropped.
+     * 
+     * @param minProcessingInterval
+     *            see PassiveLocationGate.setMinProcessingInterval()
+     * @param minTime
+     *            the location updates interval
+     * @param minDistance
+     *            the location updates distance diff
+     */
+    public static FixFilterChainFactory passiveReceiverRules(final long minProcessingInterval,
+            final long minTime, final float minDistance) {
+        return new FixFilterChainFactory() {
+            @Override
+            public FixFilterChain newChain(long deviceId) {
+                return new FixFilterChain(new DuplicateFixFilter(), new MinIntervalFixFilter(
+                        minProcessingInterval), new SignificantChangeFixFilter(minTime,
+                        minDistance));
+            }
+        };
+    }
+
+    /**
+     * Reprocess a chunk, blocking until all its fixes are done. The chunk is sorted by device.
+     * Chunks are processed one at a time: don't call this concurrently.
+     */
+    public void process(FixChunk chunk) {
+        chunk.sortByDevice();
+
+        int size = chunk.size();
+        if (size == 0) {
+            return;
+        }
+        if (runStarts.length < size + 1) {
+            runStarts = new int[size + 1];
+        }
+        int runCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || chunk.getDeviceId(i) != chunk.getDeviceId(i - 1)) {
+                runStarts[runCount++] = i;
+            }
+        }
+        runStarts[runCount] = size;
+
+        pool.invoke(new ReprocessTask(chunk, runStarts, 0, runCount));
+    }
+
+    /**
+     * Drop the filter state of a device; its next fix is processed as its first one.
+     */
+    public void forgetDevice(long deviceId) {
+        chains.remove(deviceId);
+    }
+
+    public void forgetAllDevices() {
+        chains.clear();
+    }
+
+    public int getDeviceCount() {
+        return chains.size();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private FixFilterChain getChain(long deviceId) {
+        FixFilterChain chain = chains.get(deviceId);
+        if (chain == null) {
+            chain = chainFactory.newChain(deviceId);
+            // Each device is in a single run of the chunk, so no other task looks it up.
+            chains.put(deviceId, chain);
+        }
+        return chain;
+    }
+
+    private class ReprocessTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FixChunk chunk;
+        private final int[] runStarts;
+        private final int fromRun, toRun;
+
+        ReprocessTask(FixChunk chunk, int[] runStarts, int fromRun, int toRun) {
+            this.chunk = chunk;
+            this.runStarts = runStarts;
+            this.fromRun = fromRun;
+            this.toRun = toRun;
+        }
+
+        @Override
+        protected void compute() {
+            int fixCount = runStarts[toRun] - runStarts[fromRun];
+            if (toRun - fromRun > 1 && fixCount > SEQUENTIAL_THRESHOLD) {
+                int mid = (fromRun + toRun) >>> 1;
+                invokeAll(new ReprocessTask(chunk, runStarts, fromRun, mid), new ReprocessTask(
+                        chunk, runStarts, mid, toRun));
+                return;
+            }
+
+            IgnitedFix fix = new IgnitedFix();
+            long accepted = 0;
+            for (int run = fromRun; run < toRun; run++) {
+                int from = runStarts[run], to = runStarts[run + 1];
+                long deviceId = chunk.getDeviceId(from);
+                FixFilterChain chain = getChain(deviceId);
+                for (int i = from; i < to; i++) {
+                    chunk.get(i, fix);
+                    // Reprocessing: the fix is processed when it was received.
+                    boolean isAccepted = chain.filter(fix, fix.getTime())
+                            == FixFilterChain.ACCEPTED;
+                    chunk.setAccepted(i, isAccepted);
+                    if (isAccepted) {
+                        accepted++;
+                    }
+                }
+                if (output != null) {
+                    output.onDeviceProcessed(deviceId, chunk, from, to);
+                }
+            }
+            processedCount.addAndGet(fixCount);
+            acceptedCount.addAndGet(accepted);
+        }
+    }
+}
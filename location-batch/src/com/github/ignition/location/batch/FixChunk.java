@@ -0,0 +1,290 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.batch;
+
+import java.nio.ByteBuffer;
+
+import com.github.ignition.location.utils.IgnitedFix;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+
+/**
+ * A fixed size chunk of uploaded fixes from any number of devices, stored in primitive columns.
+ * <p/>
+ * Chunks are meant to be reused: fill one, hand it to the {@link BatchReprocessor}, then
+ * {@link #clear()} it and fill it again, so that reprocessing any amount of fixes takes the memory
+ * of a chunk. Not thread safe, except for reading while it's being processed.
+ */
+public class FixChunk {
+
+    private final int capacity;
+    private int size;
+
+    private final long[] deviceIds;
+    private final long[] times;
+    private final double[] latitudes, longitudes;
+    private final float[] accuracies, speeds, bearings;
+    private final byte[] providerIds;
+    private final int[] flags;
+    private final boolean[] accepted;
+
+    // Scratch space of the sort.
+    private int[] order, orderScratch;
+    private long[] longScratch;
+    private double[] doubleScratch;
+    private float[] floatScratch;
+    private byte[] byteScratch;
+    private int[] intScratch;
+
+    public FixChunk(int capacity) {
+        this.capacity = capacity;
+        deviceIds = new long[capacity];
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+        speeds = new float[capacity];
+        bearings = new float[capacity];
+        providerIds = new byte[capacity];
+        flags = new int[capacity];
+        accepted = new boolean[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Append a fix.
+     * 
+     * @throws IllegalStateException
+     *             if the chunk is full
+     */
+    public void add(long deviceId, long time, double latitude, double longitude, float accuracy,
+            float speed, float bearing, int providerId, int flags) {
+        if (size == capacity) {
+            throw new IllegalStateException("The chunk is full");
+        }
+        deviceIds[size] = deviceId;
+        times[size] = time;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        accuracies[size] = accuracy;
+        speeds[size] = speed;
+        bearings[size] = bearing;
+        providerIds[size] = (byte) providerId;
+        this.flags[size] = flags;
+        accepted[size] = false;
+        size++;
+    }
+
+    public void add(long deviceId, IgnitedFix fix) {
+        add(deviceId, fix.getTime(), fix.getLatitude(), fix.getLongitude(), fix.getAccuracy(),
+                fix.getSpeed(), fix.getBearing(), fix.getProviderId(), fix.getFlags());
+    }
+
+    /**
+     * Append {@link IgnitedLocationCodec} records, i.e. the ones the device uploads.
+     * 
+     * @param records
+     *            the records, from position 0
+     * @return the number of records added, fewer than {@code count} if the chunk is full
+     */
+    public int addRecords(long deviceId, ByteBuffer records, int count, long baseTime) {
+        int added = Math.min(count, capacity - size);
+        for (int i = 0; i < added; i++) {
+            int offset = i * IgnitedLocationCodec.RECORD_SIZE;
+            add(deviceId, IgnitedLocationCodec.getTime(records, offset, baseTime),
+                    IgnitedLocationCodec.getLatitude(records, offset),
+                    IgnitedLocationCodec.getLongitude(records, offset),
+                    IgnitedLocationCodec.getAccuracy(records, offset),
+                    IgnitedLocationCodec.getSpeed(records, offset),
+                    IgnitedLocationCodec.getBearing(records, offset),
+                    IgnitedLocationCodec.getProviderId(records, offset),
+                    IgnitedLocationCodec.getFlags(records, offset));
+        }
+        return added;
+    }
+
+    /**
+     * Copy a fix of the chunk into an existing one.
+     */
+    public void get(int index, IgnitedFix fix) {
+        fix.set(providerIds[index], times[index], latitudes[index], longitudes[index],
+                accuracies[index], speeds[index], bearings[index], 0, flags[index]);
+    }
+
+    public long getDeviceId(int index) {
+        return deviceIds[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public float getAccuracy(int index) {
+        return accuracies[index];
+    }
+
+    /**
+     * Returns true if the fix has been accepted by the last reprocessing of the chunk.
+     */
+    public boolean isAccepted(int index) {
+        return accepted[index];
+    }
+
+    void setAccepted(int index, boolean accepted) {
+        this.accepted[index] = accepted;
+    }
+
+    /**
+     * Sort the fixes by device, then by time, so that the fixes of each device are contiguous and
+     * in order. The sort is stable, and a chunk already sorted is left as it is.
+     */
+    public void sortByDevice() {
+        if (isSortedByDevice()) {
+            return;
+        }
+        if (order == null) {
+            order = new int[capacity];
+            orderScratch = new int[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, orderScratch, 0, size);
+
+        longScratch = permute(deviceIds, longScratch);
+        longScratch = permute(times, longScratch);
+        doubleScratch = permute(latitudes, doubleScratch);
+        doubleScratch = permute(longitudes, doubleScratch);
+        floatScratch = permute(accuracies, floatScratch);
+        floatScratch = permute(speeds, floatScratch);
+        floatScratch = permute(bearings, floatScratch);
+        if (byteScratch == null) {
+            byteScratch = new byte[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            byteScratch[i] = providerIds[order[i]];
+        }
+        System.arraycopy(byteScratch, 0, providerIds, 0, size);
+        if (intScratch == null) {
+            intScratch = new int[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            intScratch[i] = flags[order[i]];
+        }
+        System.arraycopy(intScratch, 0, flags, 0, size);
+    }
+
+    private boolean isSortedByDevice() {
+        for (int i = 1; i < size; i++) {
+            if (compare(i - 1, i) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int compare(int a, int b) {
+        if (deviceIds[a] != deviceIds[b]) {
+            return deviceIds[a] < deviceIds[b] ? -1 : 1;
+        }
+        if (times[a] != times[b]) {
+            return times[a] < times[b] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    // Stable merge sort of the indexes in [from, to), bottom up, so it doesn't recurse.
+    private void mergeSort(int[] indexes, int[] scratch, int from, int to) {
+        int[] src = indexes, dst = scratch;
+        for (int width = 1; width < to - from; width *= 2) {
+            for (int low = from; low < to; low += 2 * width) {
+                int mid = Math.min(low + width, to);
+                int high = Math.min(low + 2 * width, to);
+                int i = low, j = mid, k = low;
+                while (i < mid && j < high) {
+                    dst[k++] = compare(src[i], src[j]) <= 0 ? src[i++] : src[j++];
+                }
+                while (i < mid) {
+                    dst[k++] = src[i++];
+                }
+                while (j < high) {
+                    dst[k++] = src[j++];
+                }
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != indexes) {
+            System.arraycopy(src, from, indexes, from, to - from);
+        }
+    }
+
+    private long[] permute(long[] column, long[] scratch) {
+        if (scratch == null) {
+            scratch = new long[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            scratch[i] = column[order[i]];
+        }
+        System.arraycopy(scratch, 0, column, 0, size);
+        return scratch;
+    }
+
+    private double[] permute(double[] column, double[] scratch) {
+        if (scratch == null) {
+            scratch = new double[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            scratch[i] = column[order[i]];
+        }
+        System.arraycopy(scratch, 0, column, 0, size);
+        return scratch;
+    }
+
+    private float[] permute(float[] column, float[] scratch) {
+        if (scratch == null) {
+            scratch = new float[capacity];
+        }
+        for (int i = 0; i < size; i++) {
+            scratch[i] = column[order[i]];
+        }
+        System.arraycopy(scratch, 0, column, 0, size);
+        return scratch;
+    }
+}
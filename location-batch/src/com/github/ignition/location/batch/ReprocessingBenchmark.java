@@ -0,0 +1,131 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.batch;
+
+import java.util.Random;
+
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+
+/**
+ * Measures the throughput of the {@link BatchReprocessor} with 1, 2, 4... threads up to the number
+ * of cores, over synthetic uploads: devices walking randomly and reporting a network fix every 20
+ * seconds, chunked the way they'd be read from storage. Run with {@code mvn exec:java}, optionally
+ * passing the number of devices and of fixes per device.
+ */
+public class ReprocessingBenchmark {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int fixesPerDevice = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long total = (long) devices * fixesPerDevice;
+        System.out.println(total + " fixes from " + devices + " devices in chunks of "
+                + CHUNK_SIZE + ", " + cores + " cores");
+        System.out.println(String.format("%8s %14s %8s %9s", "threads", "fixes/s", "speedup",
+                "accepted"));
+
+        FixChunk chunk = new FixChunk(CHUNK_SIZE);
+        double baseline = 0;
+        for (int threads = 1;; threads = Math.min(threads * 2, cores)) {
+            BatchReprocessor reprocessor = new BatchReprocessor(threads,
+                    BatchReprocessor.passiveReceiverRules(60 * 1000, 5 * 60 * 1000, 100), null);
+            try {
+                // The first round warms up the JIT.
+                run(reprocessor, chunk, devices, fixesPerDevice);
+                long best = Long.MAX_VALUE;
+                long processed = 0, accepted = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    reprocessor.forgetAllDevices();
+                    long before = reprocessor.getProcessedCount();
+                    long acceptedBefore = reprocessor.getAcceptedCount();
+                    best = Math.min(best, run(reprocessor, chunk, devices, fixesPerDevice));
+                    processed = reprocessor.getProcessedCount() - before;
+                    accepted = reprocessor.getAcceptedCount() - acceptedBefore;
+                }
+                double throughput = processed * 1E9 / best;
+                if (threads == 1) {
+                    baseline = throughput;
+                }
+                System.out.println(String.format("%8d %14.0f %7.2fx %8.1f%%", threads,
+                        throughput, throughput / baseline, 100.0 * accepted / processed));
+            } finally {
+                reprocessor.shutdown();
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the time spent reprocessing, leaving out the time spent generating the fixes.
+     */
+    private static long run(BatchReprocessor reprocessor, FixChunk chunk, int devices,
+            int fixesPerDevice) {
+        Uploads uploads = new Uploads(devices, fixesPerDevice);
+        long elapsed = 0;
+        while (uploads.fill(chunk)) {
+            long start = System.nanoTime();
+            reprocessor.process(chunk);
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed;
+    }
+
+    // Fixes are interleaved across devices, as if uploads were read in arrival order.
+    private static class Uploads {
+        private final Random random = new Random(42);
+        private final int devices, fixesPerDevice;
+        private final double[] latitudes, longitudes;
+        private long time = 1300000000000L;
+        private int device, fix;
+
+        Uploads(int devices, int fixesPerDevice) {
+            this.devices = devices;
+            this.fixesPerDevice = fixesPerDevice;
+            latitudes = new double[devices];
+            longitudes = new double[devices];
+            for (int i = 0; i < devices; i++) {
+                latitudes[i] = 45 + random.nextDouble();
+                longitudes[i] = 9 + random.nextDouble();
+            }
+        }
+
+        /**
+         * Replace the fixes in the chunk with the next ones; returns false when there are none.
+         */
+        boolean fill(FixChunk chunk) {
+            chunk.clear();
+            while (fix < fixesPerDevice && !chunk.isFull()) {
+                latitudes[device] += (random.nextDouble() - 0.5) * 0.002;
+                longitudes[device] += (random.nextDouble() - 0.5) * 0.002;
+                chunk.add(device, time + random.nextInt(1000), latitudes[device],
+                        longitudes[device], 50, 0, 0, IgnitedLocationCodec.PROVIDER_NETWORK,
+                        IgnitedLocationCodec.FLAG_HAS_ACCURACY);
+                if (++device == devices) {
+                    device = 0;
+                    fix++;
+                    time += 20 * 1000;
+                }
+            }
+            return chunk.size() > 0;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.ignition.location.batch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.FixFilterChain;
+import com.github.ignition.location.utils.IgnitedFix;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+
+public class BatchReprocessorTest {
+    private static final long MIN_PROCESSING_INTERVAL = 60 * 1000;
+    private static final long MIN_TIME = 5 * 60 * 1000;
+    private static final float MIN_DISTANCE = 100;
+    private static final int DEVICES = 50;
+    private static final int FIXES_PER_DEVICE = 400;
+
+    private FixFilterChainFactory rules;
+    private BatchReprocessor reprocessor;
+
+    @Before
+    public void setUp() throws Exception {
+        rules = BatchReprocessor.passiveReceiverRules(MIN_PROCESSING_INTERVAL, MIN_TIME,
+                MIN_DISTANCE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reprocessor != null) {
+            reprocessor.shutdown();
+        }
+    }
+
+    // Random walks, interleaved across devices, with some updates broadcast twice.
+    private FixChunk[] uploads(int chunkSize) {
+        Random random = new Random(7);
+        FixChunk[] chunks = new FixChunk[(DEVICES * FIXES_PER_DEVICE * 2 + chunkSize - 1)
+                / chunkSize];
+        int chunkIndex = 0;
+        chunks[0] = new FixChunk(chunkSize);
+        double[] latitudes = new double[DEVICES];
+        for (int i = 0; i < FIXES_PER_DEVICE; i++) {
+            for (int device = 0; device < DEVICES; device++) {
+                latitudes[device] += (random.nextDouble() - 0.3) * 0.002;
+                long time = i * 90 * 1000 + random.nextInt(1000);
+                int copies = random.nextInt(10) == 0 ? 2 : 1;
+                for (int copy = 0; copy < copies; copy++) {
+                    if (chunks[chunkIndex].isFull()) {
+                        chunks[++chunkIndex] = new FixChunk(chunkSize);
+                    }
+                    chunks[chunkIndex].add(device, time, 45 + latitudes[device], 9, 50, 0, 0,
+                            IgnitedLocationCodec.PROVIDER_NETWORK,
+                            IgnitedLocationCodec.FLAG_HAS_ACCURACY);
+                }
+            }
+        }
+        FixChunk[] used = new FixChunk[chunkIndex + 1];
+        System.arraycopy(chunks, 0, used, 0, used.length);
+        return used;
+    }
+
+    // Accepted fixes per device, as "time,latitude;" strings.
+    private Map<Long, StringBuilder> reprocess(int threads, FixChunk[] chunks) {
+        final Map<Long, StringBuilder> accepted = new HashMap<Long, StringBuilder>();
+        reprocessor = new BatchReprocessor(threads, rules, new BatchOutput() {
+            @Override
+            public void onDeviceProcessed(long deviceId, FixChunk chunk, int from, int to) {
+                synchronized (accepted) {
+                    StringBuilder fixes = accepted.get(deviceId);
+                    if (fixes == null) {
+                        fixes = new StringBuilder();
+                        accepted.put(deviceId, fixes);
+                    }
+                    for (int i = from; i < to; i++) {
+                        if (chunk.isAccepted(i)) {
+                            fixes.append(chunk.getTime(i)).append(',')
+                                    .append(chunk.getLatitude(i)).append(';');
+                        }
+                    }
+                }
+            }
+        });
+        for (FixChunk chunk : chunks) {
+            reprocessor.process(chunk);
+        }
+        reprocessor.shutdown();
+        return accepted;
+    }
+
+    @Test
+    public void shouldApplyTheSameRulesAsTheDevice() {
+        FixChunk[] chunks = uploads(1000);
+
+        // What each device's own chain accepts, fix by fix.
+        Map<Long, FixFilterChain> chains = new HashMap<Long, FixFilterChain>();
+        Map<Long, StringBuilder> expected = new HashMap<Long, StringBuilder>();
+        IgnitedFix fix = new IgnitedFix();
+        for (FixChunk chunk : uploads(DEVICES * FIXES_PER_DEVICE * 2)) {
+            chunk.sortByDevice();
+            for (int i = 0; i < chunk.size(); i++) {
+                long deviceId = chunk.getDeviceId(i);
+                if (!chains.containsKey(deviceId)) {
+                    chains.put(deviceId, rules.newChain(deviceId));
+                    expected.put(deviceId, new StringBuilder());
+                }
+                chunk.get(i, fix);
+                if (chains.get(deviceId).filter(fix, fix.getTime()) == FixFilterChain.ACCEPTED) {
+                    expected.get(deviceId).append(fix.getTime()).append(',')
+                            .append(fix.getLatitude()).append(';');
+                }
+            }
+        }
+
+        Map<Long, StringBuilder> accepted = reprocess(4, chunks);
+
+        assertThat(accepted.size(), equalTo(DEVICES));
+        for (long deviceId = 0; deviceId < DEVICES; deviceId++) {
+            assertThat(accepted.get(deviceId).toString(),
+                    equalTo(expected.get(deviceId).toString()));
+        }
+    }
+
+    @Test
+    public void shouldNotDependOnTheNumberOfThreads() {
+        Map<Long, StringBuilder> sequential = reprocess(1, uploads(5000));
+        long acceptedCount = reprocessor.getAcceptedCount();
+        Map<Long, StringBuilder> parallel = reprocess(8, uploads(5000));
+
+        assertThat(reprocessor.getAcceptedCount(), equalTo(acceptedCount));
+        for (long deviceId = 0; deviceId < DEVICES; deviceId++) {
+            assertThat(parallel.get(deviceId).toString(),
+                    equalTo(sequential.get(deviceId).toString()));
+        }
+    }
+
+    @Test
+    public void shouldKeepTheDeviceStateAcrossChunks() {
+        reprocessor = new BatchReprocessor(2, rules, null);
+        FixChunk chunk = new FixChunk(10);
+        chunk.add(1, 0, 45, 9, 50, 0, 0, IgnitedLocationCodec.PROVIDER_GPS, 0);
+        reprocessor.process(chunk);
+
+        chunk.clear();
+        // The same update, then one that's significant.
+        chunk.add(1, 0, 45, 9, 50, 0, 0, IgnitedLocationCodec.PROVIDER_GPS, 0);
+        chunk.add(1, MIN_TIME, 45.01, 9, 50, 0, 0, IgnitedLocationCodec.PROVIDER_GPS, 0);
+        reprocessor.process(chunk);
+
+        assertThat(chunk.isAccepted(0), equalTo(false));
+        assertThat(chunk.isAccepted(1), equalTo(true));
+        assertThat(reprocessor.getDeviceCount(), equalTo(1));
+
+        reprocessor.forgetDevice(1);
+        chunk.clear();
+        chunk.add(1, 0, 45, 9, 50, 0, 0, IgnitedLocationCodec.PROVIDER_GPS, 0);
+        reprocessor.process(chunk);
+        assertThat(chunk.isAccepted(0), equalTo(true));
+    }
+
+    @Test
+    public void shouldSortChunksByDeviceAndTime() {
+        FixChunk chunk = new FixChunk(10);
+        chunk.add(2, 20, 2, 0, 0, 0, 0, 0, 0);
+        chunk.add(1, 30, 1, 0, 0, 0, 0, 0, 0);
+        chunk.add(2, 10, 3, 0, 0, 0, 0, 0, 0);
+        chunk.add(1, 30, 4, 0, 0, 0, 0, 0, 0);
+
+        chunk.sortByDevice();
+
+        assertThat(chunk.getDeviceId(0), equalTo(1L));
+        // Stable: same device and time keep their order.
+        assertThat(chunk.getLatitude(0), equalTo(1.0));
+        assertThat(chunk.getLatitude(1), equalTo(4.0));
+        assertThat(chunk.getTime(2), equalTo(10L));
+        assertThat(chunk.getLatitude(3), equalTo(2.0));
+    }
+}
@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package com.github.ignition.samples.overlays;
+package com.github.ignition.location.overlays;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -31,12 +31,33 @@ import com.google.android.maps.Projection;
 public class AccuracyCircleOverlay extends Overlay {
     private final String LOG_TAG = AccuracyCircleOverlay.class.getSimpleName();
 
-    private final float accuracy;
-    private final GeoPoint geoPoint;
+    private float accuracy;
+    private GeoPoint geoPoint;
+
+    // Reused by every draw, panning redraws the overlay many times per second.
+    private final Point pt = new Point();
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint centerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     public AccuracyCircleOverlay(GeoPoint geoPoint, float accuracy) {
         this.accuracy = accuracy;
         this.geoPoint = geoPoint;
+
+        fillPaint.setColor(0x186666ff);
+        fillPaint.setStyle(Style.FILL_AND_STROKE);
+        strokePaint.setColor(0xff6666ff);
+        strokePaint.setStyle(Style.STROKE);
+        centerPaint.setColor(Color.RED);
+        centerPaint.setStyle(Style.FILL_AND_STROKE);
+    }
+
+    /**
+     * Move the circle, instead of replacing the overlay for each new fix.
+     */
+    public void set(GeoPoint geoPoint, float accuracy) {
+        this.geoPoint = geoPoint;
+        this.accuracy = accuracy;
     }
 
     @Override
@@ -46,28 +67,19 @@ public class AccuracyCircleOverlay extends Overlay {
             Log.v(LOG_TAG, "drawing not done because shadow and projection are null");
             return;
         }
-        Point pt = new Point();
         projection.toPixels(geoPoint, pt);
         float circleRadius = metersToRadius(accuracy, projection, geoPoint.getLatitudeE6());
 
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(0x186666ff);
-        paint.setStyle(Style.FILL_AND_STROKE);
-        canvas.drawCircle(pt.x, pt.y, circleRadius, paint);
-
-        paint.setColor(0xff6666ff);
-        paint.setStyle(Style.STROKE);
-        canvas.drawCircle(pt.x, pt.y, circleRadius, paint);
-
-        paint.setColor(Color.RED);
-        paint.setStyle(Style.FILL_AND_STROKE);
-        canvas.drawCircle(pt.x, pt.y, 3, paint);
+        canvas.drawCircle(pt.x, pt.y, circleRadius, fillPaint);
+        canvas.drawCircle(pt.x, pt.y, circleRadius, strokePaint);
+        canvas.drawCircle(pt.x, pt.y, 3, centerPaint);
 
         super.draw(canvas, mapView, shadow);
     }
 
     private int metersToRadius(float m, Projection p, double latitude) {
-        return Math
-                .abs((int) (p.metersToEquatorPixels(m) * (1 / Math.cos(Math.toRadians(latitude)))));
+        // The latitude is in microdegrees.
+        return Math.abs((int) (p.metersToEquatorPixels(m)
+                * (1 / Math.cos(Math.toRadians(latitude / 1E6)))));
     }
 }
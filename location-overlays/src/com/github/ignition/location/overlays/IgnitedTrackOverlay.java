@@ -0,0 +1,226 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.overlays;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.Path;
+import android.graphics.Point;
+
+import com.github.ignition.location.utils.IgnitedDistance;
+import com.github.ignition.location.utils.IgnitedLocationHistory;
+import com.github.ignition.location.utils.IgnitedTrackSimplifier;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.MapView;
+import com.google.android.maps.Overlay;
+import com.google.android.maps.Projection;
+
+/**
+ * Draws a track as a polyline, simplified according to the zoom level so that points closer than
+ * the tolerance on screen are dropped.
+ * <p/>
+ * The simplified track of each zoom level is computed once, and its points are projected once into
+ * a {@link Path} in pixels relative to the first point of the track. Panning only moves that point
+ * on screen, so a frame costs a single projection and a canvas translation, and allocates nothing.
+ * The path is rebuilt when the zoom level or the track change.
+ * <p/>
+ * Not thread safe: update the track from the UI thread.
+ */
+public class IgnitedTrackOverlay extends Overlay {
+
+    public static final int MAX_ZOOM_LEVEL = 22;
+    public static final float TOLERANCE_DEFAULT = 1.5f; // pixels
+
+    private static final int TILE_SIZE = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final double EARTH_CIRCUMFERENCE = 40075016.686; // meters
+
+    private double[] latitudes = new double[64], longitudes = new double[64];
+    private int size;
+    private GeoPoint origin;
+
+    // Indexes of the points kept at each zoom level, null until needed.
+    private final int[][] levels = new int[MAX_ZOOM_LEVEL + 1][];
+    private final int[] levelSizes = new int[MAX_ZOOM_LEVEL + 1];
+    private boolean levelsValid;
+    private float tolerance = TOLERANCE_DEFAULT;
+
+    private final Path path = new Path();
+    private int pathZoom = -1;
+    private final Point originPixels = new Point();
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public IgnitedTrackOverlay() {
+        paint.setColor(0xcc6666ff);
+        paint.setStyle(Style.STROKE);
+        paint.setStrokeWidth(4);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+    }
+
+    /**
+     * Returns the paint the track is drawn with, to change its color or width.
+     */
+    public Paint getPaint() {
+        return paint;
+    }
+
+    /**
+     * Set how far, in pixels, a dropped point can be from the simplified track.
+     */
+    public void setTolerance(float tolerance) {
+        this.tolerance = tolerance;
+        invalidate();
+    }
+
+    /**
+     * Replace the track with a copy of the given points.
+     */
+    public void setTrack(double[] latitudes, double[] longitudes, int count) {
+        size = 0;
+        ensureCapacity(count);
+        System.arraycopy(latitudes, 0, this.latitudes, 0, count);
+        System.arraycopy(longitudes, 0, this.longitudes, 0, count);
+        size = count;
+        origin = null;
+        invalidate();
+    }
+
+    /**
+     * Replace the track with the fixes in the history.
+     */
+    public void setTrack(IgnitedLocationHistory history) {
+        synchronized (history) {
+            size = 0;
+            ensureCapacity(history.size());
+            for (long sequence = history.getFirstSequence(); sequence < history
+                    .getNextSequence(); sequence++) {
+                latitudes[size] = history.getLatitude(sequence);
+                longitudes[size] = history.getLongitude(sequence);
+                size++;
+            }
+        }
+        origin = null;
+        invalidate();
+    }
+
+    public void addPoint(double latitude, double longitude) {
+        ensureCapacity(size + 1);
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+        invalidate();
+    }
+
+    public void clear() {
+        size = 0;
+        origin = null;
+        invalidate();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void draw(Canvas canvas, MapView mapView, boolean shadow) {
+        if (shadow || size < 2) {
+            return;
+        }
+        Projection projection = mapView.getProjection();
+        if (projection == null) {
+            return;
+        }
+
+        int zoom = Math.max(0, Math.min(mapView.getZoomLevel(), MAX_ZOOM_LEVEL));
+        if (origin == null) {
+            origin = new GeoPoint((int) Math.round(latitudes[0] * 1E6),
+                    (int) Math.round(longitudes[0] * 1E6));
+        }
+        if (zoom != pathZoom || !levelsValid) {
+            buildPath(zoom);
+        }
+
+        projection.toPixels(origin, originPixels);
+        canvas.save();
+        canvas.translate(originPixels.x, originPixels.y);
+        canvas.drawPath(path, paint);
+        canvas.restore();
+    }
+
+    private void invalidate() {
+        levelsValid = false;
+    }
+
+    private void buildPath(int zoom) {
+        if (!levelsValid) {
+            for (int i = 0; i <= MAX_ZOOM_LEVEL; i++) {
+                levelSizes[i] = -1;
+            }
+            levelsValid = true;
+        }
+        int[] kept = levels[zoom];
+        if (kept == null || kept.length < size) {
+            kept = levels[zoom] = new int[Math.max(size, 64)];
+            levelSizes[zoom] = -1;
+        }
+        if (levelSizes[zoom] < 0) {
+            double metersPerPixel = EARTH_CIRCUMFERENCE * Math.cos(Math.toRadians(latitudes[0]))
+                    / (TILE_SIZE * Math.pow(2, zoom));
+            levelSizes[zoom] = IgnitedTrackSimplifier.simplify(latitudes, longitudes, 0, size,
+                    tolerance * metersPerPixel, kept);
+        }
+
+        // Web Mercator pixels at this zoom level, relative to the origin.
+        double worldSize = TILE_SIZE * Math.pow(2, zoom);
+        double originLongitude = origin.getLongitudeE6() / 1E6;
+        double originY = mercatorY(origin.getLatitudeE6() / 1E6);
+        path.rewind();
+        for (int i = 0; i < levelSizes[zoom]; i++) {
+            int index = kept[i];
+            // The short way around, so that a track crossing the antimeridian stays in one piece.
+            float x = (float) (IgnitedDistance.longitudeDifference(originLongitude,
+                    longitudes[index]) / 360 * worldSize);
+            float y = (float) ((mercatorY(latitudes[index]) - originY) * worldSize);
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        pathZoom = zoom;
+    }
+
+    // Distance from the equator in world widths, growing southwards like screen coordinates.
+    private static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(latitude,
+                MAX_LATITUDE))));
+        return -Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > latitudes.length) {
+            int newCapacity = Math.max(capacity, latitudes.length * 2);
+            double[] newLatitudes = new double[newCapacity];
+            double[] newLongitudes = new double[newCapacity];
+            System.arraycopy(latitudes, 0, newLatitudes, 0, size);
+            System.arraycopy(longitudes, 0, newLongitudes, 0, size);
+            latitudes = newLatitudes;
+            longitudes = newLongitudes;
+        }
+    }
+}
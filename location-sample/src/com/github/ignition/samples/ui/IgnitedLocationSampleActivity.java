@@ -36,8 +36,10 @@ import com.bugsense.trace.BugSenseHandler;
 import com.github.ignition.location.IgnitedLocationConstants;
 import com.github.ignition.location.annotations.IgnitedLocation;
 import com.github.ignition.location.annotations.IgnitedLocationActivity;
+import com.github.ignition.location.overlays.AccuracyCircleOverlay;
+import com.github.ignition.location.overlays.IgnitedTrackOverlay;
+import com.github.ignition.location.utils.IgnitedLocationHistory;
 import com.github.ignition.samples.R;
-import com.github.ignition.samples.overlays.AccuracyCircleOverlay;
 import com.google.android.maps.GeoPoint;
 import com.google.android.maps.MapActivity;
 import com.google.android.maps.MapController;
@@ -59,6 +61,8 @@ public class IgnitedLocationSampleActivity extends MapActivity {
     // private static final int FEEDBACK_DIALOG = 1;
 
     private List<Overlay> mapOverlays;
+    private IgnitedTrackOverlay trackOverlay;
+    private AccuracyCircleOverlay accuracyOverlay;
     private MapController mapController;
     // private long time;
     @IgnitedLocation
@@ -94,6 +98,9 @@ public class IgnitedLocationSampleActivity extends MapActivity {
         mapController = mapView.getController();
         mapController.setZoom(17);
         mapOverlays = mapView.getOverlays();
+        trackOverlay = new IgnitedTrackOverlay();
+        trackOverlay.setTrack(IgnitedLocationHistory.getInstance());
+        mapOverlays.add(trackOverlay);
     }
 
     // MUST BE OVERRIDDEN OR IGNITION LOCATION WON'T WORK!
@@ -131,6 +138,7 @@ public class IgnitedLocationSampleActivity extends MapActivity {
     @Override
     public boolean onIgnitedLocationChanged(Location newLocation) {
         displayNewLocation();
+        trackOverlay.addPoint(newLocation.getLatitude(), newLocation.getLongitude());
         update(newLocation);
 
         return true;
@@ -170,13 +178,18 @@ public class IgnitedLocationSampleActivity extends MapActivity {
     // }
 
     private void update(Location location) {
-        mapOverlays.clear();
         int lat = (int) (location.getLatitude() * 1E6);
         int lon = (int) (location.getLongitude() * 1E6);
         final float accuracy = location.getAccuracy();
         GeoPoint point = new GeoPoint(lat, lon);
         mapController.setCenter(point);
-        mapOverlays.add(new AccuracyCircleOverlay(point, accuracy));
+        if (accuracyOverlay == null) {
+            accuracyOverlay = new AccuracyCircleOverlay(point, accuracy);
+            mapOverlays.add(accuracyOverlay);
+        } else {
+            accuracyOverlay.set(point, accuracy);
+            mapView.invalidate();
+        }
     }
 
     private void displayLocationSettings() {
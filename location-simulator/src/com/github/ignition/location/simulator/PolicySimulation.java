@@ -0,0 +1,322 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import com.github.ignition.location.templates.LocationRequestHost;
+import com.github.ignition.location.templates.LocationRequestTarget;
+import com.github.ignition.location.templates.MotionSensor;
+import com.github.ignition.location.templates.OnSignificantMotionListener;
+import com.github.ignition.location.templates.Scheduler;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.LocationRequestPlanner;
+import com.github.ignition.location.utils.LocationRequestPolicy;
+import com.github.ignition.location.utils.VirtualClock;
+
+/**
+ * Replays a trace against a policy, in virtual time, and reports what it cost.
+ * <p/>
+ * The decisions are taken by the {@link LocationRequestPlanner} the IgnitedLocationManager runs,
+ * for a single client kept attached: gps is given up on if it doesn't get a fix within
+ * {@link LocationRequestPolicy#waitForGpsFix}, backed off and retried, duty-cycled, kept within the
+ * battery budget, suspended while the device is still, and not used below
+ * {@link LocationRequestPolicy#minBatteryLevel}. The system side is simulated: the providers
+ * report fixes of the trace positions, off by about their accuracy, gps can't get a fix while the
+ * trace is indoors, and the motion sensor fires once the trace moves.
+ * <p/>
+ * Only the planner is simulated, not the IgnitedLocationManager around it: the policy is applied
+ * as is, so attaching and detaching clients, merging their policies and the delayed teardown of
+ * the updates aren't covered, nor is the last known location.
+ * <p/>
+ * A simulation owns all its state, so several can run in parallel.
+ */
+public class PolicySimulation implements Callable<SimulationReport> {
+
+    // How often the distance between the true position and the last fix is sampled, and the
+    // battery and the motion sensor are checked.
+    public static final long ERROR_SAMPLE_INTERVAL = 10 * 1000;
+    // How often gps checks the sky again while it can't see it.
+    private static final long GPS_SEARCH_INTERVAL = 1000;
+    // How far the trace must move for the motion sensor to fire.
+    private static final double MOTION_DISTANCE = 10;
+    private static final double METERS_PER_DEGREE = 111195;
+
+    private static final int GPS = IgnitedLocationCodec.PROVIDER_GPS;
+    private static final int NETWORK = IgnitedLocationCodec.PROVIDER_NETWORK;
+    private static final int NONE = IgnitedLocationCodec.PROVIDER_UNKNOWN;
+
+    private final Trace trace;
+    private final SimulatedDevice device;
+    private final LocationRequestPolicy policy;
+    private final Random random;
+
+    private final VirtualClock clock;
+    private final Scheduler scheduler;
+    private final LocationRequestPlanner planner;
+
+    // System side.
+    private int activeProvider = NONE;
+    private long activeSince;
+    private long activeInterval;
+    private final long[] onTime = new long[IgnitedLocationCodec.PROVIDER_PASSIVE + 1];
+    private long lastGpsFixTime = -1;
+    private int providerRequests;
+    private boolean batteryLow;
+    // Where the trace was when the motion sensor was started, while it is.
+    private OnSignificantMotionListener motionListener;
+    private double motionLatitude, motionLongitude;
+
+    // What the app sees.
+    private boolean hasFix;
+    private double fixLatitude, fixLongitude;
+    private long firstFixTime = -1;
+    private int fixCount;
+    private double[] errors = new double[1024];
+    private int errorCount;
+
+    private final Runnable deliverFix = new Runnable() {
+        @Override
+        public void run() {
+            onProviderFix();
+        }
+    };
+
+    private final Runnable sampleError = new Runnable() {
+        @Override
+        public void run() {
+            long now = clock.currentTimeMillis();
+            if (hasFix) {
+                addError(distance(trace.getLatitude(now), trace.getLongitude(now), fixLatitude,
+                        fixLongitude));
+            }
+            // Like the battery receivers, refresh the passive updates when the battery gets low.
+            boolean batteryLow = getBatteryLevel(now) < policy.minBatteryLevel;
+            if (batteryLow != PolicySimulation.this.batteryLow) {
+                PolicySimulation.this.batteryLow = batteryLow;
+                planner.refreshPassiveUpdates();
+            }
+            if (motionListener != null
+                    && distance(trace.getLatitude(now), trace.getLongitude(now), motionLatitude,
+                            motionLongitude) > MOTION_DISTANCE) {
+                motionListener.onSignificantMotion();
+            }
+            scheduler.postDelayed(this, ERROR_SAMPLE_INTERVAL);
+        }
+    };
+
+    public PolicySimulation(Trace trace, SimulatedDevice device, LocationRequestPolicy policy) {
+        this.trace = trace;
+        this.device = device;
+        this.policy = policy;
+        this.random = new Random(device.seed);
+        this.clock = new VirtualClock(trace.getStartTime());
+        this.scheduler = clock.newScheduler();
+        // Each simulation records its own decisions, they'd be mixed up in the library's recorder.
+        this.planner = new LocationRequestPlanner(clock, scheduler, new SimulatedTarget(),
+                new SimulatedHost(), new IgnitedFlightRecorder(1));
+    }
+
+    @Override
+    public SimulationReport call() {
+        planner.setPolicy(policy);
+        planner.startLocationUpdates();
+        scheduler.postDelayed(sampleError, ERROR_SAMPLE_INTERVAL);
+        clock.advanceTo(trace.getEndTime());
+        stopProvider();
+
+        long now = clock.currentTimeMillis();
+        return new SimulationReport(policy, onTime[GPS], onTime[NETWORK], providerRequests,
+                firstFixTime < 0 ? -1 : firstFixTime - trace.getStartTime(), fixCount, errors,
+                errorCount, getBatteryLevel(now));
+    }
+
+    // The app receives a fix.
+    private void onFix(int provider, float accuracy, double latitude, double longitude) {
+        long now = clock.currentTimeMillis();
+        hasFix = true;
+        fixLatitude = latitude;
+        fixLongitude = longitude;
+        fixCount++;
+        if (firstFixTime < 0) {
+            firstFixTime = now;
+        }
+        planner.onFix(provider, latitude, longitude, accuracy, -1, now);
+    }
+
+    private int resolveProvider(int provider) {
+        return provider == GPS && device.gpsEnabled ? GPS : NETWORK;
+    }
+
+    private void startProvider(int provider, long interval) {
+        long now = clock.currentTimeMillis();
+        activeProvider = provider;
+        activeSince = now;
+        activeInterval = interval;
+        long firstFixDelay = provider == GPS ? device.getGpsTimeToFix(lastGpsFixTime < 0 ? -1
+                : now - lastGpsFixTime) : device.networkLatency;
+        scheduler.postDelayed(deliverFix, firstFixDelay);
+    }
+
+    private void stopProvider() {
+        if (activeProvider != NONE) {
+            onTime[activeProvider] += clock.currentTimeMillis() - activeSince;
+            scheduler.removeCallbacks(deliverFix);
+            activeProvider = NONE;
+        }
+    }
+
+    // The provider reports a fix, if it can.
+    private void onProviderFix() {
+        long now = clock.currentTimeMillis();
+        if (activeProvider == GPS && trace.isIndoor(now)) {
+            scheduler.postDelayed(deliverFix, GPS_SEARCH_INTERVAL);
+            return;
+        }
+
+        float accuracy = activeProvider == GPS ? device.gpsAccuracy : device.networkAccuracy;
+        // Off by about the accuracy, in a random direction.
+        double error = Math.abs(random.nextGaussian()) * accuracy / 2;
+        double direction = random.nextDouble() * 2 * Math.PI;
+        double latitude = trace.getLatitude(now);
+        double longitude = trace.getLongitude(now);
+        latitude += error * Math.cos(direction) / METERS_PER_DEGREE;
+        longitude += error * Math.sin(direction)
+                / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+
+        int provider = activeProvider;
+        long minInterval = provider == GPS ? device.gpsMinFixInterval
+                : device.networkMinFixInterval;
+        scheduler.postDelayed(deliverFix, Math.max(activeInterval, minInterval));
+        if (provider == GPS) {
+            lastGpsFixTime = now;
+        }
+        onFix(provider, accuracy, latitude, longitude);
+    }
+
+    private double getBatteryLevel(long now) {
+        double hours = (now - trace.getStartTime()) / 3600000.0;
+        double gpsHours = getOnTime(GPS, now) / 3600000.0;
+        double networkHours = getOnTime(NETWORK, now) / 3600000.0;
+        return device.initialBatteryLevel - hours * device.baseDrain - gpsHours * device.gpsDrain
+                - networkHours * device.networkDrain;
+    }
+
+    private long getOnTime(int provider, long now) {
+        return onTime[provider] + (activeProvider == provider ? now - activeSince : 0);
+    }
+
+    private void addError(double error) {
+        if (errorCount == errors.length) {
+            double[] newErrors = new double[errorCount * 2];
+            System.arraycopy(errors, 0, newErrors, 0, errorCount);
+            errors = newErrors;
+        }
+        errors[errorCount++] = error;
+    }
+
+    // Equirectangular approximation, plenty at the scale of a fix error.
+    static double distance(double latitude1, double longitude1, double latitude2,
+            double longitude2) {
+        double x = (longitude2 - longitude1)
+                * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        double y = latitude2 - latitude1;
+        return Math.sqrt(x * x + y * y) * METERS_PER_DEGREE;
+    }
+
+    private class SimulatedTarget implements LocationRequestTarget {
+
+        @Override
+        public void requestActiveUpdates(long minTime, long minDistance, int accuracy,
+                int powerRequirement) {
+            stopProvider();
+            providerRequests++;
+            startProvider(resolveProvider(accuracy == LocationRequestPlanner.ACCURACY_FINE ? GPS
+                    : NETWORK), minTime);
+        }
+
+        @Override
+        public void removeActiveUpdates() {
+            stopProvider();
+        }
+
+        @Override
+        public void requestPassiveUpdates(long minTime, long minDistance) {
+        }
+
+        @Override
+        public void removePassiveUpdates() {
+        }
+
+        @Override
+        public void watchProvider(String provider) {
+        }
+
+        @Override
+        public void unwatchProvider() {
+        }
+
+        @Override
+        public void registerReceivers() {
+        }
+
+        @Override
+        public void unregisterReceivers() {
+        }
+    }
+
+    private class SimulatedHost implements LocationRequestHost, MotionSensor {
+
+        @Override
+        public double getBatteryLevel() {
+            return PolicySimulation.this.getBatteryLevel(clock.currentTimeMillis());
+        }
+
+        @Override
+        public String getBestProvider(int accuracy, int powerRequirement, boolean enabledOnly) {
+            int provider = NETWORK;
+            if (accuracy == LocationRequestPlanner.ACCURACY_FINE
+                    && (device.gpsEnabled || !enabledOnly)) {
+                provider = GPS;
+            }
+            return IgnitedLocationCodec.getProviderName(provider);
+        }
+
+        @Override
+        public MotionSensor getMotionSensor() {
+            return this;
+        }
+
+        @Override
+        public void start(OnSignificantMotionListener listener) {
+            long now = clock.currentTimeMillis();
+            motionListener = listener;
+            motionLatitude = trace.getLatitude(now);
+            motionLongitude = trace.getLongitude(now);
+        }
+
+        @Override
+        public void stop() {
+            motionListener = null;
+        }
+
+        @Override
+        public void log(String message) {
+        }
+    }
+}
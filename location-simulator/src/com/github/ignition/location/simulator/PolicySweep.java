@@ -0,0 +1,63 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.ignition.location.utils.LocationRequestPolicy;
+
+/**
+ * Simulates several policies over the same trace, in parallel.
+ */
+public class PolicySweep {
+
+    private final ExecutorService executor;
+
+    public PolicySweep(int threads) {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Returns the reports of the policies, in the same order.
+     */
+    public List<SimulationReport> run(Trace trace, SimulatedDevice device,
+            List<LocationRequestPolicy> policies) throws InterruptedException {
+        List<Future<SimulationReport>> futures = new ArrayList<Future<SimulationReport>>(
+                policies.size());
+        for (LocationRequestPolicy policy : policies) {
+            futures.add(executor.submit(new PolicySimulation(trace, device, policy)));
+        }
+
+        List<SimulationReport> reports = new ArrayList<SimulationReport>(policies.size());
+        for (Future<SimulationReport> future : futures) {
+            try {
+                reports.add(future.get());
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Simulation failed", e.getCause());
+            }
+        }
+        return reports;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
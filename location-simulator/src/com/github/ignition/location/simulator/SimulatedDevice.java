@@ -0,0 +1,64 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import com.github.ignition.location.utils.GpsDutyCycle;
+
+/**
+ * How the simulated device's providers and battery behave. The defaults are typical of a phone;
+ * change the fields to model e.g. a slow network.
+ */
+public class SimulatedDevice {
+
+    // Gps time to fix, depending on how old the last fix is (see GpsDutyCycle).
+    public long gpsColdStartTimeToFix = 45 * 1000;
+    public long gpsWarmStartTimeToFix = GpsDutyCycle.WARM_START_TIME_TO_FIX;
+    public long gpsHotStartTimeToFix = GpsDutyCycle.HOT_START_TIME_TO_FIX;
+    // Fastest rate the providers report fixes at, whatever the requested interval.
+    public long gpsMinFixInterval = 1000;
+    public long networkMinFixInterval = 20 * 1000;
+    public long networkLatency = 3 * 1000;
+
+    // Accuracy reported by the providers, in meters; the fixes are off by about as much.
+    public float gpsAccuracy = 10;
+    public float networkAccuracy = 150;
+
+    // Battery, in percent and percent per hour.
+    public double initialBatteryLevel = 100;
+    public double baseDrain = 1;
+    public double gpsDrain = 8;
+    public double networkDrain = 1;
+
+    public boolean gpsEnabled = true;
+
+    // Seed of the position errors, so that runs can be reproduced.
+    public long seed = 42;
+
+    /**
+     * Returns how long gps takes to get a fix.
+     * 
+     * @param lastFixAge
+     *            how long ago gps got its last fix, or -1 if it never did
+     */
+    public long getGpsTimeToFix(long lastFixAge) {
+        if (lastFixAge < 0 || lastFixAge > GpsDutyCycle.WARM_START_MAX_AGE) {
+            return gpsColdStartTimeToFix;
+        } else if (lastFixAge > GpsDutyCycle.HOT_START_MAX_AGE) {
+            return gpsWarmStartTimeToFix;
+        }
+        return gpsHotStartTimeToFix;
+    }
+}
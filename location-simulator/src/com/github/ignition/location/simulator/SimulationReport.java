@@ -0,0 +1,130 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import java.util.Arrays;
+
+import com.github.ignition.location.utils.LocationRequestPolicy;
+
+/**
+ * What a policy cost and what it got over a trace.
+ */
+public class SimulationReport {
+
+    private final LocationRequestPolicy policy;
+    private final long gpsOnTime, networkOnTime;
+    private final int providerRequests;
+    private final long timeToFirstFix;
+    private final int fixCount;
+    private final double meanError, p95Error;
+    private final double batteryLevel;
+
+    /**
+     * @param errors
+     *            distance, in meters, between the true position and the last fix, sampled at
+     *            regular intervals; sorted in place
+     */
+    SimulationReport(LocationRequestPolicy policy, long gpsOnTime, long networkOnTime,
+            int providerRequests, long timeToFirstFix, int fixCount, double[] errors,
+            int errorCount, double batteryLevel) {
+        this.policy = policy;
+        this.gpsOnTime = gpsOnTime;
+        this.networkOnTime = networkOnTime;
+        this.providerRequests = providerRequests;
+        this.timeToFirstFix = timeToFirstFix;
+        this.fixCount = fixCount;
+        this.batteryLevel = batteryLevel;
+
+        if (errorCount == 0) {
+            meanError = p95Error = -1;
+        } else {
+            double sum = 0;
+            for (int i = 0; i < errorCount; i++) {
+                sum += errors[i];
+            }
+            meanError = sum / errorCount;
+            Arrays.sort(errors, 0, errorCount);
+            p95Error = errors[Math.min(errorCount - 1, (int) (errorCount * 0.95))];
+        }
+    }
+
+    public LocationRequestPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns how long gps was on, in seconds.
+     */
+    public long getGpsOnSeconds() {
+        return gpsOnTime / 1000;
+    }
+
+    public long getNetworkOnSeconds() {
+        return networkOnTime / 1000;
+    }
+
+    /**
+     * Returns the number of active location update requests made to the system.
+     */
+    public int getProviderRequests() {
+        return providerRequests;
+    }
+
+    /**
+     * Returns how long the first fix took, in milliseconds, or -1 if there was none.
+     */
+    public long getTimeToFirstFix() {
+        return timeToFirstFix;
+    }
+
+    public int getFixCount() {
+        return fixCount;
+    }
+
+    /**
+     * Returns the mean distance, in meters, between the true position and the last fix, or -1 if
+     * there was no fix.
+     */
+    public double getMeanError() {
+        return meanError;
+    }
+
+    public double getP95Error() {
+        return p95Error;
+    }
+
+    /**
+     * Returns the battery level left at the end of the trace, in percent.
+     */
+    public double getBatteryLevel() {
+        return batteryLevel;
+    }
+
+    public static String getHeader() {
+        return String.format("%10s %8s %6s %7s %8s %8s %8s %6s %8s %8s %7s", "interval",
+                "gpsWait", "minBat", "gpsOn", "netOn", "requests", "ttff", "fixes", "meanErr",
+                "p95Err", "battery");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%9ds %7ds %5d%% %6ds %7ds %8d %7.1fs %6d %7.0fm %7.0fm %6.1f%%",
+                policy.locationUpdatesInterval / 1000, policy.waitForGpsFix / 1000,
+                policy.minBatteryLevel, getGpsOnSeconds(), getNetworkOnSeconds(),
+                providerRequests, timeToFirstFix / 1000.0, fixCount, meanError, p95Error,
+                batteryLevel);
+    }
+}
@@ -0,0 +1,127 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.ignition.location.utils.LocationRequestPolicy;
+
+/**
+ * Sweeps the default policy over a trace and prints a report per combination, e.g.:
+ * 
+ * <pre>
+ * mvn exec:java -Dexec.args="commute.csv --interval 60,300 --wait-for-gps-fix 20,60 --duty-cycle"
+ * </pre>
+ * 
+ * The trace is a CSV of {@code time,latitude,longitude[,indoor]} lines, with the time in
+ * milliseconds. Lists of values are comma separated; times are in seconds.
+ */
+public class Simulator {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: Simulator <trace.csv> [--interval s,...]"
+                    + " [--wait-for-gps-fix s,...] [--min-battery-level %,...] [--duty-cycle]"
+                    + " [--no-gps] [--threads n]");
+            System.exit(1);
+        }
+
+        long[] intervals = null, waits = null;
+        int[] minBatteryLevels = null;
+        boolean dutyCycle = false, useGps = true;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if ("--interval".equals(arg)) {
+                intervals = parseSeconds(args[++i]);
+            } else if ("--wait-for-gps-fix".equals(arg)) {
+                waits = parseSeconds(args[++i]);
+            } else if ("--min-battery-level".equals(arg)) {
+                String[] values = args[++i].split(",");
+                minBatteryLevels = new int[values.length];
+                for (int j = 0; j < values.length; j++) {
+                    minBatteryLevels[j] = Integer.parseInt(values[j].trim());
+                }
+            } else if ("--duty-cycle".equals(arg)) {
+                dutyCycle = true;
+            } else if ("--no-gps".equals(arg)) {
+                useGps = false;
+            } else if ("--threads".equals(arg)) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        Trace trace;
+        Reader reader = new FileReader(args[0]);
+        try {
+            trace = Trace.read(reader);
+        } finally {
+            reader.close();
+        }
+
+        LocationRequestPolicy defaults = LocationRequestPolicy.fromDefaults();
+        if (intervals == null) {
+            intervals = new long[] { defaults.locationUpdatesInterval };
+        }
+        if (waits == null) {
+            waits = new long[] { defaults.waitForGpsFix };
+        }
+        if (minBatteryLevels == null) {
+            minBatteryLevels = new int[] { defaults.minBatteryLevel };
+        }
+
+        List<LocationRequestPolicy> policies = new ArrayList<LocationRequestPolicy>();
+        for (long interval : intervals) {
+            for (long wait : waits) {
+                for (int minBatteryLevel : minBatteryLevels) {
+                    LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+                    policy.useGps = useGps;
+                    policy.dutyCycleGps = dutyCycle;
+                    policy.locationUpdatesInterval = interval;
+                    policy.waitForGpsFix = wait;
+                    policy.minBatteryLevel = minBatteryLevel;
+                    policies.add(policy);
+                }
+            }
+        }
+
+        PolicySweep sweep = new PolicySweep(threads);
+        try {
+            List<SimulationReport> reports = sweep.run(trace, new SimulatedDevice(), policies);
+            System.out.println(SimulationReport.getHeader());
+            for (SimulationReport report : reports) {
+                System.out.println(report);
+            }
+        } finally {
+            sweep.shutdown();
+        }
+    }
+
+    private static long[] parseSeconds(String arg) {
+        String[] values = arg.split(",");
+        long[] millis = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            millis[i] = Long.parseLong(values[i].trim()) * 1000;
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,144 @@
+/* Copyright (c) 2011 Stefano Dacchille
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ignition.location.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A recorded trace: the true position of the device over time, and whether gps could see the sky.
+ * Positions between two points are interpolated linearly.
+ * <p/>
+ * Traces are read from CSV lines of {@code time,latitude,longitude[,indoor]}, the time in
+ * milliseconds and indoor being 1 where gps can't get a fix. Lines starting with # are ignored.
+ */
+public class Trace {
+
+    private long[] times = new long[64];
+    private double[] latitudes = new double[64], longitudes = new double[64];
+    private boolean[] indoor = new boolean[64];
+    private int size;
+
+    public static Trace read(Reader reader) throws IOException {
+        Trace trace = new Trace();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 3) {
+                throw new IOException("Line " + lineNumber + ": expected time,latitude,longitude");
+            }
+            try {
+                trace.add(Long.parseLong(fields[0].trim()), Double.parseDouble(fields[1].trim()),
+                        Double.parseDouble(fields[2].trim()),
+                        fields.length > 3 && "1".equals(fields[3].trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Append a point; points must be added in time order.
+     */
+    public void add(long time, double latitude, double longitude, boolean indoor) {
+        if (size > 0 && time < times[size - 1]) {
+            throw new IllegalArgumentException("Trace points must be in time order");
+        }
+        if (size == times.length) {
+            int capacity = size * 2;
+            long[] newTimes = new long[capacity];
+            double[] newLatitudes = new double[capacity];
+            double[] newLongitudes = new double[capacity];
+            boolean[] newIndoor = new boolean[capacity];
+            System.arraycopy(times, 0, newTimes, 0, size);
+            System.arraycopy(latitudes, 0, newLatitudes, 0, size);
+            System.arraycopy(longitudes, 0, newLongitudes, 0, size);
+            System.arraycopy(this.indoor, 0, newIndoor, 0, size);
+            times = newTimes;
+            latitudes = newLatitudes;
+            longitudes = newLongitudes;
+            this.indoor = newIndoor;
+        }
+        times[size] = time;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        this.indoor[size] = indoor;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getStartTime() {
+        return times[0];
+    }
+
+    public long getEndTime() {
+        return times[size - 1];
+    }
+
+    public double getLatitude(long time) {
+        int i = indexOf(time);
+        return interpolate(latitudes, i, time);
+    }
+
+    public double getLongitude(long time) {
+        int i = indexOf(time);
+        return interpolate(longitudes, i, time);
+    }
+
+    /**
+     * Returns true if gps can't get a fix at the given time, i.e. because the device is indoors.
+     */
+    public boolean isIndoor(long time) {
+        return indoor[indexOf(time)];
+    }
+
+    // Index of the last point at or before the time, clamped to the trace.
+    private int indexOf(long time) {
+        int low = 0, high = size - 1;
+        if (time <= times[0]) {
+            return 0;
+        }
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (times[mid] <= time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private double interpolate(double[] values, int i, long time) {
+        if (i == size - 1 || time <= times[i]) {
+            return values[i];
+        }
+        double fraction = (double) (time - times[i]) / (times[i + 1] - times[i]);
+        return values[i] + (values[i + 1] - values[i]) * fraction;
+    }
+}
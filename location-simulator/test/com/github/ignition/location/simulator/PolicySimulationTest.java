@@ -0,0 +1,162 @@
+package com.github.ignition.location.simulator;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.ignition.location.utils.LocationRequestPolicy;
+
+public class PolicySimulationTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private Trace trace;
+    private SimulatedDevice device;
+
+    @Before
+    public void setUp() throws Exception {
+        // An hour walking north at about 1.4 m/s, a fix every minute.
+        trace = new Trace();
+        for (int i = 0; i <= 60; i++) {
+            trace.add(i * 60 * 1000, 45 + i * 0.00075, 9, false);
+        }
+        device = new SimulatedDevice();
+    }
+
+    private LocationRequestPolicy gpsPolicy() {
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.useGps = true;
+        policy.dutyCycleGps = false;
+        policy.locationUpdatesInterval = 60 * 1000;
+        policy.waitForGpsFix = 60 * 1000;
+        policy.minBatteryLevel = 0;
+        return policy;
+    }
+
+    @Test
+    public void shouldReadTraces() throws IOException {
+        Trace trace = Trace.read(new StringReader("# time,lat,lon,indoor\n0,45,9\n"
+                + "60000,45.001,9.001,1\n"));
+
+        assertThat(trace.size(), equalTo(2));
+        assertThat(trace.getEndTime(), equalTo(60000L));
+        assertThat(Math.abs(trace.getLatitude(30000) - 45.0005) < 1e-9, equalTo(true));
+        assertThat(trace.isIndoor(60000), equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepGpsOnOutdoors() {
+        SimulationReport report = new PolicySimulation(trace, device, gpsPolicy()).call();
+
+        assertThat(report.getTimeToFirstFix(), equalTo(device.gpsColdStartTimeToFix));
+        assertThat(report.getGpsOnSeconds() > HOUR / 1000 - 60, equalTo(true));
+        assertThat(report.getProviderRequests(), equalTo(1));
+        assertThat(report.getMeanError() < 100, equalTo(true));
+    }
+
+    @Test
+    public void shouldFallBackToNetworkIndoors() {
+        Trace indoor = new Trace();
+        indoor.add(0, 45, 9, true);
+        indoor.add(HOUR, 45, 9, true);
+
+        SimulationReport report = new PolicySimulation(indoor, device, gpsPolicy()).call();
+
+        // Gps is given up on after each wait, and backed off for longer and longer.
+        assertThat(report.getProviderRequests() > 2, equalTo(true));
+        assertThat(report.getGpsOnSeconds() < HOUR / 1000 / 2, equalTo(true));
+        assertThat(report.getNetworkOnSeconds() > HOUR / 1000 / 2, equalTo(true));
+        assertThat(report.getFixCount() > 0, equalTo(true));
+    }
+
+    @Test
+    public void shouldNotUseGpsBelowTheMinBatteryLevel() {
+        LocationRequestPolicy policy = gpsPolicy();
+        policy.minBatteryLevel = 101;
+
+        SimulationReport report = new PolicySimulation(trace, device, policy).call();
+
+        assertThat(report.getGpsOnSeconds(), equalTo(0L));
+        assertThat(report.getNetworkOnSeconds() > 0, equalTo(true));
+    }
+
+    @Test
+    public void shouldSaveGpsTimeWhenDutyCycling() {
+        LocationRequestPolicy dutyCycled = gpsPolicy();
+        dutyCycled.dutyCycleGps = true;
+        dutyCycled.locationUpdatesInterval = 5 * 60 * 1000;
+        LocationRequestPolicy continuous = gpsPolicy();
+        continuous.locationUpdatesInterval = 5 * 60 * 1000;
+
+        SimulationReport dutyCycledReport = new PolicySimulation(trace, device, dutyCycled)
+                .call();
+        SimulationReport continuousReport = new PolicySimulation(trace, device, continuous)
+                .call();
+
+        assertThat(dutyCycledReport.getGpsOnSeconds() < continuousReport.getGpsOnSeconds(),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldSuspendUpdatesWhileStill() {
+        Trace still = new Trace();
+        still.add(0, 45, 9, false);
+        still.add(HOUR, 45, 9, false);
+        LocationRequestPolicy detecting = gpsPolicy();
+        detecting.detectStillness = true;
+
+        SimulationReport detectingReport = new PolicySimulation(still, device, detecting).call();
+        SimulationReport continuousReport = new PolicySimulation(still, device, gpsPolicy())
+                .call();
+
+        assertThat(detectingReport.getGpsOnSeconds() < continuousReport.getGpsOnSeconds() / 2,
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldResumeUpdatesOnceMovingAgain() {
+        LocationRequestPolicy detecting = gpsPolicy();
+        detecting.detectStillness = true;
+
+        SimulationReport report = new PolicySimulation(trace, device, detecting).call();
+
+        // The walk never stays within the stillness radius long enough.
+        assertThat(report.getGpsOnSeconds() > HOUR / 1000 - 60, equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepWithinTheBatteryBudget() {
+        LocationRequestPolicy budgeted = gpsPolicy();
+        budgeted.batteryBudget = 2;
+
+        SimulationReport budgetedReport = new PolicySimulation(trace, device, budgeted).call();
+        SimulationReport unbudgetedReport = new PolicySimulation(trace, device, gpsPolicy())
+                .call();
+
+        assertThat(budgetedReport.getGpsOnSeconds() < unbudgetedReport.getGpsOnSeconds(),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldReportTheSameResultsInParallel() throws InterruptedException {
+        List<LocationRequestPolicy> policies = Arrays.asList(gpsPolicy(), gpsPolicy(),
+                gpsPolicy(), gpsPolicy());
+        PolicySweep sweep = new PolicySweep(4);
+        try {
+            List<SimulationReport> reports = sweep.run(trace, device, policies);
+
+            assertThat(reports.size(), equalTo(4));
+            for (SimulationReport report : reports) {
+                assertThat(report.toString(), equalTo(reports.get(0).toString()));
+            }
+        } finally {
+            sweep.shutdown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.BatteryManager;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.tasks.IgnitedLastKnownLocationLoader;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.location.utils.VirtualClock;
+import com.github.ignition.samples.ui.IgnitedLocationSampleActivity;
+import com.github.ignition.support.IgnitedDiagnostics;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.shadows.ShadowApplication;
+import com.xtremelabs.robolectric.shadows.ShadowLocationManager;
+
+/**
+ * Runs a day of tracking in virtual time: the activity stays in the foreground while only the
+ * network provider returns fixes.
+ */
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedLocationDayScenarioTest {
+    private static final long START = 1300000000000L;
+    private static final long DAY = 24 * 60 * 60 * 1000;
+    private static final long FIX_INTERVAL = 5 * 60 * 1000;
+
+    private IgnitedLocationSampleActivity activity;
+    private ShadowApplication shadowApp;
+    private VirtualClock clock;
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        IgnitedClock.setClock(clock);
+        IgnitedFlightRecorder.getInstance().clear();
+
+        activity = new IgnitedLocationSampleActivity();
+        shadowApp = Robolectric.getShadowApplication();
+        ShadowLocationManager shadowLocationManager = Robolectric
+                .shadowOf((LocationManager) activity.getSystemService(Context.LOCATION_SERVICE));
+        shadowLocationManager.setProviderEnabled(LocationManager.GPS_PROVIDER, true);
+        shadowLocationManager.setProviderEnabled(LocationManager.NETWORK_PROVIDER, true);
+        shadowLocationManager.setBestProvider(LocationManager.GPS_PROVIDER, true);
+
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, 100);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        shadowApp.sendStickyBroadcast(intent);
+
+        IgnitedDiagnostics.setTestApiLevel(IgnitedDiagnostics.GINGERBREAD);
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        IgnitedReceiverWorkQueue.getInstance().setExecutor(executor);
+        IgnitedLastKnownLocationLoader.setExecutor(executor);
+
+        activity.onCreate(null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        activity.finish();
+        activity.onPause();
+        activity.onStop();
+        activity.onDestroy();
+        clock.advanceBy(IgnitedLocationConstants.LOCATION_UPDATES_TEARDOWN_DELAY);
+        IgnitedClock.setClock(null);
+    }
+
+    private Location sendNetworkFix() {
+        Intent intent = new Intent(IgnitedLocationConstants.ACTIVE_LOCATION_UPDATE_ACTION);
+        Location location = new Location(LocationManager.NETWORK_PROVIDER);
+        location.setLatitude(2.0);
+        location.setLongitude(2.0);
+        location.setAccuracy(500);
+        location.setTime(clock.currentTimeMillis());
+        intent.putExtra(LocationManager.KEY_LOCATION_CHANGED, location);
+        shadowApp.sendBroadcast(intent);
+        return location;
+    }
+
+    private int countEvents(int type) {
+        IgnitedFlightRecorder recorder = IgnitedFlightRecorder.getInstance();
+        ByteBuffer buffer = ByteBuffer.allocate(recorder.size() * IgnitedFlightRecorder.EVENT_SIZE);
+        int count = recorder.copyTo(buffer);
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            // Skip the time, the event follows it.
+            long event = buffer.getLong(i * IgnitedFlightRecorder.EVENT_SIZE + 8);
+            if (IgnitedFlightRecorder.getType(event) == type) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void shouldGiveUpOnGpsWithoutFixesForADay() {
+        activity.onStart();
+        activity.onResume();
+        clock.advanceBy(0);
+
+        Location lastFix = null;
+        for (long time = 0; time < DAY; time += FIX_INTERVAL) {
+            lastFix = sendNetworkFix();
+            clock.advanceBy(FIX_INTERVAL);
+            if (time == 0) {
+                // Gps didn't return a fix in time, so it was given up on.
+                assertThat(countEvents(IgnitedFlightRecorder.EVENT_GPS_TIMEOUT), equalTo(1));
+            }
+        }
+        assertThat(clock.currentTimeMillis(), equalTo(START + DAY));
+        assertThat(activity.getCurrentLocation(), equalTo(lastFix));
+        assertThat(IgnitedLocationManager.aspectOf().isLocationUpdatesDisabled(), equalTo(false));
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedLocationHistory;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedLocationHistoryTest {
+    private static final long START = 1300000000000L;
+
+    private IgnitedLocationHistory history;
+
+    @Before
+    public void setUp() throws Exception {
+        history = new IgnitedLocationHistory(3);
+    }
+
+    private void add(double latitude, long time) {
+        history.add(latitude, 9.0, time, 10, 0, 0, IgnitedLocationCodec.PROVIDER_GPS,
+                IgnitedLocationCodec.FLAG_HAS_ACCURACY);
+    }
+
+    @Test
+    public void shouldOverwriteTheOldestFixes() {
+        for (int i = 0; i < 4; i++) {
+            add(45.0 + i, START + i * 1000);
+        }
+
+        assertThat(history.size(), equalTo(3));
+        assertThat(history.getFirstSequence(), equalTo(1L));
+        assertThat(history.getNextSequence(), equalTo(4L));
+        assertThat(history.getLatitude(1), equalTo(46.0));
+        assertThat(history.getTime(3), equalTo(START + 3000));
+    }
+
+    @Test
+    public void shouldKeepFixesUpToAbout24DaysFromTheFirstOne() {
+        add(45.0, START);
+        add(46.0, START + Integer.MAX_VALUE);
+        add(44.0, START + Integer.MIN_VALUE + 1);
+
+        assertThat(history.size(), equalTo(3));
+        assertThat(history.getBaseTime(), equalTo(START));
+        assertThat(history.getTime(1), equalTo(START + Integer.MAX_VALUE));
+        assertThat(history.getTime(2), equalTo(START + Integer.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void shouldClearItselfWhenAFixIsTooFarInTheFuture() {
+        add(45.0, START);
+        add(46.0, START + 1000);
+        long later = START + Integer.MAX_VALUE + 1L;
+        add(47.0, later);
+
+        // The earlier fixes can't be encoded relative to the new base time anymore.
+        assertThat(history.size(), equalTo(1));
+        assertThat(history.getBaseTime(), equalTo(later));
+        assertThat(history.getFirstSequence(), equalTo(2L));
+        assertThat(history.getLatitude(2), equalTo(47.0));
+        assertThat(history.getTime(2), equalTo(later));
+    }
+
+    @Test
+    public void shouldClearItselfWhenAFixIsTooFarInThePast() {
+        add(45.0, START);
+        long earlier = START - Integer.MAX_VALUE - 1L;
+        add(44.0, earlier);
+
+        assertThat(history.size(), equalTo(1));
+        assertThat(history.getBaseTime(), equalTo(earlier));
+        assertThat(history.getTime(1), equalTo(earlier));
+    }
+
+    @Test
+    public void shouldDropFixesOutOfRangeOfTheFixesNotReadYet() {
+        add(45.0, START);
+        add(46.0, START + 1000);
+        history.setReaderSequence(1);
+        long later = START + Integer.MAX_VALUE + 1L;
+
+        assertThat(history.add(47.0, 9.0, later, 10, 0, 0, IgnitedLocationCodec.PROVIDER_GPS,
+                IgnitedLocationCodec.FLAG_HAS_ACCURACY), equalTo(false));
+        assertThat(history.size(), equalTo(2));
+        assertThat(history.getNextSequence(), equalTo(2L));
+        assertThat(history.getBaseTime(), equalTo(START));
+
+        // Once they've been read the history can start over.
+        history.setReaderSequence(2);
+        add(47.0, later);
+
+        assertThat(history.size(), equalTo(1));
+        assertThat(history.getBaseTime(), equalTo(later));
+        assertThat(history.getLatitude(2), equalTo(47.0));
+    }
+}
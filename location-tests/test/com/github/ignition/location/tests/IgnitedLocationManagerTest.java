@@ -5,8 +5,10 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.notNullValue;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.junit.After;
 import org.junit.Before;
@@ -25,6 +27,10 @@ import android.os.BatteryManager;
 
 import com.github.ignition.location.IgnitedLocationConstants;
 import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.tasks.IgnitedLastKnownLocationLoader;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
 import com.github.ignition.samples.ui.IgnitedLocationSampleActivity;
 import com.github.ignition.support.IgnitedDiagnostics;
 import com.xtremelabs.robolectric.Robolectric;
@@ -58,6 +64,16 @@ public class IgnitedLocationManagerTest {
 
         IgnitedDiagnostics.setTestApiLevel(IgnitedDiagnostics.GINGERBREAD);
 
+        // Run the receivers' work and the last known location lookup synchronously.
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        IgnitedReceiverWorkQueue.getInstance().setExecutor(executor);
+        IgnitedLastKnownLocationLoader.setExecutor(executor);
+
         activity.onCreate(null);
     }
 
@@ -92,6 +108,25 @@ public class IgnitedLocationManagerTest {
         return location;
     }
 
+    // Returns the events of the given type recorded since the recorder was cleared, oldest first.
+    private long[] getEvents(int type) {
+        IgnitedFlightRecorder recorder = IgnitedFlightRecorder.getInstance();
+        ByteBuffer buffer = ByteBuffer.allocate(recorder.size() * IgnitedFlightRecorder.EVENT_SIZE);
+        int count = recorder.copyTo(buffer);
+        long[] events = new long[count];
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            // Skip the time, the event follows it.
+            long event = buffer.getLong(i * IgnitedFlightRecorder.EVENT_SIZE + 8);
+            if (IgnitedFlightRecorder.getType(event) == type) {
+                events[matches++] = event;
+            }
+        }
+        long[] result = new long[matches];
+        System.arraycopy(events, 0, result, 0, matches);
+        return result;
+    }
+
     @Test
     public void ignitedLocationIsCurrentLocation() {
         resume();
@@ -131,6 +166,30 @@ public class IgnitedLocationManagerTest {
         resume();
     }
 
+    @Test
+    public void shouldKeepLocationUpdatesWhenResumedAgainQuickly() {
+        resume();
+        activity.onPause();
+        // I.e. the next activity is resumed.
+        resume();
+        Robolectric.getUiThreadScheduler().advanceBy(
+                IgnitedLocationConstants.LOCATION_UPDATES_TEARDOWN_DELAY);
+
+        assertThat("Location updates shouldn't be disabled at this point", !IgnitedLocationManager
+                .aspectOf().isLocationUpdatesDisabled());
+    }
+
+    @Test
+    public void shouldDisableLocationUpdatesOnceNoActivityIsResumed() {
+        resume();
+        activity.onPause();
+        Robolectric.getUiThreadScheduler().advanceBy(
+                IgnitedLocationConstants.LOCATION_UPDATES_TEARDOWN_DELAY);
+
+        assertThat("Location updates should be disabled at this point", IgnitedLocationManager
+                .aspectOf().isLocationUpdatesDisabled());
+    }
+
     // @Test
     // public void noTaskRunningOnFinish() {
     // // shadowApp.getBackgroundScheduler().pause();
@@ -204,6 +263,30 @@ public class IgnitedLocationManagerTest {
         assertThat("No listeners registered, the best provider is enabled!", listeners.isEmpty());
     }
 
+    @Test
+    public void shouldMoveUpdatesToGpsOnceItIsEnabled() throws Exception {
+        shadowLocationManager.setProviderEnabled(LocationManager.GPS_PROVIDER, false);
+        shadowLocationManager.setBestProvider(LocationManager.NETWORK_PROVIDER, true);
+        resume();
+        IgnitedFlightRecorder.getInstance().clear();
+
+        // The criteria are the same, only the provider they resolve to changes.
+        shadowLocationManager.setProviderEnabled(LocationManager.GPS_PROVIDER, true);
+        shadowLocationManager.setBestProvider(LocationManager.GPS_PROVIDER, true);
+        for (LocationListener listener : shadowLocationManager
+                .getRequestLocationUpdateListeners()) {
+            listener.onProviderEnabled(LocationManager.GPS_PROVIDER);
+        }
+        Robolectric.getUiThreadScheduler().advanceBy(
+                IgnitedLocationConstants.LOCATION_UPDATES_REREGISTRATION_DELAY);
+
+        assertThat(getEvents(IgnitedFlightRecorder.EVENT_ACTIVE_REMOVED).length, equalTo(1));
+        assertThat(getEvents(IgnitedFlightRecorder.EVENT_ACTIVE_REQUESTED).length, equalTo(1));
+        long[] enabled = getEvents(IgnitedFlightRecorder.EVENT_UPDATES_ENABLED);
+        assertThat(IgnitedFlightRecorder.getArg(enabled[enabled.length - 1]),
+                equalTo(IgnitedLocationCodec.PROVIDER_GPS));
+    }
+
     @Test
     public void shouldRegisterLocationProviderDisabledReceiver() {
         resume();
@@ -221,6 +304,27 @@ public class IgnitedLocationManagerTest {
         assertThat(receiverRegistered, is(true));
     }
 
+    @Test
+    public void shouldRegisterReceiversOnceOnRepeatedProviderTriggers() {
+        resume();
+
+        for (int i = 0; i < 10; i++) {
+            shadowApp.sendBroadcast(new Intent(
+                    IgnitedLocationConstants.ACTIVE_LOCATION_UPDATE_PROVIDER_DISABLED_ACTION));
+        }
+        Robolectric.getUiThreadScheduler().advanceBy(
+                IgnitedLocationConstants.LOCATION_UPDATES_REREGISTRATION_DELAY);
+
+        int registered = 0;
+        for (Wrapper receiver : shadowApp.getRegisteredReceivers()) {
+            if (receiver.intentFilter.getAction(0).equals(
+                    IgnitedLocationConstants.ACTIVE_LOCATION_UPDATE_PROVIDER_DISABLED_ACTION)) {
+                registered++;
+            }
+        }
+        assertThat(registered, equalTo(1));
+    }
+
     @Test
     public void shouldNotRequestUpdatesFromGpsIfBatteryLowLegacy() {
         IgnitedDiagnostics.setTestApiLevel(IgnitedDiagnostics.DONUT);
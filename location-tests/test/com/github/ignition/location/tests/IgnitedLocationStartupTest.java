@@ -0,0 +1,188 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.tasks.IgnitedLastKnownLocationLoader;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.samples.ui.IgnitedLocationSampleActivity;
+import com.github.ignition.support.IgnitedDiagnostics;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.shadows.ShadowApplication;
+import com.xtremelabs.robolectric.shadows.ShadowApplication.Wrapper;
+
+/**
+ * Checks that creating an annotated activity is cheap: the location services are only set up on
+ * the first resume, and the preferences are written on the work queue. Also benchmarks the time
+ * onCreate and the first onResume take.
+ */
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedLocationStartupTest {
+    private static final String LOG_TAG = IgnitedLocationStartupTest.class.getSimpleName();
+
+    private IgnitedLocationSampleActivity activity;
+    private ShadowApplication shadowApp;
+    private QueueExecutor workQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        activity = new IgnitedLocationSampleActivity();
+        shadowApp = Robolectric.getShadowApplication();
+
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, 100);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        shadowApp.sendStickyBroadcast(intent);
+
+        IgnitedDiagnostics.setTestApiLevel(IgnitedDiagnostics.GINGERBREAD);
+        IgnitedFlightRecorder.getInstance().clear();
+
+        workQueue = new QueueExecutor();
+        IgnitedReceiverWorkQueue.getInstance().setExecutor(workQueue);
+        IgnitedLastKnownLocationLoader.setExecutor(workQueue);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        activity.finish();
+        activity.onPause();
+        activity.onStop();
+        activity.onDestroy();
+        workQueue.runAll();
+    }
+
+    @Test
+    public void shouldNotSetUpLocationUpdatesOnCreate() {
+        activity.onCreate(null);
+        workQueue.runAll();
+
+        assertThat(isActiveReceiverRegistered(), equalTo(false));
+        assertThat(IgnitedLocationManager.aspectOf().isLocationUpdatesDisabled(), equalTo(true));
+
+        activity.onStart();
+        activity.onResume();
+        workQueue.runAll();
+
+        assertThat(isActiveReceiverRegistered(), equalTo(true));
+    }
+
+    @Test
+    public void shouldSaveThePreferencesOnTheWorkQueue() {
+        activity.onCreate(null);
+        activity.onStart();
+        activity.onResume();
+
+        SharedPreferences prefs = activity.getSharedPreferences(
+                IgnitedLocationConstants.SHARED_PREFERENCE_FILE, Context.MODE_PRIVATE);
+        assertThat(prefs.contains(IgnitedLocationConstants.SP_KEY_RUN_ONCE), equalTo(false));
+
+        workQueue.runAll();
+        assertThat(prefs.getBoolean(IgnitedLocationConstants.SP_KEY_RUN_ONCE, false),
+                equalTo(true));
+        assertThat(isActiveReceiverRegistered(), equalTo(true));
+    }
+
+    @Test
+    public void shouldReadTheBatteryLevelOnlyOnce() {
+        activity.onCreate(null);
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_BATTERY_READ), equalTo(0));
+
+        activity.onStart();
+        activity.onResume();
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_BATTERY_READ), equalTo(1));
+
+        // Applying the policy again uses the cached level.
+        activity.onPause();
+        activity.onResume();
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_BATTERY_READ), equalTo(1));
+    }
+
+    /**
+     * Times a cold onCreate and the first onResume, and checks that all the setup backed by a
+     * system service is left to the resume. The times are logged, i.e. set ShadowLog.stream to
+     * see them.
+     */
+    @Test
+    public void benchmarkStartup() {
+        long start = System.nanoTime();
+        activity.onCreate(null);
+        long created = System.nanoTime();
+        int setUpOnCreate = countSetUpEvents();
+        activity.onStart();
+        activity.onResume();
+        long resumed = System.nanoTime();
+        workQueue.runAll();
+
+        Log.i(LOG_TAG, "onCreate: " + (created - start) / 1000 + "us, first onResume: "
+                + (resumed - created) / 1000 + "us");
+        assertThat(setUpOnCreate, equalTo(0));
+        assertThat(countSetUpEvents() > 0, equalTo(true));
+    }
+
+    // Events of the setup that calls into system services.
+    private int countSetUpEvents() {
+        return countEvents(IgnitedFlightRecorder.EVENT_BATTERY_READ)
+                + countEvents(IgnitedFlightRecorder.EVENT_RECEIVERS_REGISTERED)
+                + countEvents(IgnitedFlightRecorder.EVENT_ACTIVE_REQUESTED)
+                + countEvents(IgnitedFlightRecorder.EVENT_PASSIVE_REQUESTED);
+    }
+
+    private int countEvents(int type) {
+        IgnitedFlightRecorder recorder = IgnitedFlightRecorder.getInstance();
+        ByteBuffer buffer = ByteBuffer.allocate(recorder.size() * IgnitedFlightRecorder.EVENT_SIZE);
+        int count = recorder.copyTo(buffer);
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            // Skip the time, the event follows it.
+            long event = buffer.getLong(i * IgnitedFlightRecorder.EVENT_SIZE + 8);
+            if (IgnitedFlightRecorder.getType(event) == type) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private boolean isActiveReceiverRegistered() {
+        for (Wrapper receiver : shadowApp.getRegisteredReceivers()) {
+            if (receiver.intentFilter.getAction(0).equals(
+                    IgnitedLocationConstants.ACTIVE_LOCATION_UPDATE_ACTION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.BatteryManager;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.receivers.IgnitedPassiveLocationChangedReceiver;
+import com.github.ignition.location.tasks.IgnitedLastKnownLocationLoader;
+import com.github.ignition.location.templates.MotionSensor;
+import com.github.ignition.location.templates.OnIgnitedLocationChangedListener;
+import com.github.ignition.location.templates.OnSignificantMotionListener;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedFlightRecorder;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.location.utils.LocationRequestPolicy;
+import com.github.ignition.location.utils.VirtualClock;
+import com.github.ignition.support.IgnitedDiagnostics;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.shadows.ShadowApplication;
+import com.xtremelabs.robolectric.shadows.ShadowLocationManager;
+
+/**
+ * Suspends and resumes the location updates of a client that asked for stillness detection, in
+ * virtual time and with a fake motion sensor.
+ */
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedLocationStillnessTest {
+    private static final long START = 1300000000000L;
+    private static final long FIX_INTERVAL = 60 * 1000;
+    private static final long STILLNESS_TIMEOUT = 5 * 60 * 1000;
+    private static final double LATITUDE = 45.0;
+    private static final double LONGITUDE = 9.0;
+
+    private VirtualClock clock;
+    private ShadowApplication shadowApp;
+    private FakeMotionSensor motionSensor;
+    private IgnitedLocationManager manager;
+
+    private final OnIgnitedLocationChangedListener client = new OnIgnitedLocationChangedListener() {
+        @Override
+        public boolean onIgnitedLocationChanged(Location newLocation) {
+            return true;
+        }
+    };
+
+    private static class FakeMotionSensor implements MotionSensor {
+        OnSignificantMotionListener listener;
+        boolean started;
+
+        @Override
+        public void start(OnSignificantMotionListener listener) {
+            this.listener = listener;
+            started = true;
+        }
+
+        @Override
+        public void stop() {
+            started = false;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        IgnitedClock.setClock(clock);
+        IgnitedFlightRecorder.getInstance().clear();
+
+        shadowApp = Robolectric.getShadowApplication();
+        ShadowLocationManager shadowLocationManager = Robolectric
+                .shadowOf((LocationManager) Robolectric.application
+                        .getSystemService(Context.LOCATION_SERVICE));
+        shadowLocationManager.setProviderEnabled(LocationManager.NETWORK_PROVIDER, true);
+        shadowLocationManager.setBestProvider(LocationManager.NETWORK_PROVIDER, true);
+
+        Intent intent = new Intent(Intent.ACTION_BATTERY_CHANGED);
+        intent.putExtra(BatteryManager.EXTRA_LEVEL, 100);
+        intent.putExtra(BatteryManager.EXTRA_SCALE, 100);
+        shadowApp.sendStickyBroadcast(intent);
+
+        IgnitedDiagnostics.setTestApiLevel(IgnitedDiagnostics.GINGERBREAD);
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        IgnitedReceiverWorkQueue.getInstance().setExecutor(executor);
+        IgnitedLastKnownLocationLoader.setExecutor(executor);
+
+        manager = IgnitedLocationManager.aspectOf();
+        motionSensor = new FakeMotionSensor();
+        manager.setMotionSensor(motionSensor);
+
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.requestLocationUpdates = true;
+        policy.useGps = false;
+        policy.detectStillness = true;
+        policy.stillnessTimeout = STILLNESS_TIMEOUT;
+        manager.attach(Robolectric.application, client, policy);
+        clock.advanceBy(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.detach(client);
+        clock.advanceBy(IgnitedLocationConstants.LOCATION_UPDATES_TEARDOWN_DELAY);
+        manager.setMotionSensor(null);
+        IgnitedClock.setClock(null);
+    }
+
+    private static Location newLocation(double latitude) {
+        Location location = new Location(LocationManager.NETWORK_PROVIDER);
+        location.setLatitude(latitude);
+        location.setLongitude(LONGITUDE);
+        location.setAccuracy(20);
+        return location;
+    }
+
+    private void sendActiveFix(double latitude) {
+        Location location = newLocation(latitude);
+        location.setTime(clock.currentTimeMillis());
+        Intent intent = new Intent(IgnitedLocationConstants.ACTIVE_LOCATION_UPDATE_ACTION);
+        intent.putExtra(LocationManager.KEY_LOCATION_CHANGED, location);
+        shadowApp.sendBroadcast(intent);
+    }
+
+    private void sendPassiveFix(double latitude) {
+        Location location = newLocation(latitude);
+        location.setTime(clock.currentTimeMillis());
+        Intent intent = new Intent();
+        intent.putExtra(LocationManager.KEY_LOCATION_CHANGED, location);
+        new IgnitedPassiveLocationChangedReceiver().onReceive(Robolectric.application, intent);
+    }
+
+    private void stayStill() {
+        for (long time = 0; time <= STILLNESS_TIMEOUT; time += FIX_INTERVAL) {
+            sendActiveFix(LATITUDE);
+            clock.advanceBy(FIX_INTERVAL);
+        }
+    }
+
+    private int countEvents(int type) {
+        IgnitedFlightRecorder recorder = IgnitedFlightRecorder.getInstance();
+        ByteBuffer buffer = ByteBuffer.allocate(recorder.size() * IgnitedFlightRecorder.EVENT_SIZE);
+        int count = recorder.copyTo(buffer);
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            // Skip the time, the event follows it.
+            long event = buffer.getLong(i * IgnitedFlightRecorder.EVENT_SIZE + 8);
+            if (IgnitedFlightRecorder.getType(event) == type) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void shouldSuspendUpdatesWhileStill() {
+        stayStill();
+
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_STILL), equalTo(1));
+        assertThat(motionSensor.started, equalTo(true));
+        assertThat(manager.isLocationUpdatesDisabled(), equalTo(false));
+    }
+
+    @Test
+    public void shouldResumeUpdatesOnMotion() {
+        stayStill();
+
+        motionSensor.listener.onSignificantMotion();
+        clock.advanceBy(0);
+
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_MOVING), equalTo(1));
+        assertThat(motionSensor.started, equalTo(false));
+    }
+
+    @Test
+    public void shouldResumeUpdatesOnAPassiveFixFarAway() {
+        stayStill();
+
+        // Still where it was.
+        sendPassiveFix(LATITUDE);
+        clock.advanceBy(FIX_INTERVAL);
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_MOVING), equalTo(0));
+
+        // About a kilometer north: the fix is handed over to the manager's scheduler.
+        sendPassiveFix(LATITUDE + 0.01);
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_MOVING), equalTo(0));
+        clock.advanceBy(0);
+
+        assertThat(countEvents(IgnitedFlightRecorder.EVENT_MOVING), equalTo(1));
+        assertThat(motionSensor.started, equalTo(false));
+    }
+}
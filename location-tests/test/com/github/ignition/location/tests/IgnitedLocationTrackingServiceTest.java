@@ -0,0 +1,209 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.IgnitedLocationManager;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.LocationRequestPolicy;
+import com.github.ignition.location.utils.LocationSample;
+import com.github.ignition.location.utils.VirtualClock;
+import com.github.ignition.location.services.IgnitedLocationTrackingService;
+import com.github.ignition.location.templates.OnLocationBatchListener;
+import com.github.ignition.location.templates.WakeUpAlarm;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.shadows.ShadowLocationManager;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedLocationTrackingServiceTest {
+    private IgnitedLocationTrackingService service;
+    private List<List<Location>> batches;
+    private OnLocationBatchListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        batches = new ArrayList<List<Location>>();
+        listener = new OnLocationBatchListener() {
+            @Override
+            public void onLocationBatch(List<Location> locations) {
+                batches.add(locations);
+            }
+        };
+        IgnitedLocationTrackingService.addListener(listener);
+
+        service = new IgnitedLocationTrackingService();
+        service.onCreate();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        IgnitedLocationTrackingService.removeListener(listener);
+    }
+
+    private Location getMockLocation() {
+        Location location = new Location(LocationManager.GPS_PROVIDER);
+        location.setLatitude(2.0);
+        location.setLongitude(2.0);
+        location.setAccuracy(50);
+        return location;
+    }
+
+    @Test
+    public void shouldDeliverFixesInBatches() {
+        for (int i = 0; i < IgnitedLocationConstants.TRACKING_BATCH_SIZE_DEFAULT - 1; i++) {
+            service.onIgnitedLocationChanged(getMockLocation());
+        }
+        assertThat(batches.size(), equalTo(0));
+
+        service.onIgnitedLocationChanged(getMockLocation());
+
+        assertThat(batches.size(), equalTo(1));
+        assertThat(batches.get(0).size(),
+                equalTo(IgnitedLocationConstants.TRACKING_BATCH_SIZE_DEFAULT));
+    }
+
+    @Test
+    public void shouldDeliverPartialBatchOnceTheOldestFixIsTooOld() {
+        service.onIgnitedLocationChanged(getMockLocation());
+        assertThat(batches.size(), equalTo(0));
+
+        Robolectric.getUiThreadScheduler().advanceBy(
+                IgnitedLocationConstants.TRACKING_MAX_BATCH_LATENCY_DEFAULT);
+
+        assertThat(batches.size(), equalTo(1));
+        assertThat(batches.get(0).size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldNotDeliverTheLastKnownLocation() {
+        LocationSample sample = LocationSample.obtain();
+        sample.set(getMockLocation(), IgnitedLocationCodec.FLAG_LAST_LOCATION);
+
+        service.onLocationSample(sample);
+        sample.recycle();
+        service.flush();
+
+        assertThat(batches.size(), equalTo(0));
+    }
+
+    @Test
+    public void shouldDeliverTheSamplesAsLocations() {
+        LocationSample sample = LocationSample.obtain();
+        sample.set(getMockLocation(), 0);
+
+        service.onLocationSample(sample);
+        sample.recycle();
+        service.flush();
+
+        assertThat(batches.size(), equalTo(1));
+        Location location = batches.get(0).get(0);
+        assertThat(location.getProvider(), equalTo(LocationManager.GPS_PROVIDER));
+        assertThat(location.getLatitude(), equalTo(2.0));
+        assertThat(location.getLongitude(), equalTo(2.0));
+        assertThat(location.getAccuracy(), equalTo(50f));
+    }
+
+    @Test
+    public void shouldCarryTheWholePolicyInTheStartIntent() {
+        LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+        policy.useGps = !policy.useGps;
+        policy.locationUpdatesInterval = 12345;
+        policy.locationUpdatesDistanceDiff = 67;
+        policy.enablePassiveUpdates = !policy.enablePassiveUpdates;
+        policy.passiveLocationUpdatesInterval = 23456;
+        policy.passiveLocationUpdatesDistanceDiff = 89;
+        policy.waitForGpsFix = 34567;
+        policy.minBatteryLevel = 21;
+        policy.dutyCycleGps = !policy.dutyCycleGps;
+        policy.dutyCycleGpsAccuracy = 43;
+        policy.detectStillness = !policy.detectStillness;
+        policy.stillnessTimeout = 45678;
+        policy.batteryBudget = 0.25f;
+
+        Intent intent = IgnitedLocationTrackingService.newStartIntent(service, policy, 5, 6000,
+                "Tracking");
+        LocationRequestPolicy carried = IgnitedLocationTrackingService.getPolicy(intent);
+
+        assertThat(carried.requestLocationUpdates, equalTo(true));
+        assertThat(carried.useGps, equalTo(policy.useGps));
+        assertThat(carried.locationUpdatesInterval, equalTo(12345L));
+        assertThat(carried.locationUpdatesDistanceDiff, equalTo(67));
+        assertThat(carried.enablePassiveUpdates, equalTo(policy.enablePassiveUpdates));
+        assertThat(carried.passiveLocationUpdatesInterval, equalTo(23456L));
+        assertThat(carried.passiveLocationUpdatesDistanceDiff, equalTo(89));
+        assertThat(carried.waitForGpsFix, equalTo(34567L));
+        assertThat(carried.minBatteryLevel, equalTo(21));
+        assertThat(carried.dutyCycleGps, equalTo(policy.dutyCycleGps));
+        assertThat(carried.dutyCycleGpsAccuracy, equalTo(43));
+        assertThat(carried.detectStillness, equalTo(policy.detectStillness));
+        assertThat(carried.stillnessTimeout, equalTo(45678L));
+        assertThat(carried.batteryBudget, equalTo(0.25f));
+        assertThat(intent.getStringExtra(IgnitedLocationTrackingService.EXTRA_NOTIFICATION_TEXT),
+                equalTo("Tracking"));
+    }
+
+    @Test
+    public void shouldWakeTheDeviceUpForTheDelayedDecisions() {
+        VirtualClock clock = new VirtualClock(1300000000000L);
+        IgnitedClock.setClock(clock);
+        final long[] alarmTime = { -1 };
+        WakeUpAlarm alarm = new WakeUpAlarm() {
+            @Override
+            public void set(long elapsedRealtime, Runnable listener) {
+                alarmTime[0] = elapsedRealtime;
+            }
+
+            @Override
+            public void cancel() {
+                alarmTime[0] = -1;
+            }
+        };
+        IgnitedLocationManager manager = IgnitedLocationManager.aspectOf();
+        manager.setWakeUpAlarm(alarm);
+        ShadowLocationManager shadowLocationManager = Robolectric
+                .shadowOf((LocationManager) Robolectric.application
+                        .getSystemService(Context.LOCATION_SERVICE));
+        shadowLocationManager.setProviderEnabled(LocationManager.GPS_PROVIDER, true);
+        shadowLocationManager.setBestProvider(LocationManager.GPS_PROVIDER, true);
+
+        try {
+            LocationRequestPolicy policy = LocationRequestPolicy.fromDefaults();
+            policy.useGps = true;
+            policy.dutyCycleGps = false;
+            policy.waitForGpsFix = 30 * 1000;
+            service.onStartCommand(IgnitedLocationTrackingService.newStartIntent(service, policy,
+                    10, 60 * 1000, null), 0, 1);
+            clock.advanceBy(0);
+
+            // Woken up at the latest to give up on the gps fix.
+            assertThat(manager.isWakeUpForDelayedWork(), equalTo(true));
+            assertThat(alarmTime[0] >= 0, equalTo(true));
+            assertThat(alarmTime[0] <= clock.elapsedRealtime() + policy.waitForGpsFix,
+                    equalTo(true));
+
+            service.onDestroy();
+
+            assertThat(manager.isWakeUpForDelayedWork(), equalTo(false));
+            assertThat(alarmTime[0], equalTo(-1L));
+        } finally {
+            clock.advanceBy(IgnitedLocationConstants.LOCATION_UPDATES_TEARDOWN_DELAY);
+            manager.setWakeUpAlarm(null);
+            IgnitedClock.setClock(null);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.ignition.location.templates.ReverseGeocodeResolver;
+import com.github.ignition.location.utils.IgnitedReverseGeocodeCache;
+
+public class IgnitedReverseGeocodeCacheTest {
+    private static final int PRECISION = 100; // meters
+    // About 300m apart, so in different cells.
+    private static final double[][] POINTS = { { 45.0, 9.0 }, { 45.003, 9.0 }, { 45.006, 9.0 } };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubResolver resolver;
+
+    private static class StubResolver implements ReverseGeocodeResolver {
+        final List<double[]> calls = new ArrayList<double[]>();
+
+        @Override
+        public String getAddress(double latitude, double longitude) {
+            calls.add(new double[] { latitude, longitude });
+            return "address " + calls.size();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        resolver = new StubResolver();
+    }
+
+    private IgnitedReverseGeocodeCache newCache(int maxEntries) {
+        IgnitedReverseGeocodeCache cache = new IgnitedReverseGeocodeCache(folder.getRoot(),
+                resolver, PRECISION, maxEntries);
+        // Prefetches aren't checked here, drop them.
+        cache.setPrefetchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        });
+        return cache;
+    }
+
+    private void lookUpAll(IgnitedReverseGeocodeCache cache) throws IOException {
+        for (double[] point : POINTS) {
+            cache.getAddress(point[0], point[1]);
+        }
+    }
+
+    @Test
+    public void shouldResolveEachCellOnce() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(IgnitedReverseGeocodeCache.MAX_ENTRIES_DEFAULT);
+
+        assertThat(cache.getAddress(45.0, 9.0), equalTo("address 1"));
+        assertThat(cache.getAddress(45.0001, 9.0001), equalTo("address 1"));
+        assertThat(resolver.calls.size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldReadEvictedCellsBackFromDisk() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(1);
+
+        lookUpAll(cache);
+        assertThat(cache.getAddress(POINTS[0][0], POINTS[0][1]), equalTo("address 1"));
+        assertThat(cache.getCachedAddress(POINTS[1][0], POINTS[1][1]), equalTo("address 2"));
+        assertThat(resolver.calls.size(), equalTo(POINTS.length));
+    }
+
+    @Test
+    public void shouldKeepCellsAcrossInstances() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(1);
+        lookUpAll(cache);
+        cache.shutdown();
+
+        IgnitedReverseGeocodeCache reloaded = newCache(1);
+        assertThat(reloaded.getAddress(POINTS[2][0], POINTS[2][1]), equalTo("address 3"));
+        assertThat(reloaded.getAddress(POINTS[0][0], POINTS[0][1]), equalTo("address 1"));
+        assertThat(resolver.calls.size(), equalTo(POINTS.length));
+    }
+
+    @Test
+    public void shouldKeepEvictedCellsWhenCompacting() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(1);
+        lookUpAll(cache);
+        cache.shutdown();
+
+        // Write every record twice more, as if each cell had been resolved three times.
+        File cacheFile = folder.getRoot().listFiles()[0];
+        long length = cacheFile.length();
+        byte[] records = new byte[(int) length];
+        FileInputStream in = new FileInputStream(cacheFile);
+        in.read(records);
+        in.close();
+        FileOutputStream out = new FileOutputStream(cacheFile, true);
+        out.write(records);
+        out.write(records);
+        out.close();
+
+        IgnitedReverseGeocodeCache compacted = newCache(1);
+        assertThat(compacted.getCachedAddress(POINTS[0][0], POINTS[0][1]), equalTo("address 1"));
+        assertThat(cacheFile.length(), equalTo(length));
+        for (int i = 0; i < POINTS.length; i++) {
+            assertThat(compacted.getAddress(POINTS[i][0], POINTS[i][1]),
+                    equalTo("address " + (i + 1)));
+        }
+        assertThat(resolver.calls.size(), equalTo(POINTS.length));
+    }
+
+    @Test
+    public void shouldDropATruncatedRecord() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(1);
+        lookUpAll(cache);
+        cache.shutdown();
+
+        File cacheFile = folder.getRoot().listFiles()[0];
+        FileOutputStream out = new FileOutputStream(cacheFile, true);
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+
+        IgnitedReverseGeocodeCache reloaded = newCache(1);
+        assertThat(reloaded.getAddress(POINTS[1][0], POINTS[1][1]), equalTo("address 2"));
+        assertThat(reloaded.getAddress(10.0, 10.0), equalTo("address 4"));
+        reloaded.shutdown();
+
+        IgnitedReverseGeocodeCache again = newCache(1);
+        assertThat(again.getAddress(10.0, 10.0), equalTo("address 4"));
+        assertThat(resolver.calls.size(), equalTo(POINTS.length + 1));
+    }
+
+    @Test
+    public void shouldWrapAtTheAntimeridian() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(IgnitedReverseGeocodeCache.MAX_ENTRIES_DEFAULT);
+
+        assertThat(cache.getAddress(0.0, 180.0), equalTo("address 1"));
+        assertThat(cache.getAddress(0.0, -180.0), equalTo("address 1"));
+        assertThat(cache.getAddress(0.0, 540.0), equalTo("address 1"));
+        assertThat(resolver.calls.size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldPrefetchAcrossTheAntimeridian() throws IOException {
+        IgnitedReverseGeocodeCache cache = newCache(IgnitedReverseGeocodeCache.MAX_ENTRIES_DEFAULT);
+        cache.setPrefetchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        // Moving east on the equator, from just west of the antimeridian to just east of it.
+        cache.getAddress(0.0, 179.998);
+        cache.getAddress(0.0, -179.9995);
+
+        // The cell ahead is on the eastern side.
+        assertThat(cache.getCachedAddress(0.0, -179.9985) != null, is(true));
+        for (double[] call : resolver.calls) {
+            assertThat(call[1] >= -180 && call[1] <= 180, is(true));
+        }
+    }
+}
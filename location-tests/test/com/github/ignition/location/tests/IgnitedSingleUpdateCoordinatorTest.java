@@ -0,0 +1,191 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+
+import com.github.ignition.location.templates.OnSingleLocationUpdateListener;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedSingleUpdateCoordinator;
+import com.github.ignition.location.utils.VirtualClock;
+import com.github.ignition.support.IgnitedDiagnostics;
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.shadows.ShadowLocationManager;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedSingleUpdateCoordinatorTest {
+    private static final long START = 1300000000000L;
+    private static final long TIMEOUT = 30 * 1000;
+
+    private VirtualClock clock;
+    private ShadowLocationManager shadowLocationManager;
+
+    private static class RecordingListener implements OnSingleLocationUpdateListener {
+        int calls;
+        Location location;
+
+        @Override
+        public void onSingleLocationUpdate(Location location) {
+            calls++;
+            this.location = location;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        IgnitedClock.setClock(clock);
+
+        shadowLocationManager = Robolectric.shadowOf((LocationManager) Robolectric.application
+                .getSystemService(Context.LOCATION_SERVICE));
+        shadowLocationManager.setProviderEnabled(LocationManager.NETWORK_PROVIDER, true);
+        shadowLocationManager.setBestProvider(LocationManager.NETWORK_PROVIDER, true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        IgnitedClock.setClock(null);
+    }
+
+    private IgnitedSingleUpdateCoordinator newCoordinator(int apiLevel) {
+        IgnitedDiagnostics.setTestApiLevel(apiLevel);
+        IgnitedSingleUpdateCoordinator coordinator = new IgnitedSingleUpdateCoordinator(
+                Robolectric.application) {
+        };
+        coordinator.setTimeout(TIMEOUT);
+        return coordinator;
+    }
+
+    private static Location newLocation() {
+        Location location = new Location(LocationManager.NETWORK_PROVIDER);
+        location.setLatitude(45.0);
+        location.setLongitude(9.0);
+        location.setAccuracy(100);
+        location.setTime(START);
+        return location;
+    }
+
+    @Test
+    public void shouldCoalesceWaitersOnOneRequestLegacy() {
+        IgnitedSingleUpdateCoordinator coordinator = newCoordinator(IgnitedDiagnostics.DONUT);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.requestSingleUpdate(first);
+        coordinator.requestSingleUpdate(second);
+        // Asking twice doesn't notify twice.
+        coordinator.requestSingleUpdate(second);
+
+        List<LocationListener> listeners = shadowLocationManager
+                .getRequestLocationUpdateListeners();
+        assertThat(listeners.size(), equalTo(1));
+
+        Location location = newLocation();
+        listeners.get(0).onLocationChanged(location);
+
+        assertThat(first.calls, equalTo(1));
+        assertThat(first.location, equalTo(location));
+        assertThat(second.calls, equalTo(1));
+        assertThat(second.location, equalTo(location));
+        assertThat(shadowLocationManager.getRequestLocationUpdateListeners().isEmpty(),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldCoalesceWaitersOnOneRequestGingerbread() {
+        IgnitedSingleUpdateCoordinator coordinator = newCoordinator(IgnitedDiagnostics.GINGERBREAD);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.requestSingleUpdate(first);
+        coordinator.requestSingleUpdate(second);
+
+        Location location = newLocation();
+        Intent intent = new Intent(IgnitedSingleUpdateCoordinator.SINGLE_LOCATION_UPDATE_ACTION);
+        intent.putExtra(LocationManager.KEY_LOCATION_CHANGED, location);
+        Robolectric.getShadowApplication().sendBroadcast(intent);
+        // The receiver is gone once the request completes.
+        Robolectric.getShadowApplication().sendBroadcast(intent);
+
+        assertThat(first.calls, equalTo(1));
+        assertThat(first.location, equalTo(location));
+        assertThat(second.calls, equalTo(1));
+        assertThat(second.location, equalTo(location));
+    }
+
+    @Test
+    public void shouldNotifyTheWaitersWithNoLocationOnTimeout() {
+        IgnitedSingleUpdateCoordinator coordinator = newCoordinator(IgnitedDiagnostics.DONUT);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.requestSingleUpdate(first);
+        clock.advanceBy(TIMEOUT / 2);
+        // Joining an update in flight doesn't extend its timeout.
+        coordinator.requestSingleUpdate(second);
+        clock.advanceBy(TIMEOUT / 2 - 1);
+        assertThat(first.calls, equalTo(0));
+
+        clock.advanceBy(1);
+
+        assertThat(first.calls, equalTo(1));
+        assertThat(first.location, equalTo(null));
+        assertThat(second.calls, equalTo(1));
+        assertThat(second.location, equalTo(null));
+        assertThat(shadowLocationManager.getRequestLocationUpdateListeners().isEmpty(),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldCancelTheRequestWhenTheLastWaiterLeaves() {
+        IgnitedSingleUpdateCoordinator coordinator = newCoordinator(IgnitedDiagnostics.DONUT);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.requestSingleUpdate(first);
+        coordinator.requestSingleUpdate(second);
+
+        coordinator.cancel(first);
+        assertThat(shadowLocationManager.getRequestLocationUpdateListeners().size(),
+                equalTo(1));
+
+        coordinator.cancel(second);
+        assertThat(shadowLocationManager.getRequestLocationUpdateListeners().isEmpty(),
+                equalTo(true));
+
+        clock.advanceBy(TIMEOUT);
+        assertThat(first.calls, equalTo(0));
+        assertThat(second.calls, equalTo(0));
+    }
+
+    @Test
+    public void shouldStartANewRequestAfterTheLastOneCompleted() {
+        IgnitedSingleUpdateCoordinator coordinator = newCoordinator(IgnitedDiagnostics.DONUT);
+        RecordingListener listener = new RecordingListener();
+
+        coordinator.requestSingleUpdate(listener);
+        clock.advanceBy(TIMEOUT);
+        coordinator.requestSingleUpdate(listener);
+
+        List<LocationListener> listeners = shadowLocationManager
+                .getRequestLocationUpdateListeners();
+        assertThat(listeners.size(), equalTo(1));
+        Location location = newLocation();
+        listeners.get(0).onLocationChanged(location);
+
+        assertThat(listener.calls, equalTo(2));
+        assertThat(listener.location, equalTo(location));
+    }
+}
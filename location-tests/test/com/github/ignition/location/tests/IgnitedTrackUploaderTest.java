@@ -0,0 +1,204 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.templates.TrackUploadTransport;
+import com.github.ignition.location.utils.IgnitedClock;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedLocationHistory;
+import com.github.ignition.location.utils.IgnitedReceiverWorkQueue;
+import com.github.ignition.location.utils.IgnitedTrackUploader;
+import com.github.ignition.location.utils.VirtualClock;
+import com.xtremelabs.robolectric.Robolectric;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class IgnitedTrackUploaderTest {
+    private static final long START = 1300000000000L;
+    private static final int HISTORY_CAPACITY = 10;
+    private static final int MAX_BATCH_SIZE = 5;
+    private static final long MAX_BATCH_AGE = 60 * 1000;
+
+    private VirtualClock clock;
+    private IgnitedLocationHistory history;
+    private StubTransport transport;
+    private IgnitedTrackUploader uploader;
+    private boolean connected = true;
+    private int fixes;
+
+    // Records the number of fixes of each batch and the latitude of its first fix.
+    private static class StubTransport implements TrackUploadTransport {
+        final List<Integer> counts = new ArrayList<Integer>();
+        final List<Integer> firstLatitudes = new ArrayList<Integer>();
+        int failures;
+
+        @Override
+        public void upload(byte[] batch, int length) throws IOException {
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Server unavailable");
+            }
+            Inflater inflater = new Inflater();
+            inflater.setInput(batch, 0, length);
+            byte[] raw = new byte[1024];
+            try {
+                inflater.inflate(raw);
+            } catch (DataFormatException e) {
+                throw new IOException(e.getMessage());
+            }
+            // Version, then count and latitude as varints; small enough to fit a byte or four.
+            counts.add((int) raw[1]);
+            int zigZag = 0;
+            for (int i = 0, shift = 0; i < 5; i++, shift += 7) {
+                zigZag |= (raw[2 + i] & 0x7f) << shift;
+                if ((raw[2 + i] & 0x80) == 0) {
+                    break;
+                }
+            }
+            firstLatitudes.add((zigZag >>> 1) ^ -(zigZag & 1));
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        clock = new VirtualClock(START);
+        IgnitedClock.setClock(clock);
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        IgnitedReceiverWorkQueue.getInstance().setExecutor(executor);
+
+        history = new IgnitedLocationHistory(HISTORY_CAPACITY);
+        transport = new StubTransport();
+        uploader = new IgnitedTrackUploader(Robolectric.application, history) {
+            @Override
+            protected boolean isConnected() {
+                return connected;
+            }
+        };
+        uploader.setExecutor(executor);
+        uploader.setTransport(transport);
+        uploader.setMaxBatchSize(MAX_BATCH_SIZE);
+        uploader.setMaxBatchAge(MAX_BATCH_AGE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        IgnitedClock.setClock(null);
+    }
+
+    private static double latitudeOf(int fix) {
+        return 45.0 + fix * 0.001;
+    }
+
+    private void addFixes(int count, int flags) {
+        for (int i = 0; i < count; i++) {
+            history.add(latitudeOf(fixes++), 9.0, clock.currentTimeMillis(), 10, 0, 0,
+                    IgnitedLocationCodec.PROVIDER_GPS, flags);
+            uploader.flushIfNeeded();
+        }
+    }
+
+    private void addFixes(int count) {
+        addFixes(count, IgnitedLocationCodec.FLAG_HAS_ACCURACY);
+    }
+
+    @Test
+    public void shouldFlushFullBatches() {
+        addFixes(MAX_BATCH_SIZE - 1);
+        assertThat(transport.counts.size(), equalTo(0));
+
+        addFixes(1);
+        assertThat(transport.counts, equalTo(Arrays.asList(MAX_BATCH_SIZE)));
+    }
+
+    @Test
+    public void shouldFlushOldBatchesWithoutWaitingForTheNextFix() {
+        addFixes(2);
+        clock.advanceBy(MAX_BATCH_AGE / 2);
+        addFixes(1);
+
+        clock.advanceBy(MAX_BATCH_AGE / 2 - 1);
+        assertThat(transport.counts.size(), equalTo(0));
+
+        // The age of the batch is the age of its first fix.
+        clock.advanceBy(1);
+        assertThat(transport.counts, equalTo(Arrays.asList(3)));
+
+        // The next batch gets its own age flush.
+        addFixes(1);
+        clock.advanceBy(MAX_BATCH_AGE);
+        assertThat(transport.counts, equalTo(Arrays.asList(3, 1)));
+    }
+
+    @Test
+    public void shouldUploadEverythingOnceReconnected() {
+        connected = false;
+        addFixes(MAX_BATCH_SIZE + 2);
+        clock.advanceBy(MAX_BATCH_AGE);
+        assertThat(transport.counts.size(), equalTo(0));
+
+        connected = true;
+        uploader.flush();
+        assertThat(transport.counts, equalTo(Arrays.asList(MAX_BATCH_SIZE, 2)));
+    }
+
+    @Test
+    public void shouldSkipTheFixesOverwrittenWhileOffline() {
+        connected = false;
+        addFixes(HISTORY_CAPACITY + 3);
+
+        connected = true;
+        uploader.flush();
+        assertThat(transport.counts, equalTo(Arrays.asList(MAX_BATCH_SIZE, MAX_BATCH_SIZE)));
+        // The three oldest fixes were lost.
+        assertThat(transport.firstLatitudes.get(0),
+                equalTo(IgnitedLocationCodec.toE7(latitudeOf(3))));
+    }
+
+    @Test
+    public void shouldRetryFailedUploadsWithABackoff() {
+        long delay = IgnitedLocationConstants.TRACK_UPLOAD_RETRY_DELAY_DEFAULT;
+        transport.failures = 2;
+        addFixes(MAX_BATCH_SIZE);
+        assertThat(transport.counts.size(), equalTo(0));
+
+        // No other fix follows, the retries are posted.
+        clock.advanceBy(delay);
+        assertThat(transport.failures, equalTo(0));
+        clock.advanceBy(2 * delay - 1);
+        assertThat(transport.counts.size(), equalTo(0));
+
+        clock.advanceBy(1);
+        assertThat(transport.counts, equalTo(Arrays.asList(MAX_BATCH_SIZE)));
+    }
+
+    @Test
+    public void shouldNotUploadLastKnownFixes() {
+        addFixes(2);
+        addFixes(1, IgnitedLocationCodec.FLAG_HAS_ACCURACY
+                | IgnitedLocationCodec.FLAG_LAST_LOCATION);
+        addFixes(2);
+
+        assertThat(transport.counts, equalTo(Arrays.asList(MAX_BATCH_SIZE - 1)));
+        assertThat(transport.firstLatitudes.get(0),
+                equalTo(IgnitedLocationCodec.toE7(latitudeOf(0))));
+    }
+}
@@ -0,0 +1,279 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.location.Criteria;
+import android.location.LocationManager;
+
+import com.github.ignition.location.templates.LocationRequestTarget;
+import com.github.ignition.location.utils.LocationRequestController;
+
+public class LocationRequestControllerTest {
+    private static final long MIN_TIME = 5 * 60 * 1000;
+    private static final long MIN_DISTANCE = 100;
+
+    private CountingTarget target;
+    private QueueExecutor executor;
+    private LocationRequestController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        target = new CountingTarget();
+        executor = new QueueExecutor();
+        controller = new LocationRequestController(target, executor);
+        // Start from a clean state: passive updates are assumed requested at first.
+        controller.removePassiveUpdates();
+        executor.runAll();
+        target.reset();
+    }
+
+    private void requestFineUpdates() {
+        requestFineUpdates(LocationManager.GPS_PROVIDER);
+    }
+
+    // The criteria are the same whatever the provider they resolve to.
+    private void requestFineUpdates(String provider) {
+        controller.removePassiveUpdates();
+        controller.setActiveUpdates(MIN_TIME, MIN_DISTANCE, Criteria.ACCURACY_FINE,
+                Criteria.NO_REQUIREMENT, provider);
+        controller.setReceiversRegistered(true);
+        controller.setWatchedProvider(LocationManager.GPS_PROVIDER);
+    }
+
+    private void disableUpdates() {
+        controller.setReceiversRegistered(false);
+        controller.removeActiveUpdates();
+        controller.setWatchedProvider(null);
+        controller.setPassiveUpdates(MIN_TIME * 3, MIN_DISTANCE);
+    }
+
+    @Test
+    public void shouldRemovePassiveUpdatesRequestedBeforeStarting() {
+        LocationRequestController controller = new LocationRequestController(target, executor);
+
+        controller.removePassiveUpdates();
+        executor.runAll();
+
+        assertThat(target.removePassive, equalTo(1));
+        assertThat(target.calls(), equalTo(1));
+    }
+
+    @Test
+    public void shouldBatchRepeatedTriggersIntoOneApply() {
+        for (int i = 0; i < 50; i++) {
+            requestFineUpdates();
+        }
+
+        assertThat(executor.size(), equalTo(1));
+        executor.runAll();
+
+        assertThat(target.requestActive, equalTo(1));
+        assertThat(target.registerReceivers, equalTo(1));
+        assertThat(target.watch, equalTo(1));
+        assertThat(target.calls(), equalTo(3));
+    }
+
+    @Test
+    public void shouldNotCallTheSystemWhenStateIsUnchanged() {
+        requestFineUpdates();
+        executor.runAll();
+        target.reset();
+
+        for (int i = 0; i < 50; i++) {
+            requestFineUpdates();
+        }
+
+        assertThat(executor.size(), equalTo(0));
+        assertThat(target.calls(), equalTo(0));
+    }
+
+    @Test
+    public void shouldNotCallTheSystemForChangesThatCancelOut() {
+        requestFineUpdates();
+        executor.runAll();
+        target.reset();
+
+        // I.e. a re-registration while the same provider is the best one: everything is torn down
+        // and requested again before the batch runs.
+        disableUpdates();
+        requestFineUpdates();
+        executor.runAll();
+
+        assertThat(target.calls(), equalTo(0));
+    }
+
+    @Test
+    public void shouldRequestAgainWhenTheCriteriaResolveToAnotherProvider() {
+        requestFineUpdates(LocationManager.NETWORK_PROVIDER);
+        executor.runAll();
+        target.reset();
+
+        // I.e. a re-registration once gps has been enabled.
+        disableUpdates();
+        requestFineUpdates(LocationManager.GPS_PROVIDER);
+        executor.runAll();
+
+        assertThat(target.removeActive, equalTo(1));
+        assertThat(target.requestActive, equalTo(1));
+        assertThat(target.calls(), equalTo(2));
+    }
+
+    @Test
+    public void shouldRemoveActiveUpdatesBeforeChangingCriteria() {
+        requestFineUpdates();
+        executor.runAll();
+        target.reset();
+
+        controller.setActiveUpdates(MIN_TIME, MIN_DISTANCE, Criteria.NO_REQUIREMENT,
+                Criteria.POWER_LOW);
+        executor.runAll();
+
+        assertThat(target.removeActive, equalTo(1));
+        assertThat(target.requestActive, equalTo(1));
+        assertThat(target.calls(), equalTo(2));
+    }
+
+    @Test
+    public void shouldReplaceActiveUpdatesWhenOnlyTheIntervalChanges() {
+        requestFineUpdates();
+        executor.runAll();
+        target.reset();
+
+        controller.setActiveUpdates(MIN_TIME * 2, MIN_DISTANCE, Criteria.ACCURACY_FINE,
+                Criteria.NO_REQUIREMENT, LocationManager.GPS_PROVIDER);
+        executor.runAll();
+
+        assertThat(target.removeActive, equalTo(0));
+        assertThat(target.requestActive, equalTo(1));
+    }
+
+    @Test
+    public void shouldMakeABoundedNumberOfCallsPerTransition() {
+        disableUpdates();
+        executor.runAll();
+        target.reset();
+
+        for (int i = 0; i < 20; i++) {
+            requestFineUpdates();
+            executor.runAll();
+            disableUpdates();
+            executor.runAll();
+        }
+
+        // Each enable makes 4 calls (remove passive, request, register, watch) and each disable 4
+        // (remove active, unregister, unwatch, request passive).
+        assertThat(target.calls(), equalTo(20 * 8));
+        assertThat(target.registerReceivers, equalTo(target.unregisterReceivers));
+        assertThat(target.watch, equalTo(target.unwatch));
+    }
+
+    @Test
+    public void shouldApplyPendingChangesImmediatelyWhenAsked() {
+        requestFineUpdates();
+        controller.applyNow();
+
+        assertThat(target.calls(), equalTo(3));
+        assertThat(controller.isReceiversRegistered(), equalTo(true));
+
+        // The batch already queued has nothing left to do.
+        executor.runAll();
+        assertThat(target.calls(), equalTo(3));
+    }
+
+    @Test
+    public void shouldSwitchWatchedProvider() {
+        requestFineUpdates();
+        executor.runAll();
+        target.reset();
+
+        controller.setWatchedProvider(LocationManager.NETWORK_PROVIDER);
+        executor.runAll();
+
+        assertThat(target.unwatch, equalTo(1));
+        assertThat(target.watch, equalTo(1));
+        assertThat(controller.getWatchedProvider(), equalTo(LocationManager.NETWORK_PROVIDER));
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> queue = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+
+    private static class CountingTarget implements LocationRequestTarget {
+        int requestActive, removeActive, requestPassive, removePassive, watch, unwatch,
+                registerReceivers, unregisterReceivers;
+
+        int calls() {
+            return requestActive + removeActive + requestPassive + removePassive + watch
+                    + unwatch + registerReceivers + unregisterReceivers;
+        }
+
+        void reset() {
+            requestActive = removeActive = requestPassive = removePassive = 0;
+            watch = unwatch = registerReceivers = unregisterReceivers = 0;
+        }
+
+        @Override
+        public void requestActiveUpdates(long minTime, long minDistance, int accuracy,
+                int powerRequirement) {
+            requestActive++;
+        }
+
+        @Override
+        public void removeActiveUpdates() {
+            removeActive++;
+        }
+
+        @Override
+        public void requestPassiveUpdates(long minTime, long minDistance) {
+            requestPassive++;
+        }
+
+        @Override
+        public void removePassiveUpdates() {
+            removePassive++;
+        }
+
+        @Override
+        public void watchProvider(String provider) {
+            watch++;
+        }
+
+        @Override
+        public void unwatchProvider() {
+            unwatch++;
+        }
+
+        @Override
+        public void registerReceivers() {
+            registerReceivers++;
+        }
+
+        @Override
+        public void unregisterReceivers() {
+            unregisterReceivers++;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.location.Location;
+import android.location.LocationManager;
+
+import com.github.ignition.location.IgnitedLocationConstants;
+import com.github.ignition.location.utils.IgnitedLocationCodec;
+import com.github.ignition.location.utils.IgnitedLocationSupport;
+import com.github.ignition.location.utils.LocationSample;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class LocationSampleTest {
+
+    private Location getMockLocation() {
+        Location location = new Location(LocationManager.GPS_PROVIDER);
+        location.setLatitude(45.5);
+        location.setLongitude(9.25);
+        location.setTime(1234567890L);
+        location.setAccuracy(12.5f);
+        location.setSpeed(3f);
+        return location;
+    }
+
+    @Test
+    public void shouldReuseRecycledSamples() {
+        LocationSample sample = LocationSample.obtain();
+        sample.recycle();
+
+        assertThat(LocationSample.obtain(), sameInstance(sample));
+    }
+
+    @Test
+    public void shouldCopyTheValuesAndFlags() {
+        LocationSample sample = LocationSample.obtain();
+        sample.set(getMockLocation(), IgnitedLocationCodec.FLAG_LAST_LOCATION);
+
+        assertThat(sample.getLatitude(), equalTo(45.5));
+        assertThat(sample.getLongitude(), equalTo(9.25));
+        assertThat(sample.getTime(), equalTo(1234567890L));
+        assertThat(sample.getAccuracy(), equalTo(12.5f));
+        assertThat(sample.getProvider(), equalTo(LocationManager.GPS_PROVIDER));
+        assertThat(sample.hasAccuracy(), equalTo(true));
+        assertThat(sample.hasSpeed(), equalTo(true));
+        assertThat(sample.hasBearing(), equalTo(false));
+        assertThat(sample.isLastLocation(), equalTo(true));
+        assertThat(sample.isLastLocationTooOld(), equalTo(false));
+
+        LocationSample copy = LocationSample.obtain(sample);
+        sample.recycle();
+        assertThat(copy.getLatitude(), equalTo(45.5));
+        assertThat(copy.isLastLocation(), equalTo(true));
+    }
+
+    @Test
+    public void shouldClearRecycledSamples() {
+        LocationSample sample = LocationSample.obtain();
+        sample.set(getMockLocation(), IgnitedLocationCodec.FLAG_LAST_LOCATION);
+        sample.recycle();
+
+        sample = LocationSample.obtain();
+        assertThat(sample.getLatitude(), equalTo(0.0));
+        assertThat(sample.getFlags(), equalTo(0));
+    }
+
+    @Test
+    public void shouldAddLibraryFlagsToLocationWithoutExtras() {
+        Location location = getMockLocation();
+        location.setExtras(null);
+
+        IgnitedLocationSupport.addFlags(location, IgnitedLocationCodec.FLAG_LAST_LOCATION);
+
+        assertThat(location.getExtras().getBoolean(
+                IgnitedLocationConstants.IGNITED_LAST_LOCATION_EXTRA), equalTo(true));
+        assertThat(IgnitedLocationSupport.getFlags(location)
+                & IgnitedLocationCodec.FLAG_LAST_LOCATION,
+                equalTo(IgnitedLocationCodec.FLAG_LAST_LOCATION));
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.ignition.location.tests;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import android.location.Location;
+import android.location.LocationManager;
+
+import com.github.ignition.location.utils.PassiveLocationGate;
+
+@RunWith(LocationTestsRobolectricTestRunner.class)
+public class PassiveLocationGateTest {
+    private static final long NOW = 1300000000000L;
+    private static final long INTERVAL = 30 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PassiveLocationGate newGate(File file) {
+        PassiveLocationGate gate = new PassiveLocationGate(file) {
+        };
+        gate.setMinProcessingInterval(INTERVAL);
+        return gate;
+    }
+
+    private PassiveLocationGate newGate() {
+        return newGate(new File(folder.getRoot(), "gate"));
+    }
+
+    private static Location newLocation(double latitude, long time) {
+        Location location = new Location(LocationManager.NETWORK_PROVIDER);
+        location.setLatitude(latitude);
+        location.setLongitude(9.0);
+        location.setAccuracy(100);
+        location.setTime(time);
+        return location;
+    }
+
+    @Test
+    public void shouldDropDuplicates() {
+        PassiveLocationGate gate = newGate();
+        Location location = newLocation(45.0, NOW);
+
+        assertThat(gate.accept(location, NOW), equalTo(true));
+        assertThat(gate.accept(location, NOW + 2 * INTERVAL), equalTo(false));
+        assertThat(gate.accept(newLocation(45.0, NOW + 1000), NOW + 2 * INTERVAL),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldDropUpdatesTooSoonAfterTheLastOne() {
+        PassiveLocationGate gate = newGate();
+        assertThat(gate.accept(newLocation(45.0, NOW), NOW), equalTo(true));
+
+        long tooSoon = NOW + INTERVAL - 1;
+        assertThat(gate.isDue(tooSoon), equalTo(false));
+        assertThat(gate.accept(newLocation(45.1, tooSoon), tooSoon), equalTo(false));
+
+        long due = NOW + INTERVAL;
+        assertThat(gate.isDue(due), equalTo(true));
+        assertThat(gate.accept(newLocation(45.1, due), due), equalTo(true));
+    }
+
+    @Test
+    public void shouldFallBackToAnInMemoryRecordWhenTheFileCantBeMapped() {
+        PassiveLocationGate gate = newGate(new File(folder.getRoot(), "missing/gate"));
+        Location location = newLocation(45.0, NOW);
+
+        assertThat(gate.accept(location, NOW), equalTo(true));
+        assertThat(gate.isDue(NOW + 1), equalTo(false));
+        assertThat(gate.accept(location, NOW + INTERVAL), equalTo(false));
+    }
+
+    @Test
+    public void shouldReadTheRecordWrittenByAnotherInstance() {
+        // As if running in two processes of the app.
+        PassiveLocationGate gate = newGate();
+        PassiveLocationGate otherGate = newGate();
+        Location location = newLocation(45.0, NOW);
+
+        assertThat(gate.accept(location, NOW), equalTo(true));
+        assertThat(otherGate.isDue(NOW + 1), equalTo(false));
+        assertThat(otherGate.accept(location, NOW + INTERVAL), equalTo(false));
+        assertThat(otherGate.accept(newLocation(45.1, NOW + 1000), NOW + INTERVAL),
+                equalTo(true));
+
+        assertThat(gate.isDue(NOW + INTERVAL + 1), equalTo(false));
+        // A gate created later, i.e. after the process was restarted, picks the record up too.
+        assertThat(newGate().isDue(NOW + INTERVAL + 1), equalTo(false));
+    }
+}